@@ -1,7 +1,10 @@
 package com.hedgefund.exceptionprocessor;
 
+import com.hedgefund.exceptionprocessor.config.NativeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
@@ -14,9 +17,13 @@ import org.springframework.scheduling.annotation.EnableScheduling;
  * 2) allow background async methods,
  * 3) run scheduled jobs (used by the Redis stale-message reclaimer).
  */
-@SpringBootApplication
+// R2DBC is only used by the optional reactive pipeline, which builds its own pool: an
+// auto-configured ConnectionFactory bean would make Boot back off the JDBC DataSource.
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 @EnableAsync
 @EnableScheduling
+// Reflection/resource metadata for the native image (no effect on the JVM).
+@ImportRuntimeHints(NativeHints.class)
 public class ExceptionServiceApplication {
     /**
      * JVM entry method.
@@ -0,0 +1,38 @@
+package com.hedgefund.exceptionprocessor.actuator;
+
+import com.hedgefund.exceptionprocessor.lane.HotKeyDetector;
+import com.hedgefund.exceptionprocessor.lane.HotSecurityIds;
+import com.hedgefund.exceptionprocessor.lane.KeyedLaneExecutor;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * `GET /actuator/hotkeys`: heavy-hitter securityIds for ops.
+ *
+ *Sections:
+ * - `rowsTopK`: largest row counts in the current row-volume window,
+ * - `hotByRows`: IDs paged on their own (hot in the last completed window),
+ * - `hotByLaneTraffic`: IDs dominating a lane's trigger events in its last window.
+ */
+@Component
+@Endpoint(id = "hotkeys")
+@RequiredArgsConstructor
+public class HotKeysEndpoint {
+    private final HotSecurityIds hotIds;
+    private final KeyedLaneExecutor lanes;
+
+    @ReadOperation
+    public HotKeysReport hotKeys() {
+        return new HotKeysReport(hotIds.top(), hotIds.lastWindow(), lanes.hotKeys());
+    }
+
+    public record HotKeysReport(
+            List<HotKeyDetector.HotKey> rowsTopK,
+            List<HotKeyDetector.HotKey> hotByRows,
+            List<HotKeyDetector.HotKey> hotByLaneTraffic
+    ) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.hedgefund.exceptionprocessor.actuator;
+
+import com.hedgefund.exceptionprocessor.jfr.JfrRecordings;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * `/actuator/jfr`: Flight Recorder recordings on demand, without attaching a profiler.
+ *
+ *Operations:
+ * - `GET /actuator/jfr`: recordings started by this service (the continuous one included),
+ * - `POST /actuator/jfr` with optional `name`, `settings` (`default`/`profile`) and
+ *   `durationSeconds`: starts a recording,
+ * - `POST /actuator/jfr/{id}`: stops it (data kept),
+ * - `GET /actuator/jfr/{id}`: downloads it as a `.jfr` file (a running one is snapshotted),
+ * - `DELETE /actuator/jfr/{id}`: stops and discards it.
+ *
+ *Open the file in JDK Mission Control, or `jfr print --events com.hedgefund.exceptions.* file.jfr`.
+ */
+@Component
+@Endpoint(id = "jfr")
+@RequiredArgsConstructor
+public class JfrEndpoint {
+    private final JfrRecordings recordings;
+
+    @ReadOperation
+    public List<JfrRecordings.RecordingInfo> recordings() {
+        return recordings.list();
+    }
+
+    @WriteOperation
+    public JfrRecordings.RecordingInfo start(
+            @Nullable String name,
+            @Nullable String settings,
+            @Nullable Long durationSeconds
+    ) throws IOException, ParseException {
+        try {
+            return recordings.start(name, settings, durationSeconds == null ? null : Duration.ofSeconds(durationSeconds));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // 400 instead of 500: the request is at fault, not the service.
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+
+    @WriteOperation
+    public JfrRecordings.RecordingInfo stop(@Selector long id) {
+        return recordings.stop(id);
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public Resource download(@Selector long id) throws IOException {
+        Path file = recordings.dump(id);
+        return file == null ? null : new FileSystemResource(file);
+    }
+
+    @DeleteOperation
+    public boolean close(@Selector long id) throws IOException {
+        return recordings.close(id);
+    }
+}
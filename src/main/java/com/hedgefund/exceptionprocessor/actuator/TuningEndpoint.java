@@ -0,0 +1,76 @@
+package com.hedgefund.exceptionprocessor.actuator;
+
+import com.hedgefund.exceptionprocessor.tuning.RuntimeTuning;
+import java.security.Principal;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.SecurityContext;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * `/actuator/tuning`: batch and worker settings changed without a restart.
+ *
+ *Operations:
+ * - `GET /actuator/tuning`: current settings and the recent changes,
+ * - `POST /actuator/tuning` with any of `streamReadCount`, `maxInFlightBatches`,
+ *   `securityIdQueryChunkSize`, `workerCorePoolSize`, `workerMaxPoolSize`,
+ *   `reclaimerIntervalMs` and an optional `reason`: applies them all or, if any is
+ *   invalid, none (400 listing every violation).
+ *
+ *Omitted values stay as they are. See {@link RuntimeTuning} for how each one is applied.
+ *
+ *Operator-only: not exposed by default, HTTP basic as the `ops` account when exposed
+ * (ActuatorSecurityConfig). Updates without an authenticated caller are refused (403),
+ * so every audit entry names who made the change.
+ */
+@Component
+@Endpoint(id = "tuning")
+@RequiredArgsConstructor
+public class TuningEndpoint {
+    private final RuntimeTuning tuning;
+
+    @ReadOperation
+    public TuningReport tuning() {
+        return new TuningReport(tuning.current(), tuning.history());
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<RuntimeTuning.Change> update(
+            SecurityContext security,
+            @Nullable Integer streamReadCount,
+            @Nullable Integer maxInFlightBatches,
+            @Nullable Integer securityIdQueryChunkSize,
+            @Nullable Integer workerCorePoolSize,
+            @Nullable Integer workerMaxPoolSize,
+            @Nullable Long reclaimerIntervalMs,
+            @Nullable String reason
+    ) {
+        Principal principal = security.getPrincipal();
+        if (principal == null) {
+            return new WebEndpointResponse<>(HttpStatus.FORBIDDEN.value());
+        }
+        try {
+            return new WebEndpointResponse<>(tuning.apply(current -> new RuntimeTuning.Settings(
+                    streamReadCount != null ? streamReadCount : current.streamReadCount(),
+                    maxInFlightBatches != null ? maxInFlightBatches : current.maxInFlightBatches(),
+                    securityIdQueryChunkSize != null ? securityIdQueryChunkSize : current.securityIdQueryChunkSize(),
+                    workerCorePoolSize != null ? workerCorePoolSize : current.workerCorePoolSize(),
+                    workerMaxPoolSize != null ? workerMaxPoolSize : current.workerMaxPoolSize(),
+                    reclaimerIntervalMs != null ? reclaimerIntervalMs : current.reclaimerIntervalMs()
+            ), principal.getName(), reason));
+        } catch (IllegalArgumentException e) {
+            // 400: nothing was applied.
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+
+    public record TuningReport(RuntimeTuning.Settings current, List<RuntimeTuning.Change> history) {
+    }
+}
@@ -0,0 +1,218 @@
+package com.hedgefund.exceptionprocessor.batch;
+
+import com.hedgefund.exceptionprocessor.ingest.IngestEvent;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Ordered set of distinct securityIds for one batch, indexed 0..size-1.
+ *
+ *Replaces the per-batch `LinkedHashSet<String>`: IDs are interned to ordinals and
+ * deduplicated through an {@link IntIntHashMap} (ordinal -> batch index), so membership
+ * and index lookups do not allocate. Per-ID state elsewhere (success, failure,
+ * grouping) is kept in bitsets and int arrays addressed by batch index. IDs the
+ * interner refuses (dictionary full) fall back to a small String-keyed map.
+ *
+ *Not thread-safe while being built; read-only use after hand-off is safe.
+ */
+public final class IdBatch extends AbstractSet<String> {
+    private final SecurityIdInterner interner;
+    private final IntIntHashMap indexByOrdinal;
+    // Only allocated once the interner is full.
+    private Map<String, Integer> overflow;
+    private String[] ids;
+    // Trigger event per batch index (Kafka headers, tracing); allocated on first attach.
+    private IngestEvent[] origins;
+    private int size;
+
+    public IdBatch(SecurityIdInterner interner, int expectedSize) {
+        this.interner = interner;
+        this.indexByOrdinal = new IntIntHashMap(expectedSize);
+        this.ids = new String[Math.max(4, expectedSize)];
+    }
+
+    /**
+     * Builds a batch from arbitrary input, dropping null/blank values and duplicates.
+     */
+    public static IdBatch of(SecurityIdInterner interner, Iterable<String> securityIds, int expectedSize) {
+        IdBatch batch = new IdBatch(interner, expectedSize);
+        for (String id : securityIds) {
+            if (id != null && !id.isBlank()) {
+                batch.addId(id);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Adds {@code securityId} unless present.
+     *
+     * @return batch index of a newly added ID, or {@code -(index + 1)} if it was already present
+     */
+    public int addId(String securityId) {
+        int ordinal = interner.intern(securityId);
+        int existing;
+        if (ordinal != SecurityIdInterner.NOT_INTERNED) {
+            existing = indexByOrdinal.putIfAbsent(ordinal, size, -1);
+        } else {
+            if (overflow == null) {
+                overflow = new HashMap<>();
+            }
+            Integer found = overflow.putIfAbsent(securityId, size);
+            existing = found == null ? -1 : found;
+        }
+        if (existing >= 0) {
+            return -(existing + 1);
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size] = securityId;
+        return size++;
+    }
+
+    /**
+     * Batch index of {@code securityId}, or -1 if it is not part of this batch.
+     */
+    public int indexOf(String securityId) {
+        int ordinal = interner.ordinalOf(securityId);
+        if (ordinal != SecurityIdInterner.NOT_INTERNED) {
+            int index = indexByOrdinal.get(ordinal, -1);
+            if (index >= 0) {
+                return index;
+            }
+        }
+        if (overflow != null) {
+            Integer index = overflow.get(securityId);
+            return index == null ? -1 : index;
+        }
+        return -1;
+    }
+
+    /**
+     * ID at batch index {@code index}.
+     */
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return ids[index];
+    }
+
+    /**
+     * Attaches the trigger event that requested the ID at {@code index}.
+     */
+    public void setOrigin(int index, IngestEvent origin) {
+        if (origins == null) {
+            origins = new IngestEvent[ids.length];
+        } else if (origins.length <= index) {
+            origins = Arrays.copyOf(origins, ids.length);
+        }
+        origins[index] = origin;
+    }
+
+    /**
+     * Trigger event attached to batch index {@code index}, or null.
+     */
+    public IngestEvent origin(int index) {
+        return origins == null || index >= origins.length ? null : origins[index];
+    }
+
+    /**
+     * Read-only list view in batch-index order (no copy); use for chunking with `subList`.
+     */
+    public List<String> asList() {
+        return Arrays.asList(ids).subList(0, size);
+    }
+
+    /**
+     * Read-only set view of the IDs whose bit is set in {@code members}.
+     */
+    public Subset subset(BitSet members) {
+        return new Subset(members);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String s && indexOf(s) >= 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return asList().iterator();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Subset of a batch backed by a bitset over batch indexes.
+     *
+     *Callers holding the batch index of an ID use {@link #containsIndex} and skip the
+     * String lookup entirely.
+     */
+    public final class Subset extends AbstractSet<String> {
+        private final BitSet members;
+        private final int cardinality;
+
+        private Subset(BitSet members) {
+            this.members = members;
+            this.cardinality = members.cardinality();
+        }
+
+        /**
+         * Batch this subset belongs to.
+         */
+        public IdBatch batch() {
+            return IdBatch.this;
+        }
+
+        public boolean containsIndex(int index) {
+            return members.get(index);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof String s)) {
+                return false;
+            }
+            int index = indexOf(s);
+            return index >= 0 && members.get(index);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<>() {
+                private int next = members.nextSetBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0 && next < size;
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    String id = ids[next];
+                    next = members.nextSetBit(next + 1);
+                    return id;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return cardinality;
+        }
+    }
+}
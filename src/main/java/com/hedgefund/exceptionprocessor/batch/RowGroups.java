@@ -0,0 +1,89 @@
+package com.hedgefund.exceptionprocessor.batch;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Rows of one page grouped by the batch index of their securityId (counting sort).
+ *
+ *Replaces `groupingBy(..., LinkedHashMap::new, toList())`: rows are placed into one
+ * array, contiguous per securityId, and groups are ordered by first appearance, so a
+ * page ordered oldest first yields groups (and rows inside each) oldest first. Rows
+ * whose key is not in the batch are counted in {@link #unmatchedRows()} and dropped.
+ */
+public final class RowGroups<T> {
+    private final List<T> sorted;
+    // Batch index of each group, in first-seen order.
+    private final int[] groupBatchIndex;
+    // Group g spans sorted[groupStart[g], groupStart[g + 1]).
+    private final int[] groupStart;
+    private final int groupCount;
+    private final int unmatchedRows;
+
+    private RowGroups(List<T> sorted, int[] groupBatchIndex, int[] groupStart, int groupCount, int unmatchedRows) {
+        this.sorted = sorted;
+        this.groupBatchIndex = groupBatchIndex;
+        this.groupStart = groupStart;
+        this.groupCount = groupCount;
+        this.unmatchedRows = unmatchedRows;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> RowGroups<T> of(IdBatch batch, List<T> rows, Function<? super T, String> keyOf) {
+        int n = rows.size();
+        int[] rowBatchIndex = new int[n];
+        // Per batch index: row count, later reused as the write cursor.
+        int[] counts = new int[batch.size()];
+        int[] order = new int[Math.min(n, batch.size())];
+        int groups = 0;
+        int unmatched = 0;
+
+        for (int i = 0; i < n; i++) {
+            int index = batch.indexOf(keyOf.apply(rows.get(i)));
+            rowBatchIndex[i] = index;
+            if (index < 0) {
+                unmatched++;
+            } else if (counts[index]++ == 0) {
+                order[groups++] = index;
+            }
+        }
+
+        int[] start = new int[groups + 1];
+        for (int g = 0; g < groups; g++) {
+            int index = order[g];
+            start[g + 1] = start[g] + counts[index];
+            counts[index] = start[g];
+        }
+        Object[] out = new Object[start[groups]];
+        for (int i = 0; i < n; i++) {
+            int index = rowBatchIndex[i];
+            if (index >= 0) {
+                out[counts[index]++] = rows.get(i);
+            }
+        }
+        return new RowGroups<>((List<T>) Arrays.asList(out), order, start, groups, unmatched);
+    }
+
+    public int groupCount() {
+        return groupCount;
+    }
+
+    /**
+     * Batch index of the securityId of group {@code g}.
+     */
+    public int batchIndex(int g) {
+        return groupBatchIndex[g];
+    }
+
+    /**
+     * Rows of group {@code g} in page order (list view, no copy).
+     */
+    public List<T> rows(int g) {
+        return sorted.subList(groupStart[g], groupStart[g + 1]);
+    }
+
+    public int unmatchedRows() {
+        return unmatchedRows;
+    }
+}
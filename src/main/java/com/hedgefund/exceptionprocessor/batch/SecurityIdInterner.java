@@ -0,0 +1,75 @@
+package com.hedgefund.exceptionprocessor.batch;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Process-wide, bounded dictionary from securityId to a dense int ordinal.
+ *
+ *Ordinals let batch bookkeeping (dedup, grouping, success tracking) run on primitive
+ * int maps and bitsets instead of String-keyed collections. Ordinals are never reused
+ * or evicted, so once `app.batch.interner-capacity` distinct IDs have been seen, new
+ * IDs get {@link #NOT_INTERNED} and {@link IdBatch} handles them on a slower
+ * String-keyed fallback. Roughly 100 bytes per entry (key, node, boxed ordinal).
+ */
+@Component
+public class SecurityIdInterner {
+    /**
+     * Returned for IDs that were never interned (capacity reached or lookup-only miss).
+     */
+    public static final int NOT_INTERNED = -1;
+
+    private final ConcurrentHashMap<String, Integer> ordinals;
+    private final AtomicInteger next = new AtomicInteger();
+    private final int capacity;
+
+    @Autowired
+    public SecurityIdInterner(AppProperties props) {
+        this(props.getBatch().getInternerCapacity());
+    }
+
+    public SecurityIdInterner(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        this.ordinals = new ConcurrentHashMap<>(Math.min(this.capacity, 1 << 16));
+    }
+
+    /**
+     * Returns the ordinal of {@code securityId}, assigning the next one on first sight.
+     *
+     * @return ordinal, or {@link #NOT_INTERNED} once the dictionary is full
+     */
+    public int intern(String securityId) {
+        // Lock-free read for the common case of an already known ID.
+        Integer known = ordinals.get(securityId);
+        if (known != null) {
+            return known;
+        }
+        if (next.get() >= capacity) {
+            return NOT_INTERNED;
+        }
+        Integer assigned = ordinals.computeIfAbsent(securityId, k -> {
+            int ordinal = next.getAndIncrement();
+            // Returning null leaves the map unchanged.
+            return ordinal < capacity ? ordinal : null;
+        });
+        return assigned == null ? NOT_INTERNED : assigned;
+    }
+
+    /**
+     * Lookup without assignment, for keys coming back from the DB.
+     */
+    public int ordinalOf(String securityId) {
+        Integer known = ordinals.get(securityId);
+        return known == null ? NOT_INTERNED : known;
+    }
+
+    /**
+     * Number of interned IDs.
+     */
+    public int size() {
+        return ordinals.size();
+    }
+}
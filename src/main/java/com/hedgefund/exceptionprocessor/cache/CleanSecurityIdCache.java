@@ -0,0 +1,215 @@
+package com.hedgefund.exceptionprocessor.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded negative cache of securityIds known to have no pending rows.
+ *
+ *Most trigger events in steady state name a securityId whose rows were already
+ * published by an earlier event, so the DB query finds nothing. This cache lets the
+ * service treat such IDs as handled without a query.
+ *
+ *Correctness rests on an insert-side version signal rather than on delivery order:
+ * writers `INCR <version-key-prefix><securityId>` after the insert commits and before
+ * emitting the trigger event. An entry remembers the version read *before* the DB
+ * query that found the ID clean, and a lookup is a hit only while the current version
+ * is unchanged (one `MGET` per batch). A row inserted after the query therefore always
+ * bumps the version first and forces a miss; a row inserted before the query was seen
+ * by it. With `version-signal: none` the version is a local striped generation that
+ * {@link #invalidate} bumps (the Postgres NOTIFY source calls it for every
+ * notification), so an invalidation racing a query can never be overwritten by it.
+ *
+ *Any failure to read versions degrades to "no hits, no new entries", never to a skip.
+ */
+@Component
+@Slf4j
+public class CleanSecurityIdCache {
+    // Version used for IDs whose Redis key does not exist yet (never written).
+    private static final long NO_VERSION = 0L;
+    // Local generation stripes for `version-signal: none`; collisions only cost extra misses.
+    private static final int GENERATION_STRIPES = 4096;
+
+    private final AppProperties.CleanIdCache cfg;
+    // Absent when Redis is not on the classpath/context (e.g. in-memory runs).
+    private final StringRedisTemplate redis;
+    // securityId -> insert version observed before the query that found it clean.
+    private final Cache<String, Long> clean;
+    // Bumped by invalidate(); the local version of an ID is its stripe's generation.
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+
+    @Autowired
+    public CleanSecurityIdCache(AppProperties props, ObjectProvider<StringRedisTemplate> redis, MeterRegistry meterRegistry) {
+        this(props, redis.getIfAvailable(), meterRegistry);
+    }
+
+    public CleanSecurityIdCache(AppProperties props, StringRedisTemplate redis, MeterRegistry meterRegistry) {
+        this.cfg = props.getCleanIdCache();
+        this.redis = redis;
+        checkVersionSignal(props);
+        this.clean = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, cfg.getMaxSize()))
+                .expireAfterWrite(Duration.ofMillis(Math.max(1, cfg.getTtlMs())))
+                .build();
+        this.hits = Counter.builder("exceptions.clean.cache.lookups")
+                .tag("result", "hit")
+                .description("securityIds answered from the clean-ID cache without a DB query")
+                .register(meterRegistry);
+        this.misses = Counter.builder("exceptions.clean.cache.lookups")
+                .tag("result", "miss")
+                .description("securityIds that needed a DB query")
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("exceptions.clean.cache.invalidations")
+                .description("Explicit clean-ID cache invalidations")
+                .register(meterRegistry);
+        Gauge.builder("exceptions.clean.cache.size", clean, Cache::estimatedSize)
+                .description("Entries in the clean-ID cache")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return cfg.isEnabled();
+    }
+
+    /**
+     * Reads the current insert version of each ID in one round-trip.
+     *
+     * @return version per ID, or {@code null} when the cache is disabled or versions are unavailable
+     */
+    public Map<String, Long> versions(Collection<String> securityIds) {
+        if (!cfg.isEnabled() || securityIds.isEmpty()) {
+            return null;
+        }
+        Map<String, Long> versions = new HashMap<>(securityIds.size() * 2);
+        if (!usesRedisVersions()) {
+            for (String id : securityIds) {
+                versions.put(id, generations.get(stripe(id)));
+            }
+            return versions;
+        }
+        if (redis == null) {
+            return null;
+        }
+        List<String> ids = new ArrayList<>(securityIds);
+        List<String> keys = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            keys.add(cfg.getVersionKeyPrefix() + id);
+        }
+        try {
+            List<String> values = redis.opsForValue().multiGet(keys);
+            if (values == null || values.size() != ids.size()) {
+                return null;
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                String value = values.get(i);
+                versions.put(ids.get(i), value == null ? NO_VERSION : Long.parseLong(value));
+            }
+            return versions;
+        } catch (Exception e) {
+            // Fail open: every ID goes to the DB this time.
+            log.debug("Clean-ID cache version read failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Splits IDs into known-clean (returned) and the rest; records hit/miss metrics.
+     */
+    public Set<String> knownClean(Collection<String> securityIds, Map<String, Long> versions) {
+        if (versions == null) {
+            return Set.of();
+        }
+        Set<String> known = new LinkedHashSet<>();
+        for (String id : securityIds) {
+            Long cachedVersion = clean.getIfPresent(id);
+            if (cachedVersion != null && cachedVersion.equals(versions.get(id))) {
+                known.add(id);
+            }
+        }
+        hits.increment(known.size());
+        misses.increment(securityIds.size() - known.size());
+        return known;
+    }
+
+    /**
+     * Records IDs found clean by a query that ran after {@code versions} was read.
+     */
+    public void markClean(Collection<String> securityIds, Map<String, Long> versions) {
+        if (versions == null) {
+            return;
+        }
+        for (String id : securityIds) {
+            Long version = versions.get(id);
+            if (version != null) {
+                clean.put(id, version);
+            }
+        }
+    }
+
+    /**
+     * Drops IDs that are known to have (or may have) new rows.
+     */
+    public void invalidate(Collection<String> securityIds) {
+        if (!cfg.isEnabled() || securityIds.isEmpty()) {
+            return;
+        }
+        // Bump first so a query already in flight cannot re-insert the entry afterwards.
+        for (String id : securityIds) {
+            generations.incrementAndGet(stripe(id));
+        }
+        clean.invalidateAll(securityIds);
+        invalidations.increment(securityIds.size());
+    }
+
+    private static int stripe(String securityId) {
+        return (securityId.hashCode() & 0x7fffffff) % GENERATION_STRIPES;
+    }
+
+    /**
+     * Refuses an enabled cache whose invalidations cannot see every insert.
+     *
+     *Without Redis versions only {@link #invalidate} evicts entries, and only the Postgres
+     * NOTIFY source calls it; any other source would skip rows inserted for a cached ID
+     * until the TTL expired.
+     */
+    private void checkVersionSignal(AppProperties props) {
+        if (!cfg.isEnabled() || usesRedisVersions()) {
+            return;
+        }
+        if (!"none".equalsIgnoreCase(cfg.getVersionSignal())) {
+            throw new IllegalStateException("Unknown app.clean-id-cache.version-signal: " + cfg.getVersionSignal());
+        }
+        String source = props.getIngest().getSource();
+        if (!"postgres-notify".equalsIgnoreCase(source)) {
+            throw new IllegalStateException("app.clean-id-cache.version-signal=none requires "
+                    + "app.ingest.source=postgres-notify (got " + source + "): no other source "
+                    + "invalidates cached IDs on insert, so new rows would be skipped");
+        }
+    }
+
+    private boolean usesRedisVersions() {
+        return "redis".equalsIgnoreCase(cfg.getVersionSignal());
+    }
+}
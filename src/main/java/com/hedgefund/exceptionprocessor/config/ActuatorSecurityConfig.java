@@ -0,0 +1,42 @@
+package com.hedgefund.exceptionprocessor.config;
+
+import com.hedgefund.exceptionprocessor.actuator.JfrEndpoint;
+import com.hedgefund.exceptionprocessor.actuator.TuningEndpoint;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+
+/**
+ * HTTP security: operator-only actuator endpoints need HTTP basic with role `OPS`.
+ *
+ *Protected: `jfr` (recordings contain thread stacks, SQL text and event payloads, and
+ * starting one writes to disk) and `tuning` (changes live settings; the audit log records
+ * the authenticated user). Everything else (health for the ECS check, metrics, the
+ * application itself) stays open as before. The account is `spring.security.user.*`;
+ * without a configured password Spring Boot generates a random one at startup, so the
+ * protected endpoints are locked rather than open.
+ *
+ *Protected endpoints are also left out of the default web exposure; see application.yml.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ActuatorSecurityConfig {
+    static final String OPS_ROLE = "OPS";
+
+    @Bean
+    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+        http.authorizeHttpRequests(requests -> requests
+                        .requestMatchers(EndpointRequest.to(JfrEndpoint.class, TuningEndpoint.class)).hasRole(OPS_ROLE)
+                        .anyRequest().permitAll())
+                .httpBasic(Customizer.withDefaults())
+                // Operator calls come from curl/scripts with basic auth, not from browser sessions.
+                .csrf(csrf -> csrf.ignoringRequestMatchers(EndpointRequest.toAnyEndpoint()))
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+        return http.build();
+    }
+}
@@ -1,5 +1,8 @@
 package com.hedgefund.exceptionprocessor.config;
 
+import com.hedgefund.exceptionprocessor.persistence.Severity;
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
@@ -29,6 +32,42 @@ public class AppProperties {
     private Batch batch = new Batch();
     // Settings for DB query page/chunk sizes.
     private Paging paging = new Paging();
+    // Settings for the scheduled orphaned-row backlog sweeper.
+    private Sweeper sweeper = new Sweeper();
+    // Settings for alternative trigger sources besides the Redis stream.
+    private Ingest ingest = new Ingest();
+    // Settings for the negative cache of securityIds known to have no pending rows.
+    private CleanIdCache cleanIdCache = new CleanIdCache();
+    // Shared Redis index of securityIds with pending rows, used to pre-filter batches.
+    private PendingIndex pendingIndex = new PendingIndex();
+    // Connection layout and ACK batching of the Redis stream source.
+    private RedisCommands redisCommands = new RedisCommands();
+    // Optional non-blocking pipeline (Redis reactive + R2DBC + reactor-kafka).
+    private Reactive reactive = new Reactive();
+    // Per-securityId ordered processing lanes.
+    private Lanes lanes = new Lanes();
+    // Severity-aware publishing: priority rows first, optionally on reserved lanes.
+    private Priority priority = new Priority();
+    // Row-volume heavy-hitter detection and split processing of hot securityIds.
+    private HotKeys hotKeys = new HotKeys();
+    // Data-access tuning (query shape, pool sizing).
+    private Jdbc jdbc = new Jdbc();
+    // Optional read replica for pending-row page reads.
+    private ReadReplica readReplica = new ReadReplica();
+    // Range partitioning of `exceptions` on occurred_at and processed-partition archival.
+    private Partitioning partitioning = new Partitioning();
+    // Where publish state is recorded: processed_at on the row, or the publish ledger.
+    private Persistence persistence = new Persistence();
+    // Write-behind publish marking through a local memory-mapped journal.
+    private WriteBehind writeBehind = new WriteBehind();
+    // Graceful shutdown: drain in-flight batches, then hand off what is left.
+    private Drain drain = new Drain();
+    // Startup warm-up (fast-start profile).
+    private Startup startup = new Startup();
+    // Per-record log sampling.
+    private Logging logging = new Logging();
+    // Flight recordings: continuous recording and limits of on-demand ones (`jfr` endpoint).
+    private Jfr jfr = new Jfr();
 
     /**
      * Redis stream wiring config.
@@ -59,10 +98,10 @@ public class AppProperties {
      */
     @Data
     public static class Worker {
-        // Minimum worker threads kept alive for async processing.
-        private int corePoolSize = 4;
-        // Maximum worker threads; equal to core here for stable throughput.
-        private int maxPoolSize = 4;
+        // Minimum worker threads kept alive for async processing (tunable at runtime, `tuning` endpoint).
+        private volatile int corePoolSize = 4;
+        // Maximum worker threads; equal to core here for stable throughput (tunable at runtime).
+        private volatile int maxPoolSize = 4;
         // Queue size before we apply backpressure via rejection.
         private int queueCapacity = 200;
         // Idle timeout before excess threads are removed.
@@ -76,8 +115,8 @@ public class AppProperties {
     public static class Retry {
         // Pending message idle threshold before we treat it as stale and reclaim it.
         private long claimStaleAfterMs = 60_000L;
-        // How often the scheduled reclaimer checks Redis pending entries.
-        private long reclaimerIntervalMs = 30_000L;
+        // How often the scheduled reclaimer checks Redis pending entries (tunable at runtime).
+        private volatile long reclaimerIntervalMs = 30_000L;
     }
 
     /**
@@ -85,20 +124,395 @@ public class AppProperties {
      */
     @Data
     public static class Batch {
-        // How many stream entries to fetch per Redis read call.
-        private int streamReadCount = 200;
-        // Max batches processed concurrently in this JVM.
-        private int maxInFlightBatches = 4;
-        // Query chunk size for `securityId IN (...)` DB fetches.
-        private int securityIdQueryChunkSize = 100;
+        // How many stream entries to fetch per Redis read call (tunable at runtime).
+        private volatile int streamReadCount = 200;
+        // Max batches processed concurrently in this JVM (tunable at runtime).
+        private volatile int maxInFlightBatches = 4;
+        // Query chunk size for `securityId IN (...)` DB fetches (tunable at runtime).
+        private volatile int securityIdQueryChunkSize = 100;
+        // Max distinct securityIds interned to int ordinals (~100 bytes each); later IDs use a String fallback.
+        private int internerCapacity = 262_144;
     }
 
     /**
-     * Pagination config placeholder for future read strategies.
+     * Pagination config for keyset-paged pending-row reads.
      */
     @Data
     public static class Paging {
-        // Reserved for future pagination tuning when large DB scans are needed.
+        // Max rows materialized per DB page; bounds memory for securityIds with huge backlogs.
         private int pageSize = 1000;
     }
+
+    /**
+     * Backlog sweeper config.
+     *
+     *The sweeper re-drives unprocessed rows that never got a Redis event, so it is
+     * the safety net behind the event-driven path.
+     */
+    @Data
+    public static class Sweeper {
+        // Master switch for the scheduled sweep.
+        private boolean enabled = true;
+        // Delay between sweep runs.
+        private long intervalMs = 60_000L;
+        // Rows unprocessed for longer than this are considered orphaned.
+        private long orphanedAfterMs = 300_000L;
+        // Upper bound on securityIds re-driven per second, so a sweep never starves live traffic.
+        private int maxSecurityIdsPerSecond = 200;
+        // Redis key used as the leader-election lock across instances.
+        private String lockKey = "exception-processor:sweeper:lock";
+        // Lock lease; a run stops dispatching before the lease would expire.
+        private long lockTtlMs = 300_000L;
+    }
+
+    /**
+     * Trigger-source config.
+     *
+     *Exactly one {@code IngestSource} is active per instance; batching, backpressure
+     * and ACK rules in StreamsConsumer are the same for all of them.
+     */
+    @Data
+    public static class Ingest {
+        // Active source: redis-stream (default), kafka, postgres-notify, or memory (tests/load tests).
+        private String source = "redis-stream";
+        // Kafka-topic trigger source settings.
+        private KafkaSource kafka = new KafkaSource();
+        // Postgres LISTEN/NOTIFY trigger fed by the `exceptions` insert trigger.
+        private PostgresNotify postgresNotify = new PostgresNotify();
+    }
+
+    /**
+     * Kafka-topic trigger source config.
+     */
+    @Data
+    public static class KafkaSource {
+        // Topic carrying trigger events (value = securityId or JSON with a securityId field).
+        private String topic = "security.events";
+        // Consumer group shared by all instances, like the Redis consumer group.
+        private String groupId = "exception-workers";
+    }
+
+    /**
+     * Postgres LISTEN/NOTIFY trigger config.
+     *
+     *Only useful when the `exceptions` writer shares this Postgres; it removes the
+     * Redis hop so inserts reach Kafka within milliseconds.
+     */
+    @Data
+    public static class PostgresNotify {
+        // NOTIFY channel; install-trigger writes it into the trigger, else apply the migration with it.
+        private String channel = "exception_inserts";
+        // Apply the insert-trigger migration at startup (idempotent).
+        private boolean installTrigger = true;
+        // Linger window to coalesce notification bursts into one batch.
+        private long batchWindowMs = 20L;
+        // Delay before reconnecting after the LISTEN connection drops.
+        private long reconnectBackoffMs = 1_000L;
+    }
+
+    /**
+     * Negative cache of "known clean" securityIds (no pending rows).
+     *
+     *Off by default: it relies on the writer bumping a per-securityId version key
+     * after each insert commit and before emitting the trigger event.
+     */
+    @Data
+    public static class CleanIdCache {
+        // Master switch; when off every event costs a DB query as before.
+        private boolean enabled = false;
+        // Max cached securityIds; least recently used are evicted beyond this.
+        private long maxSize = 100_000L;
+        // Entry lifetime; bounds staleness if a writer skips the version bump.
+        private long ttlMs = 60_000L;
+        // Version signal: `redis` (per-securityId INCR key) or `none` (TTL + explicit invalidation; postgres-notify only).
+        private String versionSignal = "redis";
+        // Redis key prefix of the per-securityId insert version (`<prefix><securityId>`).
+        private String versionKeyPrefix = "exceptions:version:";
+    }
+
+    /**
+     * Shared pending-row index (Redis bitmap over securityId ordinals).
+     *
+     *Off by default: writers must mark the securityId after each insert commit and
+     * before emitting the trigger event.
+     */
+    @Data
+    public static class PendingIndex {
+        // Master switch; when off every valid event goes to the DB.
+        private boolean enabled = false;
+        // Key prefix; keep the `{...}` hash tag so all index keys land in one cluster slot.
+        private String keyPrefix = "{exceptions:pending}:";
+    }
+
+    /**
+     * Redis stream source connections: dedicated blocking-read connection plus a shared,
+     * manually flushed connection for XACK/XPENDING/XCLAIM.
+     */
+    @Data
+    public static class RedisCommands {
+        // Off = every command goes through StringRedisTemplate (shared native connection).
+        private boolean dedicatedConnections = true;
+        // Buffered commands that trigger an immediate flush.
+        private int commandBatchSize = 64;
+        // Max time a buffered ACK waits for its batch to fill.
+        private long flushIntervalMs = 2L;
+    }
+
+    /**
+     * Reactive pipeline mode; replaces StreamsConsumer and the worker pool when enabled.
+     */
+    @Data
+    public static class Reactive {
+        // Off = thread-per-batch engine (StreamsConsumer + exceptionProcessingTaskExecutor).
+        private boolean enabled = false;
+        // Stream batches processed concurrently; demand for new reads stops at this many.
+        private int maxInFlightBatches = 64;
+        // securityIds of one batch processed concurrently.
+        private int maxConcurrentIdsPerBatch = 200;
+        // R2DBC URL; empty = derived from spring.datasource.url (jdbc: -> r2dbc:).
+        private String r2dbcUrl = "";
+        // R2DBC connection pool size.
+        private int r2dbcPoolMaxSize = 16;
+        // Max unacknowledged Kafka sends of the reactive sender.
+        private int kafkaMaxInFlight = 1024;
+    }
+
+    /**
+     * Keyed processing lanes: each securityId hashes to one serial lane.
+     */
+    @Data
+    public static class Lanes {
+        // Off = batches run on exceptionProcessingTaskExecutor with no cross-batch ordering.
+        private boolean enabled = true;
+        // Serial lanes (threads); IDs of different lanes run in parallel.
+        private int count = 4;
+        // Queued sub-batches per lane before submissions are rejected.
+        private int queueCapacity = 64;
+        // securityIds counted per lane between hot-key checks.
+        private int hotKeyWindow = 10_000;
+        // Share of a window's securityIds above which one ID is reported hot.
+        private double hotKeyShare = 0.2;
+        // Heavy-hitter candidates tracked per lane (Space-Saving counters).
+        private int hotKeyCandidates = 32;
+    }
+
+    /**
+     * Severity priority pass: rows of `severities` are queried and published before the rest.
+     *
+     *Order stays oldest first within each pass, not across them.
+     */
+    @Data
+    public static class Priority {
+        // Off = one pass over all pending rows in occurredAt order.
+        private boolean enabled = false;
+        // Severities published in the priority pass.
+        private List<Severity> severities = new ArrayList<>(List.of(Severity.CRITICAL, Severity.HIGH));
+        // Topic for priority rows; empty = app.kafka.topic.
+        private String topic = "";
+        // Extra lanes that only run priority passes (keyed lanes mode); 0 = run both passes on the ID's lane.
+        private int reservedLanes = 1;
+    }
+
+    /**
+     * Hot securityIds by pending-row volume; hot IDs are paged on their own instead of
+     * sharing chunk queries with cold IDs.
+     */
+    @Data
+    public static class HotKeys {
+        // Off = no row tracking; every ID shares chunk queries.
+        private boolean enabled = true;
+        // Published rows per detection window.
+        private long windowRows = 100_000L;
+        // Share of a window's rows above which a securityId is hot for the next window.
+        private double share = 0.05;
+        // Space-Saving counters; IDs above window-rows / candidates are always tracked.
+        private int candidates = 64;
+        // Entries returned by the `hotkeys` actuator endpoint.
+        private int topK = 20;
+    }
+
+    /**
+     * Data-access tuning; driver and Hibernate settings live under `spring.*`.
+     */
+    @Data
+    public static class Jdbc {
+        // Page queries bind the chunk as one array (`security_id = any(?)`) instead of `in (?, ?, ...)`.
+        private boolean arrayIdQueries = true;
+        // Hikari maximum-pool-size; 0 = derive from worker concurrency (+ extra-connections).
+        private int poolSize = 0;
+        // Connections on top of worker threads: sweeper, pending-index re-check, health checks.
+        private int extraConnections = 2;
+    }
+
+    /**
+     * Read/write split: pending-row page reads go to a replica while its lag is tolerable.
+     *
+     *Writes (processed_at updates) and the re-checks guarding against replica lag always
+     * go to the `spring.datasource` primary.
+     */
+    @Data
+    public static class ReadReplica {
+        // Off = one DataSource (the primary) for everything.
+        private boolean enabled = false;
+        // Replica JDBC URL.
+        private String url = "";
+        // Replica credentials; empty username = the primary's credentials.
+        private String username = "";
+        private String password = "";
+        // Replica reads stop (primary takes over) while measured replay lag is above this.
+        private long maxLagMs = 5_000L;
+        // How often lag is measured.
+        private long lagCheckIntervalMs = 1_000L;
+        // Returns replay lag in seconds; 0 when the replica has replayed everything it received.
+        private String lagQuery = """
+                select case when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+                       else extract(epoch from now() - pg_last_xact_replay_timestamp()) end""";
+    }
+
+    /**
+     * Time-partitioned `exceptions` table (Postgres range partitions on occurred_at).
+     *
+     *Requires db/migration/exceptions_partitioned.sql; while the table is not partitioned
+     * partition maintenance is skipped and only the pending horizon is applied.
+     */
+    @Data
+    public static class Partitioning {
+        // Off = plain table, no horizon bound on page queries.
+        private boolean enabled = false;
+        // Apply the partitioning migration at startup (exclusive locks; maintenance window).
+        private boolean installSchema = false;
+        // Width of each partition.
+        private int partitionDays = 7;
+        // Partitions kept created ahead of the current one.
+        private int premakePartitions = 4;
+        // Partitions whose range ended longer ago than this are archived once fully processed.
+        private int retentionDays = 30;
+        // Cold storage: detached partitions are exported here as gzip CSV, then dropped.
+        private String archiveDir = "archive";
+        // Partition creation/archival run interval.
+        private long maintenanceIntervalMs = 3_600_000L;
+        // How often the oldest pending occurred_at (the page-query lower bound) is re-read.
+        private long horizonRefreshMs = 10_000L;
+        // Subtracted from the oldest pending occurred_at to cover rows inserted with older timestamps.
+        private long lateArrivalMarginMs = 86_400_000L;
+    }
+
+    /**
+     * Publish-state persistence mode.
+     *
+     *`ledger` leaves `exceptions` rows untouched after insert: each publish appends
+     * `(exception_id, published_at, kafka_partition, kafka_offset)` to the narrow
+     * `exception_publish_ledger` table and pending rows are those without a ledger entry.
+     * All instances must use the same mode.
+     */
+    @Data
+    public static class Persistence {
+        // PROCESSED_AT = update exceptions.processed_at; LEDGER = insert into exception_publish_ledger.
+        private Mode mode = Mode.PROCESSED_AT;
+
+        public boolean isLedger() {
+            return mode == Mode.LEDGER;
+        }
+
+        public enum Mode {
+            PROCESSED_AT,
+            LEDGER
+        }
+    }
+
+    /**
+     * Write-behind publish marking: published rows are journaled locally and marked in
+     * Postgres by a background flusher, so Postgres write latency no longer holds up ACKs.
+     *
+     *The journal directory must be local to one instance and survive restarts; it is
+     * replayed at startup.
+     */
+    @Data
+    public static class WriteBehind {
+        // Off = each page group is marked synchronously before its securityId is ACKed.
+        private boolean enabled = false;
+        // Directory of the memory-mapped journal segments.
+        private String journalDir = "journal";
+        // Size of one journal segment file (32 bytes per published row).
+        private int segmentBytes = 8 * 1024 * 1024;
+        // How often appended entries are forced to disk (msync).
+        private long fsyncIntervalMs = 50;
+        // Flush to Postgres at least this often...
+        private long flushIntervalMs = 1000;
+        // ...or as soon as this many rows are waiting; also the ids per UPDATE / ledger batch.
+        private int flushSize = 5000;
+        // Unflushed rows above which publishing falls back to synchronous marking (DB backpressure).
+        private int maxPendingMarks = 1_000_000;
+    }
+
+    /**
+     * Shutdown drain of the thread-per-batch engine (StreamsConsumer).
+     *
+     *On shutdown the poller stops reading, in-flight batches get up to `timeout-ms` to
+     * finish and be ACKed, buffered ACKs are flushed, and events still unACKed are handed
+     * off instead of waiting `claim-stale-after-ms` for a peer's reclaimer. Keep
+     * `timeout-ms` + `worker-await-ms` below the orchestrator's stop timeout (ECS
+     * `stopTimeout`, default 30s).
+     */
+    @Data
+    public static class Drain {
+        // Longest wait for in-flight batches after reading stopped.
+        private long timeoutMs = 20_000L;
+        // Extra wait for worker threads once the drain is over; timeout-ms + this stays below stopTimeout.
+        private long workerAwaitMs = 2_000L;
+        // What happens to this consumer's unACKed events after the drain.
+        private HandOff handOff = HandOff.REQUEUE;
+
+        public enum HandOff {
+            // Re-added to the stream as new entries (old ones ACKed): the next read of any consumer gets them.
+            REQUEUE,
+            // XCLAIMed to the most recently active peer, already idle past the stale threshold.
+            CLAIM,
+            // Left pending; reclaimed after `claim-stale-after-ms`.
+            NONE
+        }
+    }
+
+    /**
+     * Startup warm-up: connections are opened before the consumer starts reading.
+     */
+    @Data
+    public static class Startup {
+        // Opens the DB pool, Kafka producer and Redis connections in parallel before the first read.
+        private boolean warmUp = false;
+        // Consumption starts after this long even if a warm-up step is still running.
+        private long warmUpTimeoutMs = 10_000L;
+    }
+
+    /**
+     * Sampling of per-record log messages (output format: `json-logs` profile, logback-spring.xml).
+     */
+    @Data
+    public static class Logging {
+        // Cap per hot-path call site (per-record publish, per-event warnings); 0 logs every line.
+        private int sampledLinesPerSecond = 10;
+    }
+
+    /**
+     * JFR recordings managed by JfrRecordings and the `jfr` actuator endpoint.
+     */
+    @Data
+    public static class Jfr {
+        // Keeps a low-overhead recording running from startup, downloadable through the endpoint.
+        private boolean continuous = true;
+        // JDK settings of the continuous recording (`default`: about 1% overhead).
+        private String continuousSettings = "default";
+        // The continuous recording keeps this much history on disk...
+        private long maxAgeMs = 900_000L;
+        // ...but no more than this many bytes.
+        private long maxSizeBytes = 100L * 1024 * 1024;
+        // JDK settings of on-demand recordings when the request names none.
+        private String onDemandSettings = "profile";
+        // On-demand recordings stop by themselves after at most this long.
+        private long onDemandMaxDurationMs = 600_000L;
+        // On-demand recordings kept (running or stopped); the oldest stopped one makes room for a new one.
+        private int maxOnDemand = 2;
+        // Where downloads are written before they are streamed; empty = `<java.io.tmpdir>/exceptions-jfr`.
+        private String dumpDir = "";
+    }
 }
@@ -1,8 +1,10 @@
 package com.hedgefund.exceptionprocessor.config;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 /**
@@ -46,6 +48,17 @@ public class AsyncConfig {
                 }
         );
 
+        // Workers inherit the submitting thread's observation (the consumer's batch span).
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+
+        // On shutdown, let queued and running batches finish (StreamsConsumer has drained by then).
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        // Only a short extra wait: the drain already spent up to `drain.timeout-ms` on these batches,
+        // and both waits together must stay inside the orchestrator's stop timeout.
+        executor.setAwaitTerminationMillis(props.getDrain().getWorkerAwaitMs());
+        // Stops after StreamsConsumer (DEFAULT_PHASE), whatever the bean registration order.
+        executor.setPhase(SmartLifecycle.DEFAULT_PHASE - 1);
+
         // Finalizes internal executor construction.
         executor.initialize();
         return executor;
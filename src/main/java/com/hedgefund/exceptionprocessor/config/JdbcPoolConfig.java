@@ -0,0 +1,55 @@
+package com.hedgefund.exceptionprocessor.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sizes the Hikari pool from worker concurrency instead of Hikari's fixed default of 10.
+ *
+ *Every processing thread holds at most one connection at a time (page query, then
+ * the processed_at update), so the pool needs one connection per thread that can run
+ * a batch plus a few for the sweeper, the pending-index re-check and health checks.
+ * More than that only adds idle server backends; fewer makes workers queue on
+ * `getConnection()`. The pool is fixed-size (minimum-idle = maximum) as Hikari
+ * recommends for steady workloads.
+ */
+@Configuration
+@Slf4j
+public class JdbcPoolConfig {
+
+    /**
+     * Static so the post-processor is registered before the DataSource is created.
+     */
+    @Bean
+    public static BeanPostProcessor hikariPoolSizer(ObjectProvider<AppProperties> props) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari) {
+                    int size = poolSize(props.getObject());
+                    hikari.setMaximumPoolSize(size);
+                    hikari.setMinimumIdle(size);
+                    log.info("Hikari pool '{}' sized to {} connection(s)", hikari.getPoolName(), size);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * `app.jdbc.pool-size` when set, else worker threads + `extra-connections`.
+     */
+    public static int poolSize(AppProperties props) {
+        if (props.getJdbc().getPoolSize() > 0) {
+            return props.getJdbc().getPoolSize();
+        }
+        int workers = props.getLanes().isEnabled()
+                ? props.getLanes().getCount() + (props.getPriority().isEnabled() ? props.getPriority().getReservedLanes() : 0)
+                : props.getWorker().getMaxPoolSize();
+        return Math.max(1, workers) + Math.max(0, props.getJdbc().getExtraConnections());
+    }
+}
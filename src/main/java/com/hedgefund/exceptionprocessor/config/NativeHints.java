@@ -0,0 +1,36 @@
+package com.hedgefund.exceptionprocessor.config;
+
+import com.hedgefund.exceptionprocessor.dto.ExceptionRecordDTO;
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.persistence.PublishLedgerEntry;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reachability metadata for the native image (`mvn -Pnative package`) that Spring AOT
+ * cannot infer from the bean definitions.
+ *
+ *Spring AOT already covers beans, `@ConfigurationProperties`, repositories and actuator
+ * endpoints; Hibernate, pgjdbc, Lettuce, Netty and the Kafka client come from their own
+ * jars or the GraalVM reachability-metadata repository (enabled in the profile). What is
+ * left is what this code reaches only by name or by reflection at runtime.
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // Kafka JsonSerializer: Jackson reads the Lombok getters (and the Severity enum) reflectively.
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), ExceptionRecordDTO.class);
+        // Spring AOT registers entity constructors and public methods; Hibernate's field access
+        // (the mappings are on fields) also needs the declared fields.
+        for (Class<?> entity : new Class<?>[]{ExceptionRecord.class, PublishLedgerEntry.class}) {
+            hints.reflection().registerType(entity,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.DECLARED_FIELDS);
+        }
+        // Loaded by path: partitioning and NOTIFY trigger migrations.
+        hints.resources().registerPattern("db/migration/*.sql");
+    }
+}
@@ -0,0 +1,56 @@
+package com.hedgefund.exceptionprocessor.config;
+
+import com.hedgefund.exceptionprocessor.repo.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Read/write split (`app.read-replica.enabled=true`): the application DataSource becomes a
+ * {@link ReplicaRoutingDataSource} over the `spring.datasource.*` primary and a read-only
+ * replica pool.
+ *
+ *Spring Boot's DataSource auto-configuration backs off once this defines `dataSource`,
+ * so the primary pool is built here from the same `spring.datasource` properties. Both
+ * pools are sized by {@link JdbcPoolConfig}: page reads move to the replica, but the
+ * processed_at updates and re-checks still take one primary connection per worker.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.read-replica", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(AppProperties props, DataSourceProperties primary) {
+        AppProperties.ReadReplica cfg = props.getReadReplica();
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("exceptions-replica-pool");
+        replica.setJdbcUrl(cfg.getUrl());
+        // Credentials default to the primary's (typical for streaming replicas).
+        replica.setUsername(cfg.getUsername().isBlank() ? primary.determineUsername() : cfg.getUsername());
+        replica.setPassword(cfg.getUsername().isBlank() ? primary.determinePassword() : cfg.getPassword());
+        replica.setReadOnly(true);
+        replica.setConnectionTimeout(5_000);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica
+    ) {
+        return new ReplicaRoutingDataSource(primary, replica);
+    }
+}
@@ -3,6 +3,7 @@ package com.hedgefund.exceptionprocessor.config;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.stream.ReadOffset;
@@ -19,6 +20,7 @@ import java.util.Collections;
  * consumer group has not been created yet.
  */
 @Configuration
+@ConditionalOnProperty(prefix = "app.ingest", name = "source", havingValue = "redis-stream", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class RedisStreamGroupInitializer {
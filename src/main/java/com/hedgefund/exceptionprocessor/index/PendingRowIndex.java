@@ -0,0 +1,174 @@
+package com.hedgefund.exceptionprocessor.index;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shared Redis index of securityIds that currently have unprocessed rows.
+ *
+ *Layout (all keys share one hash tag so the scripts also run on Redis Cluster):
+ * - `<prefix>ordinals` hash: securityId -> dense int ordinal, assigned on first mark,
+ * - `<prefix>seq`: ordinal sequence,
+ * - `<prefix>bits`: bitmap, bit `ordinal` set while the securityId has pending rows.
+ * A million distinct securityIds cost a 125 KB bitmap plus the ordinal hash. A Bloom
+ * filter was not used because bits must be cleared once rows are processed, which a
+ * plain Bloom filter cannot do.
+ *
+ *Protocol:
+ * - writers run {@link #MARK} for the securityId after the insert commits and
+ *   before emitting the trigger event ({@link #markPending} for in-JVM writers),
+ * - {@code StreamsConsumer} filters each batch with one filter-script call and ACKs
+ *   events whose bit is clear without querying Postgres,
+ * - after publishing, the service clears the bits of handled IDs, then re-checks the
+ *   DB and re-marks any ID that gained rows meanwhile. The re-check closes the race
+ *   with a writer whose row committed before the clear.
+ *
+ *False positives (bit set, no rows: a failed clear, or the re-mark race above) cost
+ * one DB query, exactly like running without the index. False negatives only happen
+ * when a writer skips the mark, or when Redis loses the bitmap without losing the
+ * ordinal hash; those rows are picked up by the backlog sweeper. If the ordinal hash is
+ * missing entirely (fresh or flushed Redis), or on any Redis error, the filter fails
+ * open and every event goes to the DB.
+ */
+@Component
+@Slf4j
+public class PendingRowIndex {
+    /**
+     * KEYS: ordinals, seq, bits; ARGV: securityIds. Sets the bit of each ID, assigning ordinals as needed.
+     */
+    public static final String MARK = """
+            for _, id in ipairs(ARGV) do
+              local ord = redis.call('HGET', KEYS[1], id)
+              if not ord then
+                ord = redis.call('INCR', KEYS[2]) - 1
+                redis.call('HSET', KEYS[1], id, ord)
+              end
+              redis.call('SETBIT', KEYS[3], ord, 1)
+            end
+            return #ARGV
+            """;
+
+    // Returns {present, ids whose bit is set...}; present is '0' (fail open) when the ordinal hash does not exist.
+    private static final String FILTER = """
+            if redis.call('EXISTS', KEYS[1]) == 0 then return {'0'} end
+            local out = {'1'}
+            for _, id in ipairs(ARGV) do
+              local ord = redis.call('HGET', KEYS[1], id)
+              if ord and redis.call('GETBIT', KEYS[3], ord) == 1 then out[#out + 1] = id end
+            end
+            return out
+            """;
+
+    // Clears the bit of each known ID; unknown IDs have nothing to clear.
+    private static final String CLEAR = """
+            for _, id in ipairs(ARGV) do
+              local ord = redis.call('HGET', KEYS[1], id)
+              if ord then redis.call('SETBIT', KEYS[3], ord, 0) end
+            end
+            return #ARGV
+            """;
+
+    private static final RedisScript<Long> MARK_SCRIPT = new DefaultRedisScript<>(MARK, Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> FILTER_SCRIPT = new DefaultRedisScript<>(FILTER, List.class);
+    private static final RedisScript<Long> CLEAR_SCRIPT = new DefaultRedisScript<>(CLEAR, Long.class);
+
+    private final AppProperties.PendingIndex cfg;
+    // Absent when no Redis is configured; the index is then always bypassed.
+    private final StringRedisTemplate redis;
+    private final List<String> keys;
+
+    // Events kept for the DB path vs ACKed by the pre-filter.
+    private final Counter candidates;
+    private final Counter skipped;
+    // Batches passed through unfiltered because the index was unavailable.
+    private final Counter failOpen;
+
+    @Autowired
+    public PendingRowIndex(AppProperties props, ObjectProvider<StringRedisTemplate> redis, MeterRegistry meterRegistry) {
+        this(props, redis.getIfAvailable(), meterRegistry);
+    }
+
+    public PendingRowIndex(AppProperties props, StringRedisTemplate redis, MeterRegistry meterRegistry) {
+        this.cfg = props.getPendingIndex();
+        this.redis = redis;
+        String prefix = cfg.getKeyPrefix();
+        this.keys = List.of(prefix + "ordinals", prefix + "seq", prefix + "bits");
+        this.candidates = Counter.builder("exceptions.pending.index.events")
+                .tag("result", "candidate")
+                .description("Trigger events whose securityId the pending-row index reports as pending")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("exceptions.pending.index.events")
+                .tag("result", "skipped")
+                .description("Trigger events ACKed without a DB query because the index reports no pending rows")
+                .register(meterRegistry);
+        this.failOpen = Counter.builder("exceptions.pending.index.fail.open")
+                .description("Batches sent to the DB unfiltered because the pending-row index was unavailable")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return cfg.isEnabled() && redis != null;
+    }
+
+    /**
+     * Returns the subset of {@code securityIds} that may have pending rows, in one round-trip.
+     *
+     * @return candidate IDs, or {@code null} when the index is disabled or unavailable (treat all as candidates)
+     */
+    public Set<String> candidates(Collection<String> securityIds) {
+        if (!isEnabled() || securityIds.isEmpty()) {
+            return null;
+        }
+        try {
+            List<?> result = redis.execute(FILTER_SCRIPT, keys, securityIds.toArray());
+            if (result == null || result.isEmpty() || !"1".equals(String.valueOf(result.get(0)))) {
+                failOpen.increment();
+                return null;
+            }
+            Set<String> pending = new LinkedHashSet<>(result.size() * 2);
+            for (Object id : result.subList(1, result.size())) {
+                pending.add(String.valueOf(id));
+            }
+            candidates.increment(pending.size());
+            skipped.increment(securityIds.size() - pending.size());
+            return pending;
+        } catch (Exception e) {
+            failOpen.increment();
+            log.debug("Pending-row index filter failed; passing batch through: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Marks IDs as having pending rows. Writers call this after commit and before emitting events.
+     */
+    public void markPending(Collection<String> securityIds) {
+        if (!isEnabled() || securityIds.isEmpty()) {
+            return;
+        }
+        redis.execute(MARK_SCRIPT, keys, securityIds.toArray());
+    }
+
+    /**
+     * Clears IDs whose pending rows were all processed; callers must re-check the DB afterwards.
+     */
+    public void clearPending(Collection<String> securityIds) {
+        if (!isEnabled() || securityIds.isEmpty()) {
+            return;
+        }
+        redis.execute(CLEAR_SCRIPT, keys, securityIds.toArray());
+    }
+}
@@ -0,0 +1,114 @@
+package com.hedgefund.exceptionprocessor.ingest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process source with Redis-like pending/ACK semantics and no infrastructure.
+ *
+ *Used by tests, benchmarks and load tests to drive the consumer at rates a real
+ * broker round-trip would hide. Events stay pending from delivery until ACK, and
+ * {@link #reclaim} redelivers ones idle past the threshold, mirroring XCLAIM.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.ingest", name = "source", havingValue = "memory")
+public class InMemoryIngestSource implements IngestSource {
+    // Undelivered events in arrival order.
+    private final LinkedBlockingQueue<IngestEvent> queue = new LinkedBlockingQueue<>();
+    // Delivered-but-unACKed events with their last delivery time (nanoTime).
+    private final Map<String, Delivery> pending = new ConcurrentHashMap<>();
+    // Monotonic event id, formatted like a stream id for readability in logs.
+    private final AtomicLong sequence = new AtomicLong();
+    // Total ACKed events; lets benchmarks observe completion without polling state.
+    private final AtomicLong acked = new AtomicLong();
+
+    @Override
+    public String name() {
+        return "memory";
+    }
+
+    /**
+     * Enqueues one trigger event and returns its id.
+     */
+    public String publish(String securityId) {
+        IngestEvent event = new IngestEvent(sequence.incrementAndGet() + "-0", securityId, System.currentTimeMillis());
+        queue.add(event);
+        return event.id();
+    }
+
+    @Override
+    public List<IngestEvent> poll(int maxCount, Duration timeout) throws InterruptedException {
+        IngestEvent first = queue.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return List.of();
+        }
+        List<IngestEvent> batch = new ArrayList<>(Math.min(maxCount, queue.size() + 1));
+        batch.add(first);
+        queue.drainTo(batch, Math.max(0, maxCount - 1));
+        long now = System.nanoTime();
+        for (IngestEvent event : batch) {
+            pending.put(event.id(), new Delivery(event, now));
+        }
+        return batch;
+    }
+
+    @Override
+    public void ack(Collection<IngestEvent> events) {
+        for (IngestEvent event : events) {
+            if (pending.remove(event.id()) != null) {
+                acked.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public List<IngestEvent> reclaim(int maxCount, Duration minIdle) {
+        long now = System.nanoTime();
+        List<IngestEvent> claimed = new ArrayList<>();
+        for (Map.Entry<String, Delivery> entry : pending.entrySet()) {
+            if (claimed.size() >= maxCount) {
+                break;
+            }
+            Delivery delivery = entry.getValue();
+            // Replace atomically so a concurrent ACK or reclaim wins cleanly.
+            if (now - delivery.deliveredAtNanos() >= minIdle.toNanos()
+                    && pending.replace(entry.getKey(), delivery, new Delivery(delivery.event(), now))) {
+                claimed.add(delivery.event());
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Events delivered but not yet ACKed.
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Events not yet delivered.
+     */
+    public int queuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Total events ACKed since startup.
+     */
+    public long ackedCount() {
+        return acked.get();
+    }
+
+    private record Delivery(IngestEvent event, long deliveredAtNanos) {
+    }
+}
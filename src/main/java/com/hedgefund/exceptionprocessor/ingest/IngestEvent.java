@@ -0,0 +1,20 @@
+package com.hedgefund.exceptionprocessor.ingest;
+
+/**
+ * One trigger event delivered by an {@link IngestSource}.
+ *
+ *`id` is source-specific (Redis stream RecordId, Kafka partition/offset, ...) and is
+ * only interpreted by the source that produced it, when the event is ACKed.
+ * `securityId` may be null or blank for malformed input; the consumer ACKs those
+ * right away so they do not loop as poison messages.
+ *
+ *`timestampMs` is when the event entered the source (Redis RecordId time, Kafka record
+ * timestamp, ...), epoch millis, or 0 when unknown. It is copied into the published
+ * records' headers and the batch span, so queueing time before the read is visible.
+ */
+public record IngestEvent(String id, String securityId, long timestampMs) {
+
+    public IngestEvent(String id, String securityId) {
+        this(id, securityId, 0);
+    }
+}
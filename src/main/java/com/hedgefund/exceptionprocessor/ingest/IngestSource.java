@@ -0,0 +1,63 @@
+package com.hedgefund.exceptionprocessor.ingest;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Delivery-semantics SPI behind {@link com.hedgefund.exceptionprocessor.service.StreamsConsumer}.
+ *
+ *A source owns how trigger events are read, acknowledged and recovered. The consumer
+ * owns everything else (batching, in-flight permits, per-batch dedup, ACK-only-on-success),
+ * so those rules are identical for every source.
+ *
+ *Threading contract: {@link #poll} is only called from the single poller thread;
+ * {@link #ack} may be called from worker completion threads; {@link #reclaim} is
+ * called from the scheduler thread; {@link #flush} and {@link #handOff} from the
+ * shutdown thread.
+ */
+public interface IngestSource {
+
+    /**
+     * Short source name for logs and metrics.
+     */
+    String name();
+
+    /**
+     * Blocks up to {@code timeout} for events and returns at most {@code maxCount}.
+     *
+     *Returns an empty list when nothing arrived in time. Delivered events count as
+     * pending until ACKed.
+     */
+    List<IngestEvent> poll(int maxCount, Duration timeout) throws Exception;
+
+    /**
+     * Marks events as handled so they are never redelivered.
+     */
+    void ack(Collection<IngestEvent> events);
+
+    /**
+     * Returns delivered-but-unACKed events idle for at least {@code minIdle}, taking
+     * ownership of them for redelivery. Sources without redelivery return nothing.
+     */
+    default List<IngestEvent> reclaim(int maxCount, Duration minIdle) {
+        return List.of();
+    }
+
+    /**
+     * Blocks until ACKs buffered by {@link #ack} have been applied; called at shutdown
+     * after the last ACK.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Releases this consumer's delivered-but-unACKed events so other consumers get them
+     * now rather than after the reclaim threshold; returns how many were handed off.
+     * Called once at shutdown, after {@link #flush()}, with polling stopped.
+     */
+    default int handOff(AppProperties.Drain.HandOff mode) {
+        return 0;
+    }
+}
@@ -0,0 +1,239 @@
+package com.hedgefund.exceptionprocessor.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Kafka-topic trigger source for shops that emit trigger events to Kafka instead of Redis.
+ *
+ *Record value is either the plain securityId or a JSON object with a `securityId`
+ * field. Kafka only tracks one committed offset per partition, so per-event ACKs are
+ * folded into offsets here: the committed offset of a partition is the lowest
+ * delivered-but-unACKed offset (or the next offset when nothing is pending). A failed
+ * securityId therefore holds back the partition's commit until {@link #reclaim}
+ * redelivers it and it succeeds, which gives the same at-least-once behavior as a
+ * Redis PEL.
+ *
+ *Threading: the KafkaConsumer is touched only by {@link #poll} (the poller thread);
+ * ACKs from worker threads just update concurrent maps and are committed on the next poll.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.ingest", name = "source", havingValue = "kafka")
+@Slf4j
+public class KafkaTopicIngestSource implements IngestSource, DisposableBean {
+    private final Consumer<String, String> consumer;
+    private final ObjectMapper objectMapper;
+    private final String topic;
+
+    // Delivered-but-unACKed events per partition, keyed by offset.
+    private final Map<TopicPartition, ConcurrentSkipListMap<Long, Delivery>> pending = new ConcurrentHashMap<>();
+    // Next offset after the highest delivered one, per partition (poller thread only).
+    private final Map<TopicPartition, Long> nextOffsets = new HashMap<>();
+    // Last committed offset per partition (poller thread only).
+    private final Map<TopicPartition, Long> committed = new HashMap<>();
+    private boolean subscribed;
+
+    @Autowired
+    public KafkaTopicIngestSource(AppProperties props, KafkaProperties kafkaProperties, ObjectMapper objectMapper) {
+        this(createConsumer(props, kafkaProperties), objectMapper, props.getIngest().getKafka().getTopic());
+    }
+
+    KafkaTopicIngestSource(Consumer<String, String> consumer, ObjectMapper objectMapper, String topic) {
+        this.consumer = consumer;
+        this.objectMapper = objectMapper;
+        this.topic = topic;
+    }
+
+    private static Consumer<String, String> createConsumer(AppProperties props, KafkaProperties kafkaProperties) {
+        // Start from spring.kafka.* (bootstrap servers, security) and pin what this source relies on.
+        Map<String, Object> config = new HashMap<>(kafkaProperties.buildConsumerProperties(null));
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, props.getIngest().getKafka().getGroupId());
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Math.max(1, props.getBatch().getStreamReadCount()));
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        return new KafkaConsumer<>(config);
+    }
+
+    @Override
+    public String name() {
+        return "kafka";
+    }
+
+    /**
+     * Commits offsets freed by ACKs since the last call, then polls the next batch.
+     *
+     *`max.poll.records` is pinned to `app.batch.stream-read-count`, which is what
+     * bounds the batch size here.
+     */
+    @Override
+    public List<IngestEvent> poll(int maxCount, Duration timeout) {
+        if (!subscribed) {
+            consumer.subscribe(List.of(topic), new RebalanceListener());
+            subscribed = true;
+        }
+        commitAcked();
+
+        List<IngestEvent> events = new ArrayList<>();
+        long now = System.nanoTime();
+        for (ConsumerRecord<String, String> rec : consumer.poll(timeout)) {
+            TopicPartition tp = new TopicPartition(rec.topic(), rec.partition());
+            // Record timestamp (producer or log-append time, per topic config); -1 when absent.
+            IngestEvent event = new IngestEvent(
+                    rec.partition() + "-" + rec.offset(), securityIdOf(rec.value()), Math.max(0, rec.timestamp()));
+            pending.computeIfAbsent(tp, k -> new ConcurrentSkipListMap<>()).put(rec.offset(), new Delivery(event, now));
+            nextOffsets.put(tp, rec.offset() + 1);
+            events.add(event);
+        }
+        return events;
+    }
+
+    @Override
+    public void ack(Collection<IngestEvent> events) {
+        for (IngestEvent event : events) {
+            int dash = event.id().indexOf('-');
+            TopicPartition tp = new TopicPartition(topic, Integer.parseInt(event.id().substring(0, dash)));
+            ConcurrentSkipListMap<Long, Delivery> partitionPending = pending.get(tp);
+            if (partitionPending != null) {
+                partitionPending.remove(Long.parseLong(event.id().substring(dash + 1)));
+            }
+        }
+    }
+
+    /**
+     * Redelivers events that stayed unACKed past {@code minIdle} (Kafka itself never redelivers
+     * within a partition assignment).
+     */
+    @Override
+    public List<IngestEvent> reclaim(int maxCount, Duration minIdle) {
+        long now = System.nanoTime();
+        List<IngestEvent> claimed = new ArrayList<>();
+        for (ConcurrentSkipListMap<Long, Delivery> partitionPending : pending.values()) {
+            for (Map.Entry<Long, Delivery> entry : partitionPending.entrySet()) {
+                if (claimed.size() >= maxCount) {
+                    return claimed;
+                }
+                Delivery delivery = entry.getValue();
+                if (now - delivery.deliveredAtNanos() >= minIdle.toNanos()
+                        && partitionPending.replace(entry.getKey(), delivery, new Delivery(delivery.event(), now))) {
+                    claimed.add(delivery.event());
+                }
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Commits, per partition, the lowest still-pending offset (or the next offset when all delivered
+     * events are ACKed), if it moved forward.
+     */
+    void commitAcked() {
+        commitAcked(false);
+    }
+
+    /**
+     * Commits offsets ACKed since the last poll, synchronously: after the drain no poll
+     * follows to carry them. The poller has stopped by now, so the consumer is not shared.
+     * Unfinished events need no hand-off: closing the consumer leaves the group and their
+     * partitions are reassigned, redelivering from the committed offset.
+     */
+    @Override
+    public void flush() {
+        commitAcked(true);
+    }
+
+    private void commitAcked(boolean sync) {
+        Map<TopicPartition, OffsetAndMetadata> toCommit = new HashMap<>();
+        for (Map.Entry<TopicPartition, Long> entry : nextOffsets.entrySet()) {
+            TopicPartition tp = entry.getKey();
+            ConcurrentSkipListMap<Long, Delivery> partitionPending = pending.get(tp);
+            Long lowestPending = partitionPending == null || partitionPending.isEmpty() ? null : partitionPending.firstKey();
+            long commitAt = lowestPending == null ? entry.getValue() : lowestPending;
+            if (commitAt > committed.getOrDefault(tp, -1L)) {
+                toCommit.put(tp, new OffsetAndMetadata(commitAt));
+                committed.put(tp, commitAt);
+            }
+        }
+        if (!toCommit.isEmpty() && sync) {
+            consumer.commitSync(toCommit, Duration.ofSeconds(5));
+        } else if (!toCommit.isEmpty()) {
+            consumer.commitAsync(toCommit, (offsets, ex) -> {
+                if (ex != null) {
+                    // A later commit supersedes this one; worst case is redelivery after rebalance.
+                    log.debug("Kafka ingest offset commit failed: {}", ex.getMessage());
+                }
+            });
+        }
+    }
+
+    private String securityIdOf(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (!trimmed.startsWith("{")) {
+            return trimmed;
+        }
+        try {
+            return objectMapper.readTree(trimmed).path("securityId").asText(null);
+        } catch (Exception e) {
+            // Malformed payload: surfaced as a missing securityId, which the consumer ACKs as poison.
+            return null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        consumer.wakeup();
+        try {
+            consumer.close(Duration.ofSeconds(5));
+        } catch (Exception e) {
+            log.debug("Kafka ingest consumer close: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Drops tracking for partitions moved to another instance; their unACKed events are
+     * redelivered there from the last committed offset.
+     */
+    private final class RebalanceListener implements ConsumerRebalanceListener {
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            commitAcked();
+            for (TopicPartition tp : partitions) {
+                pending.remove(tp);
+                nextOffsets.remove(tp);
+                committed.remove(tp);
+            }
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        }
+    }
+
+    private record Delivery(IngestEvent event, long deliveredAtNanos) {
+    }
+}
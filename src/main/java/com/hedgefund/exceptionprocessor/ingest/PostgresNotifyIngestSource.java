@@ -0,0 +1,230 @@
+package com.hedgefund.exceptionprocessor.ingest;
+
+import com.hedgefund.exceptionprocessor.cache.CleanSecurityIdCache;
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.partition.PartitionManager;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Postgres LISTEN/NOTIFY trigger source (alternative to the Redis stream).
+ *
+ *The insert trigger in `db/migration/exceptions_insert_notify.sql` raises one
+ * NOTIFY per distinct securityId per INSERT statement. This source holds a
+ * dedicated (non-pooled) connection that LISTENs on the channel and coalesces
+ * notification bursts into batches (linger of `batch-window-ms`).
+ *
+ *NOTIFY is fire-and-forget: there is nothing to ACK or reclaim. Notifications
+ * raised while disconnected, and IDs whose publish failed, leave rows unprocessed;
+ * the backlog sweeper re-drives those later.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.ingest", name = "source", havingValue = "postgres-notify")
+@Slf4j
+public class PostgresNotifyIngestSource implements IngestSource, DisposableBean {
+    // LISTEN takes an identifier, not a bind parameter, so the channel name is validated instead.
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+    private static final String TRIGGER_MIGRATION = "db/migration/exceptions_insert_notify.sql";
+    // psql variable in the migration that carries the trigger's channel argument.
+    private static final String CHANNEL_VARIABLE = ":'channel'";
+
+    // Connection settings reused for the dedicated LISTEN connection.
+    private final DataSourceProperties dataSourceProperties;
+    // Pooled datasource, only used to apply the trigger migration.
+    private final DataSource dataSource;
+    // Externalized application properties (app.*).
+    private final AppProperties props;
+    // Every notification is an insert, so its securityId is no longer known clean.
+    private final CleanSecurityIdCache cleanIds;
+    // Present with app.partitioning; its constructor may convert `exceptions` to a partitioned table.
+    private final ObjectProvider<PartitionManager> partitioning;
+    // Synthetic event ids (NOTIFY has none).
+    private final AtomicLong sequence = new AtomicLong();
+
+    // LISTEN connection; owned by the poller thread.
+    private Connection connection;
+
+    public PostgresNotifyIngestSource(
+            DataSourceProperties dataSourceProperties,
+            DataSource dataSource,
+            AppProperties props,
+            CleanSecurityIdCache cleanIds,
+            ObjectProvider<PartitionManager> partitioning
+    ) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.dataSource = dataSource;
+        this.props = props;
+        this.cleanIds = cleanIds;
+        this.partitioning = partitioning;
+    }
+
+    @PostConstruct
+    public void init() {
+        String channel = props.getIngest().getPostgresNotify().getChannel();
+        if (channel == null || !CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalStateException("Invalid app.ingest.postgres-notify.channel: " + channel);
+        }
+        if (props.getIngest().getPostgresNotify().isInstallTrigger()) {
+            // Let the partitioning migration run first, so the trigger lands on the table that
+            // stays `exceptions` (the migration also carries an existing trigger over).
+            partitioning.getIfAvailable();
+            installTrigger(channel);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "postgres-notify";
+    }
+
+    /**
+     * Waits up to {@code timeout} for the first notification, then lingers `batch-window-ms`
+     * to coalesce a burst, deduplicating securityIds.
+     */
+    @Override
+    public List<IngestEvent> poll(int maxCount, Duration timeout) throws Exception {
+        AppProperties.PostgresNotify cfg = props.getIngest().getPostgresNotify();
+        PGConnection pg = listenConnection(cfg);
+        Set<String> ids = new LinkedHashSet<>();
+        try {
+            collect(pg.getNotifications((int) Math.max(1, timeout.toMillis())), ids, maxCount);
+            long lingerEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cfg.getBatchWindowMs());
+            while (!ids.isEmpty() && ids.size() < maxCount) {
+                long leftMs = TimeUnit.NANOSECONDS.toMillis(lingerEnd - System.nanoTime());
+                if (leftMs <= 0) {
+                    break;
+                }
+                collect(pg.getNotifications((int) leftMs), ids, maxCount);
+            }
+        } catch (SQLException e) {
+            // Force reconnect on the next poll; notifications missed meanwhile are left to the sweeper.
+            closeConnection();
+            throw e;
+        }
+
+        // Invalidate before the events are handed out, i.e. before any query for them runs.
+        cleanIds.invalidate(ids);
+        List<IngestEvent> events = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            events.add(new IngestEvent(sequence.incrementAndGet() + "-0", id));
+        }
+        return events;
+    }
+
+    /**
+     * Nothing to acknowledge: NOTIFY delivery is not tracked by Postgres.
+     */
+    @Override
+    public void ack(Collection<IngestEvent> events) {
+    }
+
+    private static void collect(PGNotification[] notifications, Set<String> ids, int maxCount) {
+        if (notifications == null) {
+            return;
+        }
+        for (PGNotification n : notifications) {
+            String securityId = n.getParameter();
+            if (securityId != null && !securityId.isBlank() && ids.size() < maxCount) {
+                ids.add(securityId);
+            }
+        }
+    }
+
+    private PGConnection listenConnection(AppProperties.PostgresNotify cfg) throws Exception {
+        if (connection == null) {
+            try {
+                connection = DriverManager.getConnection(
+                        dataSourceProperties.determineUrl(),
+                        dataSourceProperties.determineUsername(),
+                        dataSourceProperties.determinePassword()
+                );
+                try (Statement st = connection.createStatement()) {
+                    st.execute("LISTEN " + cfg.getChannel());
+                }
+                log.info("Listening for exception inserts on Postgres channel '{}'", cfg.getChannel());
+            } catch (SQLException e) {
+                closeConnection();
+                // Back off so a down database does not turn the poll loop into a busy spin.
+                Thread.sleep(cfg.getReconnectBackoffMs());
+                throw e;
+            }
+        }
+        return connection.unwrap(PGConnection.class);
+    }
+
+    /**
+     * Applies the idempotent insert-trigger migration as one statement (the plpgsql body
+     * contains semicolons, so the script must not be split), notifying on {@code channel}.
+     */
+    private void installTrigger(String channel) {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ByteArrayResource(triggerScript(channel).getBytes(StandardCharsets.UTF_8)));
+        populator.setSeparator(ScriptUtils.EOF_STATEMENT_SEPARATOR);
+        populator.execute(dataSource);
+        log.info("Installed exceptions insert NOTIFY trigger from {} on channel '{}'", TRIGGER_MIGRATION, channel);
+    }
+
+    /**
+     * The trigger migration with its channel variable replaced by {@code channel} as a string
+     * literal. Only called with a name that matched {@link #CHANNEL_NAME}, so quoting is safe.
+     */
+    public static String triggerScript(String channel) {
+        String script;
+        try {
+            script = StreamUtils.copyToString(
+                    new ClassPathResource(TRIGGER_MIGRATION).getInputStream(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + TRIGGER_MIGRATION, e);
+        }
+        if (!script.contains(CHANNEL_VARIABLE)) {
+            throw new IllegalStateException(TRIGGER_MIGRATION + " has no " + CHANNEL_VARIABLE + " argument");
+        }
+        // Comments mention the variable too; they are harmless once replaced.
+        return script.replace(CHANNEL_VARIABLE, "'" + channel + "'");
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // Connection is being discarded anyway.
+            }
+            connection = null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        closeConnection();
+    }
+}
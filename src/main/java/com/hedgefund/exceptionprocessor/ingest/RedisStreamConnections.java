@@ -0,0 +1,251 @@
+package com.hedgefund.exceptionprocessor.ingest;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import io.lettuce.core.Consumer;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.Limit;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.XReadArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.models.stream.PendingMessage;
+import io.lettuce.core.models.stream.PendingMessages;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Long-lived Lettuce connections for the Redis stream source, split by traffic type.
+ *
+ *Through `StringRedisTemplate`, a blocking `XREADGROUP` already runs on a dedicated
+ * connection, but without pooling that connection is opened and closed on every call,
+ * and ACKs, XPENDING and XCLAIM share the one native connection. Here:
+ * - the read connection is opened once and used only by the poller thread for
+ *   blocking reads, so a 5 s `BLOCK` never sits in front of another command,
+ * - the command connection has auto-flush off: ACKs from `proc-*` threads are
+ *   buffered and written in one flush once `command-batch-size` commands are queued,
+ *   or by a background flusher every `flush-interval-ms`. XPENDING/XCLAIM go through
+ *   the same connection but flush immediately because the reclaimer waits on them.
+ *
+ *Only standalone/sentinel Lettuce setups are supported; with Redis Cluster, Jedis, or
+ * `app.redis-commands.dedicated-connections=false` {@link #isEnabled()} is false and
+ * the source falls back to the template.
+ *
+ *The stream commands the source needs are wrapped here, so Lettuce's `Consumer`,
+ * `Range` and pending-message types stay out of the source, which uses the Spring Data
+ * Redis types of the same names on its template path.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.ingest", name = "source", havingValue = "redis-stream", matchIfMissing = true)
+@Slf4j
+public class RedisStreamConnections implements DisposableBean {
+    // Upper bound for round-trips the caller waits on (reclaim, flush barrier).
+    private static final Duration COMMAND_TIMEOUT = Duration.ofSeconds(10);
+
+    private final AppProperties.RedisCommands cfg;
+    private final ObjectProvider<RedisConnectionFactory> connectionFactory;
+
+    private StatefulRedisConnection<String, String> readConnection;
+    private StatefulRedisConnection<String, String> commandConnection;
+    private ScheduledExecutorService flusher;
+    private volatile boolean initialized;
+    private boolean enabled;
+
+    // Commands written to the command connection since the last flush.
+    private final AtomicInteger unflushed = new AtomicInteger();
+
+    @Autowired
+    public RedisStreamConnections(AppProperties props, ObjectProvider<RedisConnectionFactory> connectionFactory) {
+        this.cfg = props.getRedisCommands();
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Test hook: uses the given connections and no background flusher.
+     */
+    RedisStreamConnections(
+            AppProperties props,
+            StatefulRedisConnection<String, String> readConnection,
+            StatefulRedisConnection<String, String> commandConnection
+    ) {
+        this.cfg = props.getRedisCommands();
+        this.connectionFactory = null;
+        this.readConnection = readConnection;
+        this.commandConnection = commandConnection;
+        this.commandConnection.setAutoFlushCommands(false);
+        this.enabled = true;
+        this.initialized = true;
+    }
+
+    /**
+     * Whether dedicated connections are in use; connects lazily on first call.
+     */
+    public boolean isEnabled() {
+        if (!initialized) {
+            initialize();
+        }
+        return enabled;
+    }
+
+    /**
+     * Blocking commands on the read connection. Poller thread only.
+     */
+    public RedisCommands<String, String> reads() {
+        return readConnection.sync();
+    }
+
+    /**
+     * Blocking `XREADGROUP ... >` on the read connection. Poller thread only.
+     */
+    // xreadgroup(..., StreamOffset<K>...) is not @SafeVarargs; the one-element array is never written to.
+    @SuppressWarnings("unchecked")
+    public List<StreamMessage<String, String>> readGroup(String stream, String group, String consumer, int count, Duration block) {
+        XReadArgs.StreamOffset<String> offset = XReadArgs.StreamOffset.lastConsumed(stream);
+        return reads().xreadgroup(Consumer.from(group, consumer), XReadArgs.Builder.count(count).block(block), offset);
+    }
+
+    /**
+     * `XPENDING` + `XCLAIM` to {@code consumer} of up to {@code maxCount} entries idle for at
+     * least {@code minIdle}, on the command connection.
+     */
+    public List<StreamMessage<String, String>> claimIdle(
+            String stream, String group, String consumer, int maxCount, Duration minIdle) {
+        PendingMessages summary = await(execute(c -> c.xpending(stream, group)));
+        if (summary == null || summary.getCount() == 0) {
+            return List.of();
+        }
+        long count = Math.min(maxCount, summary.getCount());
+        List<PendingMessage> pending = await(execute(c -> c.xpending(stream, group, Range.unbounded(), Limit.from(count))));
+        if (pending == null || pending.isEmpty()) {
+            return List.of();
+        }
+        String[] toClaim = pending.stream()
+                .filter(pm -> pm.getMsSinceLastDelivery() >= minIdle.toMillis())
+                .map(PendingMessage::getId)
+                .toArray(String[]::new);
+        if (toClaim.length == 0) {
+            return List.of();
+        }
+        return await(execute(c -> c.xclaim(stream, Consumer.from(group, consumer), minIdle.toMillis(), toClaim)));
+    }
+
+    /**
+     * Waits for a PING on the command connection: replies are in order, so every command
+     * buffered before it has been applied once it returns.
+     */
+    public void awaitApplied() {
+        await(execute(c -> c.ping()));
+    }
+
+    /**
+     * Queues an ACK-type command; it is written with the next batch flush.
+     */
+    public <T> RedisFuture<T> enqueue(Function<RedisAsyncCommands<String, String>, RedisFuture<T>> command) {
+        RedisFuture<T> future = command.apply(commandConnection.async());
+        if (unflushed.incrementAndGet() >= Math.max(1, cfg.getCommandBatchSize())) {
+            flush();
+        }
+        return future;
+    }
+
+    /**
+     * Queues a command and flushes right away, for callers that wait on the reply.
+     */
+    public <T> RedisFuture<T> execute(Function<RedisAsyncCommands<String, String>, RedisFuture<T>> command) {
+        RedisFuture<T> future = command.apply(commandConnection.async());
+        unflushed.incrementAndGet();
+        flush();
+        return future;
+    }
+
+    /**
+     * Writes every buffered command to the socket.
+     */
+    public void flush() {
+        if (unflushed.getAndSet(0) > 0) {
+            commandConnection.flushCommands();
+        }
+    }
+
+    private static <T> T await(RedisFuture<T> future) {
+        return LettuceFutures.awaitOrCancel(future, COMMAND_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void initialize() {
+        if (initialized) {
+            return;
+        }
+        try {
+            RedisConnectionFactory factory = connectionFactory.getIfAvailable();
+            if (cfg.isDedicatedConnections()
+                    && factory instanceof LettuceConnectionFactory lettuce
+                    && lettuce.getNativeClient() instanceof RedisClient client) {
+                readConnection = client.connect(StringCodec.UTF8);
+                commandConnection = client.connect(StringCodec.UTF8);
+                commandConnection.setAutoFlushCommands(false);
+                flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "redis-command-flusher");
+                    t.setDaemon(true);
+                    return t;
+                });
+                long interval = Math.max(1, cfg.getFlushIntervalMs());
+                flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+                enabled = true;
+                log.info("Redis stream source using dedicated read and batched command connections");
+            }
+        } catch (Exception e) {
+            log.warn("Dedicated Redis connections unavailable; using shared template connection: {}", e.getMessage());
+            closeConnections();
+            enabled = false;
+        } finally {
+            initialized = true;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.debug("Redis command flush failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        if (commandConnection != null) {
+            flushQuietly();
+        }
+        closeConnections();
+    }
+
+    private void closeConnections() {
+        if (readConnection != null) {
+            readConnection.closeAsync();
+            readConnection = null;
+        }
+        if (commandConnection != null) {
+            commandConnection.closeAsync();
+            commandConnection = null;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.hedgefund.exceptionprocessor.ingest;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import io.lettuce.core.StreamMessage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStreamCommands.XClaimOptions;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Redis Streams consumer-group source (default).
+ *
+ *Maps the SPI onto Redis commands:
+ * - poll    -> `XREADGROUP ... >` (blocking, bounded count),
+ * - ack     -> one `XACK` carrying all IDs of the call,
+ * - reclaim -> `XPENDING` + `XCLAIM` of entries idle past the threshold, so messages
+ *   of crashed consumers are retried,
+ * - handOff -> this consumer's own `XPENDING` entries re-added to the stream (or
+ *   `XCLAIM`ed to a live peer), then `XGROUP DELCONSUMER` once nothing is left, so
+ *   per-instance consumer names do not pile up across deploys.
+ *
+ *With {@link RedisStreamConnections} enabled (default), reads use a long-lived
+ * dedicated connection and ACK/XPENDING/XCLAIM use a separate batch-flushed one;
+ * otherwise everything goes through the template.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.ingest", name = "source", havingValue = "redis-stream", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class RedisStreamIngestSource implements IngestSource {
+    // Redis client used to read/ack/claim stream records.
+    private final StringRedisTemplate redis;
+    // Externalized application properties (app.*).
+    private final AppProperties props;
+    // Dedicated read + batched command connections; falls back to `redis` when disabled.
+    private final RedisStreamConnections connections;
+
+    // Pending entries handed off per round-trip at shutdown.
+    private static final int HAND_OFF_BATCH = 100;
+    // Re-adds entries as new, undelivered ones and ACKs the originals in one atomic call.
+    // ARGV[1] = group, ARGV[2..] = entry ids; entries already trimmed away are only ACKed.
+    private static final RedisScript<Long> REQUEUE = new DefaultRedisScript<>("""
+            local requeued = 0
+            for i = 2, #ARGV do
+                local entry = redis.call('XRANGE', KEYS[1], ARGV[i], ARGV[i])
+                if #entry > 0 then
+                    redis.call('XADD', KEYS[1], '*', unpack(entry[1][2]))
+                    requeued = requeued + 1
+                end
+                redis.call('XACK', KEYS[1], ARGV[1], ARGV[i])
+            end
+            return requeued
+            """, Long.class);
+
+    // Unique consumer name per application instance; used in Redis consumer group identity.
+    private final String consumerName = UUID.randomUUID().toString();
+
+    @Override
+    public String name() {
+        return "redis-stream";
+    }
+
+    /**
+     * Blocking `XREADGROUP` for this consumer, reading only never-delivered entries.
+     */
+    @Override
+    public List<IngestEvent> poll(int maxCount, Duration timeout) {
+        String stream = props.getStreams().getRedisStreamName();
+        String group = props.getStreams().getConsumerGroupName();
+        if (connections.isEnabled()) {
+            // Blocks only the dedicated read connection; ACKs keep flowing on the command connection.
+            return fromMessages(connections.readGroup(stream, group, consumerName, Math.max(1, maxCount), timeout));
+        }
+        // Redis consumer identity used by XREADGROUP (group + this instance consumer).
+        Consumer consumer = Consumer.from(group, consumerName);
+        // Bounded batch size + long-polling wait window to reduce busy looping.
+        StreamReadOptions options = StreamReadOptions.empty()
+                .count(Math.max(1, maxCount))
+                .block(timeout);
+        // Read from last delivered position for this consumer group.
+        StreamOffset<String> offset = StreamOffset.create(stream, ReadOffset.lastConsumed());
+        // Suppresses generic cast warning due to Spring Redis API raw return shape.
+        @SuppressWarnings("unchecked")
+        List<MapRecord<String, String, String>> records =
+                (List<MapRecord<String, String, String>>) (List<?>) redis.opsForStream().read(consumer, options, offset);
+        return toEvents(records);
+    }
+
+    /**
+     * Single `XACK` for all given events; failure is logged and the entries are reclaimed later.
+     */
+    @Override
+    public void ack(Collection<IngestEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        String stream = props.getStreams().getRedisStreamName();
+        String group = props.getStreams().getConsumerGroupName();
+        if (connections.isEnabled()) {
+            String[] ids = events.stream().map(IngestEvent::id).toArray(String[]::new);
+            // Buffered; written with the next batch flush together with ACKs of other workers.
+            connections.enqueue(c -> c.xack(stream, group, ids)).whenComplete((count, ex) -> {
+                if (ex != null) {
+                    log.debug("ACK failed for {} record(s): {}", ids.length, ex.getMessage());
+                }
+            });
+            return;
+        }
+        RecordId[] ids = events.stream().map(e -> RecordId.of(e.id())).toArray(RecordId[]::new);
+        try {
+            // Removes messages from the group pending list once handled.
+            redis.opsForStream().acknowledge(stream, group, ids);
+        } catch (Exception e) {
+            // ACK failure is logged; messages can be retried/reclaimed later.
+            log.debug("ACK failed for {} record(s): {}", ids.length, e.getMessage());
+        }
+    }
+
+    /**
+     * Claims pending entries idle for at least {@code minIdle}.
+     *
+     *If a consumer crashes after reading but before ACK, Redis keeps entries in the
+     * PEL (pending entries list); claiming transfers them to this consumer for retry.
+     */
+    @Override
+    public List<IngestEvent> reclaim(int maxCount, Duration minIdle) {
+        String stream = props.getStreams().getRedisStreamName();
+        String group = props.getStreams().getConsumerGroupName();
+        if (connections.isEnabled()) {
+            // Same XPENDING/XCLAIM sequence as below, on the command connection.
+            return fromMessages(connections.claimIdle(stream, group, consumerName, maxCount, minIdle));
+        }
+
+        // Quick summary call to avoid heavier query when there are no pending messages.
+        PendingMessagesSummary summary = redis.opsForStream().pending(stream, group);
+        if (summary == null || summary.getTotalPendingMessages() == 0) {
+            return List.of();
+        }
+
+        // Reclaim at most maxCount per run to keep the scheduled job bounded.
+        long count = Math.min(maxCount, summary.getTotalPendingMessages());
+        PendingMessages pending = redis.opsForStream().pending(stream, group, Range.unbounded(), count);
+        if (pending == null || pending.isEmpty()) {
+            return List.of();
+        }
+
+        // Only reclaim messages that exceeded idle threshold; this reduces claim churn.
+        List<RecordId> toClaim = new ArrayList<>(pending.size());
+        for (PendingMessage pm : pending) {
+            if (pm.getElapsedTimeSinceLastDelivery().compareTo(minIdle) >= 0) {
+                toClaim.add(pm.getId());
+            }
+        }
+        if (toClaim.isEmpty()) {
+            return List.of();
+        }
+
+        // Suppresses generic cast warning around claim API return typing.
+        @SuppressWarnings("unchecked")
+        List<MapRecord<String, String, String>> claimed = (List<MapRecord<String, String, String>>) (List<?>) redis.opsForStream().claim(
+                stream,
+                group,
+                consumerName,
+                minIdle,
+                toClaim.toArray(new RecordId[toClaim.size()])
+        );
+        // Claim may race with other consumers; they simply win those entries.
+        return toEvents(claimed);
+    }
+
+    /**
+     * Waits for a PING on the command connection: replies are in order, so every ACK
+     * buffered before it has been applied once it returns.
+     */
+    @Override
+    public void flush() {
+        if (connections.isEnabled()) {
+            connections.awaitApplied();
+        }
+    }
+
+    /**
+     * Hands this consumer's pending entries to the rest of the group.
+     *
+     *REQUEUE re-adds each entry at the stream tail, so the next `XREADGROUP` of any
+     * consumer delivers it right away. CLAIM moves it to the most recently active peer
+     * with its idle time already at `claim-stale-after-ms`, so that peer's next reclaimer
+     * run retries it (without a live peer the entries stay here, equally idle, for any
+     * reclaimer). Either way the entry is processed again from the start; processing is
+     * idempotent.
+     */
+    @Override
+    public int handOff(AppProperties.Drain.HandOff mode) {
+        if (mode == AppProperties.Drain.HandOff.NONE) {
+            return 0;
+        }
+        String stream = props.getStreams().getRedisStreamName();
+        String group = props.getStreams().getConsumerGroupName();
+        Consumer self = Consumer.from(group, consumerName);
+        Duration staleAfter = Duration.ofMillis(props.getRetry().getClaimStaleAfterMs());
+        String owner = mode == AppProperties.Drain.HandOff.CLAIM ? freshestPeer(stream, group, staleAfter) : null;
+
+        int handedOff = 0;
+        // Inclusive lower bound; advanced past each page because CLAIM to self keeps entries in our PEL.
+        String from = "-";
+        while (true) {
+            PendingMessages pending = redis.opsForStream()
+                    .pending(stream, self, Range.rightUnbounded(Range.Bound.inclusive(from)), HAND_OFF_BATCH);
+            if (pending == null || pending.isEmpty()) {
+                break;
+            }
+            String[] ids = pending.stream()
+                    .map(PendingMessage::getIdAsString)
+                    .toArray(String[]::new);
+            if (mode == AppProperties.Drain.HandOff.REQUEUE) {
+                Object[] args = new Object[ids.length + 1];
+                args[0] = group;
+                System.arraycopy(ids, 0, args, 1, ids.length);
+                redis.execute(REQUEUE, List.of(stream), args);
+            } else {
+                redis.opsForStream().claim(stream, group, owner != null ? owner : consumerName,
+                        XClaimOptions.minIdle(Duration.ZERO).ids(ids).idle(staleAfter));
+            }
+            handedOff += ids.length;
+            from = nextId(ids[ids.length - 1]);
+        }
+
+        PendingMessages left = redis.opsForStream().pending(stream, self, Range.unbounded(), 1L);
+        if (left == null || left.isEmpty()) {
+            // Consumer names are per instance; without this every deploy leaves one behind.
+            redis.opsForStream().deleteConsumer(stream, self);
+        }
+        return handedOff;
+    }
+
+    /**
+     * Other consumer of the group seen most recently, if it was active within {@code staleAfter}.
+     */
+    private String freshestPeer(String stream, String group, Duration staleAfter) {
+        StreamInfo.XInfoConsumers consumers = redis.opsForStream().consumers(stream, group);
+        if (consumers == null) {
+            return null;
+        }
+        return consumers.stream()
+                .filter(c -> !consumerName.equals(c.consumerName()))
+                .filter(c -> c.idleTimeMs() < staleAfter.toMillis())
+                .min(Comparator.comparingLong(StreamInfo.XInfoConsumer::idleTimeMs))
+                .map(StreamInfo.XInfoConsumer::consumerName)
+                .orElse(null);
+    }
+
+    /**
+     * Smallest stream id after {@code id} (`<ms>-<seq>`).
+     */
+    static String nextId(String id) {
+        int dash = id.indexOf('-');
+        long ms = Long.parseLong(id.substring(0, dash));
+        long seq = Long.parseLong(id.substring(dash + 1));
+        return ms + "-" + (seq + 1);
+    }
+
+    private static List<IngestEvent> fromMessages(List<StreamMessage<String, String>> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return List.of();
+        }
+        List<IngestEvent> events = new ArrayList<>(messages.size());
+        for (StreamMessage<String, String> message : messages) {
+            // Null-safe conversion of "securityId" field; null if missing.
+            events.add(new IngestEvent(
+                    message.getId(),
+                    message.getBody() == null ? null : message.getBody().get("securityId"),
+                    timestampOf(message.getId())));
+        }
+        return events;
+    }
+
+    private static List<IngestEvent> toEvents(List<MapRecord<String, String, String>> records) {
+        if (records == null || records.isEmpty()) {
+            return List.of();
+        }
+        List<IngestEvent> events = new ArrayList<>(records.size());
+        for (MapRecord<String, String, String> rec : records) {
+            // Null-safe conversion of "securityId" field; null if missing.
+            events.add(new IngestEvent(
+                    rec.getId().getValue(),
+                    Objects.toString(rec.getValue().get("securityId"), null),
+                    timestampOf(rec.getId().getValue())));
+        }
+        return events;
+    }
+
+    /**
+     * Millisecond part of a stream entry id (`<ms>-<seq>`): when Redis appended the entry.
+     */
+    static long timestampOf(String recordId) {
+        int dash = recordId == null ? -1 : recordId.indexOf('-');
+        try {
+            return dash > 0 ? Long.parseLong(recordId, 0, dash, 10) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
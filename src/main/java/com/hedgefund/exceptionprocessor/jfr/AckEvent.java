@@ -0,0 +1,28 @@
+package com.hedgefund.exceptionprocessor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One ACK call to the ingest source (immediate ACKs and ACKs after processing).
+ */
+@Name("com.hedgefund.exceptions.Ack")
+@Label("ACK")
+@Category("Exception Processor")
+@Description("ACK of processed or skipped events to the ingest source")
+@StackTrace(false)
+public class AckEvent extends Event {
+    @Label("Source")
+    public String source;
+
+    @Label("Events")
+    public int events;
+
+    @Label("Failed")
+    @Description("The source rejected the ACK; the events stay pending")
+    public boolean failed;
+}
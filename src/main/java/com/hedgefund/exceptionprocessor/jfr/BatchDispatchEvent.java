@@ -0,0 +1,39 @@
+package com.hedgefund.exceptionprocessor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Consumer-side handling of one batch up to its hand-off to the workers or lanes:
+ * validation, dedup, pending-index filter and the immediate ACKs.
+ */
+@Name("com.hedgefund.exceptions.BatchDispatch")
+@Label("Batch Dispatch")
+@Category("Exception Processor")
+@Description("Validation and hand-off of one batch to the workers or lanes")
+@StackTrace(false)
+public class BatchDispatchEvent extends Event {
+    @Label("Events")
+    public int events;
+
+    @Label("Security IDs")
+    @Description("Distinct securityIds handed to processing")
+    public int securityIds;
+
+    @Label("ACKed Immediately")
+    @Description("Invalid, duplicate and nothing-pending events")
+    public int ackedImmediately;
+
+    @Label("Permit Wait")
+    @Description("Time the poller waited for an in-flight permit before this batch")
+    @Timespan(Timespan.NANOSECONDS)
+    public long permitWait;
+
+    @Label("Lanes")
+    public boolean lanes;
+}
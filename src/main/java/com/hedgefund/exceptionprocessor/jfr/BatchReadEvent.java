@@ -0,0 +1,36 @@
+package com.hedgefund.exceptionprocessor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One poll of the ingest source that returned events; the duration is the blocking read.
+ */
+@Name("com.hedgefund.exceptions.BatchRead")
+@Label("Batch Read")
+@Category("Exception Processor")
+@Description("Poll of the ingest source that returned events")
+@StackTrace(false)
+public class BatchReadEvent extends Event {
+    @Label("Source")
+    public String source;
+
+    @Label("Events")
+    public int events;
+
+    /**
+     * Ends the event and commits it if a recording wants it.
+     */
+    public void finish(String source, int events) {
+        end();
+        if (shouldCommit()) {
+            this.source = source;
+            this.events = events;
+            commit();
+        }
+    }
+}
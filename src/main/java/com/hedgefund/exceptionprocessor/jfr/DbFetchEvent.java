@@ -0,0 +1,40 @@
+package com.hedgefund.exceptionprocessor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One pending-row page query for a chunk of securityIds.
+ */
+@Name("com.hedgefund.exceptions.DbFetch")
+@Label("DB Fetch")
+@Category("Exception Processor")
+@Description("Pending-row page query for a chunk of securityIds")
+@StackTrace(false)
+public class DbFetchEvent extends Event {
+    @Label("Security IDs")
+    public int securityIds;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Replica")
+    public boolean replica;
+
+    /**
+     * Ends the event and commits it if a recording wants it.
+     */
+    public void finish(int securityIds, int rows, boolean replica) {
+        end();
+        if (shouldCommit()) {
+            this.securityIds = securityIds;
+            this.rows = rows;
+            this.replica = replica;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.hedgefund.exceptionprocessor.jfr;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Flight recordings of this service: one continuous recording, plus on-demand ones
+ * started through the `jfr` actuator endpoint (`app.jfr.*`).
+ *
+ *The continuous recording uses the JDK's `default` settings (designed to stay on in
+ * production, about 1% overhead) plus this service's events, keeps the last `max-age-ms`
+ * on disk, and can be downloaded at any time, e.g. right after a stall. On-demand
+ * recordings default to the `profile` settings (more detail, more overhead), record
+ * every {@link PublishEvent} regardless of its threshold and stop after a duration.
+ *
+ *Both JDK settings also record the process environment, system properties, JVM
+ * arguments and the host's process list, which hold the datasource and Redis
+ * credentials; {@link #SENSITIVE_EVENTS} are disabled in every recording started here.
+ *
+ *At most `max-on-demand` on-demand recordings are kept, stopped ones included: their
+ * data and last dump stay on disk until closed, so a new recording evicts the oldest
+ * stopped one rather than letting repeated start/stop calls fill the disk.
+ *
+ *Only recordings started here are listed or touched; one started with `jcmd` is not.
+ */
+@Component
+@Slf4j
+public class JfrRecordings implements SmartLifecycle {
+    public static final String CONTINUOUS_NAME = "exceptions-continuous";
+    // This service's events; enabled in every recording started here.
+    private static final List<Class<? extends Event>> EVENTS = List.of(
+            BatchReadEvent.class,
+            BatchDispatchEvent.class,
+            DbFetchEvent.class,
+            PublishEvent.class,
+            AckEvent.class);
+    // JDK events whose payload can carry secrets (environment, -D flags, command lines).
+    static final List<String> SENSITIVE_EVENTS = List.of(
+            "jdk.InitialEnvironmentVariable",
+            "jdk.InitialSystemProperty",
+            "jdk.JVMInformation",
+            "jdk.SystemProcess");
+
+    private final AppProperties props;
+    // Recordings started here by id, continuous one included.
+    private final Map<Long, Recording> recordings = new ConcurrentHashMap<>();
+    private volatile boolean running;
+
+    public JfrRecordings(AppProperties props) {
+        this.props = props;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        AppProperties.Jfr cfg = props.getJfr();
+        if (!cfg.isContinuous() || !FlightRecorder.isAvailable()) {
+            return;
+        }
+        try {
+            Recording recording = new Recording(settings(cfg.getContinuousSettings()));
+            recording.setName(CONTINUOUS_NAME);
+            recording.setToDisk(true);
+            recording.setMaxAge(Duration.ofMillis(cfg.getMaxAgeMs()));
+            recording.setMaxSize(cfg.getMaxSizeBytes());
+            EVENTS.forEach(recording::enable);
+            SENSITIVE_EVENTS.forEach(recording::disable);
+            recording.start();
+            recordings.put(recording.getId(), recording);
+            log.info("Continuous JFR recording {} started ({} settings, last {} s kept)",
+                    recording.getId(), cfg.getContinuousSettings(), cfg.getMaxAgeMs() / 1000);
+        } catch (Exception e) {
+            // Diagnostics only: the service runs the same without it.
+            log.warn("Continuous JFR recording not started: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Starts an on-demand recording.
+     *
+     * @param settings JDK settings name (`default`, `profile`) or null for `app.jfr.on-demand-settings`
+     * @param duration stops by itself after this long; null for `app.jfr.on-demand-max-duration-ms`
+     * @throws IllegalArgumentException for unknown settings or a duration over the maximum
+     * @throws IllegalStateException when `max-on-demand` recordings are already running
+     */
+    public synchronized RecordingInfo start(String name, String settings, Duration duration) throws IOException, ParseException {
+        AppProperties.Jfr cfg = props.getJfr();
+        Duration max = Duration.ofMillis(cfg.getOnDemandMaxDurationMs());
+        if (duration != null && (duration.isNegative() || duration.isZero() || duration.compareTo(max) > 0)) {
+            throw new IllegalArgumentException("duration must be between 1 ms and " + max);
+        }
+        List<Recording> onDemand = recordings.values().stream()
+                .filter(r -> !CONTINUOUS_NAME.equals(r.getName()))
+                .toList();
+        long active = onDemand.stream().filter(JfrRecordings::isActive).count();
+        if (active >= cfg.getMaxOnDemand()) {
+            throw new IllegalStateException(active + " on-demand recording(s) already running; stop one first");
+        }
+        // Make room among the kept ones: oldest stopped first.
+        List<Recording> evictable = onDemand.stream()
+                .filter(r -> !isActive(r))
+                .sorted(Comparator.comparingLong(Recording::getId))
+                .toList();
+        for (int i = 0; i <= onDemand.size() - cfg.getMaxOnDemand() && i < evictable.size(); i++) {
+            long id = evictable.get(i).getId();
+            close(id);
+            log.info("JFR recording {} discarded to stay within max-on-demand", id);
+        }
+        Recording recording = new Recording(settings(settings == null ? cfg.getOnDemandSettings() : settings));
+        recording.setName(name == null || name.isBlank() ? "exceptions-on-demand" : name);
+        recording.setToDisk(true);
+        recording.setDuration(duration == null ? max : duration);
+        EVENTS.forEach(recording::enable);
+        SENSITIVE_EVENTS.forEach(recording::disable);
+        // Full detail here: every publish, not only the slow ones.
+        recording.enable(PublishEvent.class).withThreshold(Duration.ZERO);
+        recording.start();
+        recordings.put(recording.getId(), recording);
+        log.info("JFR recording {} '{}' started for {}", recording.getId(), recording.getName(), recording.getDuration());
+        return RecordingInfo.of(recording);
+    }
+
+    /**
+     * Stops a recording; its data stays downloadable until {@link #close(long)}.
+     *
+     * @return the stopped recording, or null if there is no such recording
+     */
+    public RecordingInfo stop(long id) {
+        Recording recording = recordings.get(id);
+        if (recording == null) {
+            return null;
+        }
+        if (isActive(recording)) {
+            recording.stop();
+        }
+        return RecordingInfo.of(recording);
+    }
+
+    private static boolean isActive(Recording recording) {
+        return recording.getState() == RecordingState.RUNNING || recording.getState() == RecordingState.DELAYED;
+    }
+
+    /**
+     * Writes a recording's data to `dump-dir` and returns the file (replaced on every call).
+     *
+     *A running recording is copied first, so it keeps running and the file holds
+     * everything up to now.
+     *
+     * @return the dump file, or null if there is no such recording
+     */
+    public Path dump(long id) throws IOException {
+        Recording recording = recordings.get(id);
+        if (recording == null) {
+            return null;
+        }
+        Path dir = dumpDir();
+        Files.createDirectories(dir);
+        Path file = dir.resolve("recording-" + id + ".jfr");
+        if (recording.getState() == RecordingState.RUNNING) {
+            try (Recording copy = recording.copy(true)) {
+                copy.dump(file);
+            }
+        } else {
+            recording.dump(file);
+        }
+        return file;
+    }
+
+    /**
+     * Stops and discards a recording and its last dump.
+     *
+     * @return false if there is no such recording
+     */
+    public boolean close(long id) throws IOException {
+        Recording recording = recordings.remove(id);
+        if (recording == null) {
+            return false;
+        }
+        recording.close();
+        Files.deleteIfExists(dumpDir().resolve("recording-" + id + ".jfr"));
+        return true;
+    }
+
+    public List<RecordingInfo> list() {
+        return recordings.values().stream().map(RecordingInfo::of).toList();
+    }
+
+    private Path dumpDir() {
+        String dir = props.getJfr().getDumpDir();
+        return dir == null || dir.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "exceptions-jfr")
+                : Path.of(dir);
+    }
+
+    private static Map<String, String> settings(String name) throws IOException, ParseException {
+        try {
+            return Configuration.getConfiguration(name).getSettings();
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Unknown JFR settings '" + name + "' (use default or profile)");
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Long id : List.copyOf(recordings.keySet())) {
+            try {
+                close(id);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Closing JFR recording {} failed: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * What the endpoint reports per recording.
+     */
+    public record RecordingInfo(
+            long id,
+            String name,
+            String state,
+            Instant startTime,
+            Instant stopTime,
+            Duration duration,
+            Duration maxAge,
+            long sizeBytes
+    ) {
+        static RecordingInfo of(Recording r) {
+            return new RecordingInfo(r.getId(), r.getName(), r.getState().name(), r.getStartTime(), r.getStopTime(),
+                    r.getDuration(), r.getMaxAge(), r.getSize());
+        }
+    }
+}
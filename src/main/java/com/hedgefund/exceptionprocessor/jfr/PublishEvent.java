@@ -0,0 +1,35 @@
+package com.hedgefund.exceptionprocessor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Publish of one securityId's page rows: sends, broker ACKs and the processed marking.
+ *
+ *One event per securityId and page, so by default only those over 10 ms are recorded;
+ * on-demand recordings started through the `jfr` endpoint record all of them.
+ */
+@Name("com.hedgefund.exceptions.Publish")
+@Label("Publish")
+@Category("Exception Processor")
+@Description("Kafka publish and marking of one securityId's page rows")
+@StackTrace(false)
+@Threshold("10 ms")
+public class PublishEvent extends Event {
+    @Label("Security ID")
+    public String securityId;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Published")
+    public int published;
+
+    @Label("Failed")
+    public int failed;
+}
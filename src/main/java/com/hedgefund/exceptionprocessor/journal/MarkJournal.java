@@ -0,0 +1,233 @@
+package com.hedgefund.exceptionprocessor.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped journal of published rows awaiting their Postgres mark.
+ *
+ *The journal is a sequence of fixed-size segment files `marks-<seq>.journal`. Each one
+ * starts with a 16-byte header (magic, entry size, flushed-up-to offset) followed by
+ * 32-byte entries: exception id, published-at (epoch micros), Kafka partition, Kafka
+ * offset, CRC32C of the preceding 28 bytes. Appends are plain stores into the mapping;
+ * {@link #force()} makes them durable. A torn or never-written entry fails its checksum,
+ * so replay stops there.
+ *
+ *Once marks are in Postgres, {@link #release(Position)} records the flushed offset in
+ * the segment header and deletes older segments, so replay only returns marks that may
+ * still be missing. Segments from an earlier run are never appended to: writing always
+ * continues in a new segment.
+ *
+ *Not thread-safe; {@link WriteBehindMarker} serializes every call except {@link #force()}.
+ */
+public final class MarkJournal implements Closeable {
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 32;
+    private static final int MAGIC = 0x45584a31; // "EXJ1"
+    private static final int FLUSHED_OFFSET = 8;
+    private static final int CHECKED_BYTES = 28;
+    private static final String PREFIX = "marks-";
+    private static final String SUFFIX = ".journal";
+
+    private final Path dir;
+    private final int segmentBytes;
+    // Older segments (earlier runs or rolled over), oldest first; deleted once released.
+    private final Deque<Segment> closed = new ArrayDeque<>();
+    private volatile Segment current;
+    private long nextSeq;
+
+    public MarkJournal(Path dir, int segmentBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = Math.max(HEADER_BYTES + ENTRY_BYTES, segmentBytes);
+        Files.createDirectories(dir);
+        List<Path> existing;
+        try (Stream<Path> files = Files.list(dir)) {
+            existing = files.filter(MarkJournal::isSegment).sorted().toList();
+        }
+        for (Path path : existing) {
+            Segment segment = Segment.open(path);
+            if (segment != null) {
+                closed.add(segment);
+                nextSeq = Math.max(nextSeq, segment.seq + 1);
+            }
+        }
+        current = newSegment();
+    }
+
+    /**
+     * Marks of earlier runs (or earlier segments) that were not released yet, in append order.
+     */
+    public List<Mark> replay() {
+        List<Mark> marks = new ArrayList<>();
+        for (Segment segment : closed) {
+            segment.readFrom(segment.flushedUpTo(), marks);
+        }
+        return marks;
+    }
+
+    public void append(Mark mark) throws IOException {
+        if (current.position + ENTRY_BYTES > current.capacity()) {
+            current.buffer.force();
+            closed.add(current);
+            current = newSegment();
+        }
+        current.write(mark);
+    }
+
+    /**
+     * Position after the last appended entry; pass it to {@link #release(Position)} once
+     * every mark appended before it is in Postgres.
+     */
+    public Position position() {
+        return new Position(current.seq, current.position);
+    }
+
+    /**
+     * Forgets marks appended before {@code upTo}: older segments are deleted, the segment
+     * holding {@code upTo} records it as flushed.
+     */
+    public void release(Position upTo) throws IOException {
+        while (!closed.isEmpty() && closed.peekFirst().seq < upTo.segmentSeq()) {
+            Segment segment = closed.pollFirst();
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        }
+        Segment holder = current.seq == upTo.segmentSeq() ? current : closed.peekFirst();
+        if (holder != null && holder.seq == upTo.segmentSeq()) {
+            holder.buffer.putLong(FLUSHED_OFFSET, upTo.offset());
+        }
+    }
+
+    /**
+     * Flushes the current segment's dirty pages to disk; safe to call from any thread.
+     */
+    public void force() {
+        current.buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        for (Segment segment : closed) {
+            segment.channel.close();
+        }
+        current.channel.close();
+    }
+
+    private Segment newSegment() throws IOException {
+        Path path = dir.resolve(String.format("%s%016d%s", PREFIX, nextSeq, SUFFIX));
+        Segment segment = Segment.create(path, nextSeq, segmentBytes);
+        nextSeq++;
+        return segment;
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    /**
+     * One published row: exception id, broker ACK time, Kafka coordinates (-1 if unknown).
+     */
+    public record Mark(long exceptionId, long publishedAtMicros, int kafkaPartition, long kafkaOffset) {
+    }
+
+    public record Position(long segmentSeq, int offset) {
+    }
+
+    private static final class Segment {
+        private final long seq;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        // Offset of the next entry; written by the appending thread only.
+        private int position;
+
+        private Segment(long seq, Path path, FileChannel channel, MappedByteBuffer buffer, int position) {
+            this.seq = seq;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        static Segment create(Path path, long seq, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Mapping past the end grows the (sparse) file to its full size.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, ENTRY_BYTES);
+            buffer.putLong(FLUSHED_OFFSET, HEADER_BYTES);
+            buffer.force();
+            return new Segment(seq, path, channel, buffer, HEADER_BYTES);
+        }
+
+        /**
+         * Opens a segment of an earlier run, or returns null (after deleting it) when it has no valid header.
+         */
+        static Segment open(Path path) throws IOException {
+            String name = path.getFileName().toString();
+            long seq = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            if (size < HEADER_BYTES + ENTRY_BYTES) {
+                // Crashed before the header was written: nothing was ever appended.
+                channel.close();
+                Files.delete(path);
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != ENTRY_BYTES) {
+                channel.close();
+                throw new IOException("Not a mark journal segment: " + path);
+            }
+            return new Segment(seq, path, channel, buffer, (int) size);
+        }
+
+        int capacity() {
+            return buffer.capacity();
+        }
+
+        int flushedUpTo() {
+            return (int) buffer.getLong(FLUSHED_OFFSET);
+        }
+
+        void write(Mark mark) {
+            int at = position;
+            buffer.putLong(at, mark.exceptionId());
+            buffer.putLong(at + 8, mark.publishedAtMicros());
+            buffer.putInt(at + 16, mark.kafkaPartition());
+            buffer.putLong(at + 20, mark.kafkaOffset());
+            buffer.putInt(at + CHECKED_BYTES, checksum(at));
+            position = at + ENTRY_BYTES;
+        }
+
+        void readFrom(int from, List<Mark> into) {
+            for (int at = from; at + ENTRY_BYTES <= buffer.capacity(); at += ENTRY_BYTES) {
+                if (buffer.getInt(at + CHECKED_BYTES) != checksum(at)) {
+                    // End of the written entries (zeroed space or a torn last write).
+                    return;
+                }
+                into.add(new Mark(buffer.getLong(at), buffer.getLong(at + 8), buffer.getInt(at + 16), buffer.getLong(at + 20)));
+            }
+        }
+
+        private int checksum(int at) {
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(at, CHECKED_BYTES));
+            return (int) crc.getValue();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.hedgefund.exceptionprocessor.journal;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.persistence.PublishLedgerEntry;
+import com.hedgefund.exceptionprocessor.repo.ExceptionRecordRepository;
+import com.hedgefund.exceptionprocessor.repo.PublishLedger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind publish marking (`app.write-behind.enabled`).
+ *
+ *Published rows are appended to the local {@link MarkJournal} and the securityId can be
+ * ACKed right away; a background thread forces the journal every `fsync-interval-ms`
+ * and marks the rows in Postgres (`processed_at`, or the publish ledger) every
+ * `flush-interval-ms` or once `flush-size` rows are waiting, `flush-size` rows per
+ * statement. A slow or unavailable Postgres therefore no longer stalls publishing;
+ * only the flusher waits.
+ *
+ *Rows published but not flushed yet still look pending in Postgres, so page reads drop
+ * them ({@link #withoutUnflushed}) instead of republishing them. Unflushed marks are
+ * replayed from the journal at startup. Losing the journal (or its last unforced
+ * entries) never loses rows: they stay pending in Postgres and are republished, at
+ * worst by the backlog sweeper. When more than `max-pending-marks` rows are waiting,
+ * {@link #offer} declines and callers mark synchronously, which restores the DB
+ * backpressure.
+ */
+@Component
+@Slf4j
+public class WriteBehindMarker implements DisposableBean {
+    private final AppProperties.WriteBehind cfg;
+    private final boolean ledgerMode;
+    private final ExceptionRecordRepository repo;
+    private final PublishLedger ledger;
+    private final Counter flushed;
+    private final Counter flushFailures;
+    // Ids published but not yet marked in Postgres; page reads skip these rows.
+    private final Set<Long> unflushed = ConcurrentHashMap.newKeySet();
+    // Guards journal appends/releases and `pending`.
+    private final Object lock = new Object();
+    // Serializes flushes (flusher thread and shutdown).
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    // Marks appended since the last drain (guarded by lock).
+    private List<MarkJournal.Mark> pending = new ArrayList<>();
+    // Drained marks whose Postgres write has not succeeded yet (guarded by flushLock).
+    private final List<MarkJournal.Mark> inFlight = new ArrayList<>();
+    private final MarkJournal journal;
+    private final ScheduledExecutorService flusher;
+    private volatile boolean stopped;
+
+    public WriteBehindMarker(
+            AppProperties props,
+            ExceptionRecordRepository repo,
+            PublishLedger ledger,
+            MeterRegistry meterRegistry
+    ) throws IOException {
+        this.cfg = props.getWriteBehind();
+        this.ledgerMode = props.getPersistence().isLedger();
+        this.repo = repo;
+        this.ledger = ledger;
+        this.flushed = Counter.builder("exceptions.writebehind.flushed.rows")
+                .description("Journaled rows marked in Postgres by the write-behind flusher")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("exceptions.writebehind.flush.failures")
+                .description("Write-behind flushes that failed and will be retried")
+                .register(meterRegistry);
+        Gauge.builder("exceptions.writebehind.pending.rows", unflushed, Set::size)
+                .description("Published rows not yet marked in Postgres")
+                .register(meterRegistry);
+        if (!cfg.isEnabled()) {
+            this.journal = null;
+            this.flusher = null;
+            return;
+        }
+
+        this.journal = new MarkJournal(Path.of(cfg.getJournalDir()), cfg.getSegmentBytes());
+        // Replayed marks are already journaled: queue them for the flusher without re-appending.
+        List<MarkJournal.Mark> replayed = journal.replay();
+        inFlight.addAll(replayed);
+        replayed.forEach(mark -> unflushed.add(mark.exceptionId()));
+        if (!replayed.isEmpty()) {
+            log.info("Replaying {} journaled publish mark(s) from {}", replayed.size(), cfg.getJournalDir());
+        }
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "write-behind"));
+        flusher.scheduleWithFixedDelay(journal::force, cfg.getFsyncIntervalMs(), cfg.getFsyncIntervalMs(), TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::flushQuietly, cfg.getFlushIntervalMs(), cfg.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+        if (!replayed.isEmpty()) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    public boolean isEnabled() {
+        return journal != null && !stopped;
+    }
+
+    /**
+     * Journals published rows for a later Postgres mark.
+     *
+     * @param coordinates broker metadata per row (same order; null entries allowed)
+     * @return false when write-behind is off, stopped, full or the journal failed; the
+     * caller must then mark the rows itself
+     */
+    public boolean offer(List<ExceptionRecord> rows, List<RecordMetadata> coordinates, Instant publishedAt) {
+        if (!isEnabled() || unflushed.size() >= cfg.getMaxPendingMarks()) {
+            return false;
+        }
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, publishedAt);
+        int waiting;
+        synchronized (lock) {
+            if (stopped) {
+                return false;
+            }
+            try {
+                for (int i = 0; i < rows.size(); i++) {
+                    RecordMetadata md = coordinates.get(i);
+                    MarkJournal.Mark mark = new MarkJournal.Mark(
+                            rows.get(i).getId(),
+                            micros,
+                            md == null ? -1 : md.partition(),
+                            md == null || !md.hasOffset() ? -1 : md.offset());
+                    journal.append(mark);
+                    pending.add(mark);
+                    unflushed.add(mark.exceptionId());
+                }
+            } catch (IOException | RuntimeException e) {
+                // Entries appended so far are flushed as usual; marking them again is a no-op.
+                log.warn("Publish journal append failed; marking synchronously: {}", e.getMessage());
+                return false;
+            }
+            waiting = pending.size();
+        }
+        if (waiting >= cfg.getFlushSize() && flushQueued.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // Shutting down: destroy() flushes what is left.
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rows not journaled as published; returns {@code rows} itself when nothing is waiting.
+     */
+    public List<ExceptionRecord> withoutUnflushed(List<ExceptionRecord> rows) {
+        if (unflushed.isEmpty()) {
+            return rows;
+        }
+        return rows.stream().filter(r -> !unflushed.contains(r.getId())).toList();
+    }
+
+    /**
+     * Marks every journaled row in Postgres, then releases it from the journal.
+     *
+     * @throws RuntimeException when the Postgres write fails; marks stay queued
+     */
+    void flush() {
+        flushQueued.set(false);
+        synchronized (flushLock) {
+            MarkJournal.Position upTo;
+            synchronized (lock) {
+                inFlight.addAll(pending);
+                pending = new ArrayList<>();
+                upTo = journal.position();
+            }
+            if (!inFlight.isEmpty()) {
+                write(inFlight);
+                inFlight.forEach(mark -> unflushed.remove(mark.exceptionId()));
+                flushed.increment(inFlight.size());
+                inFlight.clear();
+            }
+            synchronized (lock) {
+                try {
+                    journal.release(upTo);
+                } catch (IOException e) {
+                    // Released marks would only be replayed and re-marked (no-op) after a restart.
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // Keep the schedule alive; marks stay queued for the next attempt.
+            flushFailures.increment();
+            log.warn("Write-behind flush of {} row(s) failed; retrying: {}", unflushed.size(), e.getMessage());
+        }
+    }
+
+    private void write(List<MarkJournal.Mark> marks) {
+        int size = Math.max(1, cfg.getFlushSize());
+        if (ledgerMode) {
+            for (int from = 0; from < marks.size(); from += size) {
+                List<PublishLedgerEntry> entries = new ArrayList<>();
+                for (MarkJournal.Mark mark : marks.subList(from, Math.min(marks.size(), from + size))) {
+                    entries.add(PublishLedgerEntry.builder()
+                            .exceptionId(mark.exceptionId())
+                            .publishedAt(toInstant(mark.publishedAtMicros()))
+                            .kafkaPartition(mark.kafkaPartition() < 0 ? null : mark.kafkaPartition())
+                            .kafkaOffset(mark.kafkaOffset() < 0 ? null : mark.kafkaOffset())
+                            .build());
+                }
+                ledger.record(entries);
+            }
+            return;
+        }
+        // One conditional UPDATE per `flush-size` ids. processed_at is the chunk's latest publish
+        // time, so it may run up to one flush interval ahead of a row's own ACK.
+        for (int from = 0; from < marks.size(); from += size) {
+            List<MarkJournal.Mark> chunk = marks.subList(from, Math.min(marks.size(), from + size));
+            List<Long> ids = new ArrayList<>(chunk.size());
+            long latest = Long.MIN_VALUE;
+            for (MarkJournal.Mark mark : chunk) {
+                ids.add(mark.exceptionId());
+                latest = Math.max(latest, mark.publishedAtMicros());
+            }
+            repo.markProcessedIfPending(ids, toInstant(latest));
+        }
+    }
+
+    private static Instant toInstant(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (journal == null) {
+            return;
+        }
+        synchronized (lock) {
+            stopped = true;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        // Last attempt; whatever fails here is replayed at the next start.
+        flushQuietly();
+        synchronized (lock) {
+            journal.close();
+        }
+    }
+}
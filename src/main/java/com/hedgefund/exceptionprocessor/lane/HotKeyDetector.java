@@ -0,0 +1,104 @@
+package com.hedgefund.exceptionprocessor.lane;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitter sketch over securityIds (weighted: events or rows).
+ *
+ *Tracks at most `candidates` counters. An untracked ID replaces the smallest counter
+ * and inherits its count + weight, so counts are over-estimates by at most that
+ * minimum, and any ID above `window / candidates` is guaranteed to be tracked. After
+ * every `window` of recorded weight, candidates whose count reaches `share * window`
+ * are reported hot and the sketch starts over.
+ *
+ *Not thread-safe: lanes record from their own thread only, other users synchronize.
+ */
+public final class HotKeyDetector {
+    /**
+     * One securityId reported hot at the end of a window.
+     *
+     * @param lane lane whose traffic was counted, or -1 for the row-based {@link HotSecurityIds}
+     * @param count weight in the window (Space-Saving estimate, never an under-count)
+     */
+    public record HotKey(String securityId, int lane, long count, long window) {
+    }
+
+    private final int lane;
+    private final int capacity;
+    private final long window;
+    private final long threshold;
+    // securityId -> estimated count; never more than `capacity` entries.
+    private final Map<String, long[]> counts;
+    private long seen;
+
+    HotKeyDetector(int lane, int capacity, long window, double share) {
+        this.lane = lane;
+        this.capacity = Math.max(1, capacity);
+        this.window = Math.max(1, window);
+        this.threshold = Math.max(1, (long) Math.ceil(this.window * share));
+        this.counts = new HashMap<>(this.capacity * 2);
+    }
+
+    /**
+     * Counts one occurrence.
+     *
+     * @return hot keys (possibly none) when this occurrence completed a window, else {@code null}
+     */
+    List<HotKey> record(String securityId) {
+        return record(securityId, 1);
+    }
+
+    /**
+     * Counts {@code weight} occurrences (e.g. rows of one page group).
+     *
+     * @return hot keys (possibly none) when this weight completed a window, else {@code null}
+     */
+    List<HotKey> record(String securityId, long weight) {
+        long[] count = counts.get(securityId);
+        if (count != null) {
+            count[0] += weight;
+        } else if (counts.size() < capacity) {
+            counts.put(securityId, new long[] {weight});
+        } else {
+            // Evict the minimum; O(capacity), fine for a few dozen candidates.
+            String minKey = null;
+            long min = Long.MAX_VALUE;
+            for (Map.Entry<String, long[]> e : counts.entrySet()) {
+                if (e.getValue()[0] < min) {
+                    min = e.getValue()[0];
+                    minKey = e.getKey();
+                }
+            }
+            counts.remove(minKey);
+            counts.put(securityId, new long[] {min + weight});
+        }
+        seen += weight;
+        if (seen < window) {
+            return null;
+        }
+        List<HotKey> hot = new ArrayList<>();
+        for (Map.Entry<String, long[]> e : counts.entrySet()) {
+            if (e.getValue()[0] >= threshold) {
+                hot.add(new HotKey(e.getKey(), lane, e.getValue()[0], window));
+            }
+        }
+        counts.clear();
+        seen = 0;
+        return hot;
+    }
+
+    /**
+     * Current candidates of the open window, largest first.
+     */
+    List<HotKey> top(int k) {
+        List<HotKey> top = new ArrayList<>(counts.size());
+        for (Map.Entry<String, long[]> e : counts.entrySet()) {
+            top.add(new HotKey(e.getKey(), lane, e.getValue()[0], window));
+        }
+        top.sort((a, b) -> Long.compare(b.count(), a.count()));
+        return top.size() > k ? List.copyOf(top.subList(0, k)) : top;
+    }
+}
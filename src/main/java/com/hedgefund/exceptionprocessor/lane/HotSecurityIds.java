@@ -0,0 +1,96 @@
+package com.hedgefund.exceptionprocessor.lane;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Streaming detection of securityIds that dominate published row volume.
+ *
+ *Every published page group adds its row count to a shared Space-Saving sketch
+ * ({@link HotKeyDetector}). At the end of each `window-rows` window, IDs at or above
+ * `share` of the window become the hot set for the next window. The processing
+ * service pages hot IDs on their own after the cold IDs of a chunk, so one index
+ * product's backlog no longer holds up the other IDs sharing its chunk query.
+ *
+ *Unlike the per-lane detector in {@link KeyedLaneExecutor}, which counts trigger
+ * events, this one counts rows: an ID can be cold by events and still hot by rows.
+ */
+@Component
+@Slf4j
+public class HotSecurityIds {
+    private final AppProperties.HotKeys cfg;
+    // Guarded by `this`; recorded from every lane / worker thread.
+    private final HotKeyDetector rows;
+    private final Counter detections;
+
+    // Hot set and report of the last completed window, published together under `this`
+    // so a slower thread can never install an older window over a newer one.
+    private volatile Window window = new Window(Set.of(), List.of());
+
+    public HotSecurityIds(AppProperties props, MeterRegistry meterRegistry) {
+        this.cfg = props.getHotKeys();
+        this.rows = new HotKeyDetector(-1, cfg.getCandidates(), cfg.getWindowRows(), cfg.getShare());
+        this.detections = Counter.builder("exceptions.hot.security.ids")
+                .description("securityIds found hot by published row volume at the end of a window")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return cfg.isEnabled();
+    }
+
+    /**
+     * Adds {@code rowCount} published rows for {@code securityId}.
+     */
+    public void recordRows(String securityId, int rowCount) {
+        if (!cfg.isEnabled() || rowCount <= 0) {
+            return;
+        }
+        List<HotKeyDetector.HotKey> completed;
+        synchronized (this) {
+            completed = rows.record(securityId, rowCount);
+            if (completed == null) {
+                return;
+            }
+            Set<String> ids = new HashSet<>(completed.size() * 2);
+            for (HotKeyDetector.HotKey key : completed) {
+                ids.add(key.securityId());
+            }
+            window = new Window(Set.copyOf(ids), completed);
+        }
+        if (!completed.isEmpty()) {
+            detections.increment(completed.size());
+            log.info("Hot securityId(s) by row volume: {}", completed);
+        }
+    }
+
+    /**
+     * Whether {@code securityId} was hot in the last completed window.
+     */
+    public boolean isHot(String securityId) {
+        return window.hot().contains(securityId);
+    }
+
+    /**
+     * Hot IDs of the last completed window.
+     */
+    public List<HotKeyDetector.HotKey> lastWindow() {
+        return window.report();
+    }
+
+    /**
+     * Largest row counts of the window in progress.
+     */
+    public synchronized List<HotKeyDetector.HotKey> top() {
+        return rows.top(Math.max(1, cfg.getTopK()));
+    }
+
+    private record Window(Set<String> hot, List<HotKeyDetector.HotKey> report) {
+    }
+}
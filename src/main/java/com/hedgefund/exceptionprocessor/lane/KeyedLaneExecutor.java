@@ -0,0 +1,259 @@
+package com.hedgefund.exceptionprocessor.lane;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Executor with N serial lanes; work for a securityId always runs on the lane its hash selects.
+ *
+ *With the generic worker pool, two in-flight batches naming the same securityId run on
+ * different threads, so both may read the same pending page and publish its rows twice
+ * and interleaved. Here a securityId is only ever handled by one lane thread, in
+ * submission order, while different lanes run fully in parallel.
+ *
+ *Each lane is a lock-free multi-producer/single-consumer queue
+ * ({@link ConcurrentLinkedQueue}; the poller, reclaimer and sweeper produce, the lane
+ * thread consumes) plus a parked consumer thread woken with {@link LockSupport#unpark}.
+ * Depth is bounded per lane; a full lane rejects so the caller leaves its events pending.
+ *
+ *With `app.priority.enabled`, `reserved-lanes` extra lanes run only priority passes,
+ * so CRITICAL/HIGH rows keep a share of the threads during a backlog drain.
+ *
+ *On shutdown the task running on each lane finishes; tasks still queued never run and
+ * their futures complete exceptionally, so callers waiting on them (the consumer's permit
+ * release) are not left hanging.
+ *
+ *Each lane also feeds a {@link HotKeyDetector}: a securityId taking more than
+ * `hot-key-share` of a lane's traffic is logged and counted, because one hot key
+ * serializes everything else hashed to its lane.
+ */
+@Component
+@Slf4j
+public class KeyedLaneExecutor implements DisposableBean {
+    private final boolean enabled;
+    private final int capacity;
+    // Lanes [0, keyedLanes) serve every key; the rest only run priority passes.
+    private final int keyedLanes;
+    private final Lane[] lanes;
+    private final Counter rejected;
+    private final Counter hotKeyReports;
+    private volatile boolean running = true;
+
+    @Autowired
+    public KeyedLaneExecutor(AppProperties props, MeterRegistry meterRegistry) {
+        this(
+                props.getLanes().isEnabled(),
+                props.getLanes().getCount(),
+                props.getPriority().isEnabled() ? props.getPriority().getReservedLanes() : 0,
+                props.getLanes().getQueueCapacity(),
+                props.getLanes().getHotKeyCandidates(),
+                props.getLanes().getHotKeyWindow(),
+                props.getLanes().getHotKeyShare(),
+                meterRegistry
+        );
+    }
+
+    KeyedLaneExecutor(
+            boolean enabled,
+            int laneCount,
+            int reservedLanes,
+            int capacity,
+            int hotKeyCandidates,
+            long hotKeyWindow,
+            double hotKeyShare,
+            MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.capacity = Math.max(1, capacity);
+        this.rejected = Counter.builder("exceptions.lane.rejected")
+                .description("Sub-batches rejected because their lane queue was full")
+                .register(meterRegistry);
+        this.hotKeyReports = Counter.builder("exceptions.lane.hot.keys")
+                .description("securityIds reported hot at the end of a lane's detection window")
+                .register(meterRegistry);
+        // Disabled: no threads; callers use the worker pool instead.
+        this.keyedLanes = enabled ? Math.max(1, laneCount) : 0;
+        this.lanes = new Lane[enabled ? keyedLanes + Math.max(0, reservedLanes) : 0];
+        for (int i = 0; i < lanes.length; i++) {
+            Lane lane = new Lane(i, i < keyedLanes ? "lane-" + i : "priority-lane-" + (i - keyedLanes),
+                    new HotKeyDetector(i, hotKeyCandidates, hotKeyWindow, hotKeyShare));
+            lanes[i] = lane;
+            Gauge.builder("exceptions.lane.depth", lane.depth, AtomicInteger::get)
+                    .tag("lane", Integer.toString(i))
+                    .description("Sub-batches queued or running on the lane")
+                    .register(meterRegistry);
+            lane.thread.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Lanes shared by all work; lane indexes {@code [0, laneCount())}.
+     */
+    public int laneCount() {
+        return keyedLanes;
+    }
+
+    /**
+     * Lanes reserved for priority passes; indexes {@code [laneCount(), laneCount() + reservedLaneCount())}.
+     */
+    public int reservedLaneCount() {
+        return lanes.length - keyedLanes;
+    }
+
+    /**
+     * Lane that serializes work for {@code securityId}.
+     */
+    public int laneOf(String securityId) {
+        return spread(securityId) % keyedLanes;
+    }
+
+    /**
+     * Reserved lane that serializes priority work for {@code securityId}.
+     */
+    public int reservedLaneOf(String securityId) {
+        return keyedLanes + spread(securityId) % reservedLaneCount();
+    }
+
+    private static int spread(String securityId) {
+        // Spread the String hash so IDs with common prefixes still scatter.
+        int h = securityId.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+
+    /**
+     * Queues {@code work} on a lane; it runs after everything queued on that lane before it.
+     *
+     * @param securityIds IDs the work covers, all of which must map to {@code lane}; fed to hot-key detection
+     * @throws RejectedExecutionException when the lane queue is full or the executor is shut down
+     */
+    public <T> CompletableFuture<T> submit(int lane, Collection<String> securityIds, Supplier<T> work) {
+        Lane target = lanes[lane];
+        if (!running) {
+            throw new RejectedExecutionException("Lane executor shut down");
+        }
+        if (target.depth.incrementAndGet() > capacity) {
+            target.depth.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("Lane " + lane + " queue full; applying backpressure");
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        target.queue.offer(new Task(securityIds, () -> {
+            try {
+                future.complete(work.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, future::completeExceptionally));
+        LockSupport.unpark(target.thread);
+        if (!running) {
+            // Raced with destroy(), which may have drained the lane before this offer.
+            target.failPending();
+        }
+        return future;
+    }
+
+    /**
+     * Most recent hot keys per lane (from each lane's last completed window).
+     */
+    public List<HotKeyDetector.HotKey> hotKeys() {
+        List<HotKeyDetector.HotKey> all = new ArrayList<>();
+        for (Lane lane : lanes) {
+            all.addAll(lane.lastHotKeys);
+        }
+        return all;
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        for (Lane lane : lanes) {
+            LockSupport.unpark(lane.thread);
+            // The lane thread only finishes its current task; nothing queued runs any more.
+            lane.failPending();
+        }
+    }
+
+    // abort: fails the task's future when it is dropped unrun.
+    private record Task(Collection<String> securityIds, Runnable body, Consumer<Throwable> abort) {
+    }
+
+    private final class Lane implements Runnable {
+        private final int index;
+        private final ConcurrentLinkedQueue<Task> queue = new ConcurrentLinkedQueue<>();
+        // Queued + running tasks; the running task counts until it finishes.
+        private final AtomicInteger depth = new AtomicInteger();
+        private final HotKeyDetector hotKeys;
+        private final Thread thread;
+        private volatile List<HotKeyDetector.HotKey> lastHotKeys = List.of();
+
+        private Lane(int index, String name, HotKeyDetector hotKeys) {
+            this.index = index;
+            this.hotKeys = hotKeys;
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                Task task = queue.poll();
+                if (task == null) {
+                    // A submit between poll and park leaves the permit set, so park returns at once.
+                    LockSupport.park(this);
+                    continue;
+                }
+                try {
+                    task.body().run();
+                    recordHotKeys(task.securityIds());
+                } catch (Throwable t) {
+                    log.error("Lane {} task failed", index, t);
+                } finally {
+                    depth.decrementAndGet();
+                }
+            }
+        }
+
+        // Safe from any thread: each task is polled, and so failed, exactly once.
+        private void failPending() {
+            Task task;
+            while ((task = queue.poll()) != null) {
+                depth.decrementAndGet();
+                task.abort().accept(new RejectedExecutionException("Lane " + index + " shut down before the task ran"));
+            }
+        }
+
+        private void recordHotKeys(Collection<String> securityIds) {
+            for (String id : securityIds) {
+                List<HotKeyDetector.HotKey> hot = hotKeys.record(id);
+                if (hot == null) {
+                    continue;
+                }
+                lastHotKeys = hot;
+                if (!hot.isEmpty()) {
+                    hotKeyReports.increment(hot.size());
+                    log.warn("Hot securityId(s) on lane {}: {}", index, hot);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.hedgefund.exceptionprocessor.partition;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves detached `exceptions` partitions to cold storage: gzip CSV export, then DROP.
+ *
+ *Works off the catalog rather than a hand-over list: every ordinary table named like a
+ * partition of `exceptions` that is no longer attached is archived, so a run that died
+ * between detach, export and drop is finished by the next one. The export is written to
+ * a temporary file and renamed, so a file named `<partition>.csv.gz` is always complete;
+ * the table is dropped only after that rename.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.partitioning", name = "enabled", havingValue = "true")
+@Slf4j
+public class PartitionArchiver {
+    private static final String DETACHED = """
+            select c.relname from pg_class c
+            where c.relkind = 'r'
+              and (c.relname ~ '^exceptions_p[0-9]{8}$' or c.relname = 'exceptions_legacy')
+              and pg_table_is_visible(c.oid)
+              and not exists (select 1 from pg_inherits i where i.inhrelid = c.oid)
+            order by c.relname
+            """;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final Path archiveDir;
+    private final Counter archived;
+    private final boolean ledger;
+
+    public PartitionArchiver(AppProperties props, DataSource dataSource, MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.archiveDir = Path.of(props.getPartitioning().getArchiveDir());
+        this.ledger = props.getPersistence().isLedger();
+        this.archived = Counter.builder("exceptions.partitions.archived")
+                .description("Detached partitions exported to cold storage and dropped")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Exports and drops every detached partition; failures leave the table for the next run.
+     *
+     *Called by {@link PartitionManager} while it holds the maintenance lock, so only one
+     * instance exports and drops at a time. Whichever instance holds it writes the export,
+     * so `archive-dir` must be storage all instances share (a mounted volume), not the
+     * container's working directory.
+     */
+    public void archiveDetached() {
+        List<String> detached = jdbc.queryForList(DETACHED, String.class);
+        for (String table : detached) {
+            try {
+                Path file = export(table);
+                if (ledger) {
+                    // Ledger entries of archived rows would otherwise outlive them forever.
+                    jdbc.update("delete from exception_publish_ledger l where exists (select 1 from "
+                            + table + " r where r.id = l.exception_id)");
+                }
+                jdbc.execute("drop table " + table);
+                archived.increment();
+                log.info("Archived partition {} to {}", table, file);
+            } catch (Exception e) {
+                log.warn("Archiving partition {} failed; retrying next run: {}", table, e.getMessage());
+            }
+        }
+    }
+
+    private Path export(String table) throws Exception {
+        Files.createDirectories(archiveDir);
+        Path target = archiveDir.resolve(table + ".csv.gz");
+        Path partial = archiveDir.resolve(table + ".csv.gz.partial");
+        try (Connection connection = dataSource.getConnection();
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial))) {
+            // COPY streams rows straight from the server; nothing is materialized in the JVM.
+            connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyOut("COPY " + table + " TO STDOUT WITH (FORMAT csv, HEADER)", out);
+        } catch (Exception e) {
+            deleteQuietly(partial);
+            throw e;
+        }
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Overwritten by the next attempt anyway.
+        }
+    }
+}
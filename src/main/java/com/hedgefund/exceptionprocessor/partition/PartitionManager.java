@@ -0,0 +1,274 @@
+package com.hedgefund.exceptionprocessor.partition;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the range partitions of `exceptions` ahead of time and retires old ones.
+ *
+ *Every `maintenance-interval-ms`:
+ * - creates `premake-partitions` partitions of `partition-days` each beyond the current
+ *   one, contiguous from the highest existing upper bound (named `exceptions_pYYYYMMDD`
+ *   after their UTC start), so inserts never fall into the default partition. Rows the
+ *   default partition already holds for a new range are moved into it in the same
+ *   transaction (Postgres refuses the new partition otherwise);
+ * - hands partitions whose range ended more than `retention-days` ago, and which hold no
+ *   unprocessed rows, to the {@link PartitionArchiver}. Partitions that still have
+ *   pending rows are kept and logged; the sweeper will publish them.
+ *
+ *Only one instance maintains at a time: the run holds a Postgres session advisory lock,
+ * released when it ends or, if the instance dies, when its connection closes.
+ *
+ *Maintenance is skipped (with a warning) while `exceptions` is not partitioned; see
+ * db/migration/exceptions_partitioned.sql.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.partitioning", name = "enabled", havingValue = "true")
+@Slf4j
+public class PartitionManager {
+    static final String MIGRATION = "db/migration/exceptions_partitioned.sql";
+    private static final DateTimeFormatter NAME_DATE = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    // Attached partitions with their upper bound (null for MAXVALUE and the default partition).
+    private static final String PARTITIONS = """
+            select c.relname,
+                   (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz as upper_bound
+            from pg_inherits i
+            join pg_class c on c.oid = i.inhrelid
+            join pg_class p on p.oid = i.inhparent
+            where p.relname = 'exceptions' and pg_table_is_visible(p.oid)
+            """;
+
+    // Default partition of `exceptions`, if any.
+    private static final String DEFAULT_PARTITION = """
+            select c.relname
+            from pg_partitioned_table pt
+            join pg_class c on c.oid = pt.partdefid
+            join pg_class p on p.oid = pt.partrelid
+            where p.relname = 'exceptions' and pg_table_is_visible(p.oid)
+            """;
+    // Session advisory lock electing the maintaining instance.
+    private static final String LOCK_KEY = "hashtext('exceptions.partition-maintenance')";
+    // DDL on `exceptions` waits at most this long for locks instead of queueing every writer behind it.
+    private static final String LOCK_TIMEOUT = "set local lock_timeout = '5s'";
+
+    private final AppProperties.Partitioning cfg;
+    // Pending-row predicate of the persistence mode, for the "fully processed" check.
+    private final String pendingPredicate;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final PartitionArchiver archiver;
+    private final Counter created;
+    private boolean warnedUnpartitioned;
+
+    public PartitionManager(AppProperties props, DataSource dataSource, PartitionArchiver archiver, MeterRegistry meterRegistry) {
+        this.cfg = props.getPartitioning();
+        this.pendingPredicate = props.getPersistence().isLedger()
+                ? "not exists (select 1 from exception_publish_ledger l where l.exception_id = r.id)"
+                : "r.processed_at is null";
+        this.dataSource = dataSource;
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.archiver = archiver;
+        this.created = Counter.builder("exceptions.partitions.created")
+                .description("Range partitions created ahead of time")
+                .register(meterRegistry);
+        if (cfg.isInstallSchema()) {
+            // The DO block contains semicolons, so the script must not be split.
+            ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource(MIGRATION));
+            populator.setSeparator(ScriptUtils.EOF_STATEMENT_SEPARATOR);
+            populator.execute(dataSource);
+            log.info("Applied exceptions partitioning migration from {}", MIGRATION);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "#{${app.partitioning.maintenance-interval-ms:3600000}}")
+    public void maintain() {
+        // The lock belongs to this connection's session; it stays open for the whole run.
+        try (Connection lock = dataSource.getConnection()) {
+            if (!query(lock, "select pg_try_advisory_lock(" + LOCK_KEY + ")")) {
+                log.debug("Partition maintenance is running on another instance; skipping");
+                return;
+            }
+            try {
+                maintainLocked();
+            } finally {
+                query(lock, "select pg_advisory_unlock(" + LOCK_KEY + ")");
+            }
+        } catch (Exception e) {
+            // Keep scheduler resilient; next run retries.
+            log.warn("Partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private void maintainLocked() {
+        if (!isPartitioned()) {
+            if (!warnedUnpartitioned) {
+                log.warn("app.partitioning is enabled but 'exceptions' is not partitioned; apply {}", MIGRATION);
+                warnedUnpartitioned = true;
+            }
+            return;
+        }
+        Instant now = Instant.now();
+        List<Partition> partitions = partitions();
+        createAhead(partitions, now);
+        retireExpired(partitions, now);
+    }
+
+    private static boolean query(Connection connection, String sql) throws Exception {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    private boolean isPartitioned() {
+        Boolean partitioned = jdbc.queryForObject("""
+                select exists (select 1 from pg_partitioned_table pt join pg_class c on c.oid = pt.partrelid
+                               where c.relname = 'exceptions' and pg_table_is_visible(c.oid))
+                """, Boolean.class);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    private List<Partition> partitions() {
+        return jdbc.query(PARTITIONS, (rs, i) -> {
+            Timestamp upper = rs.getTimestamp("upper_bound");
+            return new Partition(rs.getString("relname"), upper == null ? null : upper.toInstant());
+        });
+    }
+
+    private void createAhead(List<Partition> partitions, Instant now) {
+        Instant highest = partitions.stream()
+                .map(Partition::upperBound)
+                .filter(b -> b != null)
+                .max(Instant::compareTo)
+                .orElse(null);
+        String defaultPartition = jdbc.queryForList(DEFAULT_PARTITION, String.class).stream().findFirst().orElse(null);
+        for (Range range : plannedRanges(highest, now, cfg.getPartitionDays(), cfg.getPremakePartitions())) {
+            String name = "exceptions_p" + NAME_DATE.format(range.from());
+            // Bounds are UTC literals; the table name is derived from them, never from input.
+            String bounds = " partition of exceptions for values from ('" + range.from() + "') to ('" + range.to() + "')";
+            if (defaultPartition != null && Boolean.TRUE.equals(jdbc.queryForObject(
+                    "select exists (select 1 from " + defaultPartition + " where occurred_at >= ? and occurred_at < ?)",
+                    Boolean.class, Timestamp.from(range.from()), Timestamp.from(range.to())))) {
+                int moved = createFromDefault(defaultPartition, name, bounds, range);
+                log.warn("Moved {} row(s) of [{}, {}) out of default partition {} into {}",
+                        moved, range.from(), range.to(), defaultPartition, name);
+            } else {
+                jdbc.execute("create table if not exists " + name + bounds);
+            }
+            created.increment();
+            log.info("Created partition {} [{}, {})", name, range.from(), range.to());
+        }
+    }
+
+    /**
+     * Creates a partition whose range the default partition already has rows of.
+     *
+     *Detach default, create the range, move its rows, reattach, in one transaction: the
+     * detach locks `exceptions` until commit, so no insert sees the gap.
+     *
+     * @return rows moved
+     */
+    private int createFromDefault(String defaultPartition, String name, String bounds, Range range) {
+        Timestamp from = Timestamp.from(range.from());
+        Timestamp to = Timestamp.from(range.to());
+        Integer moved = transactions.execute(status -> {
+            jdbc.execute(LOCK_TIMEOUT);
+            jdbc.execute("alter table exceptions detach partition " + defaultPartition);
+            jdbc.execute("create table " + name + bounds);
+            int rows = jdbc.update("insert into " + name + " select * from " + defaultPartition
+                    + " where occurred_at >= ? and occurred_at < ?", from, to);
+            jdbc.update("delete from " + defaultPartition + " where occurred_at >= ? and occurred_at < ?", from, to);
+            jdbc.execute("alter table exceptions attach partition " + defaultPartition + " default");
+            return rows;
+        });
+        return moved == null ? 0 : moved;
+    }
+
+    private void retireExpired(List<Partition> partitions, Instant now) {
+        Instant cutoff = now.minus(Duration.ofDays(Math.max(0, cfg.getRetentionDays())));
+        for (Partition partition : partitions) {
+            if (partition.upperBound() == null || partition.upperBound().isAfter(cutoff)) {
+                continue;
+            }
+            // Cheap check first, so a partition with pending rows is not locked every run.
+            if (hasPending(partition.name())) {
+                log.warn("Partition {} is past retention but still has unprocessed rows; not archiving", partition.name());
+                continue;
+            }
+            Boolean detached = transactions.execute(status -> {
+                jdbc.execute(LOCK_TIMEOUT);
+                jdbc.execute("alter table exceptions detach partition " + partition.name());
+                // The detach holds an exclusive lock until commit, so nothing can be written
+                // into the partition any more: this check is final. A row that arrived after the
+                // first check rolls the detach back.
+                if (hasPending(partition.name())) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+                return true;
+            });
+            if (Boolean.TRUE.equals(detached)) {
+                log.info("Detached partition {} (ended {})", partition.name(), partition.upperBound());
+            } else {
+                log.warn("Partition {} received unprocessed rows while being detached; kept attached", partition.name());
+            }
+        }
+        // Also picks up partitions detached by an earlier run that failed before dropping them.
+        archiver.archiveDetached();
+    }
+
+    private boolean hasPending(String partition) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "select exists (select 1 from " + partition + " r where " + pendingPredicate + ")", Boolean.class));
+    }
+
+    /**
+     * Partitions to create so they cover `premake` partitions beyond the one containing {@code now}.
+     *
+     *New ranges continue from {@code highestUpperBound} (or the start of today, UTC, for an
+     * empty table) so they never overlap existing ones, whatever their width was.
+     */
+    static List<Range> plannedRanges(Instant highestUpperBound, Instant now, int partitionDays, int premake) {
+        Duration width = Duration.ofDays(Math.max(1, partitionDays));
+        // Covered once the highest upper bound is `premake` widths past now.
+        Instant until = now.plus(width.multipliedBy(Math.max(0, premake)));
+        Instant from = highestUpperBound != null ? highestUpperBound : now.truncatedTo(ChronoUnit.DAYS);
+        List<Range> ranges = new ArrayList<>();
+        while (!from.isAfter(until)) {
+            ranges.add(new Range(from, from.plus(width)));
+            from = from.plus(width);
+        }
+        return ranges;
+    }
+
+    record Partition(String name, Instant upperBound) {
+    }
+
+    record Range(Instant from, Instant to) {
+    }
+}
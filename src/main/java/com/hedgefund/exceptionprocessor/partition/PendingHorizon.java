@@ -0,0 +1,60 @@
+package com.hedgefund.exceptionprocessor.partition;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.repo.ExceptionRecordRepository;
+import java.time.Instant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lower occurred_at bound for pending-row page queries on the partitioned table.
+ *
+ *The page queries filter on securityId and processed_at only, so Postgres has to probe
+ * every partition's index. Starting the keyset at the horizon instead gives the planner
+ * an `occurred_at >=` bound, and partitions below it are pruned (at execution time for
+ * prepared statements).
+ *
+ *The horizon is the oldest unprocessed occurred_at minus `late-arrival-margin-ms`,
+ * re-read every `horizon-refresh-ms`. A row inserted with an occurred_at below it is
+ * missed by live events until the next refresh; the backlog sweeper (unbounded scan)
+ * then re-drives it.
+ */
+@Component
+@Slf4j
+public class PendingHorizon {
+    private final AppProperties.Partitioning cfg;
+    private final boolean ledger;
+    private final ExceptionRecordRepository repo;
+    private volatile Instant horizon;
+
+    public PendingHorizon(AppProperties props, ExceptionRecordRepository repo) {
+        this.cfg = props.getPartitioning();
+        this.ledger = props.getPersistence().isLedger();
+        this.repo = repo;
+    }
+
+    /**
+     * Current lower bound, or null when partitioning is off or the horizon is unknown.
+     */
+    public Instant since() {
+        return cfg.isEnabled() ? horizon : null;
+    }
+
+    @Scheduled(fixedDelayString = "#{${app.partitioning.horizon-refresh-ms:10000}}")
+    public void refresh() {
+        if (!cfg.isEnabled()) {
+            return;
+        }
+        try {
+            // Primary read: a lagging replica could report a horizon above a freshly inserted row.
+            Instant oldest = ledger ? repo.findOldestUnpublishedOccurredAt() : repo.findOldestPendingOccurredAt();
+            Instant base = oldest == null ? Instant.now() : oldest;
+            horizon = base.minusMillis(cfg.getLateArrivalMarginMs());
+        } catch (Exception e) {
+            // Unknown horizon = unbounded queries; slower, never wrong.
+            horizon = null;
+            log.warn("Pending horizon refresh failed; page queries run unbounded: {}", e.getMessage());
+        }
+    }
+}
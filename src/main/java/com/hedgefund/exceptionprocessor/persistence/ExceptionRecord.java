@@ -19,7 +19,11 @@ import lombok.Setter;
         name = "exceptions",
         indexes = {
             // Index speeds up queries by securityId, which is our primary lookup key.
-            @Index(name = "idx_exception_security_id", columnList = "securityId")
+            @Index(name = "idx_exception_security_id", columnList = "securityId"),
+            // Covers the keyset page query: equality on securityId, then seek on (occurredAt, id).
+            @Index(name = "idx_exception_security_occurred_id", columnList = "securityId, occurredAt, id"),
+            // Covers the backlog sweeper scan: processedAt IS NULL, then seek on (occurredAt, id).
+            @Index(name = "idx_exception_processed_occurred_id", columnList = "processedAt, occurredAt, id")
         }
 )
 @Getter
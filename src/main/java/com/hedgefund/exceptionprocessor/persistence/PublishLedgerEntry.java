@@ -0,0 +1,42 @@
+package com.hedgefund.exceptionprocessor.persistence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * JPA entity mapped to the `exception_publish_ledger` table (`app.persistence.mode=ledger`).
+ *
+ *One narrow, insert-only row per published exception. Marking a row published no longer
+ * rewrites the wide `exceptions` tuple (message, stacktrace), so publishing creates no
+ * dead tuples there and far less WAL. The mapping exists so schema update creates the
+ * table; rows are written in JDBC batches by {@code PublishLedger}.
+ */
+@Entity
+@Table(name = "exception_publish_ledger")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PublishLedgerEntry {
+    // Id of the published `exceptions` row; primary key, so a row is recorded at most once.
+    @Id
+    private Long exceptionId;
+
+    // Broker ACK time.
+    @Column(nullable = false)
+    private Instant publishedAt;
+
+    // Kafka coordinates of the published record, for audit and replay.
+    private Integer kafkaPartition;
+
+    private Long kafkaOffset;
+}
@@ -0,0 +1,273 @@
+package com.hedgefund.exceptionprocessor.reactive;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.ingest.IngestEvent;
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.ReactiveStreamOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Non-blocking alternative to {@code StreamsConsumer} + the worker pool.
+ *
+ *Big picture:
+ * 1) a repeat loop of reactive `XREADGROUP` calls, merged with a periodic XPENDING/XCLAIM
+ *    reclaim, emits batches of trigger events,
+ * 2) batches go through `flatMap(..., max-in-flight-batches)`: a new read is only requested
+ *    when a batch slot frees up, which replaces the `Semaphore inFlightBatches`,
+ * 3) inside a batch, securityIds run concurrently: R2DBC keyset page -> reactor-kafka
+ *    send -> one bulk conditional UPDATE, repeated until a short page,
+ * 4) once every ID of the batch finished, events of successful IDs are ACKed in one
+ *    `XACK`; failed ones stay in the PEL for reclaim, as in the blocking engine.
+ *
+ *Work for the same securityId is chained, never concurrent, across batches, so rows
+ * of one securityId are still published oldest first and never twice.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.reactive", name = "enabled", havingValue = "true")
+@Slf4j
+public class ReactivePipeline implements SmartLifecycle {
+    // Upper bound for how many stale pending messages to reclaim in one run.
+    private static final int MAX_RECLAIM_BATCH = 64;
+    // Block window of each XREADGROUP.
+    private static final Duration READ_BLOCK_TIMEOUT = Duration.ofSeconds(5);
+    // Pause after a failed read so a Redis outage does not spin the loop.
+    private static final Duration READ_ERROR_BACKOFF = Duration.ofSeconds(1);
+    // Longest pause before resubscribing after the pipeline itself failed.
+    private static final Duration RESTART_MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final ReactiveStringRedisTemplate redis;
+    private final ReactiveRowStore rows;
+    private final ReactiveRecordSender sender;
+    private final AppProperties props;
+
+    // Unique consumer name per application instance.
+    private final String consumerName = UUID.randomUUID().toString();
+    // Tail of the work chain per securityId currently in flight.
+    private final Map<String, Mono<Boolean>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Disposable subscription;
+
+    public ReactivePipeline(
+            ReactiveStringRedisTemplate redis,
+            ReactiveRowStore rows,
+            ReactiveRecordSender sender,
+            AppProperties props
+    ) {
+        this.redis = redis;
+        this.rows = rows;
+        this.sender = sender;
+        this.props = props;
+    }
+
+    @Override
+    public void start() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        Flux<List<IngestEvent>> reads = Flux.defer(this::readBatch).repeat(running::get);
+        // Ticks arriving while every batch slot is busy are dropped rather than overflowing the
+        // interval; a skipped reclaim run only delays work the next one picks up.
+        Flux<List<IngestEvent>> reclaims = Flux.interval(Duration.ofMillis(props.getRetry().getReclaimerIntervalMs()))
+                .onBackpressureDrop()
+                .concatMap(tick -> reclaimBatch(), 1);
+        int maxInFlight = Math.max(1, props.getReactive().getMaxInFlightBatches());
+        // Prefetch 1: reads are pulled by batch-slot demand, not buffered ahead.
+        subscription = Flux.merge(1, reads, reclaims)
+                .filter(batch -> !batch.isEmpty())
+                .flatMap(this::handleBatch, maxInFlight, 1)
+                // One failure must not end ingest for good: resubscribe with backoff (reset after
+                // progress). Events of cancelled batches stay in the PEL for the reclaimer.
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, READ_ERROR_BACKOFF)
+                        .maxBackoff(RESTART_MAX_BACKOFF)
+                        .transientErrors(true)
+                        .filter(e -> running.get())
+                        .doBeforeRetry(signal -> log.error("Reactive pipeline failed; restarting", signal.failure())))
+                .subscribe(
+                        ignored -> { },
+                        e -> log.error("Reactive pipeline terminated", e)
+                );
+        log.info("Reactive pipeline started (max {} in-flight batches)", maxInFlight);
+    }
+
+    @Override
+    public void stop() {
+        running.set(false);
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Validates one batch, processes its securityIds and ACKs successful and invalid events.
+     */
+    Mono<Void> handleBatch(List<IngestEvent> events) {
+        List<IngestEvent> ackNow = new ArrayList<>();
+        List<IngestEvent> valid = new ArrayList<>(events.size());
+        Set<String> seen = new HashSet<>();
+        for (IngestEvent event : events) {
+            String securityId = event.securityId();
+            // Invalid and duplicate events are ACKed right away, as in StreamsConsumer.
+            if (securityId == null || securityId.isBlank() || !seen.add(securityId)) {
+                ackNow.add(event);
+            } else {
+                valid.add(event);
+            }
+        }
+        int concurrency = Math.max(1, props.getReactive().getMaxConcurrentIdsPerBatch());
+        return acknowledge(ackNow).then(Flux.fromIterable(valid)
+                .flatMap(event -> serialized(event.securityId())
+                        .filter(Boolean::booleanValue)
+                        .map(ok -> event), concurrency)
+                .collectList()
+                .flatMap(this::acknowledge));
+    }
+
+    /**
+     * Runs {@link #processSecurityId} after any in-flight work for the same ID completes.
+     */
+    private Mono<Boolean> serialized(String securityId) {
+        Mono<Boolean> run = Mono.defer(() -> processSecurityId(securityId))
+                .onErrorResume(e -> {
+                    log.error("Batch processing failed for securityId={}", securityId, e);
+                    return Mono.just(false);
+                });
+        Mono<Boolean> chained = inFlight.compute(securityId, (id, previous) ->
+                (previous == null ? run : previous.onErrorResume(e -> Mono.just(false)).then(run)).cache());
+        return chained.doFinally(signal -> inFlight.remove(securityId, chained));
+    }
+
+    /**
+     * Publishes every pending row of one securityId page by page.
+     *
+     * @return true when no pending rows remain that this pass failed to publish
+     */
+    Mono<Boolean> processSecurityId(String securityId) {
+        return processPage(securityId, null, Math.max(1, props.getPaging().getPageSize()));
+    }
+
+    private Mono<Boolean> processPage(String securityId, ExceptionRecord after, int pageSize) {
+        return rows.pendingPage(securityId, after, pageSize).flatMap(page -> {
+            if (page.isEmpty()) {
+                return Mono.just(true);
+            }
+            return sender.send(page).flatMap(sent -> rows
+                    .markProcessed(sent.stream().map(ExceptionRecord::getId).toList(), Instant.now())
+                    .then(Mono.defer(() -> {
+                        if (sent.size() < page.size()) {
+                            // Keep the ID pending: newer pages would overtake the failed rows.
+                            log.error(
+                                    "Batch processing incomplete for securityId={}; published={} failed={}",
+                                    securityId,
+                                    sent.size(),
+                                    page.size() - sent.size()
+                            );
+                            return Mono.just(false);
+                        }
+                        // A short page means the keyset is exhausted.
+                        return page.size() < pageSize
+                                ? Mono.just(true)
+                                : processPage(securityId, page.get(page.size() - 1), pageSize);
+                    })));
+        });
+    }
+
+    // read(..., StreamOffset<K>...) is not @SafeVarargs; the one-element array is never written to.
+    @SuppressWarnings("unchecked")
+    private Mono<List<IngestEvent>> readBatch() {
+        StreamReadOptions options = StreamReadOptions.empty()
+                .count(Math.max(1, props.getBatch().getStreamReadCount()))
+                .block(READ_BLOCK_TIMEOUT);
+        StreamOffset<String> offset = StreamOffset.create(props.getStreams().getRedisStreamName(), ReadOffset.lastConsumed());
+        return streamOps()
+                .read(Consumer.from(props.getStreams().getConsumerGroupName(), consumerName), options, offset)
+                .map(ReactivePipeline::toEvent)
+                .collectList()
+                .onErrorResume(e -> {
+                    log.warn("Reactive stream read failed; retrying: {}", e.getMessage());
+                    return Mono.delay(READ_ERROR_BACKOFF).thenReturn(List.of());
+                });
+    }
+
+    private Mono<List<IngestEvent>> reclaimBatch() {
+        String stream = props.getStreams().getRedisStreamName();
+        String group = props.getStreams().getConsumerGroupName();
+        Duration minIdle = Duration.ofMillis(props.getRetry().getClaimStaleAfterMs());
+        return streamOps().pending(stream, group)
+                .filter(summary -> summary.getTotalPendingMessages() > 0)
+                .flatMap(summary -> streamOps().pending(
+                        stream, group, Range.unbounded(), Math.min(MAX_RECLAIM_BATCH, summary.getTotalPendingMessages())))
+                .flatMapMany(Flux::fromIterable)
+                .filter(pm -> pm.getElapsedTimeSinceLastDelivery().compareTo(minIdle) >= 0)
+                .map(PendingMessage::getId)
+                .collectList()
+                .flatMap(ids -> ids.isEmpty()
+                        ? Mono.just(List.<IngestEvent>of())
+                        : streamOps().claim(stream, group, consumerName, minIdle, ids.toArray(RecordId[]::new))
+                                .map(ReactivePipeline::toEvent)
+                                .collectList())
+                .defaultIfEmpty(List.of())
+                .onErrorResume(e -> {
+                    log.debug("Reclaimer issue: {}", e.getMessage());
+                    return Mono.just(List.of());
+                });
+    }
+
+    private Mono<Void> acknowledge(List<IngestEvent> events) {
+        if (events.isEmpty()) {
+            return Mono.empty();
+        }
+        RecordId[] ids = events.stream().map(e -> RecordId.of(e.id())).toArray(RecordId[]::new);
+        return streamOps()
+                .acknowledge(props.getStreams().getRedisStreamName(), props.getStreams().getConsumerGroupName(), ids)
+                .onErrorResume(e -> {
+                    // Unacked events are reclaimed and reprocessed later.
+                    log.debug("ACK failed for {} record(s): {}", ids.length, e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private ReactiveStreamOperations<String, Object, Object> streamOps() {
+        return redis.opsForStream();
+    }
+
+    private static IngestEvent toEvent(MapRecord<String, Object, Object> rec) {
+        return new IngestEvent(
+                rec.getId().getValue(),
+                Objects.toString(rec.getValue().get("securityId"), null),
+                rec.getId().getTimestamp());
+    }
+}
@@ -0,0 +1,72 @@
+package com.hedgefund.exceptionprocessor.reactive;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.dto.ExceptionRecordDTO;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+
+/**
+ * Infrastructure of the reactive pipeline, created only when `app.reactive.enabled=true`.
+ *
+ *The R2DBC pool is wrapped in {@link ReactiveRowStore} rather than exposed as a
+ * `ConnectionFactory` bean: such a bean would make Boot back off the JDBC DataSource
+ * that JPA, the sweeper and the rest of the service still use.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.reactive", name = "enabled", havingValue = "true")
+public class ReactivePipelineConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReactiveRowStore reactiveRowStore(AppProperties props, DataSourceProperties dataSourceProperties) {
+        if (props.getPersistence().isLedger()) {
+            // ReactiveRowStore reads and marks processed_at; it has no ledger variant.
+            throw new IllegalStateException("app.reactive.enabled is not supported with app.persistence.mode=ledger");
+        }
+        if (props.getWriteBehind().isEnabled()) {
+            // Reactive marking is already off the calling thread; it does not use the journal.
+            throw new IllegalStateException("app.reactive.enabled is not supported with app.write-behind.enabled");
+        }
+        AppProperties.Reactive cfg = props.getReactive();
+        String url = cfg.getR2dbcUrl() == null || cfg.getR2dbcUrl().isBlank()
+                // pgjdbc-only URL parameters (reWriteBatchedInserts, prepareThreshold, ...) are dropped.
+                ? dataSourceProperties.determineUrl().replaceFirst("^jdbc:", "r2dbc:").replaceFirst("\\?.*$", "")
+                : cfg.getR2dbcUrl();
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (dataSourceProperties.determineUsername() != null) {
+            options.option(ConnectionFactoryOptions.USER, dataSourceProperties.determineUsername());
+        }
+        if (dataSourceProperties.determinePassword() != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, dataSourceProperties.determinePassword());
+        }
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options.build()))
+                .maxSize(Math.max(1, cfg.getR2dbcPoolMaxSize()))
+                .build());
+        return new ReactiveRowStore(pool);
+    }
+
+    @Bean(destroyMethod = "close")
+    public KafkaSender<String, ExceptionRecordDTO> reactiveKafkaSender(AppProperties props, KafkaProperties kafkaProperties) {
+        // Same producer settings (bootstrap, serializers, JSON headers) as the KafkaTemplate.
+        Map<String, Object> producerProps = kafkaProperties.buildProducerProperties(null);
+        SenderOptions<String, ExceptionRecordDTO> options = SenderOptions.<String, ExceptionRecordDTO>create(producerProps)
+                .maxInFlight(Math.max(1, props.getReactive().getKafkaMaxInFlight()))
+                .stopOnError(false);
+        return KafkaSender.create(options);
+    }
+
+    @Bean
+    public ReactiveRecordSender reactiveRecordSender(KafkaSender<String, ExceptionRecordDTO> reactiveKafkaSender, AppProperties props) {
+        return new ReactiveRecordSender(reactiveKafkaSender, props.getKafka().getTopic());
+    }
+}
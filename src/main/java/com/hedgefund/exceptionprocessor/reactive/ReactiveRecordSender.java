@@ -0,0 +1,75 @@
+package com.hedgefund.exceptionprocessor.reactive;
+
+import com.hedgefund.exceptionprocessor.dto.ExceptionRecordDTO;
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.service.KafkaPublisher;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
+
+/**
+ * reactor-kafka counterpart of KafkaPublisher: same key (`serviceName:securityId`) and
+ * payload, with per-record outcomes instead of one future per record.
+ *
+ *Only the `correlation-id` header is set: a securityId here is served once for all of
+ * its pending trigger events, so there is no single origin to name.
+ */
+@Slf4j
+public class ReactiveRecordSender {
+    private final KafkaSender<String, ExceptionRecordDTO> sender;
+    private final String topic;
+
+    public ReactiveRecordSender(KafkaSender<String, ExceptionRecordDTO> sender, String topic) {
+        this.sender = sender;
+        this.topic = topic;
+    }
+
+    /**
+     * Sends rows in order and emits the rows the broker acknowledged.
+     *
+     *The sender runs with `stopOnError(false)`, so a failed record does not cancel
+     * the others; the caller marks only the returned rows and keeps the securityId pending.
+     */
+    public Mono<List<ExceptionRecord>> send(List<ExceptionRecord> rows) {
+        Flux<SenderRecord<String, ExceptionRecordDTO, ExceptionRecord>> records = Flux.fromIterable(rows)
+                .map(rec -> {
+                    ExceptionRecordDTO dto = toDto(rec);
+                    ProducerRecord<String, ExceptionRecordDTO> record =
+                            new ProducerRecord<>(topic, rec.getServiceName() + ":" + rec.getSecurityId(), dto);
+                    KafkaPublisher.addHeaders(record.headers(), dto, null);
+                    return SenderRecord.create(record, rec);
+                });
+        return sender.send(records)
+                .filter(result -> {
+                    if (result.exception() != null) {
+                        log.error(
+                                "Kafka publish failed for exceptionRecordId={} securityId={}",
+                                result.correlationMetadata().getId(),
+                                result.correlationMetadata().getSecurityId(),
+                                result.exception()
+                        );
+                        return false;
+                    }
+                    return true;
+                })
+                .map(SenderResult::correlationMetadata)
+                .collectList();
+    }
+
+    private static ExceptionRecordDTO toDto(ExceptionRecord rec) {
+        return ExceptionRecordDTO.builder()
+                .id(rec.getId())
+                .serviceName(rec.getServiceName())
+                .severity(rec.getSeverity())
+                .message(rec.getMessage())
+                .occurredAt(rec.getOccurredAt())
+                .correlationId(rec.getCorrelationId())
+                .securityId(rec.getSecurityId())
+                .build();
+    }
+}
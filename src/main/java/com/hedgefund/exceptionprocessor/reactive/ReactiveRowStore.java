@@ -0,0 +1,100 @@
+package com.hedgefund.exceptionprocessor.reactive;
+
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.persistence.Severity;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Row;
+import java.time.Instant;
+import java.util.List;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC access to the `exceptions` table for the reactive pipeline.
+ *
+ *Same keyset paging and conditional marking as the JPA repository, without
+ * holding a thread while Postgres works.
+ */
+public class ReactiveRowStore {
+    private static final String COLUMNS =
+            "id, service_name, severity, message, occurred_at, security_id, correlation_id";
+    private static final String FIRST_PAGE = "select " + COLUMNS + " from exceptions"
+            + " where security_id = $1 and processed_at is null"
+            + " order by occurred_at asc, id asc limit $2";
+    private static final String PAGE_AFTER = "select " + COLUMNS + " from exceptions"
+            + " where security_id = $1 and processed_at is null"
+            + " and (occurred_at > $2 or (occurred_at = $2 and id > $3))"
+            + " order by occurred_at asc, id asc limit $4";
+    // Conditional so a row marked by another instance meanwhile is left alone.
+    private static final String MARK_PROCESSED =
+            "update exceptions set processed_at = $1 where id = any($2) and processed_at is null";
+
+    private final ConnectionPool pool;
+
+    public ReactiveRowStore(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * One keyset page of pending rows of {@code securityId}, oldest first; {@code after} null = first page.
+     */
+    public Mono<List<ExceptionRecord>> pendingPage(String securityId, ExceptionRecord after, int limit) {
+        return Mono.usingWhen(
+                pool.create(),
+                conn -> Flux.from(pageStatement(conn, securityId, after, limit).execute())
+                        .flatMap(result -> result.map((row, meta) -> toRecord(row)))
+                        .collectList(),
+                Connection::close
+        );
+    }
+
+    /**
+     * Sets `processed_at` on the given still-unprocessed rows in one statement.
+     */
+    public Mono<Long> markProcessed(List<Long> ids, Instant processedAt) {
+        if (ids.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return Mono.usingWhen(
+                pool.create(),
+                conn -> Flux.from(conn.createStatement(MARK_PROCESSED)
+                                .bind(0, processedAt)
+                                .bind(1, ids.toArray(new Long[0]))
+                                .execute())
+                        .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                        .reduce(0L, Long::sum),
+                Connection::close
+        );
+    }
+
+    /**
+     * Closes the pool; called on context shutdown.
+     */
+    public void close() {
+        pool.dispose();
+    }
+
+    private static io.r2dbc.spi.Statement pageStatement(Connection conn, String securityId, ExceptionRecord after, int limit) {
+        if (after == null) {
+            return conn.createStatement(FIRST_PAGE).bind(0, securityId).bind(1, limit);
+        }
+        return conn.createStatement(PAGE_AFTER)
+                .bind(0, securityId)
+                .bind(1, after.getOccurredAt())
+                .bind(2, after.getId())
+                .bind(3, limit);
+    }
+
+    private static ExceptionRecord toRecord(Row row) {
+        return ExceptionRecord.builder()
+                .id(row.get("id", Long.class))
+                .serviceName(row.get("service_name", String.class))
+                .severity(Severity.valueOf(row.get("severity", String.class)))
+                .message(row.get("message", String.class))
+                .occurredAt(row.get("occurred_at", Instant.class))
+                .securityId(row.get("security_id", String.class))
+                .correlationId(row.get("correlation_id", String.class))
+                .build();
+    }
+}
@@ -1,9 +1,16 @@
 package com.hedgefund.exceptionprocessor.repo;
 
 import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.persistence.Severity;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Spring Data repository for `ExceptionRecord`.
@@ -13,14 +20,294 @@ import org.springframework.data.jpa.repository.JpaRepository;
  */
 public interface ExceptionRecordRepository extends JpaRepository<ExceptionRecord, Long> {
     /**
-     * Derived query method name interpreted by Spring Data JPA.
+     * First page of pending rows for a chunk of securityIds.
      *
      *Meaning:
      * - `securityId in (...)`
      * - `processedAt is null` (not yet published)
-     * - sort oldest first by `occurredAt`
+     * - sort oldest first by `(occurredAt, id)` so pages have a stable total order
+     * - `page` caps how many rows are materialized at once (`app.paging.page-size`)
      */
-    List<ExceptionRecord> findBySecurityIdInAndProcessedAtIsNullOrderByOccurredAtAsc(
-            Collection<String> securityIds
+    @Query("""
+            select r from ExceptionRecord r
+            where r.securityId in :securityIds
+              and r.processedAt is null
+            order by r.occurredAt asc, r.id asc
+            """)
+    List<ExceptionRecord> findFirstPendingPage(
+            @Param("securityIds") Collection<String> securityIds,
+            Pageable page
     );
+
+    /**
+     * Next page of pending rows, strictly after the last row of the previous page.
+     *
+     *Keyset pagination on `(occurredAt, id)` instead of OFFSET: the DB seeks straight
+     * to the cursor, so page N costs the same as page 1 even for huge backlogs, and
+     * rows marked processed between pages cannot shift the window.
+     */
+    @Query("""
+            select r from ExceptionRecord r
+            where r.securityId in :securityIds
+              and r.processedAt is null
+              and (r.occurredAt > :afterOccurredAt
+                   or (r.occurredAt = :afterOccurredAt and r.id > :afterId))
+            order by r.occurredAt asc, r.id asc
+            """)
+    List<ExceptionRecord> findPendingPageAfter(
+            @Param("securityIds") Collection<String> securityIds,
+            @Param("afterOccurredAt") Instant afterOccurredAt,
+            @Param("afterId") Long afterId,
+            Pageable page
+    );
+
+    /**
+     * {@link #findFirstPendingPage} restricted to {@code severities} (priority mode passes).
+     */
+    @Query("""
+            select r from ExceptionRecord r
+            where r.securityId in :securityIds
+              and r.processedAt is null
+              and r.severity in :severities
+            order by r.occurredAt asc, r.id asc
+            """)
+    List<ExceptionRecord> findFirstPendingPageBySeverity(
+            @Param("securityIds") Collection<String> securityIds,
+            @Param("severities") Collection<Severity> severities,
+            Pageable page
+    );
+
+    /**
+     * {@link #findPendingPageAfter} restricted to {@code severities} (priority mode passes).
+     */
+    @Query("""
+            select r from ExceptionRecord r
+            where r.securityId in :securityIds
+              and r.processedAt is null
+              and r.severity in :severities
+              and (r.occurredAt > :afterOccurredAt
+                   or (r.occurredAt = :afterOccurredAt and r.id > :afterId))
+            order by r.occurredAt asc, r.id asc
+            """)
+    List<ExceptionRecord> findPendingPageAfterBySeverity(
+            @Param("securityIds") Collection<String> securityIds,
+            @Param("severities") Collection<Severity> severities,
+            @Param("afterOccurredAt") Instant afterOccurredAt,
+            @Param("afterId") Long afterId,
+            Pageable page
+    );
+
+    /**
+     * Array-parameter variant of {@link #findFirstPendingPageBySeverity} (`app.jdbc.array-id-queries`).
+     *
+     *`security_id = any(?)` binds the whole chunk as one array parameter, so the SQL
+     * text and parameter count are the same for every chunk size. The JPQL `in (...)`
+     * form expands to one placeholder per ID; each distinct count is a different
+     * statement to pgjdbc's prepared-statement cache and to the server, so chunks of
+     * varying size never reach the server-side prepared (generic plan) stage.
+     */
+    @Query(value = """
+            select * from exceptions r
+            where r.security_id = any(cast(:securityIds as varchar array))
+              and r.severity = any(cast(:severities as varchar array))
+              and r.processed_at is null
+            order by r.occurred_at asc, r.id asc
+            limit :limit
+            """, nativeQuery = true)
+    List<ExceptionRecord> findFirstPendingPageByIdArray(
+            @Param("securityIds") String[] securityIds,
+            @Param("severities") String[] severities,
+            @Param("limit") int limit
+    );
+
+    /**
+     * Array-parameter variant of {@link #findPendingPageAfterBySeverity}.
+     */
+    @Query(value = """
+            select * from exceptions r
+            where r.security_id = any(cast(:securityIds as varchar array))
+              and r.severity = any(cast(:severities as varchar array))
+              and r.processed_at is null
+              and (r.occurred_at > :afterOccurredAt
+                   or (r.occurred_at = :afterOccurredAt and r.id > :afterId))
+            order by r.occurred_at asc, r.id asc
+            limit :limit
+            """, nativeQuery = true)
+    List<ExceptionRecord> findPendingPageAfterByIdArray(
+            @Param("securityIds") String[] securityIds,
+            @Param("severities") String[] severities,
+            @Param("afterOccurredAt") Instant afterOccurredAt,
+            @Param("afterId") Long afterId,
+            @Param("limit") int limit
+    );
+
+    /**
+     * First page of "orphaned" pending rows: unprocessed and older than {@code cutoff}.
+     *
+     *Used by the backlog sweeper to find rows whose Redis trigger event was lost,
+     * trimmed, or ACKed without the row being published.
+     */
+    @Query("""
+            select r from ExceptionRecord r
+            where r.processedAt is null
+              and r.occurredAt < :cutoff
+            order by r.occurredAt asc, r.id asc
+            """)
+    List<ExceptionRecord> findOrphanedPage(
+            @Param("cutoff") Instant cutoff,
+            Pageable page
+    );
+
+    /**
+     * Next page of orphaned rows after the keyset cursor of the previous page.
+     */
+    @Query("""
+            select r from ExceptionRecord r
+            where r.processedAt is null
+              and r.occurredAt < :cutoff
+              and (r.occurredAt > :afterOccurredAt
+                   or (r.occurredAt = :afterOccurredAt and r.id > :afterId))
+            order by r.occurredAt asc, r.id asc
+            """)
+    List<ExceptionRecord> findOrphanedPageAfter(
+            @Param("cutoff") Instant cutoff,
+            @Param("afterOccurredAt") Instant afterOccurredAt,
+            @Param("afterId") Long afterId,
+            Pageable page
+    );
+
+    /**
+     * Occurrence time of the oldest unprocessed row, or null when nothing is pending.
+     */
+    @Query("select min(r.occurredAt) from ExceptionRecord r where r.processedAt is null")
+    Instant findOldestPendingOccurredAt();
+
+    /**
+     * Subset of {@code securityIds} that still have at least one unprocessed row.
+     */
+    @Query("""
+            select distinct r.securityId from ExceptionRecord r
+            where r.securityId in :securityIds and r.processedAt is null
+            """)
+    List<String> findSecurityIdsWithPendingRows(@Param("securityIds") Collection<String> securityIds);
+
+    /**
+     * Subset of {@code ids} not yet marked processed; the primary re-check of replica pages.
+     */
+    @Query("select r.id from ExceptionRecord r where r.id in :ids and r.processedAt is null")
+    List<Long> findPendingIdsAmong(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Marks rows processed unless another writer already did; returns the rows updated.
+     *
+     *One bulk UPDATE instead of `saveAll`, which merges each entity (select + update).
+     * The `processed_at is null` guard keeps the first processedAt when two instances
+     * published the same row.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            update ExceptionRecord r set r.processedAt = :processedAt
+            where r.id in :ids and r.processedAt is null
+            """)
+    int markProcessedIfPending(@Param("ids") Collection<Long> ids, @Param("processedAt") Instant processedAt);
+
+    // ---- Ledger mode (`app.persistence.mode=ledger`): pending = no exception_publish_ledger entry.
+    // Anti-joins on the ledger's primary key; processed_at is never read or written in this mode.
+
+    /**
+     * Ledger-mode {@link #findFirstPendingPageByIdArray}.
+     */
+    @Query(value = """
+            select * from exceptions r
+            where r.security_id = any(cast(:securityIds as varchar array))
+              and r.severity = any(cast(:severities as varchar array))
+              and not exists (select 1 from exception_publish_ledger l where l.exception_id = r.id)
+            order by r.occurred_at asc, r.id asc
+            limit :limit
+            """, nativeQuery = true)
+    List<ExceptionRecord> findFirstUnpublishedPageByIdArray(
+            @Param("securityIds") String[] securityIds,
+            @Param("severities") String[] severities,
+            @Param("limit") int limit
+    );
+
+    /**
+     * Ledger-mode {@link #findPendingPageAfterByIdArray}.
+     */
+    @Query(value = """
+            select * from exceptions r
+            where r.security_id = any(cast(:securityIds as varchar array))
+              and r.severity = any(cast(:severities as varchar array))
+              and not exists (select 1 from exception_publish_ledger l where l.exception_id = r.id)
+              and (r.occurred_at > :afterOccurredAt
+                   or (r.occurred_at = :afterOccurredAt and r.id > :afterId))
+            order by r.occurred_at asc, r.id asc
+            limit :limit
+            """, nativeQuery = true)
+    List<ExceptionRecord> findUnpublishedPageAfterByIdArray(
+            @Param("securityIds") String[] securityIds,
+            @Param("severities") String[] severities,
+            @Param("afterOccurredAt") Instant afterOccurredAt,
+            @Param("afterId") Long afterId,
+            @Param("limit") int limit
+    );
+
+    /**
+     * Ledger-mode {@link #findOrphanedPage}.
+     */
+    @Query("""
+            select r from ExceptionRecord r
+            where r.occurredAt < :cutoff
+              and not exists (select 1 from PublishLedgerEntry l where l.exceptionId = r.id)
+            order by r.occurredAt asc, r.id asc
+            """)
+    List<ExceptionRecord> findOrphanedUnpublishedPage(@Param("cutoff") Instant cutoff, Pageable page);
+
+    /**
+     * Ledger-mode {@link #findOrphanedPageAfter}.
+     */
+    @Query("""
+            select r from ExceptionRecord r
+            where r.occurredAt < :cutoff
+              and not exists (select 1 from PublishLedgerEntry l where l.exceptionId = r.id)
+              and (r.occurredAt > :afterOccurredAt
+                   or (r.occurredAt = :afterOccurredAt and r.id > :afterId))
+            order by r.occurredAt asc, r.id asc
+            """)
+    List<ExceptionRecord> findOrphanedUnpublishedPageAfter(
+            @Param("cutoff") Instant cutoff,
+            @Param("afterOccurredAt") Instant afterOccurredAt,
+            @Param("afterId") Long afterId,
+            Pageable page
+    );
+
+    /**
+     * Ledger-mode {@link #findOldestPendingOccurredAt}.
+     */
+    @Query("""
+            select min(r.occurredAt) from ExceptionRecord r
+            where not exists (select 1 from PublishLedgerEntry l where l.exceptionId = r.id)
+            """)
+    Instant findOldestUnpublishedOccurredAt();
+
+    /**
+     * Ledger-mode {@link #findSecurityIdsWithPendingRows}.
+     */
+    @Query("""
+            select distinct r.securityId from ExceptionRecord r
+            where r.securityId in :securityIds
+              and not exists (select 1 from PublishLedgerEntry l where l.exceptionId = r.id)
+            """)
+    List<String> findSecurityIdsWithUnpublishedRows(@Param("securityIds") Collection<String> securityIds);
+
+    /**
+     * Ledger-mode {@link #findPendingIdsAmong}.
+     */
+    @Query("""
+            select r.id from ExceptionRecord r
+            where r.id in :ids
+              and not exists (select 1 from PublishLedgerEntry l where l.exceptionId = r.id)
+            """)
+    List<Long> findUnpublishedIdsAmong(@Param("ids") Collection<Long> ids);
 }
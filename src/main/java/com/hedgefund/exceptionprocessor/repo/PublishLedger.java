@@ -0,0 +1,58 @@
+package com.hedgefund.exceptionprocessor.repo;
+
+import com.hedgefund.exceptionprocessor.persistence.PublishLedgerEntry;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Append-only writer of `exception_publish_ledger` (`app.persistence.mode=ledger`).
+ *
+ *Entries of one page group go out as one JDBC batch; with pgjdbc's
+ * `reWriteBatchedInserts` that is a single multi-row INSERT. A conflicting entry means
+ * another instance already recorded the row, so it is skipped rather than failing the
+ * batch, like the `processed_at is null` guard of the processed-at mode.
+ */
+@Component
+public class PublishLedger {
+    private static final String INSERT = """
+            insert into exception_publish_ledger (exception_id, published_at, kafka_partition, kafka_offset)
+            values (?, ?, ?, ?)
+            on conflict do nothing
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    public PublishLedger(DataSource dataSource) {
+        this.jdbc = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Records published rows; returns how many were new.
+     */
+    public int record(List<PublishLedgerEntry> entries) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        int[] counts = jdbc.batchUpdate(INSERT, entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getExceptionId());
+            ps.setTimestamp(2, Timestamp.from(entry.getPublishedAt()));
+            if (entry.getKafkaPartition() == null) {
+                ps.setNull(3, Types.INTEGER);
+            } else {
+                ps.setInt(3, entry.getKafkaPartition());
+            }
+            if (entry.getKafkaOffset() == null) {
+                ps.setNull(4, Types.BIGINT);
+            } else {
+                ps.setLong(4, entry.getKafkaOffset());
+            }
+        })[0];
+        // Rewritten batches report SUCCESS_NO_INFO (-2); count those as recorded.
+        return Arrays.stream(counts).map(c -> c < 0 ? 1 : c).sum();
+    }
+}
@@ -0,0 +1,144 @@
+package com.hedgefund.exceptionprocessor.repo;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides whether a pending-row read may go to the read replica, and scopes it there.
+ *
+ *Reads wrapped in {@link #onReplica} are routed by {@link ReplicaRoutingDataSource} to
+ * the replica while its measured replay lag is within `app.read-replica.max-lag-ms`;
+ * everything else (and every read while the replica lags, is unreachable or has not been
+ * checked recently) goes to the primary. The routing key is a thread-local read when the
+ * transaction opens its connection, so the scope must wrap the whole repository call.
+ *
+ *A replica page can still contain rows the primary already marked processed and miss
+ * rows committed after its snapshot; callers re-check page rows on the primary before
+ * publishing and finish each chunk with one primary pass.
+ */
+@Component
+@Slf4j
+public class ReadReplicaRouting {
+    private static final ThreadLocal<Boolean> REPLICA_SCOPE = new ThreadLocal<>();
+
+    private final AppProperties.ReadReplica cfg;
+    private final ObjectProvider<DataSource> replicaDataSource;
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+    private final Counter staleRows;
+
+    // Last measured replay lag (ms); -1 until the first successful check or after a failed one.
+    private volatile long lagMs = -1;
+    // Wall-clock time of the last successful lag check.
+    private volatile long checkedAtMs;
+
+    @Autowired
+    public ReadReplicaRouting(
+            AppProperties props,
+            @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource,
+            MeterRegistry meterRegistry
+    ) {
+        this.cfg = props.getReadReplica();
+        this.replicaDataSource = replicaDataSource;
+        this.replicaReads = Counter.builder("exceptions.replica.reads")
+                .tag("target", "replica")
+                .description("Pending-row page reads by the datasource they were routed to")
+                .register(meterRegistry);
+        this.primaryReads = Counter.builder("exceptions.replica.reads")
+                .tag("target", "primary")
+                .description("Pending-row page reads by the datasource they were routed to")
+                .register(meterRegistry);
+        this.staleRows = Counter.builder("exceptions.replica.stale.rows")
+                .description("Replica page rows skipped because the primary had already marked them processed")
+                .register(meterRegistry);
+        Gauge.builder("exceptions.replica.lag.seconds", this, r -> r.lagMs < 0 ? Double.NaN : r.lagMs / 1000.0)
+                .description("Replay lag of the read replica at the last check")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * True while the replica is enabled, checked recently and within the lag tolerance.
+     */
+    public boolean isUsable() {
+        if (!cfg.isEnabled() || lagMs < 0 || lagMs > cfg.getMaxLagMs()) {
+            return false;
+        }
+        // A stuck scheduler must not keep routing on a stale measurement.
+        long maxAge = Math.max(cfg.getMaxLagMs(), 3 * cfg.getLagCheckIntervalMs());
+        return System.currentTimeMillis() - checkedAtMs <= maxAge;
+    }
+
+    /**
+     * Runs {@code read} against the replica when {@link #isUsable()}, else against the primary.
+     */
+    public <T> T onReplica(Supplier<T> read) {
+        if (!isUsable()) {
+            primaryReads.increment();
+            return read.get();
+        }
+        replicaReads.increment();
+        REPLICA_SCOPE.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            REPLICA_SCOPE.remove();
+        }
+    }
+
+    /**
+     * Counts replica rows dropped by the primary re-check.
+     */
+    public void recordStaleRows(int rows) {
+        staleRows.increment(rows);
+    }
+
+    /**
+     * Whether the current thread is inside an {@link #onReplica} scope.
+     */
+    static boolean replicaRequested() {
+        return REPLICA_SCOPE.get() != null;
+    }
+
+    /**
+     * Measures replica replay lag with `app.read-replica.lag-query` (seconds, null = none).
+     */
+    @Scheduled(fixedDelayString = "#{${app.read-replica.lag-check-interval-ms:1000}}")
+    public void checkLag() {
+        if (!cfg.isEnabled()) {
+            return;
+        }
+        DataSource replica = replicaDataSource.getIfAvailable();
+        if (replica == null) {
+            return;
+        }
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(replica);
+            jdbc.setQueryTimeout((int) Math.max(1, cfg.getLagCheckIntervalMs() / 1000));
+            Double seconds = jdbc.queryForObject(cfg.getLagQuery(), Double.class);
+            long measured = seconds == null ? 0 : Math.max(0, Math.round(seconds * 1000));
+            if (measured > cfg.getMaxLagMs() && (lagMs < 0 || lagMs <= cfg.getMaxLagMs())) {
+                log.warn("Read replica lag {} ms exceeds {} ms; routing pending-row reads to the primary",
+                        measured, cfg.getMaxLagMs());
+            }
+            lagMs = measured;
+            checkedAtMs = System.currentTimeMillis();
+        } catch (Exception e) {
+            if (lagMs >= 0) {
+                log.warn("Read replica lag check failed; routing pending-row reads to the primary: {}", e.getMessage());
+            }
+            lagMs = -1;
+        }
+    }
+}
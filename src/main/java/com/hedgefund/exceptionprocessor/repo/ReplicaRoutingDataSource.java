@@ -0,0 +1,30 @@
+package com.hedgefund.exceptionprocessor.repo;
+
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Primary/replica DataSource: connections opened inside a {@link ReadReplicaRouting#onReplica}
+ * scope come from the replica, all others from the primary.
+ *
+ *The key is resolved when a connection is obtained, which for repository calls is the
+ * start of their transaction; writes and unscoped reads always land on the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        // Unknown keys must never silently fall through to some other target.
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ReadReplicaRouting.replicaRequested() ? REPLICA : PRIMARY;
+    }
+}
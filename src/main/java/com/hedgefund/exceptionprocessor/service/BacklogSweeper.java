@@ -0,0 +1,222 @@
+package com.hedgefund.exceptionprocessor.service;
+
+import com.hedgefund.exceptionprocessor.cache.CleanSecurityIdCache;
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.repo.ExceptionRecordRepository;
+import com.hedgefund.exceptionprocessor.repo.ReadReplicaRouting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Safety net for rows that never receive a Redis trigger event.
+ *
+ *Rows are only published when an event for their securityId arrives. If that
+ * event is lost, trimmed from the stream, or ACKed on the wrong path, the row
+ * would stay unprocessed forever. This scheduled job finds such "orphaned" rows
+ * (unprocessed and older than `app.sweeper.orphaned-after-ms`) with a keyset scan
+ * and re-drives their securityIds through the normal publish path in
+ * {@link ExceptionProcessingService}, so ordering and idempotency rules are the same.
+ *
+ *Only one instance sweeps at a time: a Redis `SET NX PX` lock elects the leader.
+ */
+@Service
+@Slf4j
+public class BacklogSweeper {
+    // Compare-and-delete so an instance never releases a lock another instance now holds.
+    private static final RedisScript<Long> RELEASE_LOCK = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class
+    );
+
+    // Read side: keyset scan of orphaned rows.
+    private final ExceptionRecordRepository repo;
+    // Orphan scans are the heaviest pending-row reads; they go to the replica when usable.
+    private final ReadReplicaRouting replica;
+    // Write side: same fetch/publish/mark path used for live Redis events.
+    private final ExceptionProcessingService processingService;
+    // Negative cache the live path consults; orphans found here must bypass it.
+    private final CleanSecurityIdCache cleanIds;
+    // Redis client used for the leader lock.
+    private final StringRedisTemplate redis;
+    // Externalized application properties (app.*).
+    private final AppProperties props;
+
+    // Rows found orphaned by sweeps (before re-drive).
+    private final Counter sweptRows;
+    // securityIds handed to the publish path by sweeps.
+    private final Counter redrivenSecurityIds;
+    // Age of the oldest unprocessed row, refreshed every run (seconds; 0 when nothing pending).
+    private final AtomicLong oldestUnprocessedAgeSeconds = new AtomicLong();
+    // Unique lock owner token per instance.
+    private final String lockToken = UUID.randomUUID().toString();
+
+    public BacklogSweeper(
+            ExceptionRecordRepository repo,
+            ExceptionProcessingService processingService,
+            CleanSecurityIdCache cleanIds,
+            StringRedisTemplate redis,
+            AppProperties props,
+            ReadReplicaRouting replica,
+            MeterRegistry meterRegistry
+    ) {
+        this.repo = repo;
+        this.replica = replica;
+        this.processingService = processingService;
+        this.cleanIds = cleanIds;
+        this.redis = redis;
+        this.props = props;
+        this.sweptRows = Counter.builder("exceptions.sweeper.swept.rows")
+                .description("Orphaned unprocessed rows found by the backlog sweeper")
+                .register(meterRegistry);
+        this.redrivenSecurityIds = Counter.builder("exceptions.sweeper.redriven.security.ids")
+                .description("securityIds re-driven through the publish path by the backlog sweeper")
+                .register(meterRegistry);
+        Gauge.builder("exceptions.sweeper.oldest.unprocessed.age.seconds", oldestUnprocessedAgeSeconds, AtomicLong::get)
+                .description("Age of the oldest unprocessed exception row")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Scheduled entry point; only the instance holding the Redis lock does any work.
+     */
+    @Scheduled(fixedDelayString = "#{${app.sweeper.interval-ms}}")
+    public void sweep() {
+        AppProperties.Sweeper cfg = props.getSweeper();
+        if (!cfg.isEnabled()) {
+            return;
+        }
+        try {
+            // Metric is refreshed by every instance so dashboards work regardless of leader.
+            refreshOldestUnprocessedAge();
+
+            Duration lease = Duration.ofMillis(cfg.getLockTtlMs());
+            if (!Boolean.TRUE.equals(redis.opsForValue().setIfAbsent(cfg.getLockKey(), lockToken, lease))) {
+                // Another instance is sweeping.
+                return;
+            }
+            try {
+                sweepOrphans(cfg, lease);
+            } finally {
+                redis.execute(RELEASE_LOCK, List.of(cfg.getLockKey()), lockToken);
+            }
+        } catch (InterruptedException e) {
+            // Shutdown interrupted the pacing sleep; the lock is already released, the next leader resumes.
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Keep scheduler resilient; next run retries.
+            log.warn("Backlog sweep failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Keyset-scans orphaned rows and re-drives each distinct securityId once per run.
+     */
+    private void sweepOrphans(AppProperties.Sweeper cfg, Duration lease) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        // Stop before the lease expires so two leaders never overlap.
+        long deadlineNanos = startNanos + lease.toNanos() / 2;
+        Instant cutoff = Instant.now().minusMillis(cfg.getOrphanedAfterMs());
+        int pageSize = Math.max(1, props.getPaging().getPageSize());
+        int chunkSize = Math.max(1, props.getBatch().getSecurityIdQueryChunkSize());
+        Pageable page = PageRequest.of(0, pageSize);
+        double maxIdsPerSecond = Math.max(1, cfg.getMaxSecurityIdsPerSecond());
+
+        // securityIds already re-driven in this run; their remaining rows were published with them.
+        Set<String> handled = new HashSet<>();
+        ExceptionRecord cursor = null;
+        long dispatched = 0;
+        long found = 0;
+
+        while (System.nanoTime() < deadlineNanos) {
+            // Replica lag is harmless here: rows are orphaned minutes before the cutoff, and the
+            // re-drive re-reads and re-checks them through the normal publish path.
+            ExceptionRecord after = cursor;
+            List<ExceptionRecord> rows = replica.onReplica(() -> findOrphans(cutoff, after, page));
+            if (rows.isEmpty()) {
+                break;
+            }
+            found += rows.size();
+            sweptRows.increment(rows.size());
+
+            // Distinct, not-yet-handled securityIds in oldest-first order.
+            Set<String> ids = new LinkedHashSet<>();
+            for (ExceptionRecord row : rows) {
+                if (handled.add(row.getSecurityId())) {
+                    ids.add(row.getSecurityId());
+                }
+            }
+
+            List<String> idList = new ArrayList<>(ids);
+            for (int from = 0; from < idList.size(); from += chunkSize) {
+                List<String> chunk = idList.subList(from, Math.min(idList.size(), from + chunkSize));
+                // Pace dispatch: never exceed maxIdsPerSecond averaged over the run.
+                long earliestNanos = startNanos + (long) (dispatched / maxIdsPerSecond * 1_000_000_000L);
+                long waitNanos = earliestNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+                }
+                // These IDs demonstrably have pending rows; never let the clean-ID cache skip them.
+                cleanIds.invalidate(chunk);
+                // Wait for completion so sweep pressure on the workers stays at one batch.
+                Set<String> ok = (props.getLanes().isEnabled()
+                        ? processingService.fetchAndPublishBySecurityIdsOrdered(chunk)
+                        : processingService.fetchAndPublishBySecurityIdsAsync(chunk)).join();
+                dispatched += chunk.size();
+                redrivenSecurityIds.increment(chunk.size());
+                if (ok.size() < chunk.size()) {
+                    log.warn("Backlog sweep left {} securityId(s) pending after re-drive", chunk.size() - ok.size());
+                }
+            }
+
+            if (rows.size() < pageSize) {
+                break;
+            }
+            cursor = rows.get(rows.size() - 1);
+        }
+
+        if (found > 0) {
+            log.info("Backlog sweep found {} orphaned row(s); re-drove {} securityId(s)", found, dispatched);
+        }
+    }
+
+    private List<ExceptionRecord> findOrphans(Instant cutoff, ExceptionRecord after, Pageable page) {
+        if (props.getPersistence().isLedger()) {
+            // Ledger mode: orphaned = old and without a publish ledger entry.
+            return after == null
+                    ? repo.findOrphanedUnpublishedPage(cutoff, page)
+                    : repo.findOrphanedUnpublishedPageAfter(cutoff, after.getOccurredAt(), after.getId(), page);
+        }
+        return after == null
+                ? repo.findOrphanedPage(cutoff, page)
+                : repo.findOrphanedPageAfter(cutoff, after.getOccurredAt(), after.getId(), page);
+    }
+
+    private void refreshOldestUnprocessedAge() {
+        Instant oldest = replica.onReplica(props.getPersistence().isLedger()
+                ? repo::findOldestUnpublishedOccurredAt
+                : repo::findOldestPendingOccurredAt);
+        oldestUnprocessedAgeSeconds.set(
+                oldest == null ? 0 : Math.max(0, Duration.between(oldest, Instant.now()).toSeconds())
+        );
+    }
+}
@@ -1,20 +1,35 @@
 package com.hedgefund.exceptionprocessor.service;
 
+import com.hedgefund.exceptionprocessor.batch.IdBatch;
+import com.hedgefund.exceptionprocessor.batch.RowGroups;
+import com.hedgefund.exceptionprocessor.batch.SecurityIdInterner;
+import com.hedgefund.exceptionprocessor.cache.CleanSecurityIdCache;
 import com.hedgefund.exceptionprocessor.config.AppProperties;
 import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.persistence.Severity;
 import com.hedgefund.exceptionprocessor.dto.ExceptionRecordDTO;
+import com.hedgefund.exceptionprocessor.index.PendingRowIndex;
+import com.hedgefund.exceptionprocessor.ingest.IngestEvent;
+import com.hedgefund.exceptionprocessor.jfr.PublishEvent;
+import com.hedgefund.exceptionprocessor.logging.LogSampler;
+import com.hedgefund.exceptionprocessor.lane.HotSecurityIds;
+import com.hedgefund.exceptionprocessor.lane.KeyedLaneExecutor;
 import com.hedgefund.exceptionprocessor.repo.ExceptionRecordRepository;
-import java.time.Instant;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashSet;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -37,6 +52,26 @@ public class ExceptionProcessingService {
     private final KafkaPublisher publisher;
     // Runtime tuning knobs (chunk size, topic name, etc.).
     private final AppProperties props;
+    // Negative cache: securityIds known to have no pending rows skip the DB query.
+    private final CleanSecurityIdCache cleanIds;
+    // Shared Redis index of securityIds with pending rows; cleared here once rows are processed.
+    private final PendingRowIndex pendingIndex;
+    // securityId -> ordinal dictionary backing the per-batch primitive structures.
+    private final SecurityIdInterner interner;
+    // Serial per-securityId lanes; replaces the worker pool when `app.lanes.enabled`.
+    private final KeyedLaneExecutor lanes;
+    // Row-volume heavy hitters; paged on their own so they do not hold up cold IDs.
+    private final HotSecurityIds hotIds;
+    // Keyset page reads: query form, pending horizon and read-replica routing.
+    private final PendingPageReader pageReader;
+    // Records published rows (write-behind journal, publish ledger or processed_at).
+    private final PublishMarker marker;
+    // Worker-side spans (fetch, DB page, publish, mark) under the consumer's batch span.
+    private final ObservationRegistry observations;
+
+    // Per-call summary and per-securityId failure lines are capped per second (`app.logging.*`).
+    private final LogSampler summaryLog = new LogSampler(this::sampledLinesPerSecond);
+    private final LogSampler incompleteLog = new LogSampler(this::sampledLinesPerSecond);
 
     /**
      * Starts processing asynchronously on the named thread pool.
@@ -52,14 +87,11 @@ public class ExceptionProcessingService {
             return CompletableFuture.completedFuture(Collections.emptySet());
         }
 
-        // Start a Stream pipeline over the incoming collection to normalize request data.
-        Set<String> requested = securityIds.stream()
-                // Drop nulls and blank strings so we never query DB with invalid business keys.
-                .filter(id -> id != null && !id.isBlank())
-                // Collect into LinkedHashSet:
-                // - Set => remove duplicates
-                // - LinkedHashSet => keep first-seen order for deterministic processing/logging.
-                .collect(Collectors.toCollection(LinkedHashSet::new));
+        // StreamsConsumer already hands over a deduplicated, validated IdBatch; other callers get normalized here.
+        IdBatch requested = securityIds instanceof IdBatch batch
+                ? batch
+                // Drops nulls, blanks and duplicates, keeping first-seen order for deterministic processing/logging.
+                : IdBatch.of(interner, securityIds, securityIds.size());
         // If all incoming IDs were invalid after filtering, there is still no work to do.
         if (requested.isEmpty()) {
             // Return empty success set; caller can treat this batch as no-op.
@@ -70,84 +102,427 @@ public class ExceptionProcessingService {
         return CompletableFuture.completedFuture(fetchAndPublishBySecurityIdsInternal(requested));
     }
 
+    /**
+     * Starts processing on the keyed lanes: each securityId runs on its own serial lane.
+     *
+     *The batch is split by lane and each part is queued behind earlier work for the
+     * same IDs, so a securityId is never processed by two threads at once and its rows
+     * keep their order across batches. A part that is rejected (lane full) or fails only
+     * leaves its own IDs out of the result; the caller keeps their events pending.
+     *
+     *With the priority pass and reserved lanes, the priority-severity part of each ID
+     * is queued on a reserved lane instead, so it never waits behind a backlog drain.
+     * The two passes cover disjoint severities, so they may run concurrently.
+     */
+    public CompletableFuture<Set<String>> fetchAndPublishBySecurityIdsOrdered(Collection<String> securityIds) {
+        if (securityIds == null || securityIds.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptySet());
+        }
+        IdBatch requested = securityIds instanceof IdBatch batch
+                ? batch
+                : IdBatch.of(interner, securityIds, securityIds.size());
+        if (requested.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptySet());
+        }
+
+        // Cache versions are read here, before any lane queries, exactly as in the single-thread path.
+        Map<String, Long> versions = cleanIds.versions(requested);
+        Set<String> knownClean = cleanIds.knownClean(requested, versions);
+        List<String> toQuery = withoutIds(requested.asList(), knownClean);
+        boolean reserved = props.getPriority().isEnabled() && lanes.reservedLaneCount() > 0;
+
+        // IDs whose part could not even be queued; written here only, before any completion runs.
+        BitSet rejected = new BitSet(requested.size());
+        List<CompletableFuture<PassResult>> results = new ArrayList<>();
+        // Lane threads do not inherit the caller's scope; their spans name the batch span explicitly.
+        Observation batchSpan = observations.getCurrentObservation();
+        submitByLane(requested, toQuery, false, reserved ? Pass.NORMAL : null, rejected, results, batchSpan);
+        if (reserved) {
+            submitByLane(requested, toQuery, true, Pass.PRIORITY, rejected, results, batchSpan);
+        }
+
+        // Merge part outcomes into one view over the caller's batch indexes.
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            BitSet failed = (BitSet) rejected.clone();
+            long sent = 0;
+            for (CompletableFuture<PassResult> result : results) {
+                failed.or(result.join().failed());
+                sent += result.join().sent();
+            }
+            return finishBatch(requested, failed, knownClean, versions, sent);
+        });
+    }
+
+    /**
+     * Queues {@code ids} split by lane; {@code pass == null} runs every pass in order on the lane.
+     */
+    private void submitByLane(
+            IdBatch batch,
+            List<String> ids,
+            boolean priorityLanes,
+            Pass pass,
+            BitSet rejected,
+            List<CompletableFuture<PassResult>> results,
+            Observation batchSpan
+    ) {
+        // Split by lane, keeping first-seen order inside each part.
+        List<List<String>> parts = new ArrayList<>(Collections.nCopies(
+                priorityLanes ? lanes.reservedLaneCount() : lanes.laneCount(), null));
+        int base = priorityLanes ? lanes.laneCount() : 0;
+        for (String id : ids) {
+            int slot = (priorityLanes ? lanes.reservedLaneOf(id) : lanes.laneOf(id)) - base;
+            if (parts.get(slot) == null) {
+                parts.set(slot, new ArrayList<>());
+            }
+            parts.get(slot).add(id);
+        }
+
+        for (int slot = 0; slot < parts.size(); slot++) {
+            List<String> part = parts.get(slot);
+            if (part == null) {
+                continue;
+            }
+            try {
+                results.add(lanes.submit(base + slot, part, () -> fetchObservation(part.size())
+                                .parentObservation(batchSpan)
+                                .observe(() -> {
+                                    // Lane-local bitset; merged once every part has finished.
+                                    BitSet failed = new BitSet(batch.size());
+                                    long sent = pass == null
+                                            ? publishPasses(batch, part, failed)
+                                            : publishPass(batch, part, failed, pass);
+                                    return new PassResult(failed, sent);
+                                }))
+                        .exceptionally(e -> {
+                            log.error("Lane processing failed for {} securityId(s)", part.size(), e);
+                            return new PassResult(indexesOf(batch, part), 0);
+                        }));
+            } catch (RejectedExecutionException e) {
+                log.warn("{}; leaving {} securityId(s) pending", e.getMessage(), part.size());
+                rejected.or(indexesOf(batch, part));
+            }
+        }
+    }
+
     /**
      * Core orchestrator for one logical request.
      *
      *Processes security IDs in chunks to keep DB queries bounded, while isolating
-     * per-securityId failures so one bad key does not block the rest.
+     * per-securityId failures so one bad key does not block the rest. Per-ID outcome is
+     * tracked in bitsets over batch indexes; the returned set is a view over the success
+     * bits, so callers holding batch indexes can test membership without hashing.
+     */
+    private Set<String> fetchAndPublishBySecurityIdsInternal(IdBatch securityIds) {
+        // Child of the batch span: the worker pool propagates the submitting thread's observation.
+        return fetchObservation(securityIds.size()).observe(() -> {
+            // Versions are read before any query so a concurrent insert always invalidates what we cache below.
+            Map<String, Long> versions = cleanIds.versions(securityIds);
+            Set<String> knownClean = cleanIds.knownClean(securityIds, versions);
+            // Bit i = batch index i failed somewhere (publish or mark); such IDs must not be ACKed.
+            BitSet failed = new BitSet(securityIds.size());
+            // Known-clean IDs are handled without touching the DB.
+            List<String> toQuery = withoutIds(securityIds.asList(), knownClean);
+            // Observability metric: total rows published in this call.
+            long totalSent = publishPasses(securityIds, toQuery, failed);
+            return finishBatch(securityIds, failed, knownClean, versions, totalSent);
+        });
+    }
+
+    /**
+     * Span of one worker's (or lane part's) share of a batch.
+     */
+    private Observation fetchObservation(int securityIds) {
+        return Observation.createNotStarted("exceptions.fetch", observations)
+                .highCardinalityKeyValue("security.ids", Integer.toString(securityIds));
+    }
+
+    private <T> T observed(String name, Supplier<T> body) {
+        return Observation.createNotStarted(name, observations).observe(body);
+    }
+
+    /**
+     * Runs the priority pass (when enabled) and then the pass for all other rows.
+     *
+     *IDs that fail in the priority pass are left out of the second pass; they stay
+     * pending and are retried as a whole.
+     */
+    private long publishPasses(IdBatch batch, List<String> ids, BitSet failed) {
+        if (!props.getPriority().isEnabled()) {
+            return publishPass(batch, ids, failed, Pass.ALL);
+        }
+        long sent = publishPass(batch, ids, failed, Pass.PRIORITY);
+        List<String> rest = failed.isEmpty()
+                ? ids
+                : ids.stream().filter(id -> !failed.get(batch.indexOf(id))).toList();
+        return sent + publishPass(batch, rest, failed, Pass.NORMAL);
+    }
+
+    /**
+     * Publishes the rows of {@code ids} that belong to {@code pass}, chunk by chunk.
+     *
+     *Hot IDs (by row volume) are taken out of the shared chunks and paged one by one
+     * afterwards: in a shared oldest-first page a hot ID's old backlog would fill page
+     * after page while the cold IDs of the chunk wait. Their rows stay in order because
+     * one ID is still handled by one thread, page by page.
      */
-    private Set<String> fetchAndPublishBySecurityIdsInternal(Set<String> securityIds) {
+    private long publishPass(IdBatch batch, List<String> ids, BitSet failed, Pass pass) {
         // Chunking limits SQL `IN (...)` list size and keeps memory usage predictable.
         int chunkSize = Math.max(1, props.getBatch().getSecurityIdQueryChunkSize());
-        // Tracks IDs that finished successfully so caller can ACK corresponding stream messages.
-        Set<String> successful = new LinkedHashSet<>();
-        // Observability metric: total rows published in this call.
-        long totalSent = 0;
-
+        // null = no severity filter (priority mode off).
+        Collection<Severity> severities = switch (pass) {
+            case ALL -> null;
+            case PRIORITY -> prioritySeverities();
+            case NORMAL -> EnumSet.complementOf(prioritySeverities());
+        };
+        String priorityTopic = props.getPriority().getTopic();
+        String topic = pass == Pass.PRIORITY && priorityTopic != null && !priorityTopic.isBlank()
+                ? priorityTopic
+                : props.getKafka().getTopic();
+        List<String> cold = ids;
+        List<String> hot = List.of();
+        if (hotIds.isEnabled() && ids.stream().anyMatch(hotIds::isHot)) {
+            cold = ids.stream().filter(id -> !hotIds.isHot(id)).toList();
+            hot = ids.stream().filter(hotIds::isHot).toList();
+        }
+        long sent = 0;
         // Loop over IDs in fixed-size windows so each DB query remains bounded.
-        for (int from = 0; from < securityIds.size(); from += chunkSize) {
-            // Build current window [from, from + chunkSize).
-            List<String> chunkIds = securityIds.stream().skip(from).limit(chunkSize).toList();
-            // Fetch only records not yet processed, oldest first.
-            List<ExceptionRecord> chunkRecords = repo.findBySecurityIdInAndProcessedAtIsNullOrderByOccurredAtAsc(chunkIds);
-            if (chunkRecords.isEmpty()) {
-                // If DB has no pending rows for an ID, we still consider it successfully handled.
-                successful.addAll(chunkIds);
-                // Move to next chunk without trying publish path.
-                continue;
+        for (int from = 0; from < cold.size(); from += chunkSize) {
+            // Build current window [from, from + chunkSize) as a view, no copy.
+            List<String> chunkIds = cold.subList(from, Math.min(cold.size(), from + chunkSize));
+            sent += publishChunkPaged(batch, chunkIds, failed, severities, topic);
+        }
+        // Each hot ID is its own sub-batch with keyset paging.
+        for (String hotId : hot) {
+            sent += publishChunkPaged(batch, List.of(hotId), failed, severities, topic);
+        }
+        return sent;
+    }
+
+    /**
+     * Turns the failure bits into the result and updates the clean-ID cache and pending-row index.
+     */
+    private Set<String> finishBatch(
+            IdBatch securityIds,
+            BitSet failed,
+            Set<String> knownClean,
+            Map<String, Long> versions,
+            long totalSent
+    ) {
+        // An ID with no pending rows, or with every page published, is successfully handled.
+        BitSet successBits = new BitSet(securityIds.size());
+        successBits.set(0, securityIds.size());
+        successBits.andNot(failed);
+        IdBatch.Subset successful = securityIds.subset(successBits);
+
+        // Queried IDs that are now fully handled had no pending rows left at query time.
+        if (successful.size() > knownClean.size()) {
+            cleanIds.markClean(successful, versions);
+            clearPendingIndex(successful.stream().filter(id -> !knownClean.contains(id)).toList());
+        }
+
+        // Summary log gives high-level visibility into throughput and partial failures (metrics carry the totals).
+        if (log.isInfoEnabled() && summaryLog.tryAcquire()) {
+            log.info(
+                    "Published {} records across {} requested securityId(s); successfulIds={} (+{} summaries not logged)",
+                    totalSent,
+                    securityIds.size(),
+                    successful.size(),
+                    summaryLog.takeSuppressed()
+            );
+        }
+        // Returned set is consumed by StreamsConsumer to decide which Redis events to ACK.
+        return successful;
+    }
+
+    private EnumSet<Severity> prioritySeverities() {
+        List<Severity> configured = props.getPriority().getSeverities();
+        return configured == null || configured.isEmpty()
+                ? EnumSet.noneOf(Severity.class)
+                : EnumSet.copyOf(configured);
+    }
+
+    private static List<String> withoutIds(List<String> ids, Set<String> excluded) {
+        return excluded.isEmpty() ? ids : ids.stream().filter(id -> !excluded.contains(id)).toList();
+    }
+
+    private static BitSet indexesOf(IdBatch batch, List<String> ids) {
+        BitSet bits = new BitSet(batch.size());
+        for (String id : ids) {
+            bits.set(batch.indexOf(id));
+        }
+        return bits;
+    }
+
+    /**
+     * Clears handled IDs in the pending-row index, then re-marks those that gained rows meanwhile.
+     *
+     *A writer marks its securityId after commit; if that mark landed before our clear,
+     * the re-check sees the committed row and restores the bit. Any failure re-marks
+     * everything: a stale bit only costs an extra query, a missing one delays rows until
+     * the sweeper.
+     */
+    private void clearPendingIndex(List<String> handledIds) {
+        if (!pendingIndex.isEnabled() || handledIds.isEmpty()) {
+            return;
+        }
+        try {
+            pendingIndex.clearPending(handledIds);
+            pendingIndex.markPending(props.getPersistence().isLedger()
+                    ? repo.findSecurityIdsWithUnpublishedRows(handledIds)
+                    : repo.findSecurityIdsWithPendingRows(handledIds));
+        } catch (Exception e) {
+            log.warn("Pending-row index maintenance failed for {} securityId(s): {}", handledIds.size(), e.getMessage());
+            try {
+                pendingIndex.markPending(handledIds);
+            } catch (Exception ignored) {
+                // Redis is down; the filter fails open or the sweeper recovers.
             }
+        }
+    }
+
+    /**
+     * Streams one chunk's pending rows page by page and publishes/marks each page before
+     * reading the next.
+     *
+     *Memory stays bounded by `app.paging.page-size` rows no matter how large a
+     * securityId's backlog is. Pages follow the `(occurredAt, id)` keyset, so rows
+     * of one securityId are still published oldest first. Once a securityId fails it is
+     * dropped from later page queries: publishing its newer rows would overtake the
+     * failed older ones.
+     *
+     *With {@code severities} set (priority mode) only rows of those severities are read
+     * and sent to {@code topic}; order is then oldest first within the pass.
+     *
+     *With a usable read replica the pages are read there. Replica pages may still hold
+     * rows the primary already marked (replay lag), so page rows are re-checked by id on
+     * the primary before publishing; and they miss rows committed after the replica's
+     * snapshot, so the chunk is finished with one pass on the primary, normally a single
+     * empty indexed query.
+     *
+     * @return number of rows published for this chunk; batch indexes of failed IDs are set in {@code failed}
+     */
+    private long publishChunkPaged(
+            IdBatch batch,
+            List<String> chunkIds,
+            BitSet failed,
+            Collection<Severity> severities,
+            String topic
+    ) {
+        if (!pageReader.replicaUsable()) {
+            return publishChunkPaged(batch, chunkIds, failed, severities, topic, false);
+        }
+        long sent = publishChunkPaged(batch, chunkIds, failed, severities, topic, true);
+        List<String> unfailed = chunkIds.stream().filter(id -> !failed.get(batch.indexOf(id))).toList();
+        return unfailed.isEmpty() ? sent : sent + publishChunkPaged(batch, unfailed, failed, severities, topic, false);
+    }
+
+    private long publishChunkPaged(
+            IdBatch batch,
+            List<String> chunkIds,
+            BitSet failed,
+            Collection<Severity> severities,
+            String topic,
+            boolean fromReplica
+    ) {
+        int pageSize = Math.max(1, props.getPaging().getPageSize());
+        // IDs still allowed into the next page query; copied only once an ID of this chunk fails.
+        List<String> remaining = chunkIds;
+        int failedBefore = failed.cardinality();
+        // Keyset cursor: last row of the previous page (null before the first page).
+        ExceptionRecord cursor = null;
+        long sent = 0;
 
-            // Group rows by securityId so failure on one key does not block other keys in the same chunk.
-            Map<String, List<ExceptionRecord>> bySecurityId = chunkRecords.stream()
-                    .collect(Collectors.groupingBy(ExceptionRecord::getSecurityId, Collectors.toList()));
+        while (!remaining.isEmpty()) {
+            // Fetch only records not yet processed, oldest first, at most one page.
+            List<String> ids = remaining;
+            ExceptionRecord after = cursor;
+            List<ExceptionRecord> pageRecords = observed("exceptions.db.page",
+                    () -> pageReader.page(ids, severities, after, pageSize, fromReplica));
+            if (pageRecords.isEmpty()) {
+                // No (more) pending rows for any remaining ID.
+                break;
+            }
+            // Replica rows the primary already marked processed are skipped, not republished.
+            List<ExceptionRecord> toPublish = fromReplica ? pageReader.stillPendingOnPrimary(pageRecords) : pageRecords;
+            // Published rows whose mark is still in the write-behind journal look pending too.
+            toPublish = marker.withoutUnflushed(toPublish);
 
-            for (String securityId : chunkIds) {
-                // Pull rows for this specific ID; default to empty list if DB returned none for that ID.
-                List<ExceptionRecord> records = bySecurityId.getOrDefault(securityId, Collections.emptyList());
+            // Group rows by securityId so failure on one key does not block other keys in the same page.
+            // Counting sort by batch index keeps first-seen (oldest-first) key order without a HashMap of lists.
+            RowGroups<ExceptionRecord> groups = RowGroups.of(batch, toPublish, ExceptionRecord::getSecurityId);
+            if (groups.unmatchedRows() > 0) {
+                log.warn("Ignoring {} row(s) whose securityId was not requested", groups.unmatchedRows());
+            }
 
+            for (int g = 0; g < groups.groupCount(); g++) {
+                int batchIndex = groups.batchIndex(g);
+                String securityId = batch.get(batchIndex);
                 try {
                     // Publish rows for this securityId and persist processedAt only for successful sends.
-                    PublishOutcome outcome = publishAndMarkProcessed(records);
-                    // Track this ID as fully successful only if every row publish succeeded.
-                    if (outcome.allPublished()) {
-                        successful.add(securityId);
-                    } else {
+                    List<ExceptionRecord> rows = groups.rows(g);
+                    // Inside the try: a detector failure must not abort the other groups of the page.
+                    hotIds.recordRows(securityId, rows.size());
+                    IngestEvent origin = batch.origin(batchIndex);
+                    PublishEvent publish = new PublishEvent();
+                    publish.begin();
+                    PublishOutcome outcome = Observation.createNotStarted("exceptions.publish", observations)
+                            .highCardinalityKeyValue("security.id", securityId)
+                            .highCardinalityKeyValue("rows", Integer.toString(rows.size()))
+                            .observe(() -> publishAndMarkProcessed(rows, topic, origin));
+                    publish.end();
+                    if (publish.shouldCommit()) {
+                        publish.securityId = securityId;
+                        publish.rows = rows.size();
+                        publish.published = outcome.publishedCount();
+                        publish.failed = outcome.failedCount();
+                        publish.commit();
+                    }
+                    // Track this ID as failed if any row publish did not succeed.
+                    if (!outcome.allPublished()) {
+                        failed.set(batchIndex);
                         // Leave securityId out of success set so Redis event is not ACKed.
-                        log.error(
-                                "Batch processing incomplete for securityId={}; published={} failed={}",
-                                securityId,
-                                outcome.publishedCount(),
-                                outcome.failedCount()
-                        );
+                        if (incompleteLog.tryAcquire()) {
+                            log.error(
+                                    "Batch processing incomplete for securityId={}; published={} failed={} (+{} not logged)",
+                                    securityId,
+                                    outcome.publishedCount(),
+                                    outcome.failedCount(),
+                                    incompleteLog.takeSuppressed()
+                            );
+                        }
                     }
                     // Count only rows that were actually emitted to Kafka successfully.
-                    totalSent += outcome.publishedCount();
+                    sent += outcome.publishedCount();
                 } catch (Exception ex) {
                     // Partial-failure design: continue with other IDs and leave failed one pending for retry.
+                    failed.set(batchIndex);
                     log.error("Batch processing failed for securityId={}", securityId, ex);
                 }
             }
-        }
 
-        // Summary log gives high-level visibility into throughput and partial failures.
-        log.info(
-                "Published {} records across {} requested securityId(s); successfulIds={}",
-                totalSent,
-                securityIds.size(),
-                successful.size()
-        );
-        // Returned set is consumed by StreamsConsumer to decide which Redis events to ACK.
-        return successful;
+            // A short page means the keyset is exhausted for this chunk.
+            if (pageRecords.size() < pageSize) {
+                break;
+            }
+            if (failed.cardinality() > failedBefore) {
+                remaining = remaining.stream().filter(id -> !failed.get(batch.indexOf(id))).toList();
+                failedBefore = failed.cardinality();
+            }
+            cursor = pageRecords.get(pageRecords.size() - 1);
+        }
+        return sent;
     }
 
     /**
      * Publishes rows and marks only successfully published rows as processed.
      *
      *If any row fails, caller keeps the securityId unacked so Redis can retry.
+     *
+     * @param origin trigger event of this securityId (id and timestamp go into the record headers), or null
      */
 
     // all records of 1 id
-    private PublishOutcome publishAndMarkProcessed(List<ExceptionRecord> records) {
+    private PublishOutcome publishAndMarkProcessed(List<ExceptionRecord> records, String topic, IngestEvent origin) {
         // Guard clause for IDs that currently have no pending DB rows.
         if (records.isEmpty()) {
             return new PublishOutcome(true, 0, 0);
@@ -177,16 +552,18 @@ public class ExceptionProcessingService {
                     .build();
 
             // Submit one async Kafka send and retain record+future association.
-            publishAttempts.add(new PublishAttempt(rec, publisher.publishAsync(props.getKafka().getTopic(), dto)));
+            publishAttempts.add(new PublishAttempt(rec, publisher.publishAsync(topic, dto, origin)));
         }
 
         // Wait for each publish and collect per-record outcomes.
         List<ExceptionRecord> published = new ArrayList<>(records.size());
+        // Broker coordinates per published row (ledger mode records them).
+        List<RecordMetadata> coordinates = new ArrayList<>(records.size());
         int failedCount = 0;
         for (PublishAttempt attempt : publishAttempts) {
             try {
                 // Blocks until this record's publish either succeeds or fails.
-                attempt.publishFuture().join();
+                coordinates.add(attempt.publishFuture().join());
                 // Only successful rows are eligible for processedAt persistence.
                 published.add(attempt.record());
             } catch (Exception ex) {
@@ -202,13 +579,10 @@ public class ExceptionProcessingService {
         }
 
         if (!published.isEmpty()) {
-            // Mark successful rows processed at one consistent timestamp.
-            Instant now = Instant.now();
-            for (ExceptionRecord rec : published) {
-                rec.setProcessedAt(now);
-            }
-            // Persist idempotency marker so only remaining failed rows are retried.
-            repo.saveAll(published);
+            observed("exceptions.db.mark", () -> {
+                marker.mark(published, coordinates);
+                return null;
+            });
         }
 
         // Report whether all rows succeeded and how many were published vs failed.
@@ -216,10 +590,29 @@ public class ExceptionProcessingService {
     }
 
     // Couples one DB row with its async publish future for per-record outcome handling.
-    private record PublishAttempt(ExceptionRecord record, CompletableFuture<Void> publishFuture) {
+    private record PublishAttempt(ExceptionRecord record, CompletableFuture<RecordMetadata> publishFuture) {
     }
 
     // Summary used by caller to decide ACK behavior at securityId granularity.
     private record PublishOutcome(boolean allPublished, int publishedCount, int failedCount) {
     }
+
+    // Outcome of one lane part: failed batch indexes and rows published.
+    private record PassResult(BitSet failed, long sent) {
+    }
+
+    // Severity scope of one publish pass.
+    private enum Pass {
+        // Every pending row (priority mode off).
+        ALL,
+        // Only `app.priority.severities`.
+        PRIORITY,
+        // Every severity except the priority ones.
+        NORMAL
+    }
+
+    // Read per call, so a changed cap applies right away.
+    private int sampledLinesPerSecond() {
+        return props.getLogging().getSampledLinesPerSecond();
+    }
 }
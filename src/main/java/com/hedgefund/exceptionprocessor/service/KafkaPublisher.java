@@ -1,9 +1,22 @@
 package com.hedgefund.exceptionprocessor.service;
 
+import com.hedgefund.exceptionprocessor.config.AppProperties;
 import com.hedgefund.exceptionprocessor.dto.ExceptionRecordDTO;
+import com.hedgefund.exceptionprocessor.ingest.IngestEvent;
+import com.hedgefund.exceptionprocessor.logging.LogSampler;
+import com.hedgefund.exceptionprocessor.persistence.Severity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.header.Headers;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
@@ -13,51 +26,137 @@ import org.springframework.stereotype.Service;
  *
  *Encapsulates key construction, logging, and error propagation so higher-level
  * services can treat "publish to Kafka" as one async operation.
+ *
+ *Also records `exceptions.publish.latency{severity}`: time from the row's
+ * `occurredAt` to the broker ACK, the number the priority pass is meant to lower for
+ * CRITICAL/HIGH rows during a backlog drain (compare p99 per severity).
+ *
+ *Records carry the trigger event that caused them as headers (`origin-id`,
+ * `origin-timestamp`) plus the row's `correlation-id`, so a late record can be traced back
+ * to its stream entry; `traceparent` is added by the template's observation when enabled.
+ *
+ *Per-record log lines (publish, publish failure) are sampled, see {@link LogSampler}:
+ * at full rate they cost more CPU than the sends themselves.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class KafkaPublisher {
+    // Source-specific id of the trigger event (Redis RecordId, Kafka partition/offset, ...).
+    public static final String ORIGIN_ID_HEADER = "origin-id";
+    // Epoch millis the trigger event entered its source; absent when unknown.
+    public static final String ORIGIN_TIMESTAMP_HEADER = "origin-timestamp";
+    // Copied from the row, absent when the row has none.
+    public static final String CORRELATION_ID_HEADER = "correlation-id";
+
     // Spring-provided Kafka producer client abstraction.
     private final KafkaTemplate<String, ExceptionRecordDTO> kafkaTemplate;
+    // End-to-end latency per severity, created up front so the hot path does no registry lookups.
+    private final Map<Severity, Timer> latency = new EnumMap<>(Severity.class);
+    // Caps on the per-record log lines (`app.logging.sampled-lines-per-second`).
+    private final LogSampler publishedLog;
+    private final LogSampler failedLog;
+
+    public KafkaPublisher(
+            KafkaTemplate<String, ExceptionRecordDTO> kafkaTemplate,
+            MeterRegistry meterRegistry,
+            AppProperties props
+    ) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.publishedLog = new LogSampler(() -> props.getLogging().getSampledLinesPerSecond());
+        this.failedLog = new LogSampler(() -> props.getLogging().getSampledLinesPerSecond());
+        for (Severity severity : Severity.values()) {
+            latency.put(severity, Timer.builder("exceptions.publish.latency")
+                    .tag("severity", severity.name())
+                    .description("Time from occurredAt to Kafka broker ACK")
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry));
+        }
+    }
 
     /**
      * Sends one DTO to Kafka and returns completion state as a future.
      *
      *Caller uses this future to decide whether processing can be ACKed (success)
-     * or must remain pending for retry (failure).
+     * or must remain pending for retry (failure). On success it carries the broker's
+     * topic/partition/offset, which ledger mode records.
      */
-    public CompletableFuture<Void> publishAsync(String topic, ExceptionRecordDTO dto) {
+    public CompletableFuture<RecordMetadata> publishAsync(String topic, ExceptionRecordDTO dto) {
+        return publishAsync(topic, dto, null);
+    }
+
+    /**
+     * Same as {@link #publishAsync(String, ExceptionRecordDTO)}, with the trigger event's
+     * id and timestamp as record headers.
+     *
+     * @param origin event that caused this publish, or null when there is none (replays, reconciler)
+     */
+    public CompletableFuture<RecordMetadata> publishAsync(String topic, ExceptionRecordDTO dto, IngestEvent origin) {
         // Key controls partitioning and ordering semantics in Kafka.
         // Using serviceName:securityId keeps related events grouped.
         String key = dto.getServiceName() + ":" + dto.getSecurityId();
+        ProducerRecord<String, ExceptionRecordDTO> record = new ProducerRecord<>(topic, key, dto);
+        addHeaders(record.headers(), dto, origin);
 
         // Sends asynchronously; future completes when broker ACK arrives or fails.
-        CompletableFuture<SendResult<String, ExceptionRecordDTO>> future = kafkaTemplate.send(topic, key, dto);
+        CompletableFuture<SendResult<String, ExceptionRecordDTO>> future = kafkaTemplate.send(record);
 
-        // Convert producer result future into a Void future expected by caller logic.
-        // thenAccept(...) runs only on success and maps value to "no payload" (Void).
-        return future.thenAccept(
+        // Convert producer result future into the broker metadata expected by caller logic.
+        // thenApply(...) runs only on success.
+        return future.thenApply(
                         res -> {
                             // Broker metadata helps trace where the message landed.
                             var md = res.getRecordMetadata();
-                            // Include topic/partition/offset in logs so replay and audit are easier.
-                            log.info(
-                                    "Published topic={} partition={} offset={} key={}",
-                                    md.topic(),
-                                    md.partition(),
-                                    md.offset(),
-                                    key
-                            );
+                            recordLatency(dto);
+                            // Include topic/partition/offset in logs so replay and audit are easier (sampled).
+                            if (log.isInfoEnabled() && publishedLog.tryAcquire()) {
+                                log.info(
+                                        "Published topic={} partition={} offset={} key={} (+{} not logged)",
+                                        md.topic(),
+                                        md.partition(),
+                                        md.offset(),
+                                        key,
+                                        publishedLog.takeSuppressed()
+                                );
+                            }
+                            return md;
                         }
                 )
                 .exceptionally(
                         ex -> {
                             // Re-throw runtime exception so upstream batch code can keep record pending.
                             // This is key to at-least-once behavior in this project.
-                            log.error("Kafka publish failed key={} topic={}", key, topic, ex);
+                            // Sampled: a broker outage fails every record, each with a stack trace.
+                            if (failedLog.tryAcquire()) {
+                                log.error("Kafka publish failed key={} topic={} (+{} not logged)",
+                                        key, topic, failedLog.takeSuppressed(), ex);
+                            }
                             throw new RuntimeException(ex);
                         }
                 );
     }
+
+    /**
+     * Adds the trace headers described on the class; shared with the reactive sender.
+     */
+    public static void addHeaders(Headers headers, ExceptionRecordDTO dto, IngestEvent origin) {
+        if (origin != null && origin.id() != null) {
+            headers.add(ORIGIN_ID_HEADER, origin.id().getBytes(StandardCharsets.UTF_8));
+        }
+        if (origin != null && origin.timestampMs() > 0) {
+            headers.add(ORIGIN_TIMESTAMP_HEADER, Long.toString(origin.timestampMs()).getBytes(StandardCharsets.UTF_8));
+        }
+        if (dto.getCorrelationId() != null) {
+            headers.add(CORRELATION_ID_HEADER, dto.getCorrelationId().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void recordLatency(ExceptionRecordDTO dto) {
+        if (dto.getSeverity() == null || dto.getOccurredAt() == null) {
+            return;
+        }
+        Duration age = Duration.between(dto.getOccurredAt(), Instant.now());
+        if (!age.isNegative()) {
+            latency.get(dto.getSeverity()).record(age);
+        }
+    }
 }
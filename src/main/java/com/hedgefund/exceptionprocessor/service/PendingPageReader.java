@@ -0,0 +1,133 @@
+package com.hedgefund.exceptionprocessor.service;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.jfr.DbFetchEvent;
+import com.hedgefund.exceptionprocessor.partition.PendingHorizon;
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.persistence.Severity;
+import com.hedgefund.exceptionprocessor.repo.ExceptionRecordRepository;
+import com.hedgefund.exceptionprocessor.repo.ReadReplicaRouting;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads keyset pages of pending rows for ExceptionProcessingService.
+ *
+ *Picks the query for the persistence mode (`processed_at` or publish ledger), the
+ * id-list form and the severity filter; starts first pages at the pending horizon on
+ * the partitioned table; and routes reads to the replica when asked to, re-checking
+ * replica rows on the primary before they are published.
+ */
+@Component
+@RequiredArgsConstructor
+public class PendingPageReader {
+    // Data access layer for exceptions table.
+    private final ExceptionRecordRepository repo;
+    // Persistence mode and id-list form.
+    private final AppProperties props;
+    // Lower occurred_at bound for first pages on the partitioned table (null = unbounded).
+    private final PendingHorizon horizon;
+    // Read-replica routing for page reads (primary only unless `app.read-replica.enabled`).
+    private final ReadReplicaRouting replica;
+
+    /**
+     * Whether pages should be read on the replica (and the chunk then finished on the primary).
+     */
+    public boolean replicaUsable() {
+        return replica.isUsable();
+    }
+
+    /**
+     * One page of pending rows for {@code securityIds}, oldest first, strictly after
+     * {@code after} (the last row of the previous page) when set.
+     *
+     * @param severities only rows of these severities, or null for all
+     */
+    public List<ExceptionRecord> page(
+            List<String> securityIds,
+            Collection<Severity> severities,
+            ExceptionRecord after,
+            int pageSize,
+            boolean fromReplica
+    ) {
+        // Partitioned table: the first page starts at the pending horizon so old partitions are pruned.
+        Instant since = after == null ? horizon.since() : null;
+        Instant afterOccurredAt = after != null ? after.getOccurredAt() : since;
+        Long afterId = after != null ? after.getId() : since != null ? Long.MIN_VALUE : null;
+        Pageable page = PageRequest.of(0, pageSize);
+        DbFetchEvent fetch = new DbFetchEvent();
+        fetch.begin();
+        List<ExceptionRecord> rows = fromReplica
+                ? replica.onReplica(() -> findPendingPage(securityIds, severities, afterOccurredAt, afterId, page))
+                : findPendingPage(securityIds, severities, afterOccurredAt, afterId, page);
+        fetch.finish(securityIds.size(), rows.size(), fromReplica);
+        return rows;
+    }
+
+    /**
+     * Rows of a replica page that the primary still has unprocessed (primary-key lookup).
+     */
+    public List<ExceptionRecord> stillPendingOnPrimary(List<ExceptionRecord> pageRecords) {
+        List<Long> ids = pageRecords.stream().map(ExceptionRecord::getId).toList();
+        Set<Long> pending = new HashSet<>(props.getPersistence().isLedger()
+                ? repo.findUnpublishedIdsAmong(ids)
+                : repo.findPendingIdsAmong(ids));
+        if (pending.size() == pageRecords.size()) {
+            return pageRecords;
+        }
+        replica.recordStaleRows(pageRecords.size() - pending.size());
+        return pageRecords.stream().filter(r -> pending.contains(r.getId())).toList();
+    }
+
+    /**
+     * One keyset page of pending rows for {@code securityIds}, strictly after
+     * `(afterOccurredAt, afterId)` when set.
+     */
+    private List<ExceptionRecord> findPendingPage(
+            List<String> securityIds,
+            Collection<Severity> severities,
+            Instant afterOccurredAt,
+            Long afterId,
+            Pageable page
+    ) {
+        boolean first = afterOccurredAt == null;
+        if (props.getPersistence().isLedger()) {
+            // Ledger mode: anti-join on the publish ledger; array form only.
+            String[] ids = securityIds.toArray(String[]::new);
+            String[] levels = severityNames(severities);
+            return first
+                    ? repo.findFirstUnpublishedPageByIdArray(ids, levels, page.getPageSize())
+                    : repo.findUnpublishedPageAfterByIdArray(ids, levels, afterOccurredAt, afterId, page.getPageSize());
+        }
+        if (props.getJdbc().isArrayIdQueries()) {
+            // One statement shape for every chunk size (see findFirstPendingPageByIdArray).
+            String[] ids = securityIds.toArray(String[]::new);
+            String[] levels = severityNames(severities);
+            return first
+                    ? repo.findFirstPendingPageByIdArray(ids, levels, page.getPageSize())
+                    : repo.findPendingPageAfterByIdArray(ids, levels, afterOccurredAt, afterId, page.getPageSize());
+        }
+        if (severities == null) {
+            return first
+                    ? repo.findFirstPendingPage(securityIds, page)
+                    : repo.findPendingPageAfter(securityIds, afterOccurredAt, afterId, page);
+        }
+        // Priority mode: same keyset, restricted to this pass's severities.
+        return first
+                ? repo.findFirstPendingPageBySeverity(securityIds, severities, page)
+                : repo.findPendingPageAfterBySeverity(securityIds, severities, afterOccurredAt, afterId, page);
+    }
+
+    private static String[] severityNames(Collection<Severity> severities) {
+        Collection<Severity> levels = severities == null ? EnumSet.allOf(Severity.class) : severities;
+        return levels.stream().map(Severity::name).toArray(String[]::new);
+    }
+}
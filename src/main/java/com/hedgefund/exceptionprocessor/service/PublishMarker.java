@@ -0,0 +1,87 @@
+package com.hedgefund.exceptionprocessor.service;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.journal.WriteBehindMarker;
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.persistence.PublishLedgerEntry;
+import com.hedgefund.exceptionprocessor.repo.ExceptionRecordRepository;
+import com.hedgefund.exceptionprocessor.repo.PublishLedger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records rows ExceptionProcessingService has published, so they are not read as pending again.
+ *
+ *Depending on configuration the mark goes to the write-behind journal
+ * (`app.write-behind.enabled`), the publish ledger (`app.persistence.mode=ledger`)
+ * or the `processed_at` column on the primary.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PublishMarker {
+    // Data access layer for exceptions table.
+    private final ExceptionRecordRepository repo;
+    // Persistence mode.
+    private final AppProperties props;
+    // Publish ledger writer (`app.persistence.mode=ledger`).
+    private final PublishLedger ledger;
+    // Journaled, asynchronous publish marking (`app.write-behind.enabled`).
+    private final WriteBehindMarker writeBehind;
+
+    /**
+     * Page rows without those already published but whose mark is still in the write-behind journal.
+     */
+    public List<ExceptionRecord> withoutUnflushed(List<ExceptionRecord> rows) {
+        return writeBehind.withoutUnflushed(rows);
+    }
+
+    /**
+     * Records published rows: write-behind journal, publish ledger, or `processed_at`.
+     *
+     * @param coordinates broker coordinates of each published row, same order (null entries allowed)
+     */
+    public void mark(List<ExceptionRecord> published, List<RecordMetadata> coordinates) {
+        Instant now = Instant.now();
+        if (writeBehind.offer(published, coordinates, now)) {
+            // Journaled locally; the write-behind flusher marks them in Postgres.
+            if (!props.getPersistence().isLedger()) {
+                published.forEach(rec -> rec.setProcessedAt(now));
+            }
+        } else if (props.getPersistence().isLedger()) {
+            // Insert-only: the wide exceptions rows are not rewritten.
+            List<PublishLedgerEntry> entries = new ArrayList<>(published.size());
+            for (int i = 0; i < published.size(); i++) {
+                RecordMetadata md = coordinates.get(i);
+                entries.add(PublishLedgerEntry.builder()
+                        .exceptionId(published.get(i).getId())
+                        .publishedAt(now)
+                        .kafkaPartition(md == null ? null : md.partition())
+                        .kafkaOffset(md == null || !md.hasOffset() ? null : md.offset())
+                        .build());
+            }
+            int recorded = ledger.record(entries);
+            if (recorded < entries.size()) {
+                log.debug("{} of {} published row(s) were already in the ledger", entries.size() - recorded, entries.size());
+            }
+        } else {
+            // Mark successful rows processed at one consistent timestamp.
+            List<Long> ids = new ArrayList<>(published.size());
+            for (ExceptionRecord rec : published) {
+                rec.setProcessedAt(now);
+                ids.add(rec.getId());
+            }
+            // Persist idempotency marker (on the primary) so only remaining failed rows are retried.
+            int marked = repo.markProcessedIfPending(ids, now);
+            if (marked < ids.size()) {
+                // Another instance published and marked them first; Kafka consumers must tolerate duplicates anyway.
+                log.debug("{} of {} published row(s) were already marked processed", ids.size() - marked, ids.size());
+            }
+        }
+    }
+}
@@ -1,67 +1,82 @@
 package com.hedgefund.exceptionprocessor.service;
+import com.hedgefund.exceptionprocessor.batch.IdBatch;
+import com.hedgefund.exceptionprocessor.batch.SecurityIdInterner;
 import com.hedgefund.exceptionprocessor.config.AppProperties;
-import jakarta.annotation.PostConstruct;
-import jakarta.annotation.PreDestroy;
+import com.hedgefund.exceptionprocessor.index.PendingRowIndex;
+import com.hedgefund.exceptionprocessor.ingest.IngestEvent;
+import com.hedgefund.exceptionprocessor.ingest.IngestSource;
+import com.hedgefund.exceptionprocessor.jfr.AckEvent;
+import com.hedgefund.exceptionprocessor.jfr.BatchDispatchEvent;
+import com.hedgefund.exceptionprocessor.jfr.BatchReadEvent;
+import com.hedgefund.exceptionprocessor.logging.LogSampler;
+import com.hedgefund.exceptionprocessor.startup.FirstAckTimer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.Set;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Range;
-import org.springframework.data.redis.connection.stream.Consumer;
-import org.springframework.data.redis.connection.stream.MapRecord;
-import org.springframework.data.redis.connection.stream.PendingMessage;
-import org.springframework.data.redis.connection.stream.PendingMessages;
-import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
-import org.springframework.data.redis.connection.stream.ReadOffset;
-import org.springframework.data.redis.connection.stream.RecordId;
-import org.springframework.data.redis.connection.stream.StreamOffset;
-import org.springframework.data.redis.connection.stream.StreamReadOptions;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.scheduling.config.TriggerTask;
+import org.springframework.scheduling.support.PeriodicTrigger;
 import org.springframework.stereotype.Service;
 
 /**
- * Redis stream ingestion boundary of the service.
+ * Ingestion engine of the service.
  *
  *Big picture in this class:
- * 1) continuously read events from Redis consumer group,
+ * 1) continuously poll trigger events from the active {@link IngestSource},
  * 2) convert each event into a securityId processing request,
  * 3) delegate business work to {@link ExceptionProcessingService},
  * 4) ACK only successful events so failed ones stay pending for retry/reclaim.
  *
- *This class owns delivery semantics (read, ack, reclaim). It does not own
- * DB/Kafka business logic.
+ *This class owns batching, backpressure (in-flight permits) and per-batch dedup.
+ * Delivery semantics (read, ack, reclaim) belong to the source (Redis stream by
+ * default), and DB/Kafka business logic belongs to the processing service.
  */
 @Service
+@ConditionalOnProperty(prefix = "app.reactive", name = "enabled", havingValue = "false", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
-public class StreamsConsumer {
+public class StreamsConsumer implements SmartLifecycle, SchedulingConfigurer {
     // Upper bound for how many stale pending messages to reclaim in one scheduled run.
-    private static final long MAX_RECLAIM_BATCH = 64;
-    // 5-second block timeout for Redis reads and also permit-acquire wait time.
+    private static final int MAX_RECLAIM_BATCH = 64;
+    // 5-second block timeout for source polls and also permit-acquire wait time.
     private static final Duration READ_BLOCK_TIMEOUT = Duration.ofSeconds(5);
 
-    // Redis client used to read/ack/claim stream records.
-    private final StringRedisTemplate redis;
+    // Delivery-semantics layer: where trigger events come from and how they are ACKed.
+    private final IngestSource source;
     // Service that performs DB lookup + Kafka publishing logic asynchronously.
     private final ExceptionProcessingService processingService;
     // Externalized application properties (app.*).
     private final AppProperties props;
+    // Optional pre-filter: events for securityIds without pending rows are ACKed without a DB query.
+    private final PendingRowIndex pendingIndex;
+    // securityId -> ordinal dictionary backing per-batch dedup and success tracking.
+    private final SecurityIdInterner interner;
+    // Records time to first ACK (startup metric).
+    private final FirstAckTimer firstAck;
+    // Batch and ACK spans (sampled per `management.tracing.sampling.probability`).
+    private final ObservationRegistry observations;
 
-    // Single-thread poller so stream read loop runs in exactly one dedicated thread.
+    // Per-event warnings are capped per second (`app.logging.sampled-lines-per-second`).
+    private final LogSampler missingIdLog = new LogSampler(this::sampledLinesPerSecond);
+    private final LogSampler duplicateIdLog = new LogSampler(this::sampledLinesPerSecond);
+
+    // Single-thread poller so the read loop runs in exactly one dedicated thread.
     private final ExecutorService poller = Executors.newSingleThreadExecutor(
             // Custom thread factory lambda; allows naming and daemon configuration.
             r -> {
@@ -74,161 +89,329 @@ public class StreamsConsumer {
             }
     );
 
-    // Unique consumer name per application instance; used in Redis consumer group identity.
-    private final String consumerName = UUID.randomUUID().toString();
     // Shared "keep running" flag checked by poll loop; atomic for thread-safe visibility.
     private final AtomicBoolean running = new AtomicBoolean(true);
-    // Permit gate for max concurrent in-flight batches (backpressure control).
-    private final Semaphore inFlightBatches = new Semaphore(1);
+    // Permit gate for max concurrent in-flight batches (backpressure control); resizable at runtime.
+    private final ResizableSemaphore inFlightBatches = new ResizableSemaphore(1);
+    // Total permits; all of them free again means no batch is in flight.
+    private volatile int maxInFlight = 1;
+    // Lifecycle state for SmartLifecycle (start/stop are called once each).
+    private volatile boolean started;
+    // Scheduler registrar and current reclaimer task, kept so the reclaimer can be rescheduled.
+    private ScheduledTaskRegistrar registrar;
+    private ScheduledTask reclaimTask;
 
     /**
-     * Starts the background poller thread after Spring creates this bean.
-     *
-     *`@PostConstruct` is a lifecycle hook in Jakarta/Spring that runs once
-     * after dependency injection.
+     * Starts the background poller thread once the application context is refreshed.
      */
-    @PostConstruct
+    @Override
     public void start() {
-        // Reads configured max in-flight batches; clamps minimum to 1 for safety.
-        int maxInFlight = Math.max(1, props.getBatch().getMaxInFlightBatches());
-        // Resets semaphore permits to 0 so we can reinitialize deterministically.
-        inFlightBatches.drainPermits();
-        // Sets runtime permit count to config value (backpressure capacity).
-        inFlightBatches.release(maxInFlight);
+        synchronized (inFlightBatches) {
+            // Reads configured max in-flight batches; clamps minimum to 1 for safety.
+            maxInFlight = Math.max(1, props.getBatch().getMaxInFlightBatches());
+            // Resets semaphore permits to 0 so we can reinitialize deterministically.
+            inFlightBatches.drainPermits();
+            // Sets runtime permit count to config value (backpressure capacity).
+            inFlightBatches.release(maxInFlight);
+        }
+        started = true;
         // Starts the infinite poll loop on dedicated executor thread.
         // We keep polling on a dedicated thread so Spring request threads are never blocked.
         poller.submit(this::pollLoop);
+        log.info("Consuming trigger events from ingest source '{}'", source.name());
     }
 
     /**
-     * Stops the poller gracefully during application shutdown.
+     * Drains gracefully during application shutdown.
      *
-     *`@PreDestroy` is the matching lifecycle hook called before bean destruction.
+     *1) stop reading (events of an interrupted poll stay pending and are handed off),
+     * 2) wait up to `app.drain.timeout-ms` for every in-flight permit to come back, i.e.
+     *    for running batches to finish and enqueue their ACKs,
+     * 3) flush buffered ACKs,
+     * 4) hand off whatever this consumer still has unACKed (`app.drain.hand-off`), so a
+     *    peer picks it up now instead of after `claim-stale-after-ms`.
+     *
+     *Runs as a SmartLifecycle stop, before the lanes, worker pool, Redis and Kafka
+     * clients are torn down, so in-flight batches can still complete.
      */
-    @PreDestroy
+    @Override
     public void stop() {
-        // Signals loop to stop on next iteration check.
+        // Signals loop (and reclaimer) to stop on next iteration check.
         running.set(false);
+        started = false;
         // Interrupts blocking calls and stops accepting new tasks.
         poller.shutdownNow();
+        cancelReclaimer();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, props.getDrain().getTimeoutMs()));
         try {
             // Waits up to 5 seconds for poller thread to terminate.
             poller.awaitTermination(5, TimeUnit.SECONDS);
+            // Every permit back = nothing in flight; permits stay taken so nothing new starts.
+            long left = Math.max(0, deadline - System.nanoTime());
+            if (!inFlightBatches.tryAcquire(maxInFlight, left, TimeUnit.NANOSECONDS)) {
+                log.warn("Drain timed out with {} batch(es) still in flight; handing off their events",
+                        maxInFlight - inFlightBatches.availablePermits());
+            }
         // InterruptedException means this thread itself was interrupted while waiting.
         } catch (InterruptedException ignored) {
             // Restores interrupted status per Java best practice.
             Thread.currentThread().interrupt();
         }
+        try {
+            source.flush();
+            int handedOff = source.handOff(props.getDrain().getHandOff());
+            log.info("Drained ingest source '{}'; handed off {} unACKed event(s)", source.name(), handedOff);
+        } catch (Exception e) {
+            // Leftovers stay pending and are reclaimed after the stale threshold instead.
+            log.warn("Drain hand-off on source '{}' failed: {}", source.name(), e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return started;
+    }
+
+    /**
+     * Changes the in-flight batch limit while running (`tuning` endpoint).
+     *
+     *Raising it frees permits right away. Lowering it takes permits away; when batches
+     * hold them, the deficit is paid back as those batches finish, so no running batch
+     * is cut short and no new one starts until the count is below the new limit.
+     */
+    public void resizeInFlight(int maxInFlightBatches) {
+        synchronized (inFlightBatches) {
+            int target = Math.max(1, maxInFlightBatches);
+            int delta = target - maxInFlight;
+            if (delta > 0) {
+                inFlightBatches.release(delta);
+            } else if (delta < 0) {
+                inFlightBatches.reducePermits(-delta);
+            }
+            maxInFlight = target;
+        }
+    }
+
+    int maxInFlight() {
+        return maxInFlight;
+    }
+
+    int availablePermits() {
+        return inFlightBatches.availablePermits();
+    }
+
+    /**
+     * Schedules {@link #reclaimStale()} with a fixed delay of `app.retry.reclaimer-interval-ms`,
+     * first run right away.
+     *
+     *Registered here instead of with `@Scheduled`, whose interval is fixed at startup,
+     * so {@link #rescheduleReclaimer()} can apply a new interval.
+     */
+    @Override
+    public synchronized void configureTasks(ScheduledTaskRegistrar registrar) {
+        this.registrar = registrar;
+        // Before the scheduler is resolved this only registers the task; the registrar starts it.
+        reclaimTask = registrar.scheduleTriggerTask(reclaimTriggerTask(Duration.ZERO));
+    }
+
+    /**
+     * Replaces the reclaimer schedule with one using the current `app.retry.reclaimer-interval-ms`;
+     * the next run is one new interval from now.
+     */
+    public synchronized void rescheduleReclaimer() {
+        if (registrar == null || !running.get()) {
+            // Not scheduled (no scheduler in this context) or draining.
+            return;
+        }
+        cancelReclaimer();
+        Duration interval = Duration.ofMillis(props.getRetry().getReclaimerIntervalMs());
+        reclaimTask = registrar.scheduleTriggerTask(reclaimTriggerTask(interval));
+    }
+
+    private synchronized void cancelReclaimer() {
+        if (reclaimTask != null) {
+            // A run in progress completes; it checks `running` first anyway.
+            reclaimTask.cancel(false);
+            reclaimTask = null;
+        }
+    }
+
+    private TriggerTask reclaimTriggerTask(Duration initialDelay) {
+        PeriodicTrigger trigger = new PeriodicTrigger(Duration.ofMillis(props.getRetry().getReclaimerIntervalMs()));
+        trigger.setInitialDelay(initialDelay);
+        return new TriggerTask(this::reclaimStale, trigger);
+    }
+
+    /**
+     * Highest phase, so stopped first; Redis, Kafka and the web server stop later.
+     *
+     *The worker executor is a SmartLifecycle too; AsyncConfig pins it one phase lower so
+     * it cannot stop ahead of this drain (equal phases would stop in registration order).
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE;
     }
 
     /**
      * Long-running consume loop.
      *
-     *Uses Redis `XREADGROUP` semantics (via Spring APIs) to pull events for this
-     * consumer instance and hand batches to {@link #handleBatch(String, List)}.
+     *Polls the source (for Redis: `XREADGROUP` via Spring APIs) and hands batches
+     * to {@link #handleBatch(List)}.
      */
     private void pollLoop() {
-        // Resolves stream name once at loop start (configured in app properties).
-        String stream = props.getStreams().getRedisStreamName();
-        // Resolves consumer group name once at loop start.
-        String group = props.getStreams().getConsumerGroupName();
-
         // Repeats until stop() flips running to false.
         while (running.get()) {
             try {
-                // Redis consumer identity used by XREADGROUP (group + this instance consumer).
-                Consumer consumer = Consumer.from(group, consumerName);
-                // Build read options: bounded batch size + block for up to 5 seconds.
-                StreamReadOptions options = StreamReadOptions.empty()
-                        // Maximum records per read call (clamped to >= 1).
-                        .count(Math.max(1, props.getBatch().getStreamReadCount()))
-                        // Long-polling wait window to reduce busy looping.
-                        .block(READ_BLOCK_TIMEOUT);
-
-                // Read from last delivered/acknowledged position for this consumer group.
-                StreamOffset<String> offset = StreamOffset.create(stream, ReadOffset.lastConsumed());
-                // Suppresses generic cast warning due to Spring Redis API raw return shape.
-                @SuppressWarnings("unchecked")
-                // Performs blocking read from Redis Stream using consumer group semantics.
-                List<MapRecord<String, String, String>> records =
-                        (List<MapRecord<String, String, String>>) (List<?>) redis.opsForStream().read(consumer, options, offset);
+                // JFR: the blocking read, recorded only when it returned events.
+                BatchReadEvent read = new BatchReadEvent();
+                read.begin();
+                // Bounded batch size (clamped to >= 1) + long-polling wait window to reduce busy looping.
+                List<IngestEvent> events = source.poll(
+                        Math.max(1, props.getBatch().getStreamReadCount()),
+                        READ_BLOCK_TIMEOUT
+                );
 
                 // No data arrived within block window; continue loop and read again.
-                if (records == null || records.isEmpty()) {
+                if (events == null || events.isEmpty()) {
                     continue;
                 }
+                read.finish(source.name(), events.size());
 
                 // Acquire one in-flight permit; wait up to timeout, else skip this iteration.
+                long waitStart = System.nanoTime();
                 if (!inFlightBatches.tryAcquire(READ_BLOCK_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
-                    // Backpressure signal: processor is saturated, so avoid adding more work now.
+                    // Backpressure signal: processor is saturated; skipped events stay pending for reclaim.
                     log.debug("Backpressure: skipping poll iteration due to in-flight batch limit");
                     continue;
                 }
 
                 // Dispatch this batch; permit will be released when async processing completes.
-                handleBatch(group, records);
+                handleBatch(events, System.nanoTime() - waitStart);
+            } catch (InterruptedException e) {
+                // Shutdown interrupted a blocking poll or permit wait.
+                Thread.currentThread().interrupt();
+                return;
             } catch (Exception e) {
                 // Keep consumer alive on transient failures instead of crashing loop thread.
-                log.warn("Stream poll error; continuing", e);
+                log.warn("Ingest poll error from source '{}'; continuing", source.name(), e);
             }
         }
     }
 
     /**
-     * Validates one Redis batch, submits async processing, and ACKs successful events.
+     * {@link #handleBatch(List, long)} for a batch that did not wait for its permit (reclaim path).
+     */
+    void handleBatch(List<IngestEvent> events) {
+        handleBatch(events, 0);
+    }
+
+    /**
+     * Validates one batch, submits async processing, and ACKs successful events.
      *
      *Important project behavior:
      * - invalid events are ACKed immediately (avoid poison-message loops),
      * - duplicates in same batch are ACKed as redundant input,
+     * - events the pending-row index reports as having nothing pending are ACKed unqueried,
      * - failed IDs remain pending so reclaimer can retry.
+     *
+     * @param permitWaitNanos time the poller waited for this batch's in-flight permit
      */
-    void handleBatch(String group, List<MapRecord<String, String, String>> records) {
+    private void handleBatch(List<IngestEvent> events, long permitWaitNanos) {
         // Defensive guard: if empty input, release permit so capacity is not leaked.
-        if (records == null || records.isEmpty()) {
+        if (events == null || events.isEmpty()) {
             // A permit was already acquired by caller before invoking handleBatch.
             inFlightBatches.release();
             return;
         }
+        // JFR: consumer-side work on this batch, up to the hand-off to workers or lanes.
+        BatchDispatchEvent dispatch = new BatchDispatchEvent();
+        dispatch.begin();
+        // One span from here to the ACK; DB and Kafka spans of the workers become its children.
+        Observation observation = startBatchObservation(events, permitWaitNanos);
 
-        // Ordered unique set of requested IDs to pass to async processing service.
-        Set<String> requestedIds = new LinkedHashSet<>();
-        // Valid records to ACK later if processing for their securityId succeeds.
-        List<ValidRecord> validRecords = new ArrayList<>(records.size());
+        // Ordered unique IDs (interned, primitive-indexed) to pass to async processing service.
+        IdBatch requestedIds = new IdBatch(interner, events.size());
+        // Valid events to ACK later if processing for their securityId succeeds.
+        List<IngestEvent> validEvents = new ArrayList<>(events.size());
+        // Batch index of each valid event's securityId, parallel to validEvents.
+        int[] validIndexes = new int[events.size()];
+        // Invalid and duplicate events, ACKed together right away.
+        List<IngestEvent> ackNow = new ArrayList<>();
 
-        // Iterate every record in the batch to validate and collect unique securityIds.
-        for (MapRecord<String, String, String> rec : records) {
-            // Null-safe conversion of "securityId" field to String; null if missing.
-            String securityId = Objects.toString(rec.getValue().get("securityId"), null);
+        // Iterate every event in the batch to validate and collect unique securityIds.
+        for (IngestEvent event : events) {
+            String securityId = event.securityId();
             // Invalid messages cannot be processed; ACK to prevent poison-message retries.
             if (securityId == null || securityId.isBlank()) {
-                log.warn("Missing securityId: {}", rec);
-                acknowledge(group, rec);
+                if (log.isWarnEnabled() && missingIdLog.tryAcquire()) {
+                    log.warn("Missing securityId: {} (+{} not logged)", event, missingIdLog.takeSuppressed());
+                }
+                ackNow.add(event);
                 continue;
             }
             // Uniqueness is guaranteed upstream; ACK duplicates to avoid redundant work.
-            if (!requestedIds.add(securityId)) {
-                log.warn("Duplicate securityId in batch: {}; acknowledging duplicate event {}", securityId, rec.getId());
-                acknowledge(group, rec);
+            int index = requestedIds.addId(securityId);
+            if (index < 0) {
+                if (log.isWarnEnabled() && duplicateIdLog.tryAcquire()) {
+                    log.warn("Duplicate securityId in batch: {}; acknowledging duplicate event {} (+{} not logged)",
+                            securityId, event.id(), duplicateIdLog.takeSuppressed());
+                }
+                ackNow.add(event);
                 continue;
             }
-            // Keep record+id pair so we can ACK the exact Redis record after async success.
-            validRecords.add(new ValidRecord(rec, securityId));
+            // Keep the event so we can ACK it after async success; published rows carry its id in headers.
+            requestedIds.setOrigin(index, event);
+            validIndexes[validEvents.size()] = index;
+            validEvents.add(event);
         }
 
+        // One Redis round-trip drops IDs the index reports as having nothing pending (null = unfiltered).
+        Set<String> candidates = requestedIds.isEmpty() ? null : pendingIndex.candidates(requestedIds);
+        if (candidates != null && candidates.size() < requestedIds.size()) {
+            // Rare path (index enabled): rebuild the batch from the surviving events.
+            IdBatch filtered = new IdBatch(interner, candidates.size());
+            List<IngestEvent> kept = new ArrayList<>(candidates.size());
+            for (IngestEvent event : validEvents) {
+                if (candidates.contains(event.securityId())) {
+                    int index = filtered.addId(event.securityId());
+                    filtered.setOrigin(index, event);
+                    validIndexes[kept.size()] = index;
+                    kept.add(event);
+                } else {
+                    ackNow.add(event);
+                }
+            }
+            requestedIds = filtered;
+            validEvents = kept;
+        }
+        acknowledge(ackNow);
+
         // If nothing valid remained, release permit and return.
-        if (validRecords.isEmpty()) {
+        if (validEvents.isEmpty()) {
+            commitDispatch(dispatch, events.size(), 0, ackNow.size(), permitWaitNanos);
+            observation.stop();
             inFlightBatches.release();
             return;
         }
 
+        // Effectively-final copies for the completion callback.
+        IdBatch batch = requestedIds;
+        List<IngestEvent> toProcess = validEvents;
         // Future will eventually contain successful security IDs.
         CompletableFuture<Set<String>> future;
         try {
-            // Submit async processing to worker executor configured in service.
-            future = processingService.fetchAndPublishBySecurityIdsAsync(requestedIds);
+            // In scope while submitting, so the worker (or lane) spans attach to this batch;
+            // scoped() also records a submission failure on the observation.
+            // Keyed lanes keep each securityId on one serial thread; otherwise the generic worker pool.
+            future = observation.scoped(() -> props.getLanes().isEnabled()
+                    ? processingService.fetchAndPublishBySecurityIdsOrdered(batch)
+                    : processingService.fetchAndPublishBySecurityIdsAsync(batch));
+            commitDispatch(dispatch, events.size(), batch.size(), ackNow.size(), permitWaitNanos);
         } catch (Exception ex) {
             // Submission failed before async start; release permit immediately.
-            log.error("Failed to submit batch for {} securityId(s)", requestedIds.size(), ex);
+            log.error("Failed to submit batch for {} securityId(s)", batch.size(), ex);
+            observation.stop();
             inFlightBatches.release();
             return;
         }
@@ -238,106 +421,123 @@ public class StreamsConsumer {
             try {
                 // Async task failed; keep messages pending so reclaimer can retry later.
                 if (ex != null) {
-                    log.error("Batch processing failed for {} securityId(s)", requestedIds.size(), ex);
+                    log.error("Batch processing failed for {} securityId(s)", batch.size(), ex);
+                    observation.error(ex);
                     return;
                 }
 
                 // Treat null result defensively as empty success set.
                 Set<String> success = successfulIds == null ? Collections.emptySet() : successfulIds;
-                // ACK only records for IDs reported successful by processing service.
-                for (ValidRecord validRecord : validRecords) {
-                    if (success.contains(validRecord.securityId())) {
-                        acknowledge(group, validRecord.record());
+                // Bitset view over this batch: membership by index, no String hashing per event.
+                IdBatch.Subset successBits = success instanceof IdBatch.Subset subset && subset.batch() == batch
+                        ? subset
+                        : null;
+                // ACK only events for IDs reported successful by processing service, in one call.
+                List<IngestEvent> toAck = new ArrayList<>(toProcess.size());
+                for (int i = 0; i < toProcess.size(); i++) {
+                    IngestEvent event = toProcess.get(i);
+                    if (successBits != null ? successBits.containsIndex(validIndexes[i]) : success.contains(event.securityId())) {
+                        toAck.add(event);
                     }
                 }
+                Observation.createNotStarted("exceptions.ack", observations)
+                        .parentObservation(observation)
+                        .highCardinalityKeyValue("events", Integer.toString(toAck.size()))
+                        .observe(() -> acknowledge(toAck));
 
-                // We intentionally do not ACK failed IDs so Redis can redeliver via reclaim path.
-                int failedCount = requestedIds.size() - success.size();
+                // We intentionally do not ACK failed IDs so the source can redeliver via reclaim path.
+                int failedCount = batch.size() - success.size();
                 if (failedCount > 0) {
                     log.error("Batch processing incomplete; leaving {} securityId(s) pending for retry", failedCount);
                 }
             } finally {
+                observation.stop();
                 // Critical: always return permit even on exception to avoid deadlock/starvation.
                 inFlightBatches.release();
             }
         });
     }
 
-    private record ValidRecord(MapRecord<String, String, String> record, String securityId) {
+    /**
+     * Starts the batch span, tagged with where time went before this batch started.
+     *
+     *`queue.ms`: age of the oldest event at read time (time spent in Redis/Kafka before
+     * the poll); `permit.wait.ms`: time the poller then waited for an in-flight permit.
+     */
+    private Observation startBatchObservation(List<IngestEvent> events, long permitWaitNanos) {
+        Observation observation = Observation.createNotStarted("exceptions.batch", observations)
+                .lowCardinalityKeyValue("source", source.name())
+                .highCardinalityKeyValue("events", Integer.toString(events.size()))
+                .highCardinalityKeyValue("permit.wait.ms", Long.toString(TimeUnit.NANOSECONDS.toMillis(permitWaitNanos)));
+        long oldest = Long.MAX_VALUE;
+        for (IngestEvent event : events) {
+            if (event.timestampMs() > 0) {
+                oldest = Math.min(oldest, event.timestampMs());
+            }
+        }
+        if (oldest != Long.MAX_VALUE) {
+            // Read time = now minus the permit wait that followed the read.
+            long readAt = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(permitWaitNanos);
+            observation.highCardinalityKeyValue("queue.ms", Long.toString(Math.max(0, readAt - oldest)));
+        }
+        return observation.start();
+    }
+
+    private void commitDispatch(BatchDispatchEvent dispatch, int events, int securityIds, int ackedImmediately,
+                                long permitWaitNanos) {
+        dispatch.end();
+        if (dispatch.shouldCommit()) {
+            dispatch.events = events;
+            dispatch.securityIds = securityIds;
+            dispatch.ackedImmediately = ackedImmediately;
+            dispatch.permitWait = permitWaitNanos;
+            dispatch.lanes = props.getLanes().isEnabled();
+            dispatch.commit();
+        }
     }
 
     /**
-     * Sends Redis ACK for a single stream record.
-     *
-     *ACK removes the record from the group pending list; after ACK this message
-     * is considered completed for this group.
+     * ACKs events through the source; ACK removes them from the source's pending set.
      */
-    private void acknowledge(String group, MapRecord<String, String, String> rec) {
+    private void acknowledge(List<IngestEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        AckEvent ack = new AckEvent();
+        ack.begin();
         try {
-            // Removes message from pending list for this group once handled successfully.
-            redis.opsForStream().acknowledge(group, rec);
+            source.ack(events);
+            firstAck.acked();
         } catch (Exception e) {
-            // ACK failure is logged; message can be retried/reclaimed later.
-            log.debug("ACK failed for {}: {}", rec.getId(), e.getMessage());
+            // ACK failure is logged; events can be retried/reclaimed later.
+            log.debug("ACK failed for {} event(s): {}", events.size(), e.getMessage());
+            ack.failed = true;
+        }
+        ack.end();
+        if (ack.shouldCommit()) {
+            ack.source = source.name();
+            ack.events = events.size();
+            ack.commit();
         }
     }
 
     /**
-     * Scheduled recovery path for stuck pending messages.
+     * Scheduled recovery path for stuck pending events.
      *
-     *If a consumer crashes after reading but before ACK, Redis keeps entries in
-     * PEL (pending entries list). This method periodically claims stale entries and
-     * reprocesses them.
+     *If a consumer crashes after reading but before ACK, the source keeps the event
+     * pending (for Redis: in the PEL). This method periodically reclaims stale
+     * entries and reprocesses them through the normal batch pipeline.
      */
-    @Scheduled(fixedDelayString = "#{${app.retry.reclaimer-interval-ms}}")
     public void reclaimStale() {
+        if (!running.get()) {
+            // Draining: reclaimed events would only be handed off again.
+            return;
+        }
         try {
-            // Stream and group names from configuration.
-            String stream = props.getStreams().getRedisStreamName();
-            String group = props.getStreams().getConsumerGroupName();
-            // Threshold: message considered stale if idle for at least this many ms.
-            long idleMs = props.getRetry().getClaimStaleAfterMs();
-
-            // Quick summary call to avoid heavier query when there are no pending messages.
-            PendingMessagesSummary summary = redis.opsForStream().pending(stream, group);
-            if (summary == null || summary.getTotalPendingMessages() == 0) {
-                return;
-            }
-
-            // Reclaim at most MAX_RECLAIM_BATCH per run to keep scheduled job bounded.
-            long count = Math.min(MAX_RECLAIM_BATCH, summary.getTotalPendingMessages());
-            // Fetch pending entries metadata (IDs + idle time) in unbounded range.
-            PendingMessages pending = redis.opsForStream().pending(stream, group, Range.unbounded(), count);
-            if (pending == null || pending.isEmpty()) {
-                return;
-            }
-
-            // Collect IDs of messages idle long enough to be considered stale.
-            List<RecordId> toClaim = new ArrayList<>(pending.size());
-            for (PendingMessage pm : pending) {
-                // Only reclaim messages that exceeded idle threshold; this reduces claim churn.
-                if (pm.getElapsedTimeSinceLastDelivery().toMillis() >= idleMs) {
-                    toClaim.add(pm.getId());
-                }
-            }
-
-            // Nothing eligible for reclaim in this run.
-            if (toClaim.isEmpty()) {
-                return;
-            }
-
-            // Suppresses generic cast warning around claim API return typing.
-            @SuppressWarnings("unchecked")
-            // Claim transfers ownership of stale messages to this consumer for retry.
-            List<MapRecord<String, String, String>> claimed = (List<MapRecord<String, String, String>>) (List<?>) redis.opsForStream().claim(
-                    stream,
-                    group,
-                    consumerName,
-                    Duration.ofMillis(idleMs),
-                    toClaim.toArray(new RecordId[toClaim.size()])
-            );
-
-            // Claim may race with other consumers; no claimed records means nothing to do.
+            // Threshold: event considered stale if idle for at least this many ms.
+            Duration minIdle = Duration.ofMillis(props.getRetry().getClaimStaleAfterMs());
+            List<IngestEvent> claimed = source.reclaim(MAX_RECLAIM_BATCH, minIdle);
+            // Nothing stale, or claim raced with other consumers.
             if (claimed == null || claimed.isEmpty()) {
                 return;
             }
@@ -348,10 +548,27 @@ public class StreamsConsumer {
                 return;
             }
             // Reuse same batch pipeline as normal poll path.
-            handleBatch(group, claimed);
+            handleBatch(claimed);
         } catch (Exception e) {
             // Keep scheduler resilient; log and continue next fixed-delay cycle.
             log.debug("Reclaimer issue: {}", e.getMessage());
         }
     }
+
+    // Read per call, so a changed cap applies right away.
+    private int sampledLinesPerSecond() {
+        return props.getLogging().getSampledLinesPerSecond();
+    }
+
+    // Semaphore whose permit count can shrink (`reducePermits` is protected in Semaphore).
+    private static final class ResizableSemaphore extends Semaphore {
+        ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
 }
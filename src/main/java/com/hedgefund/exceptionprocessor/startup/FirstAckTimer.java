@@ -0,0 +1,51 @@
+package com.hedgefund.exceptionprocessor.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Time to first ACK: JVM uptime when this instance first ACKed a trigger event.
+ *
+ *Unlike Boot's `application.ready.time`, this covers everything a scale-out instance
+ * needs before it does useful work: JVM and context start, warm-up, the first read, DB
+ * query, Kafka publish and ACK. Exposed as `exceptions.startup.first.ack` (NaN until
+ * then) and logged once.
+ */
+@Component
+@Slf4j
+public class FirstAckTimer {
+    // JVM uptime in ms at the first ACK; -1 until then.
+    private final AtomicLong firstAckUptimeMs = new AtomicLong(-1);
+
+    public FirstAckTimer(MeterRegistry meterRegistry) {
+        TimeGauge.builder("exceptions.startup.first.ack", firstAckUptimeMs, TimeUnit.MILLISECONDS,
+                        v -> v.get() < 0 ? Double.NaN : v.get())
+                .description("JVM uptime when the first trigger event was ACKed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the first ACK; later calls are a single volatile read.
+     */
+    public void acked() {
+        if (firstAckUptimeMs.get() >= 0) {
+            return;
+        }
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        if (firstAckUptimeMs.compareAndSet(-1, uptime)) {
+            log.info("First trigger event ACKed {} ms after JVM start", uptime);
+        }
+    }
+
+    /**
+     * JVM uptime in ms at the first ACK, or -1 if nothing was ACKed yet.
+     */
+    public long firstAckUptimeMs() {
+        return firstAckUptimeMs.get();
+    }
+}
@@ -0,0 +1,121 @@
+package com.hedgefund.exceptionprocessor.startup;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.dto.ExceptionRecordDTO;
+import com.hedgefund.exceptionprocessor.ingest.RedisStreamConnections;
+import com.hedgefund.exceptionprocessor.repo.ExceptionRecordRepository;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens the expensive connections in parallel before the consumer reads its first batch
+ * (`app.startup.warm-up`, on in the fast-start profile).
+ *
+ *Without it the first batch pays, one after another, for Hikari's pool start and the
+ * first JPQL compile, the Kafka producer's creation and metadata fetch, and the dedicated
+ * Redis connections. Here they run concurrently while the context finishes starting; the
+ * consumer (a later lifecycle phase) starts once they are done or after
+ * `warm-up-timeout-ms`, whichever is first. Failures are logged only: the same work is
+ * retried lazily by the first batch.
+ *
+ *Nothing is opened before the lifecycle starts, so a CRaC checkpoint taken at refresh
+ * (`-Dspring.context.checkpoint=onRefresh`) holds no sockets.
+ */
+@Component
+@Slf4j
+public class StartupWarmUp implements SmartLifecycle {
+    private final AppProperties props;
+    private final ExceptionRecordRepository repo;
+    private final KafkaTemplate<String, ExceptionRecordDTO> kafkaTemplate;
+    private final ObjectProvider<RedisStreamConnections> redisConnections;
+    private volatile boolean running;
+
+    public StartupWarmUp(
+            AppProperties props,
+            ExceptionRecordRepository repo,
+            KafkaTemplate<String, ExceptionRecordDTO> kafkaTemplate,
+            ObjectProvider<RedisStreamConnections> redisConnections
+    ) {
+        this.props = props;
+        this.repo = repo;
+        this.kafkaTemplate = kafkaTemplate;
+        this.redisConnections = redisConnections;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        AppProperties.Startup cfg = props.getStartup();
+        if (!cfg.isWarmUp()) {
+            return;
+        }
+        long started = System.nanoTime();
+        // Daemon threads: a step stuck on an unreachable broker must not hold up JVM exit.
+        ExecutorService pool = Executors.newFixedThreadPool(3, r -> {
+            Thread t = new Thread(r, "warm-up");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<CompletableFuture<Void>> steps = List.of(
+                    // Starts the Hikari pool (it then fills to minimum-idle) and compiles a page-path query.
+                    step("database", () -> repo.findPendingIdsAmong(List.of(-1L)), pool),
+                    // Creates the producer and fetches the topic's partition metadata.
+                    step("kafka", () -> kafkaTemplate.partitionsFor(props.getKafka().getTopic()), pool),
+                    // Opens the dedicated read and command connections (Redis stream source only).
+                    step("redis", () -> redisConnections.ifAvailable(RedisStreamConnections::isEnabled), pool));
+            CompletableFuture.allOf(steps.toArray(CompletableFuture[]::new)).get(cfg.getWarmUpTimeoutMs(), TimeUnit.MILLISECONDS);
+            log.info("Startup warm-up finished in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (TimeoutException e) {
+            log.warn("Startup warm-up still running after {} ms; starting consumption anyway", cfg.getWarmUpTimeoutMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Steps handle their own failures; kept for the checked signature.
+            log.warn("Startup warm-up failed: {}", e.getMessage());
+        } finally {
+            // Lets steps that outlived the timeout finish on their own.
+            pool.shutdown();
+        }
+    }
+
+    private static CompletableFuture<Void> step(String name, Runnable body, ExecutorService pool) {
+        return CompletableFuture.runAsync(() -> {
+            long started = System.nanoTime();
+            try {
+                body.run();
+                log.debug("Warm-up step '{}' done in {} ms", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            } catch (Exception e) {
+                log.warn("Warm-up step '{}' failed; the first batch will retry it: {}", name, e.getMessage());
+            }
+        }, pool);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts just before the consumer (which runs at the default phase).
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1;
+    }
+}
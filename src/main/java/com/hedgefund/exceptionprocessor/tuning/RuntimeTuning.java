@@ -0,0 +1,219 @@
+package com.hedgefund.exceptionprocessor.tuning;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.config.JdbcPoolConfig;
+import com.hedgefund.exceptionprocessor.service.StreamsConsumer;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Batch and worker settings that can be changed while the service runs (`tuning` endpoint).
+ *
+ *An update is validated as a whole and then applied under one lock: either every value
+ * changes or none does, and two concurrent updates never interleave. Applying means
+ * - `stream-read-count` and `security-id-query-chunk-size`: read per poll / per chunking,
+ *   so the next batch uses them (the Kafka source's `max.poll.records` stays as started),
+ * - `max-in-flight-batches`: the consumer's permit semaphore is resized,
+ * - worker pool sizes: `exceptionProcessingTaskExecutor` is resized in place, and so are
+ *   the Hikari pools when their size is derived from the workers (JdbcPoolConfig). Only
+ *   with `app.lanes.enabled=false`: lanes run batches on their own threads, so worker
+ *   sizes are rejected there rather than audited as if they did something. With a fixed
+ *   `app.jdbc.pool-size` the workers may not outgrow it (they would queue on
+ *   `getConnection()`),
+ * - `reclaimer-interval-ms`: the reclaimer is rescheduled.
+ *
+ *Every applied change is logged at WARN (kept when the async log queue sheds INFO) and
+ * the last {@value #AUDIT_ENTRIES} are kept for `GET /actuator/tuning`. The new values
+ * also land in {@link AppProperties}, so they hold until restart, not across one.
+ */
+@Component
+@Slf4j
+public class RuntimeTuning {
+    private static final int AUDIT_ENTRIES = 50;
+    // PostgreSQL caps a statement at 32767 bind parameters; the IN list takes one per securityId.
+    private static final int MAX_QUERY_CHUNK = 10_000;
+    private static final int MAX_STREAM_READ_COUNT = 10_000;
+    private static final long MIN_RECLAIMER_INTERVAL_MS = 100;
+
+    private final AppProperties props;
+    private final ThreadPoolTaskExecutor workers;
+    // Primary (and replica) pools, resized along with the workers when sized from them.
+    private final ObjectProvider<HikariDataSource> connectionPools;
+    // Absent when the reactive pipeline runs instead.
+    private final ObjectProvider<StreamsConsumer> consumer;
+    // Most recent change last; guarded by this.
+    private final Deque<Change> audit = new ArrayDeque<>();
+
+    public RuntimeTuning(
+            AppProperties props,
+            @Qualifier("exceptionProcessingTaskExecutor") ThreadPoolTaskExecutor workers,
+            ObjectProvider<HikariDataSource> connectionPools,
+            ObjectProvider<StreamsConsumer> consumer
+    ) {
+        this.props = props;
+        this.workers = workers;
+        this.connectionPools = connectionPools;
+        this.consumer = consumer;
+    }
+
+    public synchronized Settings current() {
+        return new Settings(
+                props.getBatch().getStreamReadCount(),
+                props.getBatch().getMaxInFlightBatches(),
+                props.getBatch().getSecurityIdQueryChunkSize(),
+                props.getWorker().getCorePoolSize(),
+                props.getWorker().getMaxPoolSize(),
+                props.getRetry().getReclaimerIntervalMs());
+    }
+
+    /**
+     * Applies `update` to the current settings.
+     *
+     * @param update derives the new settings from the current ones (under the lock)
+     * @param actor who asked, for the audit log
+     * @param reason free text for the audit log, may be null
+     * @return before and after; not audited when nothing changed
+     * @throws IllegalArgumentException listing every invalid value; nothing is applied
+     */
+    public synchronized Change apply(UnaryOperator<Settings> update, String actor, String reason) {
+        Settings before = current();
+        Settings after = update.apply(before);
+        List<String> violations = validate(before, after);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", violations));
+        }
+        Change change = new Change(Instant.now(), actor, reason, before, after);
+        if (after.equals(before)) {
+            return change;
+        }
+
+        props.getBatch().setStreamReadCount(after.streamReadCount());
+        props.getBatch().setSecurityIdQueryChunkSize(after.securityIdQueryChunkSize());
+
+        if (after.workerCorePoolSize() != before.workerCorePoolSize()
+                || after.workerMaxPoolSize() != before.workerMaxPoolSize()) {
+            resizeWorkers(after.workerCorePoolSize(), after.workerMaxPoolSize());
+            props.getWorker().setCorePoolSize(after.workerCorePoolSize());
+            props.getWorker().setMaxPoolSize(after.workerMaxPoolSize());
+            if (props.getJdbc().getPoolSize() <= 0) {
+                resizeConnectionPools(JdbcPoolConfig.poolSize(props));
+            }
+        }
+
+        props.getBatch().setMaxInFlightBatches(after.maxInFlightBatches());
+        props.getRetry().setReclaimerIntervalMs(after.reclaimerIntervalMs());
+        StreamsConsumer streams = consumer.getIfAvailable();
+        if (streams != null) {
+            if (after.maxInFlightBatches() != before.maxInFlightBatches()) {
+                streams.resizeInFlight(after.maxInFlightBatches());
+            }
+            if (after.reclaimerIntervalMs() != before.reclaimerIntervalMs()) {
+                streams.rescheduleReclaimer();
+            }
+        }
+
+        audit.addLast(change);
+        if (audit.size() > AUDIT_ENTRIES) {
+            audit.removeFirst();
+        }
+        log.warn("Runtime tuning by {} ({}): {} -> {}", actor, reason == null ? "no reason given" : reason, before, after);
+        return change;
+    }
+
+    /**
+     * Applied changes, oldest first.
+     */
+    public synchronized List<Change> history() {
+        return List.copyOf(audit);
+    }
+
+    // ThreadPoolExecutor rejects core > max at every step, so the order depends on the direction.
+    private void resizeWorkers(int core, int max) {
+        if (max >= workers.getCorePoolSize()) {
+            workers.setMaxPoolSize(max);
+            workers.setCorePoolSize(core);
+        } else {
+            workers.setCorePoolSize(core);
+            workers.setMaxPoolSize(max);
+        }
+    }
+
+    // Hikari supports changing the size of a running pool through its config MXBean.
+    private void resizeConnectionPools(int size) {
+        connectionPools.orderedStream().forEach(pool -> {
+            HikariConfigMXBean config = pool.getHikariConfigMXBean();
+            if (size >= config.getMaximumPoolSize()) {
+                config.setMaximumPoolSize(size);
+                config.setMinimumIdle(size);
+            } else {
+                config.setMinimumIdle(size);
+                config.setMaximumPoolSize(size);
+            }
+            log.info("Hikari pool '{}' resized to {} connection(s)", pool.getPoolName(), size);
+        });
+    }
+
+    private List<String> validate(Settings before, Settings s) {
+        List<String> violations = new ArrayList<>();
+        boolean workersChanged = s.workerCorePoolSize() != before.workerCorePoolSize()
+                || s.workerMaxPoolSize() != before.workerMaxPoolSize();
+        if (workersChanged && props.getLanes().isEnabled()) {
+            violations.add("worker pool sizes have no effect while app.lanes.enabled=true (batches run on the lanes)");
+        }
+        int fixedPool = props.getJdbc().getPoolSize();
+        int connectionsForWorkers = fixedPool - Math.max(0, props.getJdbc().getExtraConnections());
+        if (workersChanged && fixedPool > 0 && s.workerMaxPoolSize() > connectionsForWorkers) {
+            violations.add("workerMaxPoolSize must be at most " + connectionsForWorkers
+                    + " (app.jdbc.pool-size minus extra-connections)");
+        }
+        if (s.streamReadCount() < 1 || s.streamReadCount() > MAX_STREAM_READ_COUNT) {
+            violations.add("streamReadCount must be between 1 and " + MAX_STREAM_READ_COUNT);
+        }
+        if (s.maxInFlightBatches() < 1) {
+            violations.add("maxInFlightBatches must be at least 1");
+        }
+        if (s.securityIdQueryChunkSize() < 1 || s.securityIdQueryChunkSize() > MAX_QUERY_CHUNK) {
+            violations.add("securityIdQueryChunkSize must be between 1 and " + MAX_QUERY_CHUNK);
+        }
+        if (s.workerCorePoolSize() < 1) {
+            violations.add("workerCorePoolSize must be at least 1");
+        }
+        if (s.workerMaxPoolSize() < s.workerCorePoolSize()) {
+            violations.add("workerMaxPoolSize must be at least workerCorePoolSize");
+        }
+        if (s.reclaimerIntervalMs() < MIN_RECLAIMER_INTERVAL_MS) {
+            violations.add("reclaimerIntervalMs must be at least " + MIN_RECLAIMER_INTERVAL_MS);
+        }
+        return violations;
+    }
+
+    /**
+     * The runtime-tunable settings.
+     */
+    public record Settings(
+            int streamReadCount,
+            int maxInFlightBatches,
+            int securityIdQueryChunkSize,
+            int workerCorePoolSize,
+            int workerMaxPoolSize,
+            long reclaimerIntervalMs
+    ) {
+    }
+
+    /**
+     * One audit entry.
+     */
+    public record Change(Instant at, String actor, String reason, Settings before, Settings after) {
+    }
+}
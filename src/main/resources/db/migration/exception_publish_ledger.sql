@@ -0,0 +1,21 @@
+-- Publish ledger for app.persistence.mode=ledger.
+--
+-- Schema update creates the table from PublishLedgerEntry; this script is for databases
+-- managed by hand and for switching an existing deployment over. Rows already marked via
+-- processed_at are backfilled, otherwise the first ledger-mode sweep would republish the
+-- whole history. Run it with every instance stopped (or still in processed-at mode, then
+-- re-run just the INSERT after switching: it is idempotent).
+--
+-- Pending reads become `not exists (select 1 from exception_publish_ledger ...)`; the
+-- primary key on exception_id is the only index that anti-join needs.
+
+CREATE TABLE IF NOT EXISTS exception_publish_ledger (
+    exception_id    bigint      PRIMARY KEY,
+    published_at    timestamptz NOT NULL,
+    kafka_partition integer,
+    kafka_offset    bigint
+);
+
+INSERT INTO exception_publish_ledger (exception_id, published_at)
+SELECT id, processed_at FROM exceptions WHERE processed_at IS NOT NULL
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,24 @@
+-- Insert trigger feeding the Postgres LISTEN/NOTIFY ingest mode (app.ingest.postgres-notify).
+--
+-- Statement-level with a transition table: one notification per distinct securityId per
+-- INSERT statement, so bulk loads do not emit one NOTIFY per row. Postgres additionally
+-- folds identical notifications raised inside one transaction.
+-- Payload is the securityId. The channel is the psql variable :'channel': the service fills in
+-- app.ingest.postgres-notify.channel when install-trigger is on; when applying by hand, run
+-- psql -v channel=exception_inserts -f exceptions_insert_notify.sql with the configured channel.
+
+CREATE OR REPLACE FUNCTION exceptions_notify_insert() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify(TG_ARGV[0], s.security_id)
+    FROM (SELECT DISTINCT security_id FROM inserted_rows) s;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS exceptions_notify_insert ON exceptions;
+
+CREATE TRIGGER exceptions_notify_insert
+    AFTER INSERT ON exceptions
+    REFERENCING NEW TABLE AS inserted_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION exceptions_notify_insert(:'channel');
@@ -0,0 +1,111 @@
+-- Range-partitions `exceptions` on occurred_at (app.partitioning).
+--
+-- One-time conversion, idempotent: does nothing once `exceptions` is partitioned. The
+-- existing table is renamed to exceptions_legacy and attached as the partition holding
+-- everything before today (UTC), so no rows are copied; attaching validates its range
+-- with one scan and builds the (id, occurred_at) key index, under an exclusive lock, so
+-- run it in a maintenance window (app.partitioning.install-schema=true applies it at startup).
+-- The current partition and app.partitioning's default `premake-partitions` after it are
+-- created here too, so today's rows never reach the default partition before the first
+-- PartitionManager run. PartitionManager then continues from the highest upper bound, with
+-- whatever `partition-days` is configured, and archives old partitions, legacy included.
+--
+-- The postgres-notify insert trigger (exceptions_insert_notify.sql), if installed, moves with
+-- the conversion: it is dropped from exceptions_legacy before the attach (partitions cannot
+-- carry transition-table triggers) and recreated, same channel, on the partitioned parent,
+-- where a statement trigger still fires once per INSERT whichever partitions it reaches.
+--
+-- The primary key must contain the partition key, hence (id, occurred_at). ids come from
+-- the exceptions_part_id_seq sequence instead of an identity column, which partitions
+-- created later would not share on older Postgres versions.
+
+DO $$
+DECLARE
+    boundary timestamptz := date_trunc('day', now() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC';
+    next_id bigint := 1;
+    -- Defaults of app.partitioning.partition-days / premake-partitions.
+    partition_days int := 7;
+    premake int := 4;
+    part_from timestamptz;
+    -- Channel argument of the NOTIFY insert trigger on the old table, if it has one.
+    notify_channel text;
+    legacy_pk name;
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid
+               WHERE c.relname = 'exceptions' AND pg_table_is_visible(c.oid)) THEN
+        RETURN;
+    END IF;
+
+    IF to_regclass('exceptions') IS NOT NULL THEN
+        SELECT coalesce(max(id), 0) + 1 INTO next_id FROM exceptions;
+        -- tgargs holds NUL-terminated arguments; 'escape' encoding renders NUL as \000.
+        SELECT split_part(encode(t.tgargs, 'escape'), '\000', 1) INTO notify_channel
+        FROM pg_trigger t
+        WHERE t.tgrelid = 'exceptions'::regclass AND t.tgname = 'exceptions_notify_insert';
+        ALTER TABLE exceptions RENAME TO exceptions_legacy;
+        IF notify_channel IS NOT NULL THEN
+            DROP TRIGGER exceptions_notify_insert ON exceptions_legacy;
+        END IF;
+        -- Its primary key (id) would clash with the parent's (id, occurred_at) on attach.
+        SELECT conname INTO legacy_pk FROM pg_constraint
+        WHERE conrelid = 'exceptions_legacy'::regclass AND contype = 'p';
+        IF legacy_pk IS NOT NULL THEN
+            EXECUTE format('ALTER TABLE exceptions_legacy DROP CONSTRAINT %I', legacy_pk);
+        END IF;
+        ALTER TABLE exceptions_legacy ALTER COLUMN id DROP IDENTITY IF EXISTS;
+        ALTER TABLE exceptions_legacy ALTER COLUMN id DROP DEFAULT;
+        -- Index names are schema-wide; free them for the partitioned parent.
+        ALTER INDEX IF EXISTS idx_exception_security_id RENAME TO idx_exception_security_id_legacy;
+        ALTER INDEX IF EXISTS idx_exception_security_occurred_id RENAME TO idx_exception_security_occurred_id_legacy;
+        ALTER INDEX IF EXISTS idx_exception_processed_occurred_id RENAME TO idx_exception_processed_occurred_id_legacy;
+        EXECUTE 'CREATE TABLE exceptions (LIKE exceptions_legacy INCLUDING DEFAULTS INCLUDING CONSTRAINTS)'
+             || ' PARTITION BY RANGE (occurred_at)';
+    ELSE
+        CREATE TABLE exceptions (
+            id             bigint                      NOT NULL,
+            service_name   varchar(255)                NOT NULL,
+            severity       varchar(255)                NOT NULL
+                CHECK (severity IN ('LOW', 'MEDIUM', 'HIGH', 'CRITICAL')),
+            message        varchar(255)                NOT NULL,
+            occurred_at    timestamp(6) with time zone NOT NULL,
+            security_id    varchar(255)                NOT NULL,
+            processed_at   timestamp(6) with time zone,
+            stacktrace     varchar(255),
+            correlation_id varchar(255)
+        ) PARTITION BY RANGE (occurred_at);
+    END IF;
+
+    CREATE SEQUENCE IF NOT EXISTS exceptions_part_id_seq;
+    PERFORM setval('exceptions_part_id_seq', next_id, false);
+    ALTER TABLE exceptions ALTER COLUMN id SET DEFAULT nextval('exceptions_part_id_seq');
+    ALTER TABLE exceptions ADD PRIMARY KEY (id, occurred_at);
+
+    -- Same names as the entity's @Index entries, so Hibernate's schema update finds them.
+    CREATE INDEX idx_exception_security_id ON exceptions (security_id);
+    CREATE INDEX idx_exception_security_occurred_id ON exceptions (security_id, occurred_at, id);
+    CREATE INDEX idx_exception_processed_occurred_id ON exceptions (processed_at, occurred_at, id);
+    -- Pending page queries: only unprocessed rows are indexed, so it stays small however
+    -- many processed rows a partition holds.
+    CREATE INDEX idx_exception_pending_security_occurred_id ON exceptions (security_id, occurred_at, id)
+        WHERE processed_at IS NULL;
+
+    IF to_regclass('exceptions_legacy') IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE exceptions ATTACH PARTITION exceptions_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+                       boundary);
+    END IF;
+    FOR i IN 0 .. premake LOOP
+        part_from := boundary + make_interval(days => i * partition_days);
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF exceptions FOR VALUES FROM (%L) TO (%L)',
+                       'exceptions_p' || to_char(part_from AT TIME ZONE 'UTC', 'YYYYMMDD'),
+                       part_from, part_from + make_interval(days => partition_days));
+    END LOOP;
+    -- Catches rows outside every range (far-future or very late rows) instead of failing the insert.
+    CREATE TABLE exceptions_default PARTITION OF exceptions DEFAULT;
+
+    IF notify_channel IS NOT NULL THEN
+        EXECUTE format('CREATE TRIGGER exceptions_notify_insert AFTER INSERT ON exceptions'
+                       || ' REFERENCING NEW TABLE AS inserted_rows FOR EACH STATEMENT'
+                       || ' EXECUTE FUNCTION exceptions_notify_insert(%L)', notify_channel);
+    END IF;
+END;
+$$;
@@ -0,0 +1,80 @@
+package com.hedgefund.exceptionprocessor.batch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for IdBatch and RowGroups.
+ *
+ * These structures replace LinkedHashSet/groupingBy on the hot path, so the tests pin
+ * the behaviors the consumer and service rely on: first-seen order, dedup, oldest-first
+ * grouping, and correct results once the interner is full.
+ */
+@Tag("native")
+class IdBatchTest {
+
+    @Test
+    void deduplicatesInFirstSeenOrderAndReportsDuplicateIndex() {
+        IdBatch batch = new IdBatch(new SecurityIdInterner(1024), 4);
+
+        assertThat(batch.addId("SEC_B")).isEqualTo(0);
+        assertThat(batch.addId("SEC_A")).isEqualTo(1);
+        // Duplicate is reported as -(index + 1).
+        assertThat(batch.addId("SEC_B")).isEqualTo(-1);
+
+        assertThat(batch).containsExactly("SEC_B", "SEC_A");
+        assertThat(batch.indexOf("SEC_A")).isEqualTo(1);
+        assertThat(batch.indexOf("SEC_X")).isEqualTo(-1);
+    }
+
+    @Test
+    void fallsBackToStringKeysOnceInternerIsFull() {
+        // Room for one ordinal only: SEC_B and SEC_C take the overflow path.
+        IdBatch batch = IdBatch.of(new SecurityIdInterner(1), List.of("SEC_A", "SEC_B", "SEC_C", "SEC_B"), 2);
+
+        assertThat(batch).containsExactly("SEC_A", "SEC_B", "SEC_C");
+        assertThat(batch.indexOf("SEC_C")).isEqualTo(2);
+    }
+
+    @Test
+    void subsetTestsMembershipByIndex() {
+        IdBatch batch = IdBatch.of(new SecurityIdInterner(1024), List.of("SEC_A", "SEC_B", "SEC_C"), 3);
+        BitSet bits = new BitSet();
+        bits.set(0);
+        bits.set(2);
+
+        IdBatch.Subset subset = batch.subset(bits);
+
+        assertThat(subset).containsExactly("SEC_A", "SEC_C");
+        assertThat(subset.containsIndex(1)).isFalse();
+        assertThat(subset.contains("SEC_C")).isTrue();
+        // Equal to any Set with the same members, as callers and mocks compare that way.
+        assertThat(subset).isEqualTo(Set.of("SEC_A", "SEC_C"));
+    }
+
+    @Test
+    void groupsRowsContiguouslyInFirstSeenOrder() {
+        IdBatch batch = IdBatch.of(new SecurityIdInterner(1024), List.of("SEC_A", "SEC_B"), 2);
+        // Page rows oldest first: A1, B1, A2, plus one row that was not requested.
+        List<String[]> rows = List.of(
+                new String[] {"SEC_B", "b1"},
+                new String[] {"SEC_A", "a1"},
+                new String[] {"SEC_X", "x1"},
+                new String[] {"SEC_B", "b2"}
+        );
+
+        RowGroups<String[]> groups = RowGroups.of(batch, rows, r -> r[0]);
+
+        // SEC_B appeared first, so its group comes first; rows keep page order inside a group.
+        assertThat(groups.groupCount()).isEqualTo(2);
+        assertThat(groups.batchIndex(0)).isEqualTo(1);
+        assertThat(groups.rows(0)).extracting(r -> r[1]).containsExactly("b1", "b2");
+        assertThat(groups.rows(1)).extracting(r -> r[1]).containsExactly("a1");
+        assertThat(groups.unmatchedRows()).isEqualTo(1);
+    }
+}
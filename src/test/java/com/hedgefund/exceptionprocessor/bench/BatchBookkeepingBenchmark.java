@@ -0,0 +1,156 @@
+package com.hedgefund.exceptionprocessor.bench;
+
+import com.hedgefund.exceptionprocessor.batch.IdBatch;
+import com.hedgefund.exceptionprocessor.batch.RowGroups;
+import com.hedgefund.exceptionprocessor.batch.SecurityIdInterner;
+import com.hedgefund.exceptionprocessor.ingest.IngestEvent;
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.persistence.Severity;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Per-batch bookkeeping cost: String collections (before) vs interned ordinals (after).
+ *
+ *One operation = one 200-event batch: dedup, group one page of 400 rows by securityId,
+ * track per-ID success, then decide ACK per event. `legacy` mirrors the code this
+ * replaced (LinkedHashSet, groupingBy into LinkedHashMap, HashSet of successes);
+ * `interned` uses IdBatch, RowGroups and a BitSet. Run with
+ * `mvn -Pbench test-compile exec:exec`; `gc.alloc.rate.norm` is bytes per batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBookkeepingBenchmark {
+    private static final int EVENTS = 200;
+    private static final int PAGE_ROWS = 400;
+    private static final int UNIVERSE = 5_000;
+
+    private List<IngestEvent> events;
+    private List<ExceptionRecord> page;
+    private SecurityIdInterner interner;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        interner = new SecurityIdInterner(UNIVERSE * 2);
+        events = new ArrayList<>(EVENTS);
+        for (int i = 0; i < EVENTS; i++) {
+            // New String instances, as a deserializer would produce them.
+            events.add(new IngestEvent(i + "-0", new String("SEC_" + random.nextInt(UNIVERSE))));
+        }
+        page = new ArrayList<>(PAGE_ROWS);
+        for (int i = 0; i < PAGE_ROWS; i++) {
+            String securityId = events.get(random.nextInt(EVENTS)).securityId();
+            page.add(ExceptionRecord.builder()
+                    .id((long) i)
+                    .serviceName("svc")
+                    .severity(Severity.LOW)
+                    .occurredAt(Instant.EPOCH.plusSeconds(i))
+                    .securityId(new String(securityId))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        Set<String> requested = new LinkedHashSet<>();
+        List<IngestEvent> valid = new ArrayList<>(events.size());
+        for (IngestEvent event : events) {
+            if (requested.add(event.securityId())) {
+                valid.add(event);
+            }
+        }
+        Map<String, List<ExceptionRecord>> groups = page.stream()
+                .collect(Collectors.groupingBy(ExceptionRecord::getSecurityId, LinkedHashMap::new, Collectors.toList()));
+        Set<String> failed = new HashSet<>();
+        int g = 0;
+        for (Map.Entry<String, List<ExceptionRecord>> entry : groups.entrySet()) {
+            bh.consume(entry.getValue());
+            if (g++ % 10 == 0) {
+                failed.add(entry.getKey());
+            }
+        }
+        Set<String> successful = new LinkedHashSet<>();
+        for (String id : requested) {
+            if (!failed.contains(id)) {
+                successful.add(id);
+            }
+        }
+        int acked = 0;
+        for (IngestEvent event : valid) {
+            if (successful.contains(event.securityId())) {
+                acked++;
+            }
+        }
+        bh.consume(acked);
+    }
+
+    @Benchmark
+    public void interned(Blackhole bh) {
+        IdBatch requested = new IdBatch(interner, events.size());
+        List<IngestEvent> valid = new ArrayList<>(events.size());
+        int[] validIndexes = new int[events.size()];
+        for (IngestEvent event : events) {
+            int index = requested.addId(event.securityId());
+            if (index >= 0) {
+                validIndexes[valid.size()] = index;
+                valid.add(event);
+            }
+        }
+        RowGroups<ExceptionRecord> groups = RowGroups.of(requested, page, ExceptionRecord::getSecurityId);
+        BitSet failed = new BitSet(requested.size());
+        for (int g = 0; g < groups.groupCount(); g++) {
+            bh.consume(groups.rows(g));
+            if (g % 10 == 0) {
+                failed.set(groups.batchIndex(g));
+            }
+        }
+        BitSet success = new BitSet(requested.size());
+        success.set(0, requested.size());
+        success.andNot(failed);
+        IdBatch.Subset successful = requested.subset(success);
+        int acked = 0;
+        for (int i = 0; i < valid.size(); i++) {
+            if (successful.containsIndex(validIndexes[i])) {
+                acked++;
+            }
+        }
+        bh.consume(acked);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BatchBookkeepingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
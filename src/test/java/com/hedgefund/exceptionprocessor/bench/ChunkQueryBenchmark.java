@@ -0,0 +1,172 @@
+package com.hedgefund.exceptionprocessor.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Per-chunk page-query latency: `security_id in (?, ?, ...)` vs `security_id = any(?)`.
+ *
+ *One operation = the first pending page (limit 1000) for one chunk of securityIds.
+ * Chunk sizes vary between `chunkSize / 2` and `chunkSize`, as tail chunks and
+ * pre-filtered batches do in production. The IN form therefore produces a different SQL
+ * text (and prepared statement) per size; the array form always uses one.
+ *
+ *Runs against H2 in PostgreSQL mode by default, which shows query-shape and binding
+ * cost only: H2 has no server-side plan cache and no network round-trip, and it does not
+ * use the security_id index for `= any(?)`, so the array form loses there. For the
+ * numbers that matter, point it at Postgres (it creates and drops its own
+ * `bench_exceptions` table); environment variables reach the JMH forks, `-D` flags do not:
+ * `BENCH_JDBC_URL=jdbc:postgresql://host/db?prepareThreshold=3 BENCH_JDBC_USER=.. BENCH_JDBC_PASSWORD=..
+ * mvn -Pbench test-compile exec:exec -Dbench.main=com.hedgefund.exceptionprocessor.bench.ChunkQueryBenchmark`
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkQueryBenchmark {
+    private static final int SECURITY_IDS = 20_000;
+    private static final int ROWS_PER_ID = 5;
+    private static final int PAGE_SIZE = 1_000;
+
+    @Param({"10", "100", "1000"})
+    public int chunkSize;
+
+    @Param({"in-list", "any-array"})
+    public String shape;
+
+    private Connection connection;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                env("BENCH_JDBC_URL", "jdbc:h2:mem:bench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE"),
+                env("BENCH_JDBC_USER", "sa"),
+                env("BENCH_JDBC_PASSWORD", ""));
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("drop table if exists bench_exceptions");
+            ddl.execute("""
+                    create table bench_exceptions (
+                      id bigint primary key,
+                      security_id varchar(64) not null,
+                      severity varchar(16) not null,
+                      occurred_at timestamp not null,
+                      processed_at timestamp
+                    )""");
+            ddl.execute("create index bench_exceptions_sec_occ_id on bench_exceptions (security_id, occurred_at, id)");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into bench_exceptions (id, security_id, severity, occurred_at) values (?, ?, ?, ?)")) {
+            long id = 0;
+            Instant base = Instant.parse("2024-01-01T00:00:00Z");
+            for (int s = 0; s < SECURITY_IDS; s++) {
+                for (int r = 0; r < ROWS_PER_ID; r++) {
+                    insert.setLong(1, ++id);
+                    insert.setString(2, "SEC_" + s);
+                    insert.setString(3, "LOW");
+                    insert.setTimestamp(4, Timestamp.from(base.plusSeconds(id)));
+                    insert.addBatch();
+                }
+                if (s % 500 == 499) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        try (Statement analyze = connection.createStatement()) {
+            if (connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres")) {
+                analyze.execute("analyze bench_exceptions");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("drop table if exists bench_exceptions");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public void firstPendingPage(Blackhole bh) throws SQLException {
+        int size = chunkSize / 2 + random.nextInt(chunkSize - chunkSize / 2 + 1);
+        String[] ids = new String[size];
+        int start = random.nextInt(SECURITY_IDS - size);
+        for (int i = 0; i < size; i++) {
+            ids[i] = "SEC_" + (start + i);
+        }
+        PreparedStatement query = "in-list".equals(shape) ? inListQuery(ids) : anyArrayQuery(ids);
+        try (query; ResultSet rs = query.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getLong(1));
+                bh.consume(rs.getString(2));
+                bh.consume(rs.getTimestamp(3));
+            }
+        }
+    }
+
+    private PreparedStatement inListQuery(String[] ids) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+                "select id, security_id, occurred_at from bench_exceptions where security_id in (");
+        for (int i = 0; i < ids.length; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") and processed_at is null order by occurred_at asc, id asc limit ").append(PAGE_SIZE);
+        PreparedStatement ps = connection.prepareStatement(sql.toString());
+        for (int i = 0; i < ids.length; i++) {
+            ps.setString(i + 1, ids[i]);
+        }
+        return ps;
+    }
+
+    private PreparedStatement anyArrayQuery(String[] ids) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement("""
+                select id, security_id, occurred_at from bench_exceptions
+                where security_id = any(cast(? as varchar array)) and processed_at is null
+                order by occurred_at asc, id asc limit""" + " " + PAGE_SIZE);
+        ps.setArray(1, connection.createArrayOf("varchar", ids));
+        return ps;
+    }
+
+    private static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? fallback : value;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ChunkQueryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,234 @@
+package com.hedgefund.exceptionprocessor.bench;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hedgefund.exceptionprocessor.logging.LogSampler;
+import com.hedgefund.exceptionprocessor.service.KafkaPublisher;
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.logging.LoggingInitializationContext;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.core.env.StandardEnvironment;
+
+/**
+ * CPU per million published records spent on logging: the old synchronous, log-every-record
+ * setup vs the async appender with sampled per-record lines (text and `json-logs`).
+ *
+ *One record = the publish line `KafkaPublisher` logs per record, plus one batch summary
+ * line per 200 records. Output goes to `/dev/null` through a line counter, so the write
+ * syscalls are paid but the disk is not. CPU is process CPU time (all threads, including
+ * the async appender's writer), taken after the appender has flushed its queue. The
+ * median of `-Dlogbench.rounds` interleaved rounds per configuration is written to
+ * `target/bench/logging/report.json`. Not JMH: JMH measures the calling thread only.
+ * Run with
+ * `mvn -Pbench test-compile exec:exec -Dbench.main=com.hedgefund.exceptionprocessor.bench.LoggingOverheadBenchmark`.
+ */
+public final class LoggingOverheadBenchmark {
+    private static final int RECORDS = Integer.getInteger("logbench.records", 1_000_000);
+    private static final int ROUNDS = Integer.getInteger("logbench.rounds", 3);
+    private static final int RECORDS_PER_BATCH = 200;
+    private static final Path WORK = Path.of("target", "bench", "logging");
+    // logback-spring.xml before the async appender: synchronous console pattern appender.
+    private static final String SYNC_CONFIG = """
+            <configuration>
+              <appender name="STDOUT" class="ch.qos.logback.core.ConsoleAppender">
+                <encoder>
+                  <pattern>%d{HH:mm:ss.SSS} %-5level [%thread] %logger{36} - %msg%n</pattern>
+                </encoder>
+              </appender>
+              <root level="INFO">
+                <appender-ref ref="STDOUT"/>
+              </root>
+            </configuration>
+            """;
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaPublisher.class);
+
+    private LoggingOverheadBenchmark() {
+    }
+
+    private enum Setup {
+        // Before: synchronous pattern appender, every record logged.
+        SYNC_TEXT_ALL("sync-text-all", null, 0),
+        // Async appender alone, every record logged (INFO is dropped once the queue runs full).
+        ASYNC_TEXT_ALL("async-text-all", "", 0),
+        // After, local runs.
+        ASYNC_TEXT_SAMPLED("async-text-sampled", "", 10),
+        // After, container images.
+        ASYNC_JSON_SAMPLED("async-json-sampled", "json-logs", 10);
+
+        final String label;
+        // null = SYNC_CONFIG; otherwise logback-spring.xml with this profile ("" = none).
+        final String profile;
+        final int linesPerSecond;
+
+        Setup(String label, String profile, int linesPerSecond) {
+            this.label = label;
+            this.profile = profile;
+            this.linesPerSecond = linesPerSecond;
+        }
+    }
+
+    private record Sample(long cpuNanos, long wallNanos, long lines) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Files.createDirectories(WORK);
+        PrintStream stdout = System.out;
+        Map<Setup, List<Sample>> samples = new LinkedHashMap<>();
+        for (Setup setup : Setup.values()) {
+            samples.put(setup, new ArrayList<>());
+            // Warm-up: JIT the logging path of this setup before anything is measured.
+            run(setup, RECORDS / 5);
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Setup setup : Setup.values()) {
+                Sample sample = run(setup, RECORDS);
+                samples.get(setup).add(sample);
+                stdout.printf("round %d %-20s cpu=%d ms wall=%d ms lines=%d%n", round + 1, setup.label,
+                        TimeUnit.NANOSECONDS.toMillis(sample.cpuNanos()),
+                        TimeUnit.NANOSECONDS.toMillis(sample.wallNanos()),
+                        sample.lines());
+            }
+        }
+
+        double perMillion = 1_000_000.0 / RECORDS;
+        Map<String, Object> cpuMs = new LinkedHashMap<>();
+        Map<String, Object> wallMs = new LinkedHashMap<>();
+        Map<String, Object> lines = new LinkedHashMap<>();
+        for (Map.Entry<Setup, List<Sample>> e : samples.entrySet()) {
+            String label = e.getKey().label;
+            cpuMs.put(label, Math.round(median(e.getValue().stream().mapToLong(Sample::cpuNanos)) / 1e6 * perMillion));
+            wallMs.put(label, Math.round(median(e.getValue().stream().mapToLong(Sample::wallNanos)) / 1e6 * perMillion));
+            lines.put(label, median(e.getValue().stream().mapToLong(Sample::lines)));
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("records", RECORDS);
+        report.put("rounds", ROUNDS);
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("cpuMsPerMillionRecordsMedian", cpuMs);
+        report.put("wallMsPerMillionRecordsMedian", wallMs);
+        report.put("linesWrittenMedian", lines);
+        ObjectMapper mapper = new ObjectMapper();
+        Path out = WORK.resolve("report.json");
+        mapper.writerWithDefaultPrettyPrinter().writeValue(out.toFile(), report);
+        stdout.println("Logging report (" + out.toAbsolutePath() + "):\n"
+                + mapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+    }
+
+    private static Sample run(Setup setup, int records) throws Exception {
+        PrintStream stdout = System.out;
+        LineCounter sink = new LineCounter(new FileOutputStream("/dev/null"));
+        // ConsoleAppender writes to whatever System.out is at the time of the call.
+        System.setOut(new PrintStream(sink, false, StandardCharsets.UTF_8));
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        LoggingSystem system = null;
+        try {
+            context.reset();
+            if (setup.profile == null) {
+                JoranConfigurator configurator = new JoranConfigurator();
+                configurator.setContext(context);
+                configurator.doConfigure(new ByteArrayInputStream(SYNC_CONFIG.getBytes(StandardCharsets.UTF_8)));
+            } else {
+                // The real logback-spring.xml, through Spring Boot's logging system (springProfile support).
+                StandardEnvironment env = new StandardEnvironment();
+                if (!setup.profile.isEmpty()) {
+                    env.setActiveProfiles(setup.profile);
+                }
+                system = LoggingSystem.get(LoggingOverheadBenchmark.class.getClassLoader());
+                system.beforeInitialize();
+                system.initialize(new LoggingInitializationContext(env), "classpath:logback-spring.xml", null);
+            }
+            LogSampler published = LogSampler.perSecond(setup.linesPerSecond);
+            LogSampler summary = LogSampler.perSecond(setup.linesPerSecond);
+
+            long cpuStart = processCpuNanos();
+            long wallStart = System.nanoTime();
+            publish(records, published, summary);
+            // Stopping the context flushes the async queue (bounded by maxFlushTime).
+            context.stop();
+            long wall = System.nanoTime() - wallStart;
+            long cpu = processCpuNanos() - cpuStart;
+            return new Sample(cpu, wall, sink.lines);
+        } finally {
+            if (system != null) {
+                system.cleanUp();
+            }
+            context.reset();
+            System.setOut(stdout);
+        }
+    }
+
+    // Same messages and guards as KafkaPublisher's publish line and the service's batch summary.
+    private static void publish(int records, LogSampler published, LogSampler summary) {
+        String topic = "exception-records";
+        for (int i = 0; i < records; i++) {
+            String key = "svc:SEC_" + (i & 4095);
+            if (log.isInfoEnabled() && published.tryAcquire()) {
+                log.info("Published topic={} partition={} offset={} key={} (+{} not logged)",
+                        topic, i & 7, i, key, published.takeSuppressed());
+            }
+            if (i % RECORDS_PER_BATCH == RECORDS_PER_BATCH - 1 && log.isInfoEnabled() && summary.tryAcquire()) {
+                log.info("Published {} records across {} requested securityId(s); successfulIds={} (+{} summaries not logged)",
+                        RECORDS_PER_BATCH, RECORDS_PER_BATCH, RECORDS_PER_BATCH, summary.takeSuppressed());
+            }
+        }
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    private static long median(LongStream values) {
+        long[] sorted = values.sorted().toArray();
+        return sorted.length == 0 ? -1 : sorted[sorted.length / 2];
+    }
+
+    /**
+     * Counts newlines on their way to the real sink.
+     */
+    private static final class LineCounter extends FilterOutputStream {
+        long lines;
+
+        LineCounter(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (b == '\n') {
+                lines++;
+            }
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+            out.write(b, off, len);
+        }
+    }
+}
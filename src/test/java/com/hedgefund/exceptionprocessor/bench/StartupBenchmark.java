@@ -0,0 +1,257 @@
+package com.hedgefund.exceptionprocessor.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+/**
+ * Time to first ACK (and RSS at that point) of a fresh instance: default startup vs the
+ * fast-start profile vs fast-start plus the AppCDS archive.
+ *
+ *Each run starts the packaged application (`target/app`, built by
+ * `mvn -Pcds -DskipTests package`) in its own JVM against an embedded Kafka broker and
+ * an H2 file database, with one pending row and one trigger event already waiting on the
+ * Kafka trigger source. The result is the JVM uptime {@link
+ * com.hedgefund.exceptionprocessor.startup.FirstAckTimer} logs at the first ACK; the
+ * median of five runs per configuration (`-Dstartup.runs` when run directly) is printed
+ * and written to `target/bench/startup/report.json`. Run with
+ * `mvn -Pbench test-compile exec:exec -Dbench.main=com.hedgefund.exceptionprocessor.bench.StartupBenchmark`.
+ */
+public final class StartupBenchmark {
+    private static final int RUNS = Integer.getInteger("startup.runs", 5);
+    private static final Path APP = Path.of(System.getProperty("startup.app", "target/app"));
+    private static final Path WORK = Path.of("target", "bench", "startup");
+    private static final String TRIGGER_TOPIC = "security.events";
+    private static final String OUTPUT_TOPIC = "exception-records";
+    private static final String MAIN_CLASS = "com.hedgefund.exceptionprocessor.ExceptionServiceApplication";
+    private static final Pattern FIRST_ACK = Pattern.compile("First trigger event ACKed (\\d+) ms after JVM start");
+    private static final long RUN_TIMEOUT_SECONDS = 120;
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = APP.resolve("streams-exception-processor.jar");
+        Path archive = APP.resolve("app.jsa");
+        if (!Files.exists(jar) || !Files.exists(archive)) {
+            throw new IllegalStateException(jar + " or " + archive + " missing; run mvn -Pcds -DskipTests package first");
+        }
+        Files.createDirectories(WORK);
+        try (var stale = Files.list(WORK)) {
+            for (Path p : stale.filter(p -> p.getFileName().toString().startsWith("db")).toList()) {
+                Files.delete(p);
+            }
+        }
+        String dbUrl = "jdbc:h2:file:" + WORK.toAbsolutePath().resolve("db")
+                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;AUTO_SERVER=TRUE";
+
+        // Production brokers delay the first rebalance of a new group by 3 s; that would swamp the signal.
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, 1, TRIGGER_TOPIC, OUTPUT_TOPIC);
+        broker.brokerProperties(Map.of("group.initial.rebalance.delay.ms", "0"));
+        broker.afterPropertiesSet();
+        // Opened first, so this JVM serves the H2 database to every child over TCP.
+        try (Connection db = DriverManager.getConnection(dbUrl, "sa", "");
+             KafkaProducer<String, String> producer = producer(broker.getBrokersAsString())) {
+            // Children run in APP with the jar path the archive was trained with (CDS compares it
+            // literally and accepts appended entries), then the H2 driver.
+            String classpath = jar.getFileName() + File.pathSeparator
+                    + Path.of(org.h2.Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            List<String> common = List.of(
+                    "--spring.datasource.url=" + dbUrl,
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                    "--app.kafka.topic=" + OUTPUT_TOPIC,
+                    "--app.ingest.source=kafka",
+                    "--app.ingest.kafka.topic=" + TRIGGER_TOPIC,
+                    "--app.sweeper.enabled=false",
+                    "--server.port=0");
+            // Schema comes from a default-profile refresh-and-exit run; fast-start never creates it.
+            runToExit(classpath, List.of("-Dspring.context.exit=onRefresh"), common);
+
+            List<String> fastStart = List.of("-Dspring.profiles.active=fast-start",
+                    // The profile pins the Postgres dialect; H2 stands in for Postgres here.
+                    "-Dspring.jpa.database-platform=org.hibernate.dialect.H2Dialect");
+            Map<String, List<String>> configs = new LinkedHashMap<>();
+            configs.put("default", List.of());
+            configs.put("fast-start", fastStart);
+            List<String> withCds = new ArrayList<>(fastStart);
+            withCds.add(0, "-XX:SharedArchiveFile=" + archive.getFileName());
+            // Fails the run instead of silently measuring without the archive.
+            withCds.add(0, "-Xshare:on");
+            configs.put("fast-start+cds", withCds);
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("timestamp", Instant.now().toString());
+            report.put("runs", RUNS);
+            Map<String, List<Sample>> results = new LinkedHashMap<>();
+            int run = 0;
+            for (int i = 0; i < RUNS; i++) {
+                // Interleaved, so drift on the host (page cache, thermal) hits every configuration alike.
+                for (Map.Entry<String, List<String>> config : configs.entrySet()) {
+                    String group = "startup-bench-" + run++;
+                    queueTrigger(db, producer, broker.getBrokersAsString(), group);
+                    List<String> appArgs = new ArrayList<>(common);
+                    appArgs.add("--app.ingest.kafka.group-id=" + group);
+                    Sample sample = timeToFirstAck(classpath, config.getValue(), appArgs);
+                    results.computeIfAbsent(config.getKey(), k -> new ArrayList<>()).add(sample);
+                    System.out.printf("%-16s run %d: first ACK at %d ms, RSS %d MiB%n",
+                            config.getKey(), i + 1, sample.firstAckMs(), sample.rssKb() / 1024);
+                }
+            }
+
+            Map<String, Object> medianMs = new LinkedHashMap<>();
+            Map<String, Object> medianRssMiB = new LinkedHashMap<>();
+            results.forEach((name, samples) -> {
+                medianMs.put(name, median(samples.stream().mapToLong(Sample::firstAckMs)));
+                medianRssMiB.put(name, median(samples.stream().mapToLong(Sample::rssKb)) / 1024);
+            });
+            report.put("firstAckMedianMs", medianMs);
+            report.put("rssAtFirstAckMedianMiB", medianRssMiB);
+            report.put("samples", results);
+            ObjectMapper mapper = new ObjectMapper();
+            Path out = WORK.resolve("report.json");
+            mapper.writerWithDefaultPrettyPrinter().writeValue(out.toFile(), report);
+            System.out.println("Startup report (" + out.toAbsolutePath() + "):\n"
+                    + mapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+        } finally {
+            broker.destroy();
+        }
+    }
+
+    private static KafkaProducer<String, String> producer(String brokers) {
+        Properties config = new Properties();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        return new KafkaProducer<>(config);
+    }
+
+    /**
+     * One pending row plus its trigger event, with `group` positioned right before the event.
+     */
+    private static void queueTrigger(Connection db, KafkaProducer<String, String> producer, String brokers, String group)
+            throws Exception {
+        String securityId = "SEC_" + group;
+        try (PreparedStatement insert = db.prepareStatement(
+                "insert into exceptions(service_name, severity, message, occurred_at, security_id) values (?, ?, ?, ?, ?)")) {
+            insert.setString(1, "startup-bench");
+            insert.setString(2, "LOW");
+            insert.setString(3, "seeded");
+            insert.setTimestamp(4, Timestamp.from(Instant.now()));
+            insert.setString(5, securityId);
+            insert.executeUpdate();
+        }
+
+        // The trigger consumer starts at `latest` for a new group; commit the end offset so it reads the event.
+        Properties config = new Properties();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers);
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, group);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        TopicPartition partition = new TopicPartition(TRIGGER_TOPIC, 0);
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(config)) {
+            long end = consumer.endOffsets(List.of(partition)).get(partition);
+            consumer.assign(List.of(partition));
+            consumer.commitSync(Map.of(partition, new OffsetAndMetadata(end)));
+        }
+        producer.send(new ProducerRecord<>(TRIGGER_TOPIC, securityId, securityId)).get();
+    }
+
+    private static long median(LongStream values) {
+        long[] sorted = values.sorted().toArray();
+        return sorted[sorted.length / 2];
+    }
+
+    private static Sample timeToFirstAck(String classpath, List<String> jvmArgs, List<String> appArgs) throws Exception {
+        Process process = start(classpath, jvmArgs, appArgs);
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(RUN_TIMEOUT_SECONDS);
+            String line;
+            while (System.nanoTime() < deadline && (line = out.readLine()) != null) {
+                Matcher m = FIRST_ACK.matcher(line);
+                if (m.find()) {
+                    return new Sample(Long.parseLong(m.group(1)), residentKb(process.pid()));
+                }
+            }
+            throw new IllegalStateException("No first ACK within " + RUN_TIMEOUT_SECONDS + " s (exit code "
+                    + (process.isAlive() ? "n/a" : process.exitValue()) + ")");
+        } finally {
+            // Graceful stop, so the child leaves its consumer group and releases H2.
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /**
+     * Resident set size from /proc (Linux); -1 elsewhere.
+     */
+    private static long residentKb(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status)) {
+            // e.g. "VmRSS:	  412345 kB"
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return -1;
+    }
+
+    private static void runToExit(String classpath, List<String> jvmArgs, List<String> appArgs) throws Exception {
+        Process process = start(classpath, jvmArgs, appArgs);
+        // Drained so a chatty child never blocks on a full pipe.
+        process.getInputStream().transferTo(OutputStream.nullOutputStream());
+        if (!process.waitFor(RUN_TIMEOUT_SECONDS, TimeUnit.SECONDS) || process.exitValue() != 0) {
+            process.destroyForcibly();
+            throw new IllegalStateException("Schema run failed: " + String.join(" ", jvmArgs));
+        }
+    }
+
+    record Sample(long firstAckMs, long rssKb) {
+    }
+
+    private static Process start(String classpath, List<String> jvmArgs, List<String> appArgs) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.addAll(Arrays.asList("-cp", classpath, MAIN_CLASS));
+        command.addAll(appArgs);
+        return new ProcessBuilder(command).directory(APP.toFile()).redirectErrorStream(true).start();
+    }
+}
@@ -0,0 +1,89 @@
+package com.hedgefund.exceptionprocessor.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+/**
+ * Unit tests for CleanSecurityIdCache.
+ *
+ * The cache may only ever cost an extra query, never skip a pending row, so these
+ * tests focus on the insert-version check and on failing open when Redis errors.
+ */
+@SuppressWarnings("unchecked")
+class CleanSecurityIdCacheTest {
+    private ValueOperations<String, String> valueOps;
+    private SimpleMeterRegistry meters;
+    private CleanSecurityIdCache cache;
+
+    @BeforeEach
+    void setUp() {
+        StringRedisTemplate redis = Mockito.mock(StringRedisTemplate.class);
+        valueOps = Mockito.mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(valueOps);
+        meters = new SimpleMeterRegistry();
+
+        AppProperties props = new AppProperties();
+        props.getCleanIdCache().setEnabled(true);
+        cache = new CleanSecurityIdCache(props, redis, meters);
+    }
+
+    @Test
+    void hitsOnlyWhileInsertVersionIsUnchanged() {
+        // SEC_A was never written (no key), SEC_B is at version 7.
+        when(valueOps.multiGet(anyList())).thenReturn(Arrays.asList(null, "7"));
+        Map<String, Long> before = cache.versions(List.of("SEC_A", "SEC_B"));
+        cache.markClean(List.of("SEC_A", "SEC_B"), before);
+
+        // Unchanged versions: both are known clean.
+        assertThat(cache.knownClean(List.of("SEC_A", "SEC_B"), before)).containsExactly("SEC_A", "SEC_B");
+
+        // A writer bumped SEC_B after an insert: it must go back to the DB.
+        when(valueOps.multiGet(anyList())).thenReturn(Arrays.asList(null, "8"));
+        Map<String, Long> after = cache.versions(List.of("SEC_A", "SEC_B"));
+        assertThat(cache.knownClean(List.of("SEC_A", "SEC_B"), after)).containsExactly("SEC_A");
+
+        assertThat(meters.get("exceptions.clean.cache.lookups").tag("result", "hit").counter().count()).isEqualTo(3.0);
+        assertThat(meters.get("exceptions.clean.cache.lookups").tag("result", "miss").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void failsOpenWhenVersionsCannotBeRead() {
+        when(valueOps.multiGet(anyList())).thenReturn(Arrays.asList("1"));
+        cache.markClean(List.of("SEC_A"), cache.versions(List.of("SEC_A")));
+
+        // Redis down: no versions, so no hits and nothing new cached.
+        when(valueOps.multiGet(anyList())).thenThrow(new RuntimeException("redis down"));
+        Map<String, Long> versions = cache.versions(List.of("SEC_A"));
+
+        assertThat(versions).isNull();
+        assertThat(cache.knownClean(List.of("SEC_A"), versions)).isEmpty();
+    }
+
+    @Test
+    void localVersionSignalIsOnlyAcceptedWithPostgresNotify() {
+        AppProperties props = new AppProperties();
+        props.getCleanIdCache().setEnabled(true);
+        props.getCleanIdCache().setVersionSignal("none");
+
+        // The Redis stream source never invalidates: cached IDs would hide new rows until the TTL.
+        assertThatThrownBy(() -> new CleanSecurityIdCache(props, (StringRedisTemplate) null, meters))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("postgres-notify");
+
+        props.getIngest().setSource("postgres-notify");
+        assertThat(new CleanSecurityIdCache(props, (StringRedisTemplate) null, meters).isEnabled()).isTrue();
+    }
+}
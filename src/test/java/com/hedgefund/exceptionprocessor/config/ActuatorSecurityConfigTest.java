@@ -0,0 +1,120 @@
+package com.hedgefund.exceptionprocessor.config;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.hedgefund.exceptionprocessor.actuator.JfrEndpoint;
+import com.hedgefund.exceptionprocessor.actuator.TuningEndpoint;
+import com.hedgefund.exceptionprocessor.jfr.JfrRecordings;
+import com.hedgefund.exceptionprocessor.tuning.RuntimeTuning;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.endpoint.EndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.endpoint.web.WebEndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.health.HealthEndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementContextAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.web.servlet.ServletManagementContextAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+/**
+ * Web-layer tests for ActuatorSecurityConfig.
+ *
+ * Only the actuator, MVC and security auto-configuration run (no Redis, Kafka or DB):
+ * operator endpoints need the `ops` account, tuning changes are attributed to it, and
+ * health stays open.
+ */
+@SpringBootTest(
+        classes = {ActuatorSecurityConfig.class, JfrEndpoint.class, TuningEndpoint.class},
+        properties = {
+                "management.endpoints.web.exposure.include=health,jfr,tuning",
+                "spring.security.user.name=ops",
+                "spring.security.user.password=secret",
+                "spring.security.user.roles=OPS"
+        }
+)
+@ImportAutoConfiguration({
+        JacksonAutoConfiguration.class,
+        HttpMessageConvertersAutoConfiguration.class,
+        DispatcherServletAutoConfiguration.class,
+        WebMvcAutoConfiguration.class,
+        SecurityAutoConfiguration.class,
+        SecurityFilterAutoConfiguration.class,
+        UserDetailsServiceAutoConfiguration.class,
+        EndpointAutoConfiguration.class,
+        WebEndpointAutoConfiguration.class,
+        HealthEndpointAutoConfiguration.class,
+        ManagementContextAutoConfiguration.class,
+        ServletManagementContextAutoConfiguration.class
+})
+@AutoConfigureMockMvc
+class ActuatorSecurityConfigTest {
+    private static final RequestPostProcessor OPS = basic("ops", "secret");
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private JfrRecordings recordings;
+
+    @MockBean
+    private RuntimeTuning tuning;
+
+    @Test
+    void operatorEndpointsRequireTheOpsAccount() throws Exception {
+        when(recordings.list()).thenReturn(List.of());
+
+        mvc.perform(get("/actuator/jfr")).andExpect(status().isUnauthorized());
+        mvc.perform(post("/actuator/jfr")).andExpect(status().isUnauthorized());
+        mvc.perform(get("/actuator/jfr")
+                .with(basic("ops", "wrong"))).andExpect(status().isUnauthorized());
+
+        mvc.perform(get("/actuator/jfr").with(OPS)).andExpect(status().isOk());
+    }
+
+    @Test
+    void tuningUpdatesAreAuditedUnderTheAuthenticatedUser() throws Exception {
+        String body = "{\"streamReadCount\": 500, \"reason\": \"backlog\"}";
+
+        mvc.perform(post("/actuator/tuning").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isUnauthorized());
+        mvc.perform(get("/actuator/tuning")).andExpect(status().isUnauthorized());
+
+        mvc.perform(post("/actuator/tuning").contentType(MediaType.APPLICATION_JSON).content(body).with(OPS))
+                .andExpect(status().isOk());
+        verify(tuning).apply(any(), eq("ops"), eq("backlog"));
+    }
+
+    @Test
+    void healthStaysOpen() throws Exception {
+        mvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    private static RequestPostProcessor basic(String user, String password) {
+        String token = Base64.getEncoder().encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+        return request -> {
+            request.addHeader("Authorization", "Basic " + token);
+            return request;
+        };
+    }
+}
@@ -2,7 +2,9 @@ package com.hedgefund.exceptionprocessor.config;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 /**
@@ -11,6 +13,7 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
  * These tests verify that infrastructure wiring (thread-pool settings)
  * correctly reflects values from AppProperties.
  */
+@Tag("native")
 class AsyncConfigTest {
 
     @Test
@@ -34,6 +37,9 @@ class AsyncConfigTest {
         // Queue remaining capacity equals configured queue size when queue is empty.
         assertThat(executor.getThreadPoolExecutor().getQueue().remainingCapacity()).isEqualTo(50);
         assertThat(executor.getKeepAliveSeconds()).isEqualTo(45);
+        // Stops after StreamsConsumer (DEFAULT_PHASE) and waits only briefly once it has drained.
+        assertThat(executor.getPhase()).isLessThan(SmartLifecycle.DEFAULT_PHASE);
+        assertThat(executor).extracting("awaitTerminationMillis").isEqualTo(props.getDrain().getWorkerAwaitMs());
         // Clean up thread resources so test process exits cleanly.
         executor.shutdown();
     }
@@ -0,0 +1,44 @@
+package com.hedgefund.exceptionprocessor.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for JdbcPoolConfig pool sizing.
+ *
+ * The pool must follow worker concurrency: one connection per thread that can run a
+ * batch, plus the configured extras, unless an explicit size is set.
+ */
+@Tag("native")
+class JdbcPoolConfigTest {
+
+    @Test
+    void derivesPoolSizeFromLanesOrWorkerPool() {
+        AppProperties props = new AppProperties();
+        props.getLanes().setCount(6);
+        props.getJdbc().setExtraConnections(2);
+
+        // Keyed lanes: lane threads + extras.
+        assertThat(JdbcPoolConfig.poolSize(props)).isEqualTo(8);
+
+        // Reserved priority lanes also hold connections.
+        props.getPriority().setEnabled(true);
+        props.getPriority().setReservedLanes(2);
+        assertThat(JdbcPoolConfig.poolSize(props)).isEqualTo(10);
+
+        // Worker pool mode: max pool size + extras.
+        props.getLanes().setEnabled(false);
+        props.getWorker().setMaxPoolSize(4);
+        assertThat(JdbcPoolConfig.poolSize(props)).isEqualTo(6);
+    }
+
+    @Test
+    void explicitPoolSizeWins() {
+        AppProperties props = new AppProperties();
+        props.getJdbc().setPoolSize(24);
+
+        assertThat(JdbcPoolConfig.poolSize(props)).isEqualTo(24);
+    }
+}
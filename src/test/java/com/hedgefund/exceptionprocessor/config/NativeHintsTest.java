@@ -0,0 +1,63 @@
+package com.hedgefund.exceptionprocessor.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hedgefund.exceptionprocessor.dto.ExceptionRecordDTO;
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.persistence.Severity;
+import java.time.Instant;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+/**
+ * Unit tests for NativeHints.
+ *
+ * On the JVM these check the registered metadata; under `mvn -Pnative test` the round
+ * trip runs inside the native test image, where a missing hint fails for real.
+ */
+@Tag("native")
+class NativeHintsTest {
+
+    @Test
+    void registersReflectionAndResourcesReachedAtRuntime() throws Exception {
+        RuntimeHints hints = new RuntimeHints();
+        new NativeHints().registerHints(hints, getClass().getClassLoader());
+
+        // Jackson binding of the Kafka payload.
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(ExceptionRecordDTO.class.getMethod("getSecurityId")))
+                .accepts(hints);
+        // Hibernate field access on the entity.
+        assertThat(RuntimeHintsPredicates.reflection().onType(ExceptionRecord.class)
+                .withMemberCategory(MemberCategory.DECLARED_FIELDS)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("db/migration/exceptions_partitioned.sql"))
+                .accepts(hints);
+    }
+
+    @Test
+    void payloadRoundTripsThroughKafkaJsonSerde() {
+        ExceptionRecordDTO dto = ExceptionRecordDTO.builder()
+                .id(42L)
+                .serviceName("pricing")
+                .severity(Severity.HIGH)
+                .message("stale quote")
+                .occurredAt(Instant.parse("2024-01-01T00:00:00.123456Z"))
+                .securityId("SEC_A")
+                .build();
+
+        byte[] json;
+        try (JsonSerializer<ExceptionRecordDTO> serializer = new JsonSerializer<>()) {
+            json = serializer.serialize("exception-records", dto);
+        }
+        ExceptionRecordDTO back;
+        try (JsonDeserializer<ExceptionRecordDTO> deserializer = new JsonDeserializer<>(ExceptionRecordDTO.class, false)) {
+            back = deserializer.deserialize("exception-records", json);
+        }
+
+        assertThat(back).usingRecursiveComparison().isEqualTo(dto);
+    }
+}
@@ -0,0 +1,53 @@
+package com.hedgefund.exceptionprocessor.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the in-memory ingest source.
+ *
+ * Load tests and benchmarks rely on it behaving like a Redis consumer group:
+ * delivered events stay pending until ACK, and stale ones are redelivered.
+ */
+@Tag("native")
+class InMemoryIngestSourceTest {
+
+    @Test
+    void pollDeliversInArrivalOrderUpToMaxCount() throws Exception {
+        InMemoryIngestSource source = new InMemoryIngestSource();
+        source.publish("SEC_A");
+        source.publish("SEC_B");
+        source.publish("SEC_C");
+
+        List<IngestEvent> batch = source.poll(2, Duration.ofMillis(10));
+
+        assertThat(batch).extracting(IngestEvent::securityId).containsExactly("SEC_A", "SEC_B");
+        assertThat(source.pendingCount()).isEqualTo(2);
+        assertThat(source.queuedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void ackRemovesFromPendingAndReclaimRedeliversOnlyUnacked() throws Exception {
+        InMemoryIngestSource source = new InMemoryIngestSource();
+        source.publish("SEC_A");
+        source.publish("SEC_B");
+        List<IngestEvent> batch = source.poll(10, Duration.ofMillis(10));
+
+        source.ack(List.of(batch.get(0)));
+
+        // Zero idle threshold: every unACKed event is immediately reclaimable.
+        assertThat(source.reclaim(10, Duration.ZERO)).containsExactly(batch.get(1));
+        assertThat(source.ackedCount()).isEqualTo(1);
+        // Events idle for less than the threshold are not reclaimed.
+        assertThat(source.reclaim(10, Duration.ofMinutes(1))).isEmpty();
+    }
+
+    @Test
+    void pollReturnsEmptyAfterTimeoutWhenNothingQueued() throws Exception {
+        assertThat(new InMemoryIngestSource().poll(10, Duration.ofMillis(5))).isEmpty();
+    }
+}
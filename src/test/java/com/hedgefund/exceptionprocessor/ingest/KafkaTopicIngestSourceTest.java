@@ -0,0 +1,85 @@
+package com.hedgefund.exceptionprocessor.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the Kafka-topic ingest source.
+ *
+ * Focus is the mapping of per-event ACKs onto Kafka's single committed offset
+ * per partition: an unACKed event must hold back the commit.
+ */
+@Tag("native")
+class KafkaTopicIngestSourceTest {
+    private static final String TOPIC = "security.events";
+    private static final TopicPartition TP = new TopicPartition(TOPIC, 0);
+
+    private MockConsumer<String, String> consumer;
+    private KafkaTopicIngestSource source;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        source = new KafkaTopicIngestSource(consumer, new ObjectMapper(), TOPIC);
+        // First poll subscribes; then simulate the group assigning partition 0.
+        source.poll(10, Duration.ofMillis(1));
+        consumer.rebalance(List.of(TP));
+        consumer.updateBeginningOffsets(Map.of(TP, 0L));
+    }
+
+    @Test
+    void parsesPlainAndJsonPayloads() {
+        consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 0L, null, "SEC_A"));
+        consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 1L, null, "{\"securityId\":\"SEC_B\"}"));
+        consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 2L, null, "{not json"));
+
+        List<IngestEvent> events = source.poll(10, Duration.ofMillis(1));
+
+        assertThat(events).extracting(IngestEvent::securityId).containsExactly("SEC_A", "SEC_B", null);
+    }
+
+    @Test
+    void commitsOnlyUpToLowestUnackedOffset() {
+        consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 0L, null, "SEC_A"));
+        consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 1L, null, "SEC_B"));
+        consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 2L, null, "SEC_C"));
+        List<IngestEvent> events = source.poll(10, Duration.ofMillis(1));
+
+        // Offsets 0 and 2 succeed; offset 1 is still pending.
+        source.ack(List.of(events.get(0), events.get(2)));
+        source.commitAcked();
+        assertThat(committed()).isEqualTo(1L);
+
+        // Once the gap is ACKed the commit jumps past the last delivered offset.
+        source.ack(List.of(events.get(1)));
+        source.commitAcked();
+        assertThat(committed()).isEqualTo(3L);
+    }
+
+    @Test
+    void reclaimRedeliversUnackedEvents() {
+        consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 0L, null, "SEC_A"));
+        consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 1L, null, "SEC_B"));
+        List<IngestEvent> events = source.poll(10, Duration.ofMillis(1));
+        source.ack(List.of(events.get(0)));
+
+        assertThat(source.reclaim(10, Duration.ZERO)).containsExactly(events.get(1));
+    }
+
+    private long committed() {
+        OffsetAndMetadata offset = consumer.committed(java.util.Set.of(TP)).get(TP);
+        return offset == null ? -1 : offset.offset();
+    }
+}
@@ -0,0 +1,50 @@
+package com.hedgefund.exceptionprocessor.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.hedgefund.exceptionprocessor.cache.CleanSecurityIdCache;
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+/**
+ * Unit tests for the Postgres LISTEN/NOTIFY ingest source.
+ *
+ * The LISTEN connection itself needs a live Postgres; this covers the guard
+ * that keeps the un-parameterizable LISTEN statement safe and the channel
+ * written into the insert trigger.
+ */
+class PostgresNotifyIngestSourceTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rejectsChannelNamesThatAreNotPlainIdentifiers() {
+        AppProperties props = new AppProperties();
+        // Do not touch a database from unit tests.
+        props.getIngest().getPostgresNotify().setInstallTrigger(false);
+        props.getIngest().getPostgresNotify().setChannel("x; DROP TABLE exceptions");
+        PostgresNotifyIngestSource source = new PostgresNotifyIngestSource(
+                new DataSourceProperties(),
+                Mockito.mock(DataSource.class),
+                props,
+                Mockito.mock(CleanSecurityIdCache.class),
+                Mockito.mock(ObjectProvider.class)
+        );
+
+        assertThatThrownBy(source::init).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void triggerScriptNotifiesOnTheConfiguredChannel() {
+        String script = PostgresNotifyIngestSource.triggerScript("trade_exceptions");
+
+        assertThat(script)
+                .contains("EXECUTE FUNCTION exceptions_notify_insert('trade_exceptions');")
+                .doesNotContain(":'channel'")
+                .doesNotContain("exception_inserts'");
+    }
+}
@@ -0,0 +1,104 @@
+package com.hedgefund.exceptionprocessor.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import io.lettuce.core.Consumer;
+import io.lettuce.core.Limit;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.models.stream.PendingMessage;
+import io.lettuce.core.models.stream.PendingMessages;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+/**
+ * Unit tests for the ACK batching and reclaim commands of RedisStreamConnections.
+ *
+ * ACKs are buffered on a connection with auto-flush off; these tests pin when the
+ * buffer is written so ACK latency stays bounded and reclaim calls never wait on a batch.
+ */
+@SuppressWarnings("unchecked")
+class RedisStreamConnectionsTest {
+    private StatefulRedisConnection<String, String> commandConnection;
+    private RedisAsyncCommands<String, String> async;
+    private RedisStreamConnections connections;
+
+    @BeforeEach
+    void setUp() {
+        commandConnection = Mockito.mock(StatefulRedisConnection.class);
+        async = Mockito.mock(RedisAsyncCommands.class);
+        when(commandConnection.async()).thenReturn(async);
+
+        AppProperties props = new AppProperties();
+        props.getRedisCommands().setCommandBatchSize(3);
+        connections = new RedisStreamConnections(props, Mockito.mock(StatefulRedisConnection.class), commandConnection);
+    }
+
+    @Test
+    void flushesAckBufferOnceBatchSizeIsReached() {
+        // Buffered commands are not written until the batch fills.
+        connections.enqueue(c -> c.xack("s", "g", "1-0"));
+        connections.enqueue(c -> c.xack("s", "g", "2-0"));
+        verify(commandConnection, never()).flushCommands();
+
+        connections.enqueue(c -> c.xack("s", "g", "3-0"));
+
+        verify(commandConnection, times(1)).flushCommands();
+        verify(async, times(3)).xack(any(), any(), any(String[].class));
+    }
+
+    @Test
+    void executeFlushesImmediatelyAndTakesBufferedAcksAlong() {
+        connections.enqueue(c -> c.xack("s", "g", "1-0"));
+
+        // Reclaimer waits on XPENDING, so it must not sit in the buffer.
+        connections.execute(c -> c.xpending("s", "g"));
+
+        verify(commandConnection, times(1)).flushCommands();
+        // Nothing left to write for the interval flusher.
+        connections.flush();
+        verify(commandConnection, times(1)).flushCommands();
+    }
+
+    @Test
+    void claimIdleClaimsOnlyEntriesPastTheIdleThreshold() throws Exception {
+        RedisFuture<PendingMessages> summary = completed(new PendingMessages(2, Range.create("1-0", "2-0"), Map.of("dead", 2L)));
+        when(async.xpending("s", "g")).thenReturn(summary);
+        RedisFuture<List<PendingMessage>> pending = completed(List.of(
+                new PendingMessage("1-0", "dead", 90_000, 1),
+                new PendingMessage("2-0", "dead", 1_000, 1)));
+        when(async.xpending(eq("s"), eq("g"), any(Range.class), any(Limit.class))).thenReturn(pending);
+        RedisFuture<List<StreamMessage<String, String>>> claimed =
+                completed(List.of(new StreamMessage<>("s", "1-0", Map.of("securityId", "SEC_A"))));
+        when(async.xclaim(eq("s"), any(Consumer.class), eq(60_000L), any(String[].class))).thenReturn(claimed);
+
+        List<StreamMessage<String, String>> messages = connections.claimIdle("s", "g", "me", 10, Duration.ofMinutes(1));
+
+        assertThat(messages).extracting(StreamMessage::getId).containsExactly("1-0");
+        // Only the entry idle past the threshold is claimed.
+        verify(async).xclaim(eq("s"), any(Consumer.class), eq(60_000L), eq("1-0"));
+    }
+
+    private static <T> RedisFuture<T> completed(T value) throws Exception {
+        RedisFuture<T> future = Mockito.mock(RedisFuture.class);
+        when(future.await(anyLong(), any(TimeUnit.class))).thenReturn(true);
+        when(future.get()).thenReturn(value);
+        return future;
+    }
+}
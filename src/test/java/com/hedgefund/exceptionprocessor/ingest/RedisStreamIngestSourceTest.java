@@ -0,0 +1,122 @@
+package com.hedgefund.exceptionprocessor.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Unit tests for the Redis Streams ingest source.
+ *
+ * Verifies the mapping onto XREADGROUP / XACK / XPENDING+XCLAIM that the
+ * consumer-group retry contract depends on.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+class RedisStreamIngestSourceTest {
+    private StreamOperations<String, Object, Object> streamOps;
+    private RedisStreamIngestSource source;
+
+    @BeforeEach
+    void setUp() {
+        StringRedisTemplate redis = Mockito.mock(StringRedisTemplate.class);
+        streamOps = Mockito.mock(StreamOperations.class);
+        when(redis.opsForStream()).thenReturn(streamOps);
+
+        AppProperties props = new AppProperties();
+        props.getStreams().setRedisStreamName("security.events");
+        props.getStreams().setConsumerGroupName("exception-workers");
+        // Dedicated connections disabled: these tests cover the template path.
+        source = new RedisStreamIngestSource(redis, props, Mockito.mock(RedisStreamConnections.class));
+    }
+
+    @Test
+    void pollMapsStreamRecordsToEvents() {
+        MapRecord<String, String, String> withId = mockRecord("1-0", Map.of("securityId", "SEC_A"));
+        MapRecord<String, String, String> withoutId = mockRecord("2-0", Map.of("other", "x"));
+        when(streamOps.read(any(Consumer.class), any(StreamReadOptions.class), any(StreamOffset.class)))
+                .thenReturn((List) List.of(withId, withoutId));
+
+        List<IngestEvent> events = source.poll(200, Duration.ofSeconds(5));
+
+        // Missing securityId surfaces as null so the consumer ACKs it as poison.
+        assertThat(events).containsExactly(new IngestEvent("1-0", "SEC_A", 1), new IngestEvent("2-0", null, 2));
+    }
+
+    @Test
+    void ackSendsOneXackForAllEvents() {
+        source.ack(List.of(new IngestEvent("1-0", "SEC_A"), new IngestEvent("2-0", "SEC_B")));
+
+        verify(streamOps).acknowledge("security.events", "exception-workers", RecordId.of("1-0"), RecordId.of("2-0"));
+    }
+
+    @Test
+    void reclaimClaimsOnlyEntriesIdlePastThreshold() {
+        PendingMessagesSummary summary = Mockito.mock(PendingMessagesSummary.class);
+        PendingMessages pending = Mockito.mock(PendingMessages.class);
+        PendingMessage stale = Mockito.mock(PendingMessage.class);
+        PendingMessage fresh = Mockito.mock(PendingMessage.class);
+        MapRecord<String, String, String> claimed = mockRecord("10-0", Map.of("securityId", "SEC_X"));
+
+        when(summary.getTotalPendingMessages()).thenReturn(2L);
+        when(streamOps.pending("security.events", "exception-workers")).thenReturn(summary);
+        when(streamOps.pending(eq("security.events"), eq("exception-workers"), any(Range.class), eq(2L)))
+                .thenReturn(pending);
+        when(pending.isEmpty()).thenReturn(false);
+        when(pending.size()).thenReturn(2);
+        when(pending.iterator()).thenReturn(List.of(stale, fresh).iterator());
+        when(stale.getElapsedTimeSinceLastDelivery()).thenReturn(Duration.ofMinutes(2));
+        when(stale.getId()).thenReturn(RecordId.of("10-0"));
+        when(fresh.getElapsedTimeSinceLastDelivery()).thenReturn(Duration.ofSeconds(1));
+        when(fresh.getId()).thenReturn(RecordId.of("11-0"));
+
+        when(streamOps.claim(
+                eq("security.events"),
+                eq("exception-workers"),
+                any(String.class),
+                eq(Duration.ofMillis(60_000L)),
+                eq(RecordId.of("10-0"))
+        )).thenReturn((List) List.of(claimed));
+
+        List<IngestEvent> events = source.reclaim(64, Duration.ofMillis(60_000L));
+
+        assertThat(events).containsExactly(new IngestEvent("10-0", "SEC_X", 10));
+    }
+
+    @Test
+    void reclaimSkipsClaimWhenNothingPending() {
+        PendingMessagesSummary summary = Mockito.mock(PendingMessagesSummary.class);
+        when(summary.getTotalPendingMessages()).thenReturn(0L);
+        when(streamOps.pending("security.events", "exception-workers")).thenReturn(summary);
+
+        assertThat(source.reclaim(64, Duration.ofMillis(60_000L))).isEmpty();
+        verify(streamOps, never()).claim(any(), any(), any(), any(Duration.class), any(RecordId[].class));
+    }
+
+    private static MapRecord<String, String, String> mockRecord(String id, Map<String, String> value) {
+        MapRecord<String, String, String> record = Mockito.mock(MapRecord.class);
+        when(record.getId()).thenReturn(RecordId.of(id));
+        when(record.getValue()).thenReturn(value);
+        return record;
+    }
+}
@@ -0,0 +1,131 @@
+package com.hedgefund.exceptionprocessor.jfr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for JfrRecordings.
+ *
+ * Verifies that an on-demand recording captures this service's events (every publish,
+ * not only the slow ones) but no credential-bearing JDK events and can be downloaded
+ * while running, that stop/close manage only known recordings, and that the duration,
+ * concurrency, retention and settings limits hold.
+ */
+@Tag("native")
+class JfrRecordingsTest {
+
+    @TempDir
+    Path dumpDir;
+
+    private JfrRecordings recordings;
+
+    @BeforeEach
+    void setUp() {
+        AppProperties props = new AppProperties();
+        props.getJfr().setContinuous(false);
+        props.getJfr().setMaxOnDemand(1);
+        props.getJfr().setOnDemandMaxDurationMs(60_000);
+        props.getJfr().setDumpDir(dumpDir.toString());
+        recordings = new JfrRecordings(props);
+        recordings.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        recordings.stop();
+    }
+
+    @Test
+    void onDemandRecordingCapturesServiceEventsAndDumpsWhileRunning() throws Exception {
+        JfrRecordings.RecordingInfo info = recordings.start("test", "default", Duration.ofSeconds(30));
+        assertThat(info.state()).isEqualTo("RUNNING");
+
+        // A fast publish: under the 10 ms threshold, still recorded on demand.
+        PublishEvent publish = new PublishEvent();
+        publish.begin();
+        publish.securityId = "SEC_A";
+        publish.rows = 3;
+        publish.published = 3;
+        publish.commit();
+        DbFetchEvent fetch = new DbFetchEvent();
+        fetch.begin();
+        fetch.finish(5, 3, true);
+
+        Path file = recordings.dump(info.id());
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().startsWith("com.hedgefund.exceptions."))
+                .toList();
+        assertThat(events).extracting(e -> e.getEventType().getName())
+                .contains("com.hedgefund.exceptions.Publish", "com.hedgefund.exceptions.DbFetch");
+        RecordedEvent recordedFetch = events.stream()
+                .filter(e -> e.getEventType().getName().equals("com.hedgefund.exceptions.DbFetch"))
+                .findFirst().orElseThrow();
+        assertThat(recordedFetch.getInt("securityIds")).isEqualTo(5);
+        assertThat(recordedFetch.getInt("rows")).isEqualTo(3);
+        assertThat(recordedFetch.getBoolean("replica")).isTrue();
+        // Credential-bearing JDK events are left out.
+        assertThat(RecordingFile.readAllEvents(file)).extracting(e -> e.getEventType().getName())
+                .doesNotContainAnyElementsOf(JfrRecordings.SENSITIVE_EVENTS);
+        // Dumping copied the data; the recording itself keeps running.
+        assertThat(recordings.list()).singleElement().extracting(JfrRecordings.RecordingInfo::state).isEqualTo("RUNNING");
+    }
+
+    @Test
+    void stopKeepsDataUntilClose() throws Exception {
+        long id = recordings.start(null, null, null).id();
+
+        assertThat(recordings.stop(id).state()).isEqualTo("STOPPED");
+        Path file = recordings.dump(id);
+        assertThat(Files.size(file)).isPositive();
+
+        assertThat(recordings.close(id)).isTrue();
+        assertThat(file).doesNotExist();
+        assertThat(recordings.list()).isEmpty();
+        // Unknown ids: nothing to stop, dump or close.
+        assertThat(recordings.stop(id)).isNull();
+        assertThat(recordings.dump(id)).isNull();
+        assertThat(recordings.close(id)).isFalse();
+    }
+
+    @Test
+    void rejectsRequestsOverTheLimits() throws Exception {
+        assertThatThrownBy(() -> recordings.start(null, null, Duration.ofHours(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> recordings.start(null, "no-such-settings", null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("no-such-settings");
+
+        recordings.start(null, null, null);
+        // max-on-demand = 1 already running.
+        assertThatThrownBy(() -> recordings.start(null, null, null))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void newRecordingEvictsTheOldestStoppedOne() throws Exception {
+        long first = recordings.start(null, null, null).id();
+        recordings.stop(first);
+        Path firstDump = recordings.dump(first);
+
+        // max-on-demand = 1: the stopped recording counts, and makes room together with its dump.
+        long second = recordings.start(null, null, null).id();
+
+        assertThat(recordings.list()).extracting(JfrRecordings.RecordingInfo::id).containsExactly(second);
+        assertThat(firstDump).doesNotExist();
+        assertThat(recordings.dump(first)).isNull();
+    }
+}
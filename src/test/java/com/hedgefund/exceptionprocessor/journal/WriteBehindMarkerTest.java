@@ -0,0 +1,114 @@
+package com.hedgefund.exceptionprocessor.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.repo.ExceptionRecordRepository;
+import com.hedgefund.exceptionprocessor.repo.PublishLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+/**
+ * Unit tests for WriteBehindMarker.
+ *
+ * Journaled rows must stay hidden from page reads until Postgres has them, survive a
+ * failed flush and a restart, and be marked with one bulk UPDATE per flush.
+ */
+class WriteBehindMarkerTest {
+    private static final Instant PUBLISHED = Instant.parse("2024-01-01T00:00:00.123456Z");
+
+    @TempDir
+    Path dir;
+
+    private AppProperties props;
+    private ExceptionRecordRepository repo;
+
+    @BeforeEach
+    void setUp() {
+        props = new AppProperties();
+        props.getWriteBehind().setEnabled(true);
+        props.getWriteBehind().setJournalDir(dir.toString());
+        // Only explicit flush() calls in these tests.
+        props.getWriteBehind().setFlushIntervalMs(3_600_000);
+        repo = Mockito.mock(ExceptionRecordRepository.class);
+    }
+
+    @Test
+    void hidesJournaledRowsUntilFlushedInOneBulkUpdate() throws Exception {
+        WriteBehindMarker marker = newMarker();
+        List<ExceptionRecord> rows = rows(1L, 2L);
+
+        assertThat(marker.offer(rows, noCoordinates(2), PUBLISHED)).isTrue();
+        // Both rows still look pending in Postgres; page reads must skip them.
+        assertThat(marker.withoutUnflushed(rows(1L, 2L, 3L))).extracting(ExceptionRecord::getId).containsExactly(3L);
+
+        marker.flush();
+
+        verify(repo).markProcessedIfPending(List.of(1L, 2L), PUBLISHED);
+        assertThat(marker.withoutUnflushed(rows(1L, 2L, 3L))).hasSize(3);
+        marker.destroy();
+    }
+
+    @Test
+    void keepsMarksAcrossFailedFlushAndRestart() throws Exception {
+        WriteBehindMarker marker = newMarker();
+        marker.offer(rows(7L), noCoordinates(1), PUBLISHED);
+        when(repo.markProcessedIfPending(any(), any())).thenThrow(new IllegalStateException("db down"));
+
+        assertThatThrownBy(marker::flush).isInstanceOf(IllegalStateException.class);
+        // Still hidden: the row is published, only its mark is late.
+        assertThat(marker.withoutUnflushed(rows(7L))).isEmpty();
+        // Shutdown flush fails as well; the journal keeps the mark.
+        marker.destroy();
+
+        ExceptionRecordRepository restartedRepo = Mockito.mock(ExceptionRecordRepository.class);
+        WriteBehindMarker restarted = new WriteBehindMarker(
+                props, restartedRepo, Mockito.mock(PublishLedger.class), new SimpleMeterRegistry());
+        restarted.destroy();
+
+        // Replayed and flushed on the new instance (right after start, or by its shutdown flush).
+        verify(restartedRepo, Mockito.atLeastOnce()).markProcessedIfPending(eq(List.of(7L)), eq(PUBLISHED));
+        verify(repo, times(2)).markProcessedIfPending(any(), any());
+    }
+
+    @Test
+    void declinesOffersWhenTooManyMarksAreWaiting() throws Exception {
+        props.getWriteBehind().setMaxPendingMarks(1);
+        WriteBehindMarker marker = newMarker();
+
+        assertThat(marker.offer(rows(1L), noCoordinates(1), PUBLISHED)).isTrue();
+        // Caller falls back to synchronous marking.
+        assertThat(marker.offer(rows(2L), noCoordinates(1), PUBLISHED)).isFalse();
+        marker.destroy();
+    }
+
+    private WriteBehindMarker newMarker() throws Exception {
+        return new WriteBehindMarker(props, repo, Mockito.mock(PublishLedger.class), new SimpleMeterRegistry());
+    }
+
+    private static List<RecordMetadata> noCoordinates(int n) {
+        // Unknown broker coordinates are journaled as -1.
+        return Collections.nCopies(n, null);
+    }
+
+    private static List<ExceptionRecord> rows(Long... ids) {
+        // Helper: only ids matter to the marker.
+        return Arrays.stream(ids).map(id -> ExceptionRecord.builder().id(id).build()).toList();
+    }
+}
@@ -0,0 +1,123 @@
+package com.hedgefund.exceptionprocessor.lane;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for KeyedLaneExecutor.
+ *
+ * Lanes exist for one guarantee, so the tests focus on it: work for a key runs in
+ * submission order on a single thread. Backpressure, shutdown and hot-key reporting are
+ * checked too.
+ */
+@Tag("native")
+class KeyedLaneExecutorTest {
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private KeyedLaneExecutor lanes;
+
+    @AfterEach
+    void tearDown() {
+        lanes.destroy();
+    }
+
+    @Test
+    void runsWorkForOneLaneInSubmissionOrder() {
+        lanes = new KeyedLaneExecutor(true, 4, 0, 1_000, 8, 1_000_000, 0.5, meters);
+        int lane = lanes.laneOf("SEC_A");
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+        // Queue many tasks for one lane; they must run one by one, in order, on the lane thread.
+        List<CompletableFuture<Integer>> futures = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            futures.add(lanes.submit(lane, List.of("SEC_A"), () -> {
+                order.add(n);
+                threads.add(Thread.currentThread().getName());
+                return n;
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(order).isSorted().hasSize(200);
+        assertThat(threads).containsOnly("lane-" + lane);
+    }
+
+    @Test
+    void rejectsWhenLaneQueueIsFull() throws Exception {
+        lanes = new KeyedLaneExecutor(true, 1, 0, 2, 8, 1_000_000, 0.5, meters);
+        CountDownLatch release = new CountDownLatch(1);
+        // First task blocks the lane; the second waits in the queue.
+        lanes.submit(0, List.of("SEC_A"), () -> awaitQuietly(release));
+        lanes.submit(0, List.of("SEC_B"), () -> true);
+
+        assertThatThrownBy(() -> lanes.submit(0, List.of("SEC_C"), () -> true))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(meters.get("exceptions.lane.depth").tag("lane", "0").gauge().value()).isEqualTo(2.0);
+        release.countDown();
+    }
+
+    @Test
+    void shutdownFinishesTheRunningTaskAndFailsQueuedOnes() throws Exception {
+        lanes = new KeyedLaneExecutor(true, 1, 0, 10, 8, 1_000_000, 0.5, meters);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = lanes.submit(0, List.of("SEC_A"), () -> {
+            started.countDown();
+            return awaitQuietly(release);
+        });
+        CompletableFuture<Boolean> queued = lanes.submit(0, List.of("SEC_B"), () -> true);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        lanes.destroy();
+
+        // Queued work never runs, but its caller hears about it right away.
+        assertThat(queued).isCompletedExceptionally();
+        assertThatThrownBy(queued::join).hasCauseInstanceOf(RejectedExecutionException.class);
+        // The task already running completes normally.
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThatThrownBy(() -> lanes.submit(0, List.of("SEC_C"), () -> true))
+                .isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void reportsKeyAboveShareOfWindowAsHot() {
+        // Window of 10 IDs, hot at >= 50%.
+        lanes = new KeyedLaneExecutor(true, 1, 0, 100, 4, 10, 0.5, meters);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(i % 5 == 4 ? "SEC_" + i : "SEC_HOT");
+        }
+        lanes.submit(0, ids, () -> true).join();
+        // Detection runs right after the task body; wait for the lane to record it.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (lanes.hotKeys().isEmpty() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+
+        assertThat(lanes.hotKeys()).extracting(HotKeyDetector.HotKey::securityId).containsExactly("SEC_HOT");
+        assertThat(meters.get("exceptions.lane.hot.keys").counter().count()).isEqualTo(1.0);
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.hedgefund.exceptionprocessor.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.ingest.InMemoryIngestSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Offline end-to-end load test: trigger source -> StreamsConsumer -> DB -> Kafka.
+ *
+ * Runs the real application context against local stand-ins: embedded Kafka broker,
+ * H2 in PostgreSQL mode, and the in-memory ingest source (no Redis needed). Pass
+ * {@code -Dloadtest.source=redis-stream} plus {@code -Dspring.data.redis.host=...} to
+ * XADD into a real Redis instead.
+ *
+ * Two phases:
+ * 1) backlog drain: N securityIds x M pre-seeded rows, one event per securityId;
+ * 2) steady state: insert one row + emit one event at a fixed rate, measuring
+ *    insert-to-Kafka latency per row.
+ *
+ * Both phases are timed from the first emitted event to the last row seen on Kafka
+ * (or the last event ack, if later), so {@code eventsPerSecond} is processing
+ * throughput; {@code emittedEventsPerSecond} is the producer's pace.
+ *
+ * Results go to {@code target/loadtest/report.json} for trend tracking.
+ * Run with: {@code mvn -Ploadtest test [-Dloadtest.securityIds=..] [-Dloadtest.rowsPerId=..]
+ * [-Dloadtest.eventsPerSecond=..] [-Dloadtest.steadySeconds=..]}
+ */
+@Tag("loadtest")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {
+                "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+                "spring.datasource.url=jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "app.sweeper.enabled=false",
+                "logging.level.com.hedgefund.exceptionprocessor=WARN"
+        }
+)
+@EmbeddedKafka(partitions = 4, topics = "exception-records")
+class PipelineLoadTest {
+    private static final int SECURITY_IDS = Integer.getInteger("loadtest.securityIds", 200);
+    private static final int ROWS_PER_ID = Integer.getInteger("loadtest.rowsPerId", 50);
+    private static final int EVENTS_PER_SECOND = Integer.getInteger("loadtest.eventsPerSecond", 1_000);
+    private static final int STEADY_SECONDS = Integer.getInteger("loadtest.steadySeconds", 10);
+    private static final String SOURCE = System.getProperty("loadtest.source", "memory");
+    private static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(5);
+
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+    @Autowired
+    private AppProperties props;
+    @Autowired(required = false)
+    private InMemoryIngestSource memorySource;
+    @Autowired(required = false)
+    private StringRedisTemplate redis;
+
+    // Row id -> insert time (nanoTime), for steady-state latency.
+    private final Map<Long, Long> insertedAtNanos = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> latenciesNanos = new ConcurrentLinkedQueue<>();
+    private final AtomicLong rowsReceived = new AtomicLong();
+    // nanoTime at which the reader saw the latest published row.
+    private final AtomicLong lastReceivedNanos = new AtomicLong();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @DynamicPropertySource
+    static void ingestSource(DynamicPropertyRegistry registry) {
+        registry.add("app.ingest.source", () -> SOURCE);
+    }
+
+    @Test
+    void measuresBacklogDrainAndSteadyStateThroughput() throws Exception {
+        Consumer<String> emit = emitter();
+        AtomicBoolean consuming = new AtomicBoolean(true);
+        Thread kafkaReader = startKafkaReader(consuming);
+        String[] securityIds = new String[SECURITY_IDS];
+        for (int i = 0; i < SECURITY_IDS; i++) {
+            securityIds[i] = "SEC_" + i;
+        }
+
+        // Phase 1: backlog drain.
+        long backlogRows = (long) SECURITY_IDS * ROWS_PER_ID;
+        seedBacklog(securityIds);
+        long drainStart = System.nanoTime();
+        for (String securityId : securityIds) {
+            emit.accept(securityId);
+        }
+        awaitRows(backlogRows);
+        long drainEvents = SECURITY_IDS;
+        double drainSeconds = (awaitDone(drainEvents) - drainStart) / 1e9;
+
+        // Phase 2: steady state at a fixed event rate, one new row per event.
+        long steadyEvents = (long) EVENTS_PER_SECOND * STEADY_SECONDS;
+        // First event is emitted right away (due = steadyStart).
+        long steadyStart = System.nanoTime();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, EVENTS_PER_SECOND);
+        for (long i = 0; i < steadyEvents; i++) {
+            long due = steadyStart + i * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            String securityId = securityIds[(int) (i % SECURITY_IDS)];
+            insertedAtNanos.put(insertRow(securityId), System.nanoTime());
+            emit.accept(securityId);
+        }
+        double emitSeconds = (System.nanoTime() - steadyStart) / 1e9;
+        awaitRows(backlogRows + steadyEvents);
+        // Processing throughput: first emit to the last publish (or ack), not the emit loop's pace.
+        double steadySeconds = (awaitDone(drainEvents + steadyEvents) - steadyStart) / 1e9;
+
+        consuming.set(false);
+        kafkaReader.join(TimeUnit.SECONDS.toMillis(10));
+
+        long[] latencies = latenciesNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("source", SOURCE);
+        report.put("securityIds", SECURITY_IDS);
+        report.put("rowsPerId", ROWS_PER_ID);
+        report.put("workerThreads", props.getWorker().getMaxPoolSize());
+        report.put("maxInFlightBatches", props.getBatch().getMaxInFlightBatches());
+        report.put("backlogRows", backlogRows);
+        report.put("backlogDrainSeconds", round(drainSeconds));
+        report.put("backlogRowsPublishedPerSecond", round(backlogRows / drainSeconds));
+        report.put("targetEventsPerSecond", EVENTS_PER_SECOND);
+        report.put("steadyEvents", steadyEvents);
+        report.put("emittedEventsPerSecond", round(steadyEvents / emitSeconds));
+        report.put("steadySeconds", round(steadySeconds));
+        report.put("eventsPerSecond", round(steadyEvents / steadySeconds));
+        report.put("steadyRowsPublishedPerSecond", round(steadyEvents / steadySeconds));
+        report.put("latencyP50Ms", round(percentile(latencies, 0.50) / 1e6));
+        report.put("latencyP99Ms", round(percentile(latencies, 0.99) / 1e6));
+        report.put("latencyMaxMs", round(latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6));
+        if (memorySource != null) {
+            report.put("eventsAcked", memorySource.ackedCount());
+        }
+
+        Path out = Path.of("target", "loadtest", "report.json");
+        Files.createDirectories(out.getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(out.toFile(), report);
+        System.out.println("Load test report (" + out.toAbsolutePath() + "):\n"
+                + objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+
+        assertThat(rowsReceived.get()).isGreaterThanOrEqualTo(backlogRows + steadyEvents);
+    }
+
+    private Consumer<String> emitter() {
+        if ("memory".equals(SOURCE)) {
+            return memorySource::publish;
+        }
+        String stream = props.getStreams().getRedisStreamName();
+        return securityId -> redis.opsForStream().add(
+                StreamRecords.newRecord().in(stream).ofMap(Map.of("securityId", securityId))
+        );
+    }
+
+    private void seedBacklog(String[] securityIds) {
+        Instant base = Instant.now().minus(Duration.ofHours(1));
+        List<Object[]> rows = new ArrayList<>(1_000);
+        for (String securityId : securityIds) {
+            for (int r = 0; r < ROWS_PER_ID; r++) {
+                rows.add(new Object[]{"loadtest", "LOW", "seeded", Timestamp.from(base.plusMillis(r)), securityId});
+                if (rows.size() == 1_000) {
+                    insertBatch(rows);
+                    rows.clear();
+                }
+            }
+        }
+        insertBatch(rows);
+    }
+
+    private void insertBatch(List<Object[]> rows) {
+        jdbc.batchUpdate(
+                "insert into exceptions(service_name, severity, message, occurred_at, security_id) values (?, ?, ?, ?, ?)",
+                rows
+        );
+    }
+
+    private long insertRow(String securityId) {
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "insert into exceptions(service_name, severity, message, occurred_at, security_id) values (?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS
+            );
+            ps.setString(1, "loadtest");
+            ps.setString(2, "HIGH");
+            ps.setString(3, "steady");
+            ps.setTimestamp(4, Timestamp.from(Instant.now()));
+            ps.setString(5, securityId);
+            return ps;
+        }, keys);
+        return ((Number) keys.getKeys().get("id")).longValue();
+    }
+
+    private Thread startKafkaReader(AtomicBoolean consuming) {
+        Map<String, Object> config = KafkaTestUtils.consumerProps("loadtest-reader", "true", broker);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        KafkaConsumer<String, String> consumer = new KafkaConsumer<>(config);
+        consumer.subscribe(List.of(props.getKafka().getTopic()));
+        Thread reader = new Thread(() -> {
+            try (consumer) {
+                while (consuming.get()) {
+                    for (ConsumerRecord<String, String> rec : consumer.poll(Duration.ofMillis(100))) {
+                        long now = System.nanoTime();
+                        rowsReceived.incrementAndGet();
+                        lastReceivedNanos.set(now);
+                        try {
+                            Long insertedAt = insertedAtNanos.remove(objectMapper.readTree(rec.value()).path("id").asLong());
+                            if (insertedAt != null) {
+                                latenciesNanos.add(now - insertedAt);
+                            }
+                        } catch (Exception ignored) {
+                            // Non-DTO payloads do not count towards latency.
+                        }
+                    }
+                }
+            }
+        }, "loadtest-kafka-reader");
+        // auto.offset.reset=earliest: records published before the group join are still read.
+        reader.start();
+        return reader;
+    }
+
+    private void awaitRows(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (rowsReceived.get() < expected && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    /**
+     * Waits until {@code events} events in total are acked (in-memory source only) and
+     * returns when the phase finished: the last publish seen on Kafka, or the last ack if
+     * that came later. Ack completion is polled, so it is accurate to about 10 ms.
+     */
+    private long awaitDone(long events) throws InterruptedException {
+        long done = lastReceivedNanos.get();
+        if (memorySource == null) {
+            return done;
+        }
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (memorySource.ackedCount() < events && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+            done = System.nanoTime();
+        }
+        return Math.max(done, lastReceivedNanos.get());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,65 @@
+package com.hedgefund.exceptionprocessor.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for LogSampler.
+ *
+ * Verifies the per-second cap, that suppressed lines are reported once on the next
+ * logged line, and that the cap is read on every call (0 = log everything).
+ */
+@Tag("native")
+class LogSamplerTest {
+
+    @Test
+    void letsThroughTheCapPerSecondAndCountsTheRest() {
+        LogSampler sampler = LogSampler.perSecond(3);
+
+        int logged = 0;
+        for (int i = 0; i < 100; i++) {
+            if (sampler.tryAcquire()) {
+                logged++;
+            }
+        }
+
+        // All 100 calls fall in one window: 3 logged, 97 counted.
+        assertThat(logged).isEqualTo(3);
+        assertThat(sampler.takeSuppressed()).isEqualTo(97);
+        // Reported once, then reset.
+        assertThat(sampler.takeSuppressed()).isZero();
+    }
+
+    @Test
+    void opensANewWindowAfterOneSecond() throws InterruptedException {
+        LogSampler sampler = LogSampler.perSecond(1);
+        assertThat(sampler.tryAcquire()).isTrue();
+        assertThat(sampler.tryAcquire()).isFalse();
+
+        Thread.sleep(1_050);
+
+        // New window: the next line goes through and can report the one left out.
+        assertThat(sampler.tryAcquire()).isTrue();
+        assertThat(sampler.takeSuppressed()).isEqualTo(1);
+    }
+
+    @Test
+    void readsTheCapOnEveryCall() {
+        AtomicInteger cap = new AtomicInteger(0);
+        LogSampler sampler = new LogSampler(cap::get);
+
+        // 0 = unsampled: every line is logged.
+        for (int i = 0; i < 50; i++) {
+            assertThat(sampler.tryAcquire()).isTrue();
+        }
+        assertThat(sampler.takeSuppressed()).isZero();
+
+        // Lowered at runtime: takes effect on the next call.
+        cap.set(1);
+        assertThat(sampler.tryAcquire()).isTrue();
+        assertThat(sampler.tryAcquire()).isFalse();
+    }
+}
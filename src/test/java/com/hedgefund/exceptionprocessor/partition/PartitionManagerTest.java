@@ -0,0 +1,49 @@
+package com.hedgefund.exceptionprocessor.partition;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for PartitionManager range planning.
+ *
+ * New partitions must be contiguous with the existing ones (never overlapping, whatever
+ * width they were created with) and reach `premake` partitions past the current one.
+ */
+@Tag("native")
+class PartitionManagerTest {
+
+    @Test
+    void emptyTableStartsAtTodayUtcAndPremakesAhead() {
+        Instant now = Instant.parse("2024-03-10T15:30:00Z");
+
+        List<PartitionManager.Range> ranges = PartitionManager.plannedRanges(null, now, 7, 2);
+
+        // Current partition + 2 ahead.
+        assertThat(ranges).extracting(PartitionManager.Range::from).containsExactly(
+                Instant.parse("2024-03-10T00:00:00Z"),
+                Instant.parse("2024-03-17T00:00:00Z"),
+                Instant.parse("2024-03-24T00:00:00Z"));
+        assertThat(ranges.get(2).to()).isEqualTo(Instant.parse("2024-03-31T00:00:00Z"));
+    }
+
+    @Test
+    void continuesFromHighestUpperBoundAndStopsWhenFarEnoughAhead() {
+        Instant now = Instant.parse("2024-03-10T15:30:00Z");
+        // Existing partitions (e.g. the legacy one) end mid-week: continue exactly there.
+        Instant highest = Instant.parse("2024-03-12T00:00:00Z");
+
+        List<PartitionManager.Range> ranges = PartitionManager.plannedRanges(highest, now, 7, 2);
+
+        // The existing partition holds `now`; two more follow it.
+        assertThat(ranges).extracting(PartitionManager.Range::from).containsExactly(
+                Instant.parse("2024-03-12T00:00:00Z"),
+                Instant.parse("2024-03-19T00:00:00Z"));
+
+        // Already covered: nothing to create.
+        assertThat(PartitionManager.plannedRanges(Instant.parse("2024-04-30T00:00:00Z"), now, 7, 1)).isEmpty();
+    }
+}
@@ -0,0 +1,114 @@
+package com.hedgefund.exceptionprocessor.partition;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hedgefund.exceptionprocessor.ingest.PostgresNotifyIngestSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+/**
+ * Checks that the partitioning migration keeps the postgres-notify insert trigger.
+ *
+ * Needs a real Postgres (13+): set `PG_TEST_JDBC_URL` (plus `PG_TEST_JDBC_USER` /
+ * `PG_TEST_JDBC_PASSWORD`). Runs in a throwaway schema and drops it afterwards.
+ */
+@Tag("native")
+@EnabledIfEnvironmentVariable(named = "PG_TEST_JDBC_URL", matches = ".+")
+class PartitionMigrationTriggerTest {
+    private static final String SCHEMA = "partition_migration_trigger_test";
+
+    private Connection connection;
+    private SingleConnectionDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getenv("PG_TEST_JDBC_URL"), System.getenv("PG_TEST_JDBC_USER"), System.getenv("PG_TEST_JDBC_PASSWORD"));
+        execute("drop schema if exists " + SCHEMA + " cascade");
+        execute("create schema " + SCHEMA);
+        execute("set search_path to " + SCHEMA);
+        dataSource = new SingleConnectionDataSource(connection, true);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try {
+            execute("drop schema if exists " + SCHEMA + " cascade");
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    void insertThroughPartitionedParentStillNotifies() throws SQLException {
+        // Pre-partitioning table as Hibernate creates it, with the notify trigger installed.
+        execute("""
+                create table exceptions (
+                    id bigint generated by default as identity primary key,
+                    service_name varchar(255) not null,
+                    severity varchar(255) not null,
+                    message varchar(255) not null,
+                    occurred_at timestamp(6) with time zone not null,
+                    security_id varchar(255) not null,
+                    processed_at timestamp(6) with time zone,
+                    stacktrace varchar(255),
+                    correlation_id varchar(255))""");
+        apply(new ByteArrayResource(
+                PostgresNotifyIngestSource.triggerScript("trade_exceptions").getBytes(StandardCharsets.UTF_8)));
+
+        apply(new ClassPathResource(PartitionManager.MIGRATION));
+
+        // The trigger left the legacy partition and sits on the parent, same channel.
+        assertThat(query("select c.relname from pg_trigger t join pg_class c on c.oid = t.tgrelid"
+                + " where t.tgname = 'exceptions_notify_insert' and c.relnamespace = '" + SCHEMA + "'::regnamespace"))
+                .containsExactly("exceptions");
+
+        execute("listen trade_exceptions");
+        execute("insert into exceptions (service_name, severity, message, occurred_at, security_id)"
+                + " values ('svc', 'LOW', 'boom', now(), 'SEC_A'), ('svc', 'LOW', 'boom', now(), 'SEC_A')");
+
+        PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications(5_000);
+        assertThat(notifications).extracting(PGNotification::getParameter).containsExactly("SEC_A");
+    }
+
+    private void apply(Resource script) {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(script);
+        populator.setSeparator(ScriptUtils.EOF_STATEMENT_SEPARATOR);
+        populator.execute(dataSource);
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private List<String> query(String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+        }
+        return values;
+    }
+}
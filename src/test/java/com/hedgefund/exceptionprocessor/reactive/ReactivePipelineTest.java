@@ -0,0 +1,168 @@
+package com.hedgefund.exceptionprocessor.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.ingest.IngestEvent;
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.persistence.Severity;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.ReactiveStreamOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for ReactivePipeline batch handling.
+ *
+ * The reactive engine must keep the ACK contract of StreamsConsumer: only events whose
+ * securityId was fully published (plus invalid/duplicate ones) are ACKed, in one call.
+ */
+@SuppressWarnings("unchecked")
+class ReactivePipelineTest {
+    private ReactiveStreamOperations<String, Object, Object> streamOps;
+    private ReactiveRowStore rows;
+    private ReactiveRecordSender sender;
+    private AppProperties props;
+    private ReactivePipeline pipeline;
+    // Record IDs passed to XACK, across calls.
+    private List<String> acked;
+
+    @BeforeEach
+    void setUp() {
+        ReactiveStringRedisTemplate redis = Mockito.mock(ReactiveStringRedisTemplate.class);
+        streamOps = Mockito.mock(ReactiveStreamOperations.class);
+        when(redis.opsForStream()).thenReturn((ReactiveStreamOperations) streamOps);
+        acked = new ArrayList<>();
+        when(streamOps.acknowledge(any(), any(), any(RecordId[].class))).thenAnswer(inv -> {
+            for (int i = 2; i < inv.getArguments().length; i++) {
+                acked.add(((RecordId) inv.getArgument(i)).getValue());
+            }
+            return Mono.just((long) inv.getArguments().length - 2);
+        });
+
+        rows = Mockito.mock(ReactiveRowStore.class);
+        sender = Mockito.mock(ReactiveRecordSender.class);
+        // By default every row sends and every update succeeds.
+        when(sender.send(anyList())).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+        when(rows.markProcessed(anyList(), any())).thenAnswer(inv -> Mono.just((long) ((List<?>) inv.getArgument(0)).size()));
+
+        props = new AppProperties();
+        props.getPaging().setPageSize(2);
+        pipeline = new ReactivePipeline(redis, rows, sender, props);
+    }
+
+    @Test
+    void acksSuccessfulAndInvalidEventsOnly() {
+        // SEC_A publishes, SEC_B fails to send, the blank and duplicate events are ACKed as-is.
+        ExceptionRecord a = row(1L, "SEC_A");
+        ExceptionRecord b = row(2L, "SEC_B");
+        when(rows.pendingPage(eq("SEC_A"), isNull(), anyInt())).thenReturn(Mono.just(List.of(a)));
+        when(rows.pendingPage(eq("SEC_B"), isNull(), anyInt())).thenReturn(Mono.just(List.of(b)));
+        when(sender.send(List.of(b))).thenReturn(Mono.just(List.of()));
+
+        pipeline.handleBatch(List.of(
+                new IngestEvent("1-0", "SEC_A"),
+                new IngestEvent("2-0", "SEC_B"),
+                new IngestEvent("3-0", " "),
+                new IngestEvent("4-0", "SEC_A")
+        )).block();
+
+        assertThat(acked).containsExactlyInAnyOrder("1-0", "3-0", "4-0");
+        // Only sent rows are marked processed.
+        verify(rows).markProcessed(eq(List.of(1L)), any(Instant.class));
+        verify(rows, never()).markProcessed(eq(List.of(2L)), any(Instant.class));
+    }
+
+    @Test
+    void continuesFromLastRowOfAFullPage() {
+        // Page size 2: a full first page means another keyset read after its last row.
+        ExceptionRecord r1 = row(1L, "SEC_A");
+        ExceptionRecord r2 = row(2L, "SEC_A");
+        ExceptionRecord r3 = row(3L, "SEC_A");
+        when(rows.pendingPage(eq("SEC_A"), isNull(), eq(2))).thenReturn(Mono.just(List.of(r1, r2)));
+        when(rows.pendingPage(eq("SEC_A"), same(r2), eq(2))).thenReturn(Mono.just(List.of(r3)));
+
+        assertThat(pipeline.processSecurityId("SEC_A").block()).isTrue();
+
+        verify(rows).markProcessed(eq(List.of(1L, 2L)), any(Instant.class));
+        verify(rows).markProcessed(eq(List.of(3L)), any(Instant.class));
+    }
+
+    @Test
+    void stopsPagingAfterAPartialSendFailure() {
+        // r2 fails: newer pages must not overtake it, and the ID stays pending.
+        ExceptionRecord r1 = row(1L, "SEC_A");
+        ExceptionRecord r2 = row(2L, "SEC_A");
+        when(rows.pendingPage(eq("SEC_A"), isNull(), eq(2))).thenReturn(Mono.just(List.of(r1, r2)));
+        when(sender.send(List.of(r1, r2))).thenReturn(Mono.just(List.of(r1)));
+
+        assertThat(pipeline.processSecurityId("SEC_A").block()).isFalse();
+
+        verify(rows).markProcessed(eq(List.of(1L)), any(Instant.class));
+        verify(rows, never()).pendingPage(eq("SEC_A"), same(r2), anyInt());
+    }
+
+    @Test
+    void reclaimTicksWhileEverySlotIsBusyDoNotEndThePipeline() throws InterruptedException {
+        // One batch slot, held forever by SEC_A; reclaim ticks every 5 ms find nothing to claim.
+        props.getReactive().setMaxInFlightBatches(1);
+        props.getRetry().setReclaimerIntervalMs(5);
+        props.getStreams().setRedisStreamName("exceptions-stream");
+        props.getStreams().setConsumerGroupName("processors");
+        MapRecord<String, Object, Object> event = StreamRecords.newRecord()
+                .in(props.getStreams().getRedisStreamName())
+                .withId("1-0")
+                .ofMap(Map.<Object, Object>of("securityId", "SEC_A"));
+        when(streamOps.read(any(Consumer.class), any(StreamReadOptions.class), any(StreamOffset.class)))
+                .thenReturn(Flux.just(event), Flux.never());
+        when(streamOps.pending(any(), any(String.class))).thenReturn(Mono.<PendingMessagesSummary>empty());
+        when(rows.pendingPage(eq("SEC_A"), isNull(), anyInt())).thenReturn(Mono.never());
+
+        pipeline.start();
+        try {
+            // Far more ticks than the interval's buffer while no slot frees up.
+            Thread.sleep(500);
+
+            Disposable subscription = (Disposable) ReflectionTestUtils.getField(pipeline, "subscription");
+            assertThat(subscription.isDisposed()).isFalse();
+        } finally {
+            pipeline.stop();
+        }
+    }
+
+    private static ExceptionRecord row(long id, String securityId) {
+        return ExceptionRecord.builder()
+                .id(id)
+                .serviceName("svc")
+                .severity(Severity.HIGH)
+                .message("m" + id)
+                .occurredAt(Instant.EPOCH.plusSeconds(id))
+                .securityId(securityId)
+                .build();
+    }
+}
@@ -0,0 +1,105 @@
+package com.hedgefund.exceptionprocessor.repo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Routing tests over two in-memory H2 databases standing in for primary and replica.
+ *
+ * The replica is set up as lagging: it still shows a row pending that the primary has
+ * already marked processed. Reads in an onReplica scope must see the replica only while
+ * its lag is within tolerance; writes and unscoped reads must always see the primary.
+ */
+class ReplicaRoutingDataSourceTest {
+    private AppProperties props;
+    private DataSource primary;
+    private DataSource replica;
+    private JdbcTemplate routed;
+
+    @BeforeEach
+    void setUp() {
+        primary = h2("primary");
+        replica = h2("replica");
+        // Same row on both; only the primary has it marked processed.
+        new JdbcTemplate(primary).update("insert into exceptions (id, processed_at) values (1, current_timestamp)");
+        new JdbcTemplate(replica).update("insert into exceptions (id, processed_at) values (1, null)");
+
+        props = new AppProperties();
+        props.getReadReplica().setEnabled(true);
+        props.getReadReplica().setMaxLagMs(5_000);
+        routed = new JdbcTemplate(new ReplicaRoutingDataSource(primary, replica));
+    }
+
+    @Test
+    void routesScopedReadsToReplicaAndEverythingElseToPrimary() {
+        props.getReadReplica().setLagQuery("select 0.5");
+        ReadReplicaRouting routing = routing();
+        routing.checkLag();
+        assertThat(routing.isUsable()).isTrue();
+
+        // Scoped read sees the replica's stale view.
+        assertThat(routing.onReplica(this::pendingRows)).isEqualTo(1);
+        // Unscoped read and the conditional update go to the primary.
+        assertThat(pendingRows()).isZero();
+        int marked = routed.update("update exceptions set processed_at = current_timestamp where id = 1 and processed_at is null");
+        assertThat(marked).isZero();
+        // The scope does not leak past onReplica.
+        assertThat(ReadReplicaRouting.replicaRequested()).isFalse();
+    }
+
+    @Test
+    void readsFromPrimaryWhenLagExceedsTolerance() {
+        props.getReadReplica().setLagQuery("select 12.0");
+        ReadReplicaRouting routing = routing();
+        routing.checkLag();
+
+        assertThat(routing.isUsable()).isFalse();
+        assertThat(routing.onReplica(this::pendingRows)).isZero();
+    }
+
+    @Test
+    void readsFromPrimaryBeforeFirstCheckAndAfterFailedCheck() {
+        props.getReadReplica().setLagQuery("select 0");
+        ReadReplicaRouting routing = routing();
+        // Never measured yet.
+        assertThat(routing.onReplica(this::pendingRows)).isZero();
+
+        routing.checkLag();
+        assertThat(routing.onReplica(this::pendingRows)).isEqualTo(1);
+
+        // Replica unreachable / query broken: back to the primary at once.
+        props.getReadReplica().setLagQuery("select no_such_column from exceptions");
+        routing.checkLag();
+        assertThat(routing.isUsable()).isFalse();
+        assertThat(routing.onReplica(this::pendingRows)).isZero();
+    }
+
+    private Integer pendingRows() {
+        return routed.queryForObject("select count(*) from exceptions where processed_at is null", Integer.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ReadReplicaRouting routing() {
+        ObjectProvider<DataSource> provider = Mockito.mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(replica);
+        return new ReadReplicaRouting(props, provider, new SimpleMeterRegistry());
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource ds = new JdbcDataSource();
+        // Unique per test so databases start empty; DB_CLOSE_DELAY keeps them across connections.
+        ds.setURL("jdbc:h2:mem:" + name + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        new JdbcTemplate(ds).execute("create table exceptions (id bigint primary key, processed_at timestamp)");
+        return ds;
+    }
+}
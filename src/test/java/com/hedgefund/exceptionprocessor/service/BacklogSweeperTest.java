@@ -0,0 +1,144 @@
+package com.hedgefund.exceptionprocessor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.hedgefund.exceptionprocessor.cache.CleanSecurityIdCache;
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.persistence.Severity;
+import com.hedgefund.exceptionprocessor.repo.ExceptionRecordRepository;
+import com.hedgefund.exceptionprocessor.repo.ReadReplicaRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * Unit tests for BacklogSweeper.
+ *
+ * The sweeper is the recovery path for rows whose Redis event was lost, so these
+ * tests cover leader election and that orphaned rows reach the normal publish path.
+ */
+@SuppressWarnings("unchecked")
+class BacklogSweeperTest {
+    private ExceptionRecordRepository repo;
+    private ExceptionProcessingService processingService;
+    private StringRedisTemplate redis;
+    private ValueOperations<String, String> valueOps;
+    private SimpleMeterRegistry meters;
+    private AppProperties props;
+    private BacklogSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        repo = Mockito.mock(ExceptionRecordRepository.class);
+        processingService = Mockito.mock(ExceptionProcessingService.class);
+        redis = Mockito.mock(StringRedisTemplate.class);
+        valueOps = Mockito.mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(valueOps);
+        meters = new SimpleMeterRegistry();
+
+        props = new AppProperties();
+        props.getPaging().setPageSize(10);
+        // High rate so pacing never sleeps in tests.
+        props.getSweeper().setMaxSecurityIdsPerSecond(1_000_000);
+
+        // Replica routing off: scoped reads just run.
+        ReadReplicaRouting replica = Mockito.mock(ReadReplicaRouting.class);
+        when(replica.onReplica(any())).thenAnswer(inv -> ((Supplier<?>) inv.getArgument(0)).get());
+
+        sweeper = new BacklogSweeper(
+                repo, processingService, Mockito.mock(CleanSecurityIdCache.class), redis, props, replica, meters);
+    }
+
+    @Test
+    void redrivesEachOrphanedSecurityIdOnceWhenLockAcquired() {
+        when(valueOps.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        Instant old = Instant.now().minus(Duration.ofHours(1));
+        when(repo.findOldestPendingOccurredAt()).thenReturn(old);
+        // Two rows for SEC_A and one for SEC_B; short page ends the scan.
+        when(repo.findOrphanedPage(any(), any())).thenReturn(List.of(
+                record(1L, "SEC_A", old),
+                record(2L, "SEC_B", old.plusSeconds(1)),
+                record(3L, "SEC_A", old.plusSeconds(2))
+        ));
+        when(processingService.fetchAndPublishBySecurityIdsOrdered(any()))
+                .thenReturn(CompletableFuture.completedFuture(Set.of("SEC_A", "SEC_B")));
+
+        sweeper.sweep();
+
+        // Distinct IDs in oldest-first order, handed to the same path live events use.
+        verify(processingService, times(1)).fetchAndPublishBySecurityIdsOrdered(List.of("SEC_A", "SEC_B"));
+        // Lock released with this instance's token.
+        verify(redis).execute(any(RedisScript.class), eq(List.of("exception-processor:sweeper:lock")), anyString());
+        assertThat(meters.get("exceptions.sweeper.swept.rows").counter().count()).isEqualTo(3.0);
+        assertThat(meters.get("exceptions.sweeper.redriven.security.ids").counter().count()).isEqualTo(2.0);
+        assertThat(meters.get("exceptions.sweeper.oldest.unprocessed.age.seconds").gauge().value())
+                .isGreaterThanOrEqualTo(3599.0);
+    }
+
+    @Test
+    void skipsSweepWhenAnotherInstanceHoldsLock() {
+        when(valueOps.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+
+        sweeper.sweep();
+
+        verify(repo, never()).findOrphanedPage(any(), any());
+        verify(processingService, never()).fetchAndPublishBySecurityIdsOrdered(any());
+    }
+
+    @Test
+    void interruptedPacingStopsTheRunAndKeepsTheInterruptFlag() {
+        when(valueOps.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        Instant old = Instant.now().minus(Duration.ofHours(1));
+        when(repo.findOrphanedPage(any(), any())).thenReturn(List.of(
+                record(1L, "SEC_A", old),
+                record(2L, "SEC_B", old.plusSeconds(1))
+        ));
+        when(processingService.fetchAndPublishBySecurityIdsOrdered(any()))
+                .thenReturn(CompletableFuture.completedFuture(Set.of("SEC_A")));
+        // One ID per chunk at 1/s: the second chunk has to sleep.
+        props.getBatch().setSecurityIdQueryChunkSize(1);
+        props.getSweeper().setMaxSecurityIdsPerSecond(1);
+
+        Thread.currentThread().interrupt();
+        try {
+            sweeper.sweep();
+            // The flag survives for whoever owns the thread (the scheduler on shutdown).
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+
+        // The sleep threw before SEC_B was dispatched, and the lock was still released.
+        verify(processingService, times(1)).fetchAndPublishBySecurityIdsOrdered(any());
+        verify(redis).execute(any(RedisScript.class), eq(List.of("exception-processor:sweeper:lock")), anyString());
+    }
+
+    private static ExceptionRecord record(Long id, String securityId, Instant occurredAt) {
+        return ExceptionRecord.builder()
+                .id(id)
+                .serviceName("svc")
+                .severity(Severity.LOW)
+                .message("boom")
+                .occurredAt(occurredAt)
+                .securityId(securityId)
+                .build();
+    }
+}
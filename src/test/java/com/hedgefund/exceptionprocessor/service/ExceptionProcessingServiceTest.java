@@ -2,21 +2,45 @@ package com.hedgefund.exceptionprocessor.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.hedgefund.exceptionprocessor.cache.CleanSecurityIdCache;
+import com.hedgefund.exceptionprocessor.batch.SecurityIdInterner;
 import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.batch.IdBatch;
+import com.hedgefund.exceptionprocessor.dto.ExceptionRecordDTO;
+import com.hedgefund.exceptionprocessor.ingest.IngestEvent;
+import com.hedgefund.exceptionprocessor.index.PendingRowIndex;
+import com.hedgefund.exceptionprocessor.journal.WriteBehindMarker;
+import com.hedgefund.exceptionprocessor.lane.HotSecurityIds;
+import com.hedgefund.exceptionprocessor.lane.KeyedLaneExecutor;
+import com.hedgefund.exceptionprocessor.partition.PendingHorizon;
 import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
 import com.hedgefund.exceptionprocessor.persistence.Severity;
 import com.hedgefund.exceptionprocessor.repo.ExceptionRecordRepository;
+import com.hedgefund.exceptionprocessor.repo.PublishLedger;
+import com.hedgefund.exceptionprocessor.repo.ReadReplicaRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.tck.TestObservationRegistry;
+import io.micrometer.observation.tck.TestObservationRegistryAssert;
 import java.time.Instant;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
 
 /**
  * Unit tests for ExceptionProcessingService business behavior.
@@ -24,7 +48,17 @@ import org.mockito.Mockito;
  * These tests validate project-critical guarantees:
  * 1) successful publish marks DB rows processed,
  * 2) partial failures do not block other securityIds,
- * 3) empty DB result is treated as successful no-op.
+ * 3) empty DB result is treated as successful no-op,
+ * 4) large backlogs are read page by page without breaking oldest-first order,
+ * 5) known-clean securityIds skip the DB until invalidated,
+ * 6) the pending-row index is cleared and re-checked after publishing,
+ * 7) lane-ordered processing merges per-lane results back onto the caller's batch,
+ * 8) the priority pass publishes CRITICAL/HIGH rows first, to the priority topic,
+ * 9) securityIds hot by row volume are paged on their own, after the cold IDs,
+ * 10) array-parameter page queries bind the whole chunk and all severities as arrays,
+ * 11) replica page rows already marked on the primary are skipped and each chunk is finished on the primary,
+ * 12) rows whose mark is still in the write-behind journal are not republished,
+ * 13) each stage gets its own span under the caller's, and the trigger event reaches the publisher.
  */
 class ExceptionProcessingServiceTest {
     // Mocked repository isolates business logic from real database.
@@ -33,6 +67,26 @@ class ExceptionProcessingServiceTest {
     private KafkaPublisher publisher;
     // Service under test.
     private ExceptionProcessingService service;
+    // Config shared with the service so individual tests can tweak paging.
+    private AppProperties props;
+    // Real negative cache (disabled unless a test turns it on).
+    private CleanSecurityIdCache cleanIds;
+    // Mocked pending-row index (disabled unless a test stubs isEnabled).
+    private PendingRowIndex pendingIndex;
+    // Real keyed lanes (two lane threads).
+    private KeyedLaneExecutor lanes;
+    // Real row-volume hot-key tracker.
+    private HotSecurityIds hotIds;
+    // Mocked replica routing; not usable (primary only) unless a test stubs it.
+    private ReadReplicaRouting replica;
+    // Mocked pending horizon; null (unbounded first pages) unless a test stubs it.
+    private PendingHorizon horizon;
+    // Mocked publish ledger; only written in ledger persistence mode (see PublishMarkerTest).
+    private PublishLedger ledger;
+    // Mocked write-behind marker; declines every offer (synchronous marking) unless stubbed.
+    private WriteBehindMarker writeBehind;
+    // Records the stage spans instead of exporting them.
+    private TestObservationRegistry observations;
 
     @BeforeEach
     void setUp() {
@@ -41,12 +95,145 @@ class ExceptionProcessingServiceTest {
         publisher = Mockito.mock(KafkaPublisher.class);
 
         // Build minimal runtime config required by service logic.
-        AppProperties props = new AppProperties();
+        props = new AppProperties();
         props.getKafka().setTopic("exception-records");
         props.getBatch().setSecurityIdQueryChunkSize(100);
+        // Stub the JPQL page queries; the array-parameter path has its own test.
+        props.getJdbc().setArrayIdQueries(false);
+
+        // No Redis: cache tests use the local version signal (only valid with the NOTIFY source).
+        props.getCleanIdCache().setVersionSignal("none");
+        props.getIngest().setSource("postgres-notify");
+        cleanIds = new CleanSecurityIdCache(props, (StringRedisTemplate) null, new SimpleMeterRegistry());
+
+        pendingIndex = Mockito.mock(PendingRowIndex.class);
+
+        props.getLanes().setCount(2);
+        lanes = new KeyedLaneExecutor(props, new SimpleMeterRegistry());
+        hotIds = new HotSecurityIds(props, new SimpleMeterRegistry());
+        replica = Mockito.mock(ReadReplicaRouting.class);
+        horizon = Mockito.mock(PendingHorizon.class);
+        ledger = Mockito.mock(PublishLedger.class);
+        writeBehind = Mockito.mock(WriteBehindMarker.class);
+        when(writeBehind.withoutUnflushed(any())).thenAnswer(inv -> inv.getArgument(0));
+        observations = TestObservationRegistry.create();
 
         // Inject mocks + config into service under test.
-        service = new ExceptionProcessingService(repo, publisher, props);
+        service = newService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Stop lane threads so they do not pile up across tests.
+        lanes.destroy();
+    }
+
+    @Test
+    void stagesAreObservedUnderTheCallersSpanAndOriginReachesThePublisher() {
+        IdBatch batch = new IdBatch(new SecurityIdInterner(16), 1);
+        IngestEvent origin = new IngestEvent("1700000000000-0", "SEC_A", 1_700_000_000_000L);
+        batch.setOrigin(batch.addId("SEC_A"), origin);
+        when(repo.findFirstPendingPage(eq(List.of("SEC_A")), any())).thenReturn(List.of(record(1L, "SEC_A")));
+        when(publisher.publishAsync(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        // Ordered path: the lane thread has no scope of its own, so the parent must be passed explicitly.
+        Observation parent = Observation.start("exceptions.batch", observations);
+        try {
+            assertThat(parent.scoped(() -> service.fetchAndPublishBySecurityIdsOrdered(batch).join())).containsExactly("SEC_A");
+        } finally {
+            parent.stop();
+        }
+
+        verify(publisher).publishAsync(eq("exception-records"), any(), eq(origin));
+        TestObservationRegistryAssert.assertThat(observations)
+                .hasObservationWithNameEqualTo("exceptions.fetch").that()
+                .hasHighCardinalityKeyValue("security.ids", "1")
+                .hasParentObservationEqualTo(parent)
+                .hasBeenStopped();
+        TestObservationRegistryAssert.assertThat(observations)
+                .hasObservationWithNameEqualTo("exceptions.db.page").that().hasBeenStopped();
+        TestObservationRegistryAssert.assertThat(observations)
+                .hasObservationWithNameEqualTo("exceptions.publish").that()
+                .hasHighCardinalityKeyValue("security.id", "SEC_A")
+                .hasHighCardinalityKeyValue("rows", "1")
+                .hasBeenStopped();
+        TestObservationRegistryAssert.assertThat(observations)
+                .hasObservationWithNameEqualTo("exceptions.db.mark").that().hasBeenStopped();
+    }
+
+    @Test
+    void orderedProcessingReportsSuccessPerLaneOnTheCallersBatch() {
+        // Pick two IDs that hash to different lanes so the batch is really split.
+        String onLane0 = null;
+        String onLane1 = null;
+        for (int i = 0; onLane0 == null || onLane1 == null; i++) {
+            String id = "SEC_" + i;
+            if (lanes.laneOf(id) == 0 && onLane0 == null) {
+                onLane0 = id;
+            } else if (lanes.laneOf(id) == 1 && onLane1 == null) {
+                onLane1 = id;
+            }
+        }
+        String ok = onLane0;
+        String failing = onLane1;
+        // Each lane queries only its own IDs; the failing ID's publish fails.
+        when(repo.findFirstPendingPage(eq(List.of(ok)), any())).thenReturn(List.of(record(1L, ok)));
+        when(repo.findFirstPendingPage(eq(List.of(failing)), any())).thenReturn(List.of(record(2L, failing)));
+        when(publisher.publishAsync(any(), any(), any())).thenAnswer(inv -> ((ExceptionRecordDTO) inv.getArgument(1)).getSecurityId().equals(ok)
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.failedFuture(new RuntimeException("kafka down")));
+
+        Set<String> result = service.fetchAndPublishBySecurityIdsOrdered(List.of(ok, failing)).join();
+
+        assertThat(result).containsExactly(ok);
+    }
+
+    @Test
+    void skipsQueryForSecurityIdFoundCleanUntilInvalidated() {
+        props.getCleanIdCache().setEnabled(true);
+        // SEC_A never has pending rows.
+        when(repo.findFirstPendingPage(any(), any())).thenReturn(List.of());
+
+        // First event queries and learns SEC_A is clean; the second is answered from the cache.
+        assertThat(service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_A")).join()).containsExactly("SEC_A");
+        assertThat(service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_A")).join()).containsExactly("SEC_A");
+        verify(repo, times(1)).findFirstPendingPage(any(), any());
+
+        // An insert signal forces the next event back to the DB.
+        cleanIds.invalidate(List.of("SEC_A"));
+        service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_A")).join();
+        verify(repo, times(2)).findFirstPendingPage(any(), any());
+    }
+
+    @Test
+    void doesNotCacheSecurityIdWhosePublishFailed() {
+        props.getCleanIdCache().setEnabled(true);
+        when(repo.findFirstPendingPage(any(), any())).thenAnswer(inv -> List.of(record(1L, "SEC_A")));
+        when(publisher.publishAsync(any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("kafka down")));
+
+        // Failed ID still has a pending row, so every retry must query again.
+        service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_A")).join();
+        service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_A")).join();
+
+        verify(repo, times(2)).findFirstPendingPage(any(), any());
+    }
+
+    @Test
+    void clearsPendingIndexThenRemarksIdsThatGainedRowsMeanwhile() {
+        when(pendingIndex.isEnabled()).thenReturn(true);
+        when(repo.findFirstPendingPage(any(), any())).thenReturn(List.of(record(1L, "SEC_A")));
+        when(publisher.publishAsync(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        // A writer committed a new SEC_B row while the batch was running.
+        when(repo.findSecurityIdsWithPendingRows(List.of("SEC_A", "SEC_B"))).thenReturn(List.of("SEC_B"));
+
+        service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_A", "SEC_B")).join();
+
+        // Clear first, then restore the bit the re-check found still pending.
+        InOrder order = Mockito.inOrder(pendingIndex, repo);
+        order.verify(pendingIndex).clearPending(List.of("SEC_A", "SEC_B"));
+        order.verify(repo).findSecurityIdsWithPendingRows(List.of("SEC_A", "SEC_B"));
+        order.verify(pendingIndex).markPending(List.of("SEC_B"));
     }
 
     @Test
@@ -57,10 +244,10 @@ class ExceptionProcessingServiceTest {
         ExceptionRecord b1 = record(3L, "SEC_B");
 
         // Repository returns all pending rows for requested IDs.
-        when(repo.findBySecurityIdInAndProcessedAtIsNullOrderByOccurredAtAsc(any()))
+        when(repo.findFirstPendingPage(any(), any()))
                 .thenReturn(List.of(a1, a2, b1));
         // Every Kafka send succeeds.
-        when(publisher.publishAsync(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(publisher.publishAsync(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
 
         // Invoke async API and block in test using join().
         Set<String> result = service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_A", "SEC_B")).join();
@@ -73,9 +260,9 @@ class ExceptionProcessingServiceTest {
         assertThat(b1.getProcessedAt()).isNotNull();
 
         // Verify one publish call per row.
-        verify(publisher, times(3)).publishAsync(any(), any());
-        // saveAll is called once per securityId group (SEC_A group + SEC_B group).
-        verify(repo, times(2)).saveAll(any());
+        verify(publisher, times(3)).publishAsync(any(), any(), any());
+        // One conditional mark per securityId group (SEC_A group + SEC_B group).
+        verify(repo, times(2)).markProcessedIfPending(any(), any());
     }
 
     @Test
@@ -85,10 +272,10 @@ class ExceptionProcessingServiceTest {
         ExceptionRecord b1 = record(2L, "SEC_B");
 
         // Repository returns both rows.
-        when(repo.findBySecurityIdInAndProcessedAtIsNullOrderByOccurredAtAsc(any()))
+        when(repo.findFirstPendingPage(any(), any()))
                 .thenReturn(List.of(a1, b1));
         // First publish succeeds (SEC_A), second publish fails (SEC_B).
-        when(publisher.publishAsync(any(), any()))
+        when(publisher.publishAsync(any(), any(), any()))
                 .thenReturn(CompletableFuture.completedFuture(null))
                 .thenReturn(CompletableFuture.failedFuture(new RuntimeException("kafka down")));
 
@@ -102,7 +289,7 @@ class ExceptionProcessingServiceTest {
         // Failed row stays pending for retry/reclaim path.
         assertThat(b1.getProcessedAt()).isNull();
         // Only successful group is persisted.
-        verify(repo, times(1)).saveAll(any());
+        verify(repo, times(1)).markProcessedIfPending(any(), any());
     }
 
     @Test
@@ -111,10 +298,10 @@ class ExceptionProcessingServiceTest {
         ExceptionRecord a1 = record(1L, "SEC_A");
         ExceptionRecord a2 = record(2L, "SEC_A");
 
-        when(repo.findBySecurityIdInAndProcessedAtIsNullOrderByOccurredAtAsc(any()))
+        when(repo.findFirstPendingPage(any(), any()))
                 .thenReturn(List.of(a1, a2));
         // First publish succeeds, second fails.
-        when(publisher.publishAsync(any(), any()))
+        when(publisher.publishAsync(any(), any(), any()))
                 .thenReturn(CompletableFuture.completedFuture(null))
                 .thenReturn(CompletableFuture.failedFuture(new RuntimeException("kafka down")));
 
@@ -127,13 +314,13 @@ class ExceptionProcessingServiceTest {
         // Failed row remains pending for retry.
         assertThat(a2.getProcessedAt()).isNull();
         // Persist only successful rows.
-        verify(repo, times(1)).saveAll(any());
+        verify(repo, times(1)).markProcessedIfPending(any(), any());
     }
 
     @Test
     void treatsIdsWithNoRowsAsSuccessful() {
         // Repository returns no pending DB rows for requested ID.
-        when(repo.findBySecurityIdInAndProcessedAtIsNullOrderByOccurredAtAsc(any()))
+        when(repo.findFirstPendingPage(any(), any()))
                 .thenReturn(List.of());
 
         // No-row path should still count as logical success for ACK flow.
@@ -141,19 +328,210 @@ class ExceptionProcessingServiceTest {
 
         assertThat(result).containsExactly("SEC_X");
         // No rows => no Kafka sends.
-        verify(publisher, times(0)).publishAsync(any(), any());
+        verify(publisher, times(0)).publishAsync(any(), any(), any());
         // No rows => nothing to persist.
-        verify(repo, times(0)).saveAll(any());
+        verify(repo, times(0)).markProcessedIfPending(any(), any());
+    }
+
+    @Test
+    void publishesBacklogPageByPageFollowingKeysetCursor() {
+        // Page size 2 forces a three-row backlog across two pages.
+        props.getPaging().setPageSize(2);
+        Instant t0 = Instant.parse("2024-01-01T00:00:00Z");
+        ExceptionRecord a1 = record(1L, "SEC_A", t0);
+        ExceptionRecord a2 = record(2L, "SEC_A", t0.plusSeconds(1));
+        ExceptionRecord a3 = record(3L, "SEC_A", t0.plusSeconds(2));
+
+        when(repo.findFirstPendingPage(any(), any())).thenReturn(List.of(a1, a2));
+        // Second page must be requested strictly after the last row of the first page.
+        when(repo.findPendingPageAfter(any(), eq(a2.getOccurredAt()), eq(2L), any())).thenReturn(List.of(a3));
+        when(publisher.publishAsync(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        Set<String> result = service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_A")).join();
+
+        assertThat(result).containsExactly("SEC_A");
+        assertThat(a1.getProcessedAt()).isNotNull();
+        assertThat(a3.getProcessedAt()).isNotNull();
+        // Publish order follows the keyset order (oldest first).
+        ArgumentCaptor<ExceptionRecordDTO> sent = ArgumentCaptor.forClass(ExceptionRecordDTO.class);
+        verify(publisher, times(3)).publishAsync(any(), sent.capture(), any());
+        assertThat(sent.getAllValues()).extracting(ExceptionRecordDTO::getId).containsExactly(1L, 2L, 3L);
+        // One mark per page, each bounded by the page size.
+        verify(repo, times(2)).markProcessedIfPending(any(), any());
+    }
+
+    @Test
+    void dropsFailedSecurityIdFromLaterPagesToKeepOrdering() {
+        props.getPaging().setPageSize(2);
+        Instant t0 = Instant.parse("2024-01-01T00:00:00Z");
+        ExceptionRecord a1 = record(1L, "SEC_A", t0);
+        ExceptionRecord b1 = record(2L, "SEC_B", t0.plusSeconds(1));
+        ExceptionRecord b2 = record(3L, "SEC_B", t0.plusSeconds(2));
+
+        when(repo.findFirstPendingPage(any(), any())).thenReturn(List.of(a1, b1));
+        when(repo.findPendingPageAfter(any(), any(), any(), any())).thenReturn(List.of(b2));
+        // SEC_A fails on page one; SEC_B succeeds on both pages.
+        when(publisher.publishAsync(any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("kafka down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        Set<String> result = service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_A", "SEC_B")).join();
+
+        assertThat(result).containsExactly("SEC_B");
+        assertThat(b2.getProcessedAt()).isNotNull();
+        // Next page query no longer includes the failed ID.
+        verify(repo).findPendingPageAfter(eq(List.of("SEC_B")), eq(b1.getOccurredAt()), eq(2L), any());
     }
 
     private static ExceptionRecord record(Long id, String securityId) {
+        return record(id, securityId, Instant.now());
+    }
+
+    @Test
+    void priorityPassPublishesHighSeverityRowsFirstToPriorityTopic() {
+        props.getPriority().setEnabled(true);
+        props.getPriority().setTopic("exception-records-priority");
+        EnumSet<Severity> priority = EnumSet.of(Severity.CRITICAL, Severity.HIGH);
+        // The LOW row is older, but the HIGH row must be published first.
+        ExceptionRecord low = record(1L, "SEC_A");
+        low.setSeverity(Severity.LOW);
+        ExceptionRecord high = record(2L, "SEC_A");
+        when(repo.findFirstPendingPageBySeverity(any(), eq(priority), any())).thenReturn(List.of(high));
+        when(repo.findFirstPendingPageBySeverity(any(), eq(EnumSet.complementOf(priority)), any())).thenReturn(List.of(low));
+        when(publisher.publishAsync(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        Set<String> result = service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_A")).join();
+
+        assertThat(result).containsExactly("SEC_A");
+        InOrder order = Mockito.inOrder(publisher);
+        order.verify(publisher).publishAsync(eq("exception-records-priority"), Mockito.argThat(dto -> dto.getId() == 2L), any());
+        order.verify(publisher).publishAsync(eq("exception-records"), Mockito.argThat(dto -> dto.getId() == 1L), any());
+    }
+
+    @Test
+    void priorityPassRunsOnReservedLaneInOrderedMode() {
+        props.getPriority().setEnabled(true);
+        // Rebuild lanes so the reserved priority lane exists.
+        lanes.destroy();
+        lanes = new KeyedLaneExecutor(props, new SimpleMeterRegistry());
+        service = newService();
+        EnumSet<Severity> priority = EnumSet.of(Severity.CRITICAL, Severity.HIGH);
+        List<String> priorityThreads = new CopyOnWriteArrayList<>();
+        when(repo.findFirstPendingPageBySeverity(any(), eq(priority), any())).thenAnswer(inv -> {
+            priorityThreads.add(Thread.currentThread().getName());
+            return List.of(record(1L, "SEC_A"));
+        });
+        when(repo.findFirstPendingPageBySeverity(any(), eq(EnumSet.complementOf(priority)), any())).thenReturn(List.of());
+        when(publisher.publishAsync(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        Set<String> result = service.fetchAndPublishBySecurityIdsOrdered(List.of("SEC_A")).join();
+
+        assertThat(result).containsExactly("SEC_A");
+        assertThat(priorityThreads).containsExactly("priority-lane-0");
+    }
+
+    @Test
+    void pagesHotSecurityIdSeparatelyAfterColdIds() {
+        // Tiny row window so a few rows make an ID hot.
+        props.getHotKeys().setWindowRows(4);
+        props.getHotKeys().setShare(0.5);
+        hotIds = new HotSecurityIds(props, new SimpleMeterRegistry());
+        service = newService();
+        when(publisher.publishAsync(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        // Window 1: SEC_HOT publishes 4 of 4 rows and becomes hot.
+        when(repo.findFirstPendingPage(eq(List.of("SEC_HOT")), any())).thenReturn(List.of(
+                record(1L, "SEC_HOT"), record(2L, "SEC_HOT"), record(3L, "SEC_HOT"), record(4L, "SEC_HOT")));
+        service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_HOT")).join();
+        assertThat(hotIds.isHot("SEC_HOT")).isTrue();
+
+        // Next batch: the hot ID is no longer part of the shared chunk query.
+        when(repo.findFirstPendingPage(eq(List.of("SEC_HOT")), any())).thenReturn(List.of());
+        service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_HOT", "SEC_A", "SEC_B")).join();
+
+        InOrder order = Mockito.inOrder(repo);
+        order.verify(repo).findFirstPendingPage(eq(List.of("SEC_A", "SEC_B")), any());
+        order.verify(repo).findFirstPendingPage(eq(List.of("SEC_HOT")), any());
+    }
+
+    @Test
+    void arrayIdQueriesBindChunkAsOneArrayParameter() {
+        props.getJdbc().setArrayIdQueries(true);
+        when(repo.findFirstPendingPageByIdArray(any(), any(), Mockito.anyInt())).thenReturn(List.of(record(1L, "SEC_A")));
+        when(publisher.publishAsync(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        Set<String> result = service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_A", "SEC_B")).join();
+
+        assertThat(result).containsExactlyInAnyOrder("SEC_A", "SEC_B");
+        // Priority mode off: every severity is requested.
+        verify(repo).findFirstPendingPageByIdArray(
+                new String[] {"SEC_A", "SEC_B"}, new String[] {"LOW", "MEDIUM", "HIGH", "CRITICAL"}, 1000);
+    }
+
+    @Test
+    void replicaPagesAreRecheckedAndChunkIsFinishedOnPrimary() {
+        when(replica.isUsable()).thenReturn(true);
+        // Every replica-scoped read runs the query; which pool serves it is the DataSource's concern.
+        List<String> scopes = new CopyOnWriteArrayList<>();
+        when(replica.onReplica(any())).thenAnswer(inv -> {
+            scopes.add("replica");
+            return ((Supplier<?>) inv.getArgument(0)).get();
+        });
+        ExceptionRecord a1 = record(1L, "SEC_A");
+        ExceptionRecord a2 = record(2L, "SEC_A");
+        // Replica (lagging) still shows row 1 pending; primary pass afterwards finds nothing new.
+        when(repo.findFirstPendingPage(any(), any())).thenReturn(List.of(a1, a2)).thenReturn(List.of());
+        // Primary already marked row 1 (published by an earlier batch).
+        when(repo.findPendingIdsAmong(List.of(1L, 2L))).thenReturn(List.of(2L));
+        when(repo.markProcessedIfPending(any(), any())).thenReturn(1);
+        when(publisher.publishAsync(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        Set<String> result = service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_A")).join();
+
+        assertThat(result).containsExactly("SEC_A");
+        ArgumentCaptor<ExceptionRecordDTO> sent = ArgumentCaptor.forClass(ExceptionRecordDTO.class);
+        verify(publisher, times(1)).publishAsync(any(), sent.capture(), any());
+        assertThat(sent.getValue().getId()).isEqualTo(2L);
+        verify(repo).markProcessedIfPending(List.of(2L), a2.getProcessedAt());
+        verify(replica).recordStaleRows(1);
+        // One replica page, then one finishing query outside the replica scope.
+        assertThat(scopes).containsExactly("replica");
+        verify(repo, times(2)).findFirstPendingPage(eq(List.of("SEC_A")), any());
+    }
+
+    @Test
+    void writeBehindJournalsPublishedRowsAndSkipsUnflushedOnes() {
+        ExceptionRecord a1 = record(1L, "SEC_A");
+        ExceptionRecord a2 = record(2L, "SEC_A");
+        when(repo.findFirstPendingPage(any(), any())).thenReturn(List.of(a1, a2));
+        // Row 1 was published by an earlier batch; its mark is still in the journal.
+        when(writeBehind.withoutUnflushed(List.of(a1, a2))).thenReturn(List.of(a2));
+        when(writeBehind.offer(any(), any(), any())).thenReturn(true);
+        when(publisher.publishAsync(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        Set<String> result = service.fetchAndPublishBySecurityIdsAsync(List.of("SEC_A")).join();
+
+        assertThat(result).containsExactly("SEC_A");
+        verify(publisher, times(1)).publishAsync(any(), any(), any());
+        verify(writeBehind).offer(eq(List.of(a2)), any(), eq(a2.getProcessedAt()));
+        // Postgres is left to the flusher.
+        verify(repo, times(0)).markProcessedIfPending(any(), any());
+    }
+
+    private ExceptionProcessingService newService() {
+        return new ExceptionProcessingService(
+                repo, publisher, props, cleanIds, pendingIndex, new SecurityIdInterner(1024), lanes, hotIds,
+                new PendingPageReader(repo, props, horizon, replica), new PublishMarker(repo, props, ledger, writeBehind),
+                observations);
+    }
+
+    private static ExceptionRecord record(Long id, String securityId, Instant occurredAt) {
         // Helper builds minimal valid entity as if read from DB.
         return ExceptionRecord.builder()
                 .id(id)
                 .serviceName("svc")
                 .severity(Severity.HIGH)
                 .message("boom")
-                .occurredAt(Instant.now())
+                .occurredAt(occurredAt)
                 .securityId(securityId)
                 .build();
     }
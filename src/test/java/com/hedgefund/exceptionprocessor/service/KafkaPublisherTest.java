@@ -1,12 +1,17 @@
 package com.hedgefund.exceptionprocessor.service;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.hedgefund.exceptionprocessor.config.AppProperties;
 import com.hedgefund.exceptionprocessor.dto.ExceptionRecordDTO;
+import com.hedgefund.exceptionprocessor.ingest.IngestEvent;
 import com.hedgefund.exceptionprocessor.persistence.Severity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.concurrent.CompletableFuture;
 import org.apache.kafka.clients.producer.ProducerRecord;
@@ -14,6 +19,7 @@ import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.TopicPartition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
@@ -29,12 +35,15 @@ class KafkaPublisherTest {
     private KafkaTemplate<String, ExceptionRecordDTO> kafkaTemplate;
     // Class under test.
     private KafkaPublisher publisher;
+    // Registry receiving the per-severity latency timers.
+    private SimpleMeterRegistry meters;
 
     @BeforeEach
     void setUp() {
         // Fresh mock and publisher per test method.
         kafkaTemplate = Mockito.mock(KafkaTemplate.class);
-        publisher = new KafkaPublisher(kafkaTemplate);
+        meters = new SimpleMeterRegistry();
+        publisher = new KafkaPublisher(kafkaTemplate, meters, new AppProperties());
     }
 
     @Test
@@ -58,23 +67,69 @@ class KafkaPublisherTest {
         SendResult<String, ExceptionRecordDTO> sendResult = new SendResult<>(producerRecord, metadata);
 
         // Configure mock to return successful future.
-        when(kafkaTemplate.send(eq("exception-records"), any(), eq(dto)))
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
                 .thenReturn(CompletableFuture.completedFuture(sendResult));
 
-        // Should not throw: success path resolves future cleanly.
-        publisher.publishAsync("exception-records", dto).join();
+        // Should not throw: success path resolves to the broker coordinates.
+        RecordMetadata published = publisher.publishAsync("exception-records", dto).join();
+        assertThat(published.partition()).isZero();
+        assertThat(published.offset()).isEqualTo(10);
+        // End-to-end latency is recorded under the row's severity.
+        assertThat(meters.get("exceptions.publish.latency").tag("severity", "HIGH").timer().count()).isEqualTo(1);
     }
 
     @Test
     void publishAsyncFailsWhenKafkaSendFails() {
         ExceptionRecordDTO dto = dto();
         // Configure mock to simulate broker/client send failure.
-        when(kafkaTemplate.send(eq("exception-records"), any(), eq(dto)))
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
                 .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker error")));
 
         // Publisher should surface error as runtime exception to caller.
         assertThatThrownBy(() -> publisher.publishAsync("exception-records", dto).join())
                 .isInstanceOf(RuntimeException.class);
+        // Failed sends are not delivered, so they record no latency.
+        assertThat(meters.get("exceptions.publish.latency").tag("severity", "HIGH").timer().count()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishAsyncCarriesOriginAndCorrelationHeaders() {
+        ExceptionRecordDTO dto = dto();
+        dto.setCorrelationId("corr-7");
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("not under test")));
+
+        publisher.publishAsync("exception-records", dto, new IngestEvent("1700000000000-3", "SEC1", 1_700_000_000_000L));
+
+        // Key and topic unchanged; the trigger event and correlation id ride along as headers.
+        ArgumentCaptor<ProducerRecord<String, ExceptionRecordDTO>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(sent.capture());
+        ProducerRecord<String, ExceptionRecordDTO> record = sent.getValue();
+        assertThat(record.topic()).isEqualTo("exception-records");
+        assertThat(record.key()).isEqualTo("svc:SEC1");
+        assertThat(header(record, KafkaPublisher.ORIGIN_ID_HEADER)).isEqualTo("1700000000000-3");
+        assertThat(header(record, KafkaPublisher.ORIGIN_TIMESTAMP_HEADER)).isEqualTo("1700000000000");
+        assertThat(header(record, KafkaPublisher.CORRELATION_ID_HEADER)).isEqualTo("corr-7");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishAsyncWithoutOriginAddsNoOriginHeaders() {
+        ExceptionRecordDTO dto = dto();
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("not under test")));
+
+        publisher.publishAsync("exception-records", dto);
+
+        ArgumentCaptor<ProducerRecord<String, ExceptionRecordDTO>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(sent.capture());
+        // No trigger event and no correlation id on the row: no headers at all.
+        assertThat(sent.getValue().headers().toArray()).isEmpty();
+    }
+
+    private static String header(ProducerRecord<?, ?> record, String name) {
+        return new String(record.headers().lastHeader(name).value(), StandardCharsets.UTF_8);
     }
 
     private static ExceptionRecordDTO dto() {
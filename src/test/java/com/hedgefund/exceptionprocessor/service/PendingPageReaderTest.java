@@ -0,0 +1,121 @@
+package com.hedgefund.exceptionprocessor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.partition.PendingHorizon;
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.persistence.Severity;
+import com.hedgefund.exceptionprocessor.repo.ExceptionRecordRepository;
+import com.hedgefund.exceptionprocessor.repo.ReadReplicaRouting;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+/**
+ * Unit tests for PendingPageReader.
+ *
+ * Covers where a page query starts (pending horizon, keyset cursor), that replica
+ * reads run in the replica scope, and that replica rows are re-checked on the primary.
+ */
+class PendingPageReaderTest {
+    private ExceptionRecordRepository repo;
+    private AppProperties props;
+    private PendingHorizon horizon;
+    private ReadReplicaRouting replica;
+    private PendingPageReader reader;
+
+    @BeforeEach
+    void setUp() {
+        repo = Mockito.mock(ExceptionRecordRepository.class);
+        props = new AppProperties();
+        props.getJdbc().setArrayIdQueries(false);
+        horizon = Mockito.mock(PendingHorizon.class);
+        replica = Mockito.mock(ReadReplicaRouting.class);
+        reader = new PendingPageReader(repo, props, horizon, replica);
+    }
+
+    @Test
+    void firstPageStartsAtPendingHorizon() {
+        Instant since = Instant.parse("2024-01-01T00:00:00Z");
+        when(horizon.since()).thenReturn(since);
+        when(repo.findPendingPageAfter(any(), any(), any(), any())).thenReturn(List.of(record(1L)));
+
+        List<ExceptionRecord> page = reader.page(List.of("SEC_A"), null, null, 100, false);
+
+        assertThat(page).extracting(ExceptionRecord::getId).containsExactly(1L);
+        // Seek from (horizon, MIN) covers every row at or after the horizon; no unbounded first-page query.
+        verify(repo).findPendingPageAfter(eq(List.of("SEC_A")), eq(since), eq(Long.MIN_VALUE), any());
+        verify(repo, never()).findFirstPendingPage(any(), any());
+    }
+
+    @Test
+    void laterPagesSeekFromTheCursorNotTheHorizon() {
+        when(horizon.since()).thenReturn(Instant.parse("2024-01-01T00:00:00Z"));
+        ExceptionRecord cursor = record(7L);
+
+        reader.page(List.of("SEC_A"), null, cursor, 100, false);
+
+        verify(repo).findPendingPageAfter(eq(List.of("SEC_A")), eq(cursor.getOccurredAt()), eq(7L), any());
+    }
+
+    @Test
+    void severityFilterAndArrayFormPickTheirQueries() {
+        props.getJdbc().setArrayIdQueries(true);
+
+        reader.page(List.of("SEC_A", "SEC_B"), List.of(Severity.CRITICAL), null, 50, false);
+
+        verify(repo).findFirstPendingPageByIdArray(new String[] {"SEC_A", "SEC_B"}, new String[] {"CRITICAL"}, 50);
+    }
+
+    @Test
+    void replicaPagesRunInTheReplicaScope() {
+        when(replica.onReplica(any())).thenAnswer(inv -> ((Supplier<?>) inv.getArgument(0)).get());
+        when(repo.findFirstPendingPage(any(), any())).thenReturn(List.of(record(1L)));
+
+        List<ExceptionRecord> page = reader.page(List.of("SEC_A"), null, null, 100, true);
+
+        assertThat(page).hasSize(1);
+        verify(replica).onReplica(any());
+    }
+
+    @Test
+    void replicaRowsAlreadyMarkedOnPrimaryAreDroppedAndCounted() {
+        ExceptionRecord a1 = record(1L);
+        ExceptionRecord a2 = record(2L);
+        when(repo.findPendingIdsAmong(List.of(1L, 2L))).thenReturn(List.of(2L));
+
+        assertThat(reader.stillPendingOnPrimary(List.of(a1, a2))).containsExactly(a2);
+        verify(replica).recordStaleRows(1);
+    }
+
+    @Test
+    void ledgerModeRechecksAgainstTheLedger() {
+        props.getPersistence().setMode(AppProperties.Persistence.Mode.LEDGER);
+        ExceptionRecord a1 = record(1L);
+        when(repo.findUnpublishedIdsAmong(List.of(1L))).thenReturn(List.of(1L));
+
+        assertThat(reader.stillPendingOnPrimary(List.of(a1))).containsExactly(a1);
+        verify(repo, never()).findPendingIdsAmong(any());
+        verify(replica, never()).recordStaleRows(Mockito.anyInt());
+    }
+
+    private static ExceptionRecord record(Long id) {
+        return ExceptionRecord.builder()
+                .id(id)
+                .serviceName("svc")
+                .severity(Severity.HIGH)
+                .message("boom")
+                .occurredAt(Instant.parse("2024-01-02T00:00:00Z").plusSeconds(id))
+                .securityId("SEC_A")
+                .build();
+    }
+}
@@ -0,0 +1,123 @@
+package com.hedgefund.exceptionprocessor.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.journal.WriteBehindMarker;
+import com.hedgefund.exceptionprocessor.persistence.ExceptionRecord;
+import com.hedgefund.exceptionprocessor.persistence.PublishLedgerEntry;
+import com.hedgefund.exceptionprocessor.persistence.Severity;
+import com.hedgefund.exceptionprocessor.repo.ExceptionRecordRepository;
+import com.hedgefund.exceptionprocessor.repo.PublishLedger;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+/**
+ * Unit tests for PublishMarker.
+ *
+ * Each persistence path gets published rows: `processed_at` on the primary,
+ * the publish ledger with broker coordinates, or the write-behind journal.
+ */
+class PublishMarkerTest {
+    private ExceptionRecordRepository repo;
+    private AppProperties props;
+    private PublishLedger ledger;
+    private WriteBehindMarker writeBehind;
+    private PublishMarker marker;
+
+    @BeforeEach
+    void setUp() {
+        repo = Mockito.mock(ExceptionRecordRepository.class);
+        props = new AppProperties();
+        ledger = Mockito.mock(PublishLedger.class);
+        // Declines every offer (synchronous marking) unless a test stubs it.
+        writeBehind = Mockito.mock(WriteBehindMarker.class);
+        marker = new PublishMarker(repo, props, ledger, writeBehind);
+    }
+
+    @Test
+    void marksRowsProcessedAtOneTimestamp() {
+        ExceptionRecord a1 = record(1L);
+        ExceptionRecord a2 = record(2L);
+        when(repo.markProcessedIfPending(any(), any())).thenReturn(2);
+
+        marker.mark(List.of(a1, a2), Arrays.asList(null, null));
+
+        assertThat(a1.getProcessedAt()).isNotNull().isEqualTo(a2.getProcessedAt());
+        verify(repo).markProcessedIfPending(List.of(1L, 2L), a1.getProcessedAt());
+        verify(ledger, never()).record(any());
+    }
+
+    @Test
+    void ledgerModeRecordsBrokerCoordinatesInsteadOfMarkingRows() {
+        props.getPersistence().setMode(AppProperties.Persistence.Mode.LEDGER);
+        ExceptionRecord a1 = record(1L);
+        ExceptionRecord a2 = record(2L);
+        TopicPartition tp = new TopicPartition("exception-records", 3);
+        when(ledger.record(any())).thenReturn(2);
+
+        marker.mark(List.of(a1, a2), List.of(new RecordMetadata(tp, 40, 0, 0L, 0, 0), new RecordMetadata(tp, 41, 0, 0L, 0, 0)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PublishLedgerEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(ledger).record(entries.capture());
+        assertThat(entries.getValue())
+                .extracting(PublishLedgerEntry::getExceptionId, PublishLedgerEntry::getKafkaPartition, PublishLedgerEntry::getKafkaOffset)
+                .containsExactly(tuple(1L, 3, 40L), tuple(2L, 3, 41L));
+        // The hot table is left alone: no UPDATE, no in-memory processedAt stamp.
+        verify(repo, never()).markProcessedIfPending(any(), any());
+        assertThat(a1.getProcessedAt()).isNull();
+    }
+
+    @Test
+    void ledgerEntriesWithoutCoordinatesKeepNullPartitionAndOffset() {
+        props.getPersistence().setMode(AppProperties.Persistence.Mode.LEDGER);
+        when(ledger.record(any())).thenReturn(1);
+
+        marker.mark(List.of(record(1L)), Arrays.asList((RecordMetadata) null));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PublishLedgerEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(ledger).record(entries.capture());
+        assertThat(entries.getValue())
+                .extracting(PublishLedgerEntry::getKafkaPartition, PublishLedgerEntry::getKafkaOffset)
+                .containsExactly(tuple(null, null));
+    }
+
+    @Test
+    void writeBehindJournalsRowsAndLeavesPostgresToTheFlusher() {
+        ExceptionRecord a1 = record(1L);
+        when(writeBehind.offer(any(), any(), any())).thenReturn(true);
+
+        marker.mark(List.of(a1), Arrays.asList((RecordMetadata) null));
+
+        verify(writeBehind).offer(eq(List.of(a1)), any(), eq(a1.getProcessedAt()));
+        assertThat(a1.getProcessedAt()).isNotNull();
+        verify(repo, never()).markProcessedIfPending(any(), any());
+        verify(ledger, never()).record(any());
+    }
+
+    private static ExceptionRecord record(Long id) {
+        return ExceptionRecord.builder()
+                .id(id)
+                .serviceName("svc")
+                .severity(Severity.HIGH)
+                .message("boom")
+                .occurredAt(Instant.parse("2024-01-02T00:00:00Z"))
+                .securityId("SEC_A")
+                .build();
+    }
+}
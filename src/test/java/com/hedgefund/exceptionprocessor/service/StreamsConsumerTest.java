@@ -1,168 +1,301 @@
 package com.hedgefund.exceptionprocessor.service;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.hedgefund.exceptionprocessor.batch.IdBatch;
+import com.hedgefund.exceptionprocessor.batch.SecurityIdInterner;
 import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.index.PendingRowIndex;
+import com.hedgefund.exceptionprocessor.ingest.IngestEvent;
+import com.hedgefund.exceptionprocessor.ingest.IngestSource;
+import com.hedgefund.exceptionprocessor.startup.FirstAckTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.tck.TestObservationRegistry;
+import io.micrometer.observation.tck.TestObservationRegistryAssert;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
-import org.springframework.data.domain.Range;
-import org.springframework.data.redis.connection.stream.MapRecord;
-import org.springframework.data.redis.connection.stream.PendingMessage;
-import org.springframework.data.redis.connection.stream.PendingMessages;
-import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
-import org.springframework.data.redis.connection.stream.RecordId;
-import org.springframework.data.redis.core.StreamOperations;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 
 /**
  * Unit tests for StreamsConsumer delivery semantics.
  *
  * These tests focus on correctness of ACK/retry behavior, which is the core
- * reliability contract of this service's Redis consumer-group integration.
+ * reliability contract of this service. The source is mocked so the rules are
+ * verified independently of Redis, Kafka or Postgres delivery details.
  */
-@SuppressWarnings({"unchecked", "rawtypes"})
 class StreamsConsumerTest {
-    // Mocked Redis template.
-    private StringRedisTemplate redis;
-    // Mocked low-level stream operations used by consumer.
-    private StreamOperations<String, Object, Object> streamOps;
+    // Mocked delivery layer; records every ACK call.
+    private IngestSource source;
     // Mocked business service so we can isolate delivery semantics.
     private ExceptionProcessingService processingService;
+    // Mocked pending-row index; unfiltered unless a test stubs it.
+    private PendingRowIndex pendingIndex;
     // In-memory config object used by consumer.
     private AppProperties props;
     // Class under test.
     private StreamsConsumer consumer;
+    // All events ACKed through the source, across calls.
+    private List<IngestEvent> acked;
+    // Real startup timer; records the first ACK.
+    private FirstAckTimer firstAck;
+    // Records the batch and ACK spans.
+    private TestObservationRegistry observations;
 
     @BeforeEach
     void setUp() {
         // Create mocks and config fresh for each test to avoid state bleed.
-        redis = Mockito.mock(StringRedisTemplate.class);
-        streamOps = Mockito.mock(StreamOperations.class);
+        source = Mockito.mock(IngestSource.class);
+        // Tags the batch span.
+        when(source.name()).thenReturn("redis");
         processingService = Mockito.mock(ExceptionProcessingService.class);
+        pendingIndex = Mockito.mock(PendingRowIndex.class);
+        // Null = index unavailable, so batches pass through unfiltered.
+        when(pendingIndex.candidates(any())).thenReturn(null);
         props = new AppProperties();
-        // Configure stream identity used by consumer.
-        props.getStreams().setRedisStreamName("security.events");
-        props.getStreams().setConsumerGroupName("exception-workers");
         // Configure stale threshold used by reclaim tests.
         props.getRetry().setClaimStaleAfterMs(60_000L);
         // Configure in-flight limits so handleBatch path has permits.
         props.getBatch().setMaxInFlightBatches(4);
 
-        // Wire redis.opsForStream() to the mocked stream operations.
-        when(redis.opsForStream()).thenReturn(streamOps);
+        acked = new ArrayList<>();
+        Mockito.doAnswer(inv -> acked.addAll(inv.<Collection<IngestEvent>>getArgument(0)))
+                .when(source).ack(any());
+        firstAck = new FirstAckTimer(new SimpleMeterRegistry());
+        observations = TestObservationRegistry.create();
         // Instantiate consumer directly without full Spring context.
-        consumer = new StreamsConsumer(redis, processingService, props);
+        consumer = new StreamsConsumer(
+                source, processingService, props, pendingIndex, new SecurityIdInterner(1024), firstAck, observations);
     }
 
     @Test
     void handleBatchAcknowledgesOnlySuccessfulSecurityIdsAndInvalidRecords() {
-        // Valid record for SEC_A.
-        MapRecord<String, String, String> secA = mockRecord("1-0", Map.of("securityId", "SEC_A"));
-        // Valid record for SEC_B.
-        MapRecord<String, String, String> secB = mockRecord("2-0", Map.of("securityId", "SEC_B"));
-        // Invalid record without securityId field.
-        MapRecord<String, String, String> invalid = mockRecord("3-0", Map.of("other", "x"));
+        IngestEvent secA = new IngestEvent("1-0", "SEC_A");
+        IngestEvent secB = new IngestEvent("2-0", "SEC_B");
+        // Invalid event without securityId.
+        IngestEvent invalid = new IngestEvent("3-0", null);
 
         // Business service reports only SEC_A as successful.
-        when(processingService.fetchAndPublishBySecurityIdsAsync(Set.of("SEC_A", "SEC_B")))
+        when(processingService.fetchAndPublishBySecurityIdsOrdered(Set.of("SEC_A", "SEC_B")))
                 .thenReturn(CompletableFuture.completedFuture(Set.of("SEC_A")));
 
-        // Execute batch path directly.
-        consumer.handleBatch("exception-workers", List.of(secA, secB, invalid));
+        consumer.handleBatch(List.of(secA, secB, invalid));
 
-        // Invalid record should be ACKed immediately (poison-message prevention).
-        verify(streamOps, times(1)).acknowledge("exception-workers", invalid);
-        // Successful ID should be ACKed after processing success.
-        verify(streamOps, times(1)).acknowledge("exception-workers", secA);
-        // Failed ID should remain pending (no ACK) so retry/reclaim can occur.
-        verify(streamOps, never()).acknowledge("exception-workers", secB);
+        // Invalid event ACKed (poison-message prevention); successful ID ACKed; failed ID stays pending.
+        assertThat(acked).containsExactlyInAnyOrder(invalid, secA);
+        // Startup metric: the first ACK was timed.
+        assertThat(firstAck.firstAckUptimeMs()).isPositive();
     }
 
     @Test
-    void reclaimStaleClaimsAndProcessesEligibleMessages() {
-        // Summary says there is one pending message.
-        PendingMessagesSummary summary = Mockito.mock(PendingMessagesSummary.class);
-        // Detailed pending collection placeholder.
-        PendingMessages pending = Mockito.mock(PendingMessages.class);
-        // Single pending message metadata.
-        PendingMessage stale = Mockito.mock(PendingMessage.class);
-        // Redis stream ID of pending entry.
-        RecordId pendingId = RecordId.of("10-0");
-        // Claimed record payload for business processing.
-        MapRecord<String, String, String> claimed = mockRecord("10-0", Map.of("securityId", "SEC_X"));
-
-        // Configure pending summary lookup.
-        when(summary.getTotalPendingMessages()).thenReturn(1L);
-        when(streamOps.pending("security.events", "exception-workers")).thenReturn(summary);
-        // Configure pending detail lookup.
-        when(streamOps.pending(eq("security.events"), eq("exception-workers"), any(Range.class), eq(1L)))
-                .thenReturn(pending);
-        when(pending.isEmpty()).thenReturn(false);
-        when(pending.size()).thenReturn(1);
-        when(pending.iterator()).thenReturn(List.of(stale).iterator());
-        // Mark message as stale (> claim threshold).
-        when(stale.getElapsedTimeSinceLastDelivery()).thenReturn(Duration.ofMinutes(2));
-        when(stale.getId()).thenReturn(pendingId);
-
-        // Configure claim call to return one claimed record.
-        when(streamOps.claim(
-                eq("security.events"),
-                eq("exception-workers"),
-                any(String.class),
-                eq(Duration.ofMillis(60_000L)),
-                any(RecordId[].class)
-        )).thenReturn((List) List.of(claimed));
-
-        // Processing reports claimed ID as successful.
-        when(processingService.fetchAndPublishBySecurityIdsAsync(Set.of("SEC_X")))
+    void handleBatchAcknowledgesEventsWithoutPendingRowsWithoutQuerying() {
+        IngestEvent secA = new IngestEvent("1-0", "SEC_A");
+        IngestEvent secB = new IngestEvent("2-0", "SEC_B");
+
+        // Index says only SEC_A has pending rows.
+        when(pendingIndex.candidates(Set.of("SEC_A", "SEC_B"))).thenReturn(Set.of("SEC_A"));
+        when(processingService.fetchAndPublishBySecurityIdsOrdered(Set.of("SEC_A")))
+                .thenReturn(CompletableFuture.completedFuture(Set.of("SEC_A")));
+
+        consumer.handleBatch(List.of(secA, secB));
+
+        // SEC_B is ACKed up front and never reaches the DB path.
+        verify(processingService).fetchAndPublishBySecurityIdsOrdered(Set.of("SEC_A"));
+        assertThat(acked).containsExactly(secB, secA);
+    }
+
+    @Test
+    void handleBatchObservesTheBatchUntilAckAndAttachesOrigins() {
+        long enqueuedAt = System.currentTimeMillis() - 250;
+        IngestEvent event = new IngestEvent("1-0", "SEC_A", enqueuedAt);
+        when(processingService.fetchAndPublishBySecurityIdsOrdered(any())).thenAnswer(inv -> {
+            // The worker sees the batch span as current and the event as the ID's origin.
+            assertThat(observations.getCurrentObservation()).isNotNull();
+            IdBatch batch = inv.getArgument(0);
+            assertThat(batch.origin(0)).isSameAs(event);
+            return CompletableFuture.completedFuture(Set.of("SEC_A"));
+        });
+
+        consumer.handleBatch(List.of(event));
+
+        assertThat(acked).containsExactly(event);
+        TestObservationRegistryAssert.assertThat(observations)
+                .hasObservationWithNameEqualTo("exceptions.batch").that()
+                .hasLowCardinalityKeyValue("source", "redis")
+                .hasHighCardinalityKeyValue("events", "1")
+                .hasHighCardinalityKeyValueWithKey("queue.ms")
+                .hasBeenStopped();
+        TestObservationRegistryAssert.assertThat(observations)
+                .hasObservationWithNameEqualTo("exceptions.ack").that()
+                .hasHighCardinalityKeyValue("events", "1")
+                .hasBeenStopped();
+    }
+
+    @Test
+    void reclaimStaleProcessesEventsReturnedBySource() {
+        IngestEvent claimed = new IngestEvent("10-0", "SEC_X");
+        // Source hands back one stale event older than the configured threshold.
+        when(source.reclaim(anyInt(), any())).thenReturn(List.of(claimed));
+        when(processingService.fetchAndPublishBySecurityIdsOrdered(Set.of("SEC_X")))
                 .thenReturn(CompletableFuture.completedFuture(Set.of("SEC_X")));
 
-        // Trigger scheduled reclaim logic directly.
         consumer.reclaimStale();
 
-        // Successful reclaimed record must be ACKed.
-        verify(streamOps, times(1)).acknowledge("exception-workers", claimed);
+        verify(source).reclaim(64, Duration.ofMillis(60_000L));
+        // Successful reclaimed event must be ACKed.
+        assertThat(acked).containsExactly(claimed);
     }
 
     @Test
     void handleBatchAcknowledgesDuplicateSecurityIdEventAndProcessesOnlyOneRequest() {
-        // Two records with same ID simulate accidental duplicate event in one batch.
-        MapRecord<String, String, String> first = mockRecord("1-0", Map.of("securityId", "SEC_A"));
-        MapRecord<String, String, String> duplicate = mockRecord("2-0", Map.of("securityId", "SEC_A"));
+        // Two events with same ID simulate accidental duplicate event in one batch.
+        IngestEvent first = new IngestEvent("1-0", "SEC_A");
+        IngestEvent duplicate = new IngestEvent("2-0", "SEC_A");
 
         // Business layer called once with de-duplicated ID set.
-        when(processingService.fetchAndPublishBySecurityIdsAsync(Set.of("SEC_A")))
+        when(processingService.fetchAndPublishBySecurityIdsOrdered(Set.of("SEC_A")))
                 .thenReturn(CompletableFuture.completedFuture(Set.of("SEC_A")));
 
-        // Execute batch path.
-        consumer.handleBatch("exception-workers", List.of(first, duplicate));
+        consumer.handleBatch(List.of(first, duplicate));
 
-        // Duplicate record should be ACKed as redundant.
-        verify(streamOps, times(1)).acknowledge("exception-workers", duplicate);
-        // Original successful record should also be ACKed.
-        verify(streamOps, times(1)).acknowledge("exception-workers", first);
+        // Duplicate ACKed as redundant, original ACKed after success.
+        assertThat(acked).containsExactlyInAnyOrder(duplicate, first);
         // Processing should run only once for SEC_A.
-        verify(processingService, times(1)).fetchAndPublishBySecurityIdsAsync(Set.of("SEC_A"));
+        verify(processingService, times(1)).fetchAndPublishBySecurityIdsOrdered(Set.of("SEC_A"));
+    }
+
+    @Test
+    void handleBatchLeavesEverythingPendingWhenAsyncProcessingFails() {
+        IngestEvent secA = new IngestEvent("1-0", "SEC_A");
+        when(processingService.fetchAndPublishBySecurityIdsOrdered(Set.of("SEC_A")))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("db down")));
+
+        consumer.handleBatch(List.of(secA));
+
+        verify(source, never()).ack(any());
     }
 
-    private static MapRecord<String, String, String> mockRecord(String id, Map<String, String> value) {
-        // Build lightweight mocked record instead of constructing real Redis record object.
-        MapRecord<String, String, String> record = Mockito.mock(MapRecord.class);
-        // Stub stream ID used in logs/ack paths.
-        when(record.getId()).thenReturn(RecordId.of(id));
-        // Stub field map payload used to read securityId.
-        when(record.getValue()).thenReturn(value);
-        return record;
+    @Test
+    void handleBatchUsesWorkerPoolWhenLanesAreDisabled() {
+        props.getLanes().setEnabled(false);
+        IngestEvent secA = new IngestEvent("1-0", "SEC_A");
+        when(processingService.fetchAndPublishBySecurityIdsAsync(Set.of("SEC_A")))
+                .thenReturn(CompletableFuture.completedFuture(Set.of("SEC_A")));
+
+        consumer.handleBatch(List.of(secA));
+
+        verify(processingService, never()).fetchAndPublishBySecurityIdsOrdered(any());
+        assertThat(acked).containsExactly(secA);
+    }
+
+    @Test
+    void stopWaitsForInFlightBatchThenFlushesAcksAndHandsOffLeftovers() throws Exception {
+        // Idle source: polls return nothing until the drain stops the loop.
+        when(source.poll(anyInt(), any())).thenAnswer(inv -> {
+            Thread.sleep(10);
+            return List.of();
+        });
+        IngestEvent secA = new IngestEvent("1-0", "SEC_A");
+        when(source.reclaim(anyInt(), any())).thenReturn(List.of(secA));
+        CompletableFuture<Set<String>> inFlight = new CompletableFuture<>();
+        when(processingService.fetchAndPublishBySecurityIdsOrdered(any())).thenReturn(inFlight);
+        consumer.start();
+        // One batch takes a permit and is still publishing when shutdown begins.
+        consumer.reclaimStale();
+
+        CompletableFuture<Void> stopping = CompletableFuture.runAsync(consumer::stop);
+        Thread.sleep(200);
+        assertThat(stopping).isNotDone();
+        verify(source, never()).handOff(any());
+
+        inFlight.complete(Set.of("SEC_A"));
+        stopping.get(5, TimeUnit.SECONDS);
+
+        // ACK of the finished batch goes out before the flush; only then are leftovers handed off.
+        InOrder order = Mockito.inOrder(source);
+        order.verify(source).ack(List.of(secA));
+        order.verify(source).flush();
+        order.verify(source).handOff(AppProperties.Drain.HandOff.REQUEUE);
+        assertThat(consumer.isRunning()).isFalse();
+    }
+
+    @Test
+    void stopHandsOffAfterDrainTimeoutWhenBatchNeverFinishes() throws Exception {
+        props.getDrain().setTimeoutMs(100);
+        when(source.poll(anyInt(), any())).thenReturn(List.of());
+        when(source.reclaim(anyInt(), any())).thenReturn(List.of(new IngestEvent("1-0", "SEC_A")));
+        when(processingService.fetchAndPublishBySecurityIdsOrdered(any())).thenReturn(new CompletableFuture<>());
+        consumer.start();
+        consumer.reclaimStale();
+
+        consumer.stop();
+
+        // Stuck batch: nothing ACKed, its event is handed off instead of waiting for the reclaim threshold.
+        verify(source, never()).ack(any());
+        verify(source).handOff(AppProperties.Drain.HandOff.REQUEUE);
+    }
+
+    @Test
+    void resizeInFlightAppliesToRunningBatches() throws Exception {
+        when(source.poll(anyInt(), any())).thenReturn(List.of());
+        when(source.reclaim(anyInt(), any())).thenReturn(List.of(new IngestEvent("1-0", "SEC_A")));
+        CompletableFuture<Set<String>> inFlight = new CompletableFuture<>();
+        when(processingService.fetchAndPublishBySecurityIdsOrdered(any())).thenReturn(inFlight);
+        consumer.start();
+        // One batch holds a permit: 3 of 4 free.
+        consumer.reclaimStale();
+
+        consumer.resizeInFlight(6);
+        assertThat(consumer.availablePermits()).isEqualTo(5);
+
+        // Shrinking below what is in flight: no permit left until the running batch returns its own.
+        consumer.resizeInFlight(1);
+        assertThat(consumer.maxInFlight()).isEqualTo(1);
+        assertThat(consumer.availablePermits()).isZero();
+        inFlight.complete(Set.of("SEC_A"));
+        assertThat(consumer.availablePermits()).isEqualTo(1);
+        consumer.stop();
+    }
+
+    @Test
+    void rescheduleReclaimerAppliesTheNewInterval() throws Exception {
+        when(source.reclaim(anyInt(), any())).thenReturn(List.of());
+        props.getRetry().setReclaimerIntervalMs(60_000L);
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        ScheduledTaskRegistrar registrar = new ScheduledTaskRegistrar();
+        registrar.setTaskScheduler(scheduler);
+        try {
+            consumer.configureTasks(registrar);
+            registrar.afterPropertiesSet();
+            // First run right away, the next one a minute later.
+            verify(source, timeout(2_000)).reclaim(anyInt(), any());
+
+            props.getRetry().setReclaimerIntervalMs(50L);
+            consumer.rescheduleReclaimer();
+
+            // New interval: several more runs within a second instead of none.
+            verify(source, timeout(2_000).atLeast(4)).reclaim(anyInt(), any());
+        } finally {
+            registrar.destroy();
+            scheduler.shutdown();
+        }
     }
 }
@@ -0,0 +1,21 @@
+package com.hedgefund.exceptionprocessor.tracing;
+
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Local stand-in for the OTLP collector in tests.
+ *
+ *Spring Boot hands every `SpanExporter` bean to the tracer's batch span processor, so
+ * finished spans land here instead of on the network. Flush the `SdkTracerProvider`
+ * before reading {@link InMemorySpanExporter#getFinishedSpanItems()}.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class InMemoryTracingConfig {
+
+    @Bean
+    InMemorySpanExporter inMemorySpanExporter() {
+        return InMemorySpanExporter.create();
+    }
+}
@@ -0,0 +1,140 @@
+package com.hedgefund.exceptionprocessor.tracing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.ingest.InMemoryIngestSource;
+import com.hedgefund.exceptionprocessor.service.KafkaPublisher;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+/**
+ * End-to-end tracing test: trigger event -> batch span -> worker spans -> Kafka record.
+ *
+ * Runs the real context against embedded Kafka, H2 and the in-memory ingest source, with
+ * every trace sampled and spans exported to {@link InMemoryTracingConfig}. Checks that the
+ * published record carries the trigger event and trace context as headers, and that all
+ * stages, including the producer send, end up in one trace.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {
+                "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+                "spring.datasource.url=jdbc:h2:mem:tracing;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "app.ingest.source=memory",
+                "app.sweeper.enabled=false",
+                "management.tracing.sampling.probability=1.0"
+        }
+)
+@EmbeddedKafka(partitions = 1, topics = "exception-records")
+// Spring Boot tests turn tracing off (no-op propagation) unless asked for it.
+@AutoConfigureObservability(metrics = false)
+@Import(InMemoryTracingConfig.class)
+class TracePropagationTest {
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+    @Autowired
+    private AppProperties props;
+    @Autowired
+    private InMemoryIngestSource memorySource;
+    @Autowired
+    private InMemorySpanExporter spans;
+    @Autowired
+    private SdkTracerProvider tracerProvider;
+
+    @Test
+    void publishedRecordCarriesOriginAndAllStagesShareOneTrace() {
+        jdbc.update(
+                "insert into exceptions(service_name, severity, message, occurred_at, security_id, correlation_id) values (?, ?, ?, ?, ?, ?)",
+                "tracing", "HIGH", "traced", Timestamp.from(Instant.now()), "SEC_T", "corr-42");
+
+        // Trigger the row and read it back from Kafka.
+        String eventId = memorySource.publish("SEC_T");
+        ConsumerRecord<String, String> record = readOne();
+
+        // The trigger event, the row's correlation id and the trace context travel with the record.
+        assertThat(header(record, KafkaPublisher.ORIGIN_ID_HEADER)).isEqualTo(eventId);
+        assertThat(Long.parseLong(header(record, KafkaPublisher.ORIGIN_TIMESTAMP_HEADER))).isPositive();
+        assertThat(header(record, KafkaPublisher.CORRELATION_ID_HEADER)).isEqualTo("corr-42");
+        assertThat(header(record, "traceparent")).isNotBlank();
+
+        // The ACK span ends just after the record is sent; wait for the batch span, then export.
+        List<SpanData> finished = awaitSpan("exceptions.batch");
+        SpanData batch = finished.stream().filter(s -> s.getName().equals("exceptions.batch")).findFirst().orElseThrow();
+        Set<String> inBatchTrace = finished.stream()
+                .filter(s -> s.getTraceId().equals(batch.getTraceId()))
+                .map(SpanData::getName)
+                .collect(Collectors.toSet());
+        assertThat(inBatchTrace).contains(
+                "exceptions.batch",
+                "exceptions.fetch",
+                "exceptions.db.page",
+                "exceptions.publish",
+                "exceptions.db.mark",
+                "exceptions.ack",
+                props.getKafka().getTopic() + " send");
+        // traceparent = version-traceId-spanId-flags: the record continues the batch's trace.
+        assertThat(header(record, "traceparent")).contains(batch.getTraceId());
+    }
+
+    private ConsumerRecord<String, String> readOne() {
+        Map<String, Object> config = KafkaTestUtils.consumerProps("tracing-reader", "true", broker);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(config)) {
+            consumer.subscribe(List.of(props.getKafka().getTopic()));
+            return KafkaTestUtils.getSingleRecord(consumer, props.getKafka().getTopic(), Duration.ofSeconds(30));
+        }
+    }
+
+    private List<SpanData> awaitSpan(String name) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            tracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+            List<SpanData> finished = spans.getFinishedSpanItems();
+            if (System.nanoTime() > deadline || finished.stream().anyMatch(s -> s.getName().equals(name))) {
+                return finished;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return finished;
+            }
+        }
+    }
+
+    private static String header(ConsumerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+}
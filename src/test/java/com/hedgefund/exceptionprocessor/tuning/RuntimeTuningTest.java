@@ -0,0 +1,155 @@
+package com.hedgefund.exceptionprocessor.tuning;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.hedgefund.exceptionprocessor.config.AppProperties;
+import com.hedgefund.exceptionprocessor.config.AsyncConfig;
+import com.hedgefund.exceptionprocessor.service.StreamsConsumer;
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Unit tests for RuntimeTuning.
+ *
+ * Verifies that a valid update reaches the properties, the worker and connection pools
+ * and the consumer, that an invalid one changes nothing (worker sizes included while
+ * lanes run the batches), and that only real changes are audited.
+ */
+class RuntimeTuningTest {
+    private AppProperties props;
+    // Real pool, so the resize goes through ThreadPoolExecutor's own checks.
+    private ThreadPoolTaskExecutor workers;
+    private StreamsConsumer consumer;
+    // Never started: only its configuration is resized.
+    private HikariDataSource connectionPool;
+    // Class under test.
+    private RuntimeTuning tuning;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        props = new AppProperties();
+        props.getWorker().setCorePoolSize(4);
+        props.getWorker().setMaxPoolSize(4);
+        // Worker sizes only matter on the generic pool.
+        props.getLanes().setEnabled(false);
+        workers = new AsyncConfig(props).exceptionProcessingTaskExecutor();
+        consumer = Mockito.mock(StreamsConsumer.class);
+        ObjectProvider<StreamsConsumer> provider = Mockito.mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(consumer);
+        connectionPool = new HikariDataSource();
+        connectionPool.setMaximumPoolSize(6);
+        connectionPool.setMinimumIdle(6);
+        ObjectProvider<HikariDataSource> pools = Mockito.mock(ObjectProvider.class);
+        when(pools.orderedStream()).thenAnswer(inv -> Stream.of(connectionPool));
+        tuning = new RuntimeTuning(props, workers, pools, provider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workers.shutdown();
+    }
+
+    @Test
+    void appliesEverySettingAndAuditsTheChange() {
+        RuntimeTuning.Settings before = tuning.current();
+
+        RuntimeTuning.Change change = tuning.apply(s -> new RuntimeTuning.Settings(
+                500, 8, 50, 8, 12, 5_000L), "ops", "backlog after outage");
+
+        assertThat(change.before()).isEqualTo(before);
+        assertThat(tuning.current()).isEqualTo(new RuntimeTuning.Settings(500, 8, 50, 8, 12, 5_000L));
+        // Pool grown in place: max first, then core.
+        assertThat(workers.getMaxPoolSize()).isEqualTo(12);
+        assertThat(workers.getCorePoolSize()).isEqualTo(8);
+        // Derived Hikari size follows: 12 workers + 2 extra connections.
+        assertThat(connectionPool.getMaximumPoolSize()).isEqualTo(14);
+        assertThat(connectionPool.getMinimumIdle()).isEqualTo(14);
+        verify(consumer).resizeInFlight(8);
+        verify(consumer).rescheduleReclaimer();
+        assertThat(tuning.history()).singleElement().satisfies(c -> {
+            assertThat(c.actor()).isEqualTo("ops");
+            assertThat(c.reason()).isEqualTo("backlog after outage");
+        });
+
+        // Shrinking below the current core: core first, then max.
+        tuning.apply(s -> new RuntimeTuning.Settings(500, 8, 50, 1, 2, 5_000L), "ops", null);
+        assertThat(workers.getCorePoolSize()).isEqualTo(1);
+        assertThat(workers.getMaxPoolSize()).isEqualTo(2);
+        assertThat(connectionPool.getMaximumPoolSize()).isEqualTo(4);
+        assertThat(tuning.history()).hasSize(2);
+    }
+
+    @Test
+    void rejectsWorkerSizesWhileLanesRunTheBatches() {
+        props.getLanes().setEnabled(true);
+
+        assertThatThrownBy(() -> tuning.apply(s -> new RuntimeTuning.Settings(
+                s.streamReadCount(), s.maxInFlightBatches(), s.securityIdQueryChunkSize(), 8, 8, s.reclaimerIntervalMs()),
+                "ops", null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("app.lanes.enabled");
+        assertThat(workers.getMaxPoolSize()).isEqualTo(4);
+
+        // Other settings still apply with lanes on.
+        tuning.apply(s -> new RuntimeTuning.Settings(
+                500, s.maxInFlightBatches(), s.securityIdQueryChunkSize(), 4, 4, s.reclaimerIntervalMs()), "ops", null);
+        assertThat(props.getBatch().getStreamReadCount()).isEqualTo(500);
+    }
+
+    @Test
+    void keepsWorkersWithinAFixedConnectionPool() {
+        props.getJdbc().setPoolSize(10);
+
+        // 10 connections - 2 extra = at most 8 workers.
+        assertThatThrownBy(() -> tuning.apply(s -> new RuntimeTuning.Settings(
+                s.streamReadCount(), s.maxInFlightBatches(), s.securityIdQueryChunkSize(), 4, 9, s.reclaimerIntervalMs()),
+                "ops", null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("at most 8");
+
+        tuning.apply(s -> new RuntimeTuning.Settings(
+                s.streamReadCount(), s.maxInFlightBatches(), s.securityIdQueryChunkSize(), 4, 8, s.reclaimerIntervalMs()),
+                "ops", null);
+        assertThat(workers.getMaxPoolSize()).isEqualTo(8);
+        // Fixed pool: left as configured.
+        assertThat(connectionPool.getMaximumPoolSize()).isEqualTo(6);
+    }
+
+    @Test
+    void rejectsTheWholeUpdateWhenAnyValueIsInvalid() {
+        RuntimeTuning.Settings before = tuning.current();
+
+        assertThatThrownBy(() -> tuning.apply(s -> new RuntimeTuning.Settings(
+                500, 0, 50, 8, 6, 10L), "ops", null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("maxInFlightBatches")
+                .hasMessageContaining("workerMaxPoolSize")
+                .hasMessageContaining("reclaimerIntervalMs");
+
+        // The valid streamReadCount was not applied either.
+        assertThat(tuning.current()).isEqualTo(before);
+        assertThat(workers.getCorePoolSize()).isEqualTo(4);
+        verify(consumer, never()).resizeInFlight(anyInt());
+        assertThat(tuning.history()).isEmpty();
+    }
+
+    @Test
+    void unchangedSettingsAreNotAudited() {
+        tuning.apply(s -> s, "ops", "no-op");
+
+        assertThat(tuning.history()).isEmpty();
+        verify(consumer, never()).rescheduleReclaimer();
+    }
+}
@@ -0,0 +1,85 @@
+-- Pending-page query latency: plain vs range-partitioned `exceptions`, with and without the
+-- pending horizon bound (app.partitioning). Run against a scratch Postgres 14+ database:
+--
+--   psql -d bench -v rows=100000000 -f partitioned_pending_query.sql
+--
+-- 100M rows need roughly 25 GB of disk with indexes and take a while to load; use
+-- -v rows=10000000 for a quick run. Rows span ~100 days, 50k securityIds; all but the
+-- newest 0.1% are processed, which is the steady state the partitioning targets.
+-- What to look for in the plans: execution time, shared buffers hit/read, and for the
+-- bounded query "Subplans Removed" (partitions pruned at executor start).
+
+\timing on
+\if :{?rows}
+\else
+\set rows 100000000
+\endif
+
+DROP TABLE IF EXISTS bench_flat, bench_part;
+
+CREATE TABLE bench_flat (
+    id bigint PRIMARY KEY,
+    service_name varchar(255) NOT NULL,
+    severity varchar(255) NOT NULL,
+    message varchar(255) NOT NULL,
+    occurred_at timestamptz NOT NULL,
+    security_id varchar(255) NOT NULL,
+    processed_at timestamptz
+);
+CREATE TABLE bench_part (LIKE bench_flat INCLUDING DEFAULTS) PARTITION BY RANGE (occurred_at);
+ALTER TABLE bench_part ADD PRIMARY KEY (id, occurred_at);
+-- Weekly partitions, as with app.partitioning.partition-days=7.
+SELECT format('CREATE TABLE bench_part_%s PARTITION OF bench_part FOR VALUES FROM (%L) TO (%L)',
+              to_char(d, 'YYYYMMDD'), d, d + interval '7 days')
+FROM generate_series(timestamptz '2024-01-01 00:00+00', timestamptz '2024-04-15 00:00+00', interval '7 days') d
+\gexec
+
+-- ~86 ms between rows: :rows rows cover ~100 days from 2024-01-01.
+INSERT INTO bench_flat
+SELECT g, 'bench',
+       (ARRAY['LOW', 'MEDIUM', 'HIGH', 'CRITICAL'])[1 + g % 4],
+       'bench row',
+       timestamptz '2024-01-01 00:00+00' + (g * (8640000000.0 / :rows)) * interval '1 ms',
+       'SEC_' || (g % 50000),
+       CASE WHEN g > :rows - :rows / 1000 THEN NULL
+            ELSE timestamptz '2024-01-01 00:00+00' + (g * (8640000000.0 / :rows)) * interval '1 ms' + interval '1 second' END
+FROM generate_series(1, :rows) g;
+INSERT INTO bench_part SELECT * FROM bench_flat;
+
+-- Same indexes as the entity / partitioning migration.
+CREATE INDEX ON bench_flat (security_id, occurred_at, id);
+CREATE INDEX ON bench_flat (processed_at, occurred_at, id);
+CREATE INDEX ON bench_part (security_id, occurred_at, id);
+CREATE INDEX ON bench_part (processed_at, occurred_at, id);
+CREATE INDEX ON bench_part (security_id, occurred_at, id) WHERE processed_at IS NULL;
+VACUUM ANALYZE bench_flat;
+VACUUM ANALYZE bench_part;
+
+-- One chunk of 100 securityIds, as the service queries it (array-parameter form).
+\set ids '''{SEC_1,SEC_101,SEC_201,SEC_301,SEC_401,SEC_501,SEC_601,SEC_701,SEC_801,SEC_901,SEC_1001,SEC_1101,SEC_1201,SEC_1301,SEC_1401,SEC_1501,SEC_1601,SEC_1701,SEC_1801,SEC_1901,SEC_2001,SEC_2101,SEC_2201,SEC_2301,SEC_2401,SEC_2501,SEC_2601,SEC_2701,SEC_2801,SEC_2901,SEC_3001,SEC_3101,SEC_3201,SEC_3301,SEC_3401,SEC_3501,SEC_3601,SEC_3701,SEC_3801,SEC_3901,SEC_4001,SEC_4101,SEC_4201,SEC_4301,SEC_4401,SEC_4501,SEC_4601,SEC_4701,SEC_4801,SEC_4901,SEC_5001,SEC_5101,SEC_5201,SEC_5301,SEC_5401,SEC_5501,SEC_5601,SEC_5701,SEC_5801,SEC_5901,SEC_6001,SEC_6101,SEC_6201,SEC_6301,SEC_6401,SEC_6501,SEC_6601,SEC_6701,SEC_6801,SEC_6901,SEC_7001,SEC_7101,SEC_7201,SEC_7301,SEC_7401,SEC_7501,SEC_7601,SEC_7701,SEC_7801,SEC_7901,SEC_8001,SEC_8101,SEC_8201,SEC_8301,SEC_8401,SEC_8501,SEC_8601,SEC_8701,SEC_8801,SEC_8901,SEC_9001,SEC_9101,SEC_9201,SEC_9301,SEC_9401,SEC_9501,SEC_9601,SEC_9701,SEC_9801,SEC_9901}'''
+
+PREPARE flat_page(varchar[]) AS
+    SELECT * FROM bench_flat
+    WHERE security_id = ANY($1) AND processed_at IS NULL
+    ORDER BY occurred_at, id LIMIT 1000;
+PREPARE part_page(varchar[]) AS
+    SELECT * FROM bench_part
+    WHERE security_id = ANY($1) AND processed_at IS NULL
+    ORDER BY occurred_at, id LIMIT 1000;
+-- First page with the pending horizon (PendingHorizon): keyset seek from (horizon, MIN).
+PREPARE part_page_bounded(varchar[], timestamptz) AS
+    SELECT * FROM bench_part
+    WHERE security_id = ANY($1) AND processed_at IS NULL
+      AND (occurred_at > $2 OR (occurred_at = $2 AND id > -9223372036854775808))
+    ORDER BY occurred_at, id LIMIT 1000;
+
+-- Horizon as the service computes it: oldest pending occurred_at minus one day.
+SELECT min(occurred_at) - interval '1 day' AS horizon FROM bench_part WHERE processed_at IS NULL \gset
+
+-- Six executions each so the generic plan (plan cache) is in use for the last ones.
+SELECT format('EXECUTE %s(%L%s)', q, :ids, CASE WHEN q = 'part_page_bounded' THEN ', ' || quote_literal(:'horizon') ELSE '' END)
+FROM unnest(ARRAY['flat_page', 'part_page', 'part_page_bounded']) q, generate_series(1, 5)
+\gexec
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE flat_page(:ids);
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE part_page(:ids);
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE part_page_bounded(:ids, :'horizon');